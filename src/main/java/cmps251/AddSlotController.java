@@ -2,6 +2,7 @@ package cmps251;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -9,8 +10,10 @@ import java.util.LinkedHashSet;
 import cmps251.models.Patient;
 import cmps251.models.Service;
 import cmps251.models.Slot;
+import cmps251.models.SlotCandidate;
 import cmps251.repos.PatientRepository;
 import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotHold;
 import cmps251.repos.SlotRepository;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -29,6 +32,9 @@ import javafx.stage.Stage;
 /**
  * Controller class for the add_slot.fxml scene
  * 
+ * <p> The picked time is held while the form is open, so that no other desk can book it before the form is submitted.
+ * The hold is released once the window is closed, or expires on its own if the form is left open for too long
+ * 
  * <p> <i>Created on 20/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
@@ -45,8 +51,9 @@ public class AddSlotController {
 	public static AddSlotController scene;
 	public boolean editing = false;
 	public Slot data;
+	private SlotHold hold;
 
-	ObservableList<Slot> availableSlots = FXCollections.observableArrayList();
+	ObservableList<SlotCandidate> availableSlots = FXCollections.observableArrayList();
 	ObservableList<String> times = FXCollections.observableArrayList();
 	ObservableList<String> services = FXCollections.observableArrayList(getServiceTitles(ServiceRepository.getServicesAsList()));
 	ObservableList<String> patients = FXCollections.observableArrayList(getPatientNames(PatientRepository.getPatientsAsList()));
@@ -106,21 +113,25 @@ public class AddSlotController {
 //region
 
 	/** 
-	 * Transforms a list of slots to a list of strings of the slot's times
+	 * Transforms a list of free slot candidates to a list of strings of the candidate's times
 	 * 
-	 * @param slots						- the list of slots
+	 * @param candidates				- the list of candidates
+	 * @param extraSlot					- a slot whose time should also be included, or null
+	 * @param extraHold					- a hold whose time should also be included, or null
 	 * 
 	 * @return ArrayList<String>		- a list of times
 	 */
-	private static ArrayList<String> getSlotTime(ArrayList<Slot> slots) {
+	private static ArrayList<String> getSlotTime(ArrayList<SlotCandidate> candidates, Slot extraSlot, SlotHold extraHold) {
 		ArrayList<String> times = new ArrayList<String>();
-		for (Slot slot : slots) times.add(slot.getTime().toString());
+		for (SlotCandidate candidate : candidates) times.add(candidate.getTime().toString());
+		if (extraSlot != null) times.add(extraSlot.getTime().toString());
+		if (extraHold != null) times.add(extraHold.getTime().toString());
 		times = new ArrayList<>(new LinkedHashSet<>(times));
 		Collections.sort(times);
 		return times;
 	}
-	private static ArrayList<String> getSlotTime(ObservableList<Slot> slots) {
-		return getSlotTime(new ArrayList<>(slots));
+	private static ArrayList<String> getSlotTime(ObservableList<SlotCandidate> candidates, Slot extraSlot, SlotHold extraHold) {
+		return getSlotTime(new ArrayList<>(candidates), extraSlot, extraHold);
 	}
 
 	/** 
@@ -189,6 +200,78 @@ public class AddSlotController {
 		slotPatient.setItems(patients);
 	}
 
+	/**
+	 * Checks if the form's hold is still active and holds the given date and time under the given service
+	 * 
+	 * @param date					- the picked date
+	 * @param time					- the picked time, or null to only check the date and service
+	 * @param service				- the picked service
+	 * 
+	 * @return boolean				- is the picked time held?
+	 */
+	private boolean isHeld(LocalDate date, LocalTime time, Service service) {
+		return hold != null && hold.isActive() && service != null && hold.getService().getId().equals(service.getId()) && hold.getDate().equals(date) && (time == null || hold.getTime().equals(time));
+	}
+
+	/**
+	 * Holds the picked time under the picked service and date, releasing the time held before, if any.
+	 * If the picked time was taken in the meantime, the user is told straight away instead of once the form is submitted
+	 */
+	private void updateHold() {
+
+		//	If the picked time is already held then keep it
+		LocalDate date = slotDate.getValue();
+		LocalTime time = getPickedTime();
+		Service service = getPickedService();
+		if (isHeld(date, time, service) && time != null) return;
+
+		//	Else release the old hold, and hold the picked time unless it is the edited slot's own time
+		SlotRepository.releaseHold(hold);
+		hold = null;
+		if (date == null || time == null || service == null) return;
+		if (editing && data.getDate().equals(date) && data.getTime().equals(time) && data.getAllocatedService().getId().equals(service.getId())) return;
+		try {
+			hold = SlotRepository.holdSlot(date, time, service);
+		}
+		catch (RuntimeException e) {
+			slotTime.setValue(null);
+			Alert alert = new Alert(AlertType.ERROR, e.getMessage(), ButtonType.OK);
+			alert.getDialogPane().setMinHeight(Region.USE_PREF_SIZE);
+			alert.show();
+			return;
+		}
+
+		//	Release the hold if the window is closed without booking it
+		Stage stage = (Stage) cancelButton.getScene().getWindow();
+		if (stage.getOnHidden() == null) stage.setOnHidden(event -> SlotRepository.releaseHold(hold));
+
+	}
+
+	/**
+	 * Returns the time picked in the form, or null if none or an invalid time is picked
+	 * 
+	 * @return LocalTime			- the picked time
+	 */
+	private LocalTime getPickedTime() {
+		try {
+			return slotTime.getValue() != null && !slotTime.getValue().isBlank() ? LocalTime.parse(slotTime.getValue()) : null;
+		}
+		catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the service picked in the form, or null if none or an unknown service is picked
+	 * 
+	 * @return Service				- the picked service
+	 */
+	private Service getPickedService() {
+		if (slotService.getValue() == null || slotService.getValue().isBlank()) return null;
+		ArrayList<Service> matches = ServiceRepository.getServicesByTitle(slotService.getValue());
+		return matches.isEmpty() ? null : matches.get(0);
+	}
+
 //endregion
 
 
@@ -203,13 +286,25 @@ public class AddSlotController {
     void handleDataChange(Event event) {
 		LocalDate date = slotDate.getValue();
 		String time = slotTime.getValue();
-		Service service = slotService.getValue() != null && !slotService.getValue().isBlank() ? ServiceRepository.getServicesByTitle(slotService.getValue()).get(0) : null;
-		if (date != null && service != null) this.availableSlots.setAll(SlotRepository.getAvailableSlotsByDateService(date, service));
-		else if (date != null) this.availableSlots.setAll(SlotRepository.getAvailableSlotsByDate(date));
-		if (editing) this.availableSlots.add(data);
-		this.times.setAll(getSlotTime(availableSlots));
+		Service service = getPickedService();
+		if (!isHeld(date, null, service)) {
+			SlotRepository.releaseHold(hold);
+			hold = null;
+		}
+		if (date != null && service != null) this.availableSlots.setAll(SlotRepository.getAvailableCandidatesByDateService(date, service));
+		else if (date != null) this.availableSlots.setAll(SlotRepository.getAvailableCandidatesByDate(date));
+		this.times.setAll(getSlotTime(availableSlots, editing ? data : null, hold));
 		if (this.times.contains(time)) slotTime.setValue(time);
 		else slotTime.setValue(null);
+		updateHold();
+    }
+
+	/**
+	 * Function called when the user picks a time
+	 */
+    @FXML
+    void handleTimeChange(Event event) {
+		updateHold();
     }
 
 	/**
@@ -228,12 +323,19 @@ public class AddSlotController {
     void handleSubmitForm(Event event) {
 		try {
 			LocalDate date = slotDate.getValue();
-			LocalTime time = slotTime.getValue() != null && !slotTime.getValue().isBlank() ? LocalTime.parse(slotTime.getValue()) : null;
-			Service service = slotService.getValue() != null && !slotService.getValue().isBlank() ? ServiceRepository.getServicesByTitle(slotService.getValue()).get(0) : null;
+			LocalTime time = getPickedTime();
+			Service service = getPickedService();
 			Patient patient = slotPatient.getValue() != null && !slotPatient.getValue().isBlank() ? PatientRepository.getPatientsByName(slotPatient.getValue()).get(0) : null;
 			if (date == null || time == null || service == null || patient == null) throw new Exception("Please enter all the required data");
-			if (!editing) SlotRepository.bookSlot(date, time, service, patient);
-			else SlotRepository.updateSlot(data.getId(), new Slot(date, time, service, patient));
+			if (!editing && isHeld(date, time, service)) SlotRepository.bookHeldSlot(hold, patient);
+			else if (!editing) SlotRepository.bookSlot(date, time, service, patient);
+			else {
+
+				//	A slot cannot be moved onto a hold, so release it just before moving the slot there
+				SlotRepository.releaseHold(hold);
+				SlotRepository.updateSlot(data.getId(), new Slot(date, time, service, patient));
+
+			}
 			MainController.scene.refreshAll();
 			Stage stage = (Stage) cancelButton.getScene().getWindow();
 			stage.close();
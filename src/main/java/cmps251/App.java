@@ -1,6 +1,7 @@
 package cmps251;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -10,6 +11,8 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import cmps251.models.Patient;
 import cmps251.models.Service;
@@ -19,6 +22,8 @@ import cmps251.repos.AdminRepository;
 import cmps251.repos.PatientRepository;
 import cmps251.repos.ServiceRepository;
 import cmps251.repos.SlotRepository;
+import cmps251.utils.MutationPipeline;
+import cmps251.utils.WriteAheadLog;
 
 /**
  * Class used to start the JavaFX application
@@ -38,6 +43,8 @@ public class App extends Application {
 
 	private static Scene scene;
 
+	private static CompletableFuture<Map<String, Long>> loading;
+
 //endregion
 
 
@@ -79,13 +86,29 @@ public class App extends Application {
 	/**
 	 * This function is called when the application first starts.
 	 * Here we should specify which fxml file to use
+	 * 
+	 * <p> The main window is shown straight away in its loading state, while the data is loaded in the background.
+	 * If the pipeline is enabled, every change is then applied by its writer thread, which also copies the data for each save
 	 */
 	@Override
 	public void start(Stage stage) throws IOException {
-		AdminRepository.initializeData();
 		scene = new Scene(loadFXML("main"), 600, 400);
 		stage.setScene(scene);
 		stage.show();
+		MainController.scene.setLoading(true);
+		loading = AdminRepository.initializeDataAsync();
+		loading.whenComplete((timings, e) -> Platform.runLater(() -> {
+			if (e != null) {
+				System.err.printf("We were unable to load the data! %n");
+				System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			}
+			MainController.scene.setLoading(false);
+			if (MutationPipeline.isEnabled()) {
+				MutationPipeline.start();
+				AdminRepository.startAutoSave(MutationPipeline::submit);
+			}
+			else AdminRepository.startAutoSave(Platform::runLater);
+		}));
 	}
 
 	/**
@@ -94,7 +117,11 @@ public class App extends Application {
 	 */
 	@Override
 	public void stop() throws Exception {
+		if (loading != null) loading.exceptionally(e -> null).join();
+		AdminRepository.stopAutoSave();
+		MutationPipeline.stop();
 		AdminRepository.saveData();
+		WriteAheadLog.close();
 		super.stop();
 	}
 
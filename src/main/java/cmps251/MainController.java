@@ -3,6 +3,7 @@ package cmps251;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 
@@ -10,6 +11,7 @@ import cmps251.components.TableCellButton;
 import cmps251.models.Patient;
 import cmps251.models.Service;
 import cmps251.models.Slot;
+import cmps251.repos.DataVersion;
 import cmps251.repos.PatientRepository;
 import cmps251.repos.ServiceRepository;
 import cmps251.repos.SlotRepository;
@@ -22,6 +24,7 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
 import javafx.scene.control.SingleSelectionModel;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
@@ -37,7 +40,7 @@ import javafx.util.Callback;
  * <p> <i>Created on 19/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.22
+ * @version		1.23
  * @since		1.14
  */
 public class MainController {
@@ -49,9 +52,9 @@ public class MainController {
 
 	public static MainController scene;
 
-	ObservableList<Slot> slots = FXCollections.observableArrayList(SlotRepository.getSlotsAsList());
-	ObservableList<Service> services = FXCollections.observableArrayList(ServiceRepository.getServicesAsList());
-	ObservableList<Patient> patients = FXCollections.observableArrayList(PatientRepository.getPatientsAsList());
+	ObservableList<Slot> slots = FXCollections.observableArrayList();
+	ObservableList<Service> services = FXCollections.observableArrayList();
+	ObservableList<Patient> patients = FXCollections.observableArrayList();
 
 	ObservableList<String> serviceTitles = FXCollections.observableArrayList();
 	ObservableList<String> patientNames = FXCollections.observableArrayList();
@@ -241,6 +244,25 @@ public class MainController {
 		return getPatientNames(new ArrayList<>(patients));
 	}
 
+	/** 
+	 * Gets the slots shown when no date is picked, which are those from the start of the current month onwards.
+	 * Older slots are only read once their date is picked, so a refresh never restores the whole archive
+	 * 
+	 * @return ArrayList<Slot>			- the list of slots
+	 */
+	private static ArrayList<Slot> getShownSlots(DataVersion version) {
+		return version.getSlotsBetweenDates(YearMonth.now().atDay(1), LocalDate.MAX);
+	}
+
+	/** 
+	 * Pins the latest version of the data, only loading the months of slots that are shown when no date is picked
+	 * 
+	 * @return DataVersion				- the pinned version
+	 */
+	private static DataVersion pinShown() {
+		return DataVersion.pin(YearMonth.now().atDay(1), LocalDate.MAX);
+	}
+
 //endregion
 
 
@@ -338,7 +360,21 @@ public class MainController {
 	}
 
 	/**
-	 * Refreshes all the tabs in the scene
+	 * Shows or hides the loading state of the scene, which should be shown until the data has finished loading.
+	 * While loading, the tabs are disabled and the tables show a loading message
+	 * 
+	 * @param loading			- is the data still loading?
+	 */
+	public void setLoading(boolean loading) {
+		tabContainer.setDisable(loading);
+		tableSlots.setPlaceholder(loading ? new Label("Loading data...") : null);
+		tableServices.setPlaceholder(loading ? new Label("Loading data...") : null);
+		tablePatients.setPlaceholder(loading ? new Label("Loading data...") : null);
+		if (!loading) refreshAll();
+	}
+
+	/**
+	 * Refreshes all the tabs in the scene, reading every tab from the same version of the data
 	 */
 	public void refreshAll() {
 		if (slotsDateBox != null) slotsDateBox.setValue(null);
@@ -347,12 +383,13 @@ public class MainController {
 		if (servicesSearchBox != null) servicesSearchBox.setValue(null);
 		if (patientsSearchBox != null) patientsSearchBox.setValue(null);
 
-		this.slots.setAll(SlotRepository.getSlotsAsList());
+		DataVersion version = pinShown();
+		this.slots.setAll(getShownSlots(version));
 		this.serviceTitles.setAll(getServiceTitles(getSlotServices(this.slots)));
 		this.patientNames.setAll(getPatientNames(getSlotPatients(this.slots)));
-		this.services.setAll(ServiceRepository.getServicesAsList());
+		this.services.setAll(version.getServicesAsList());
 		this.serviceTitles.setAll(getServiceTitles(this.services));
-		this.patients.setAll(PatientRepository.getPatientsAsList());
+		this.patients.setAll(version.getPatientsAsList());
 		this.patientNames.setAll(getPatientNames(this.patients));
 	}
 
@@ -374,17 +411,18 @@ public class MainController {
 		if (servicesSearchBox != null) servicesSearchBox.setValue(null);
 		if (patientsSearchBox != null) patientsSearchBox.setValue(null);
 
+		DataVersion version = pinShown();
 		if (event.getTarget().equals(tabSlots)) {
-			this.slots.setAll(SlotRepository.getSlotsAsList());
-			this.serviceTitles.setAll(getServiceTitles(ServiceRepository.getServicesAsList()));
-			this.patientNames.setAll(getPatientNames(PatientRepository.getPatientsAsList()));
+			this.slots.setAll(getShownSlots(version));
+			this.serviceTitles.setAll(getServiceTitles(version.getServicesAsList()));
+			this.patientNames.setAll(getPatientNames(version.getPatientsAsList()));
 		}
 		if (event.getTarget().equals(tabServices)) {
-			this.services.setAll(ServiceRepository.getServicesAsList());
+			this.services.setAll(version.getServicesAsList());
 			this.serviceTitles.setAll(getServiceTitles(this.services));
 		}
 		if (event.getTarget().equals(tabPatients)) {
-			this.patients.setAll(PatientRepository.getPatientsAsList());
+			this.patients.setAll(version.getPatientsAsList());
 			this.patientNames.setAll(getPatientNames(this.patients));
 		}
     }
@@ -408,7 +446,7 @@ public class MainController {
 			else if (slotsPatient != null) this.slots.setAll(SlotRepository.getSlotsByPatient(slotsPatient));
 			else if (slotsService != null) this.slots.setAll(SlotRepository.getSlotsByService(slotsService));
 			else if (slotsDate != null) this.slots.setAll(SlotRepository.getSlotsByDate(slotsDate));
-			else this.slots.setAll(SlotRepository.getSlotsAsList());
+			else this.slots.setAll(getShownSlots(pinShown()));
 		}
 		if (event.getTarget().equals(servicesSearchBox) && servicesSearch != null) {
 			if (!servicesSearch.isBlank()) this.services.setAll(ServiceRepository.getServicesByTitle(servicesSearch));
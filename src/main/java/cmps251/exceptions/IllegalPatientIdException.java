@@ -1,5 +1,7 @@
 package cmps251.exceptions;
 
+import cmps251.models.ValidationCode;
+
 /**
  * This is an exception that occurs when a patient is given an invalid id.
  * 
@@ -15,14 +17,14 @@ package cmps251.exceptions;
  * <p> <i>Created on 18/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.10
+ * @version		1.23
  * @since		1.10
  */
-public class IllegalPatientIdException extends RuntimeException {
+public class IllegalPatientIdException extends ValidationException {
 
 
 
-/* ------------------------------- Constructor ------------------------------ */
+/* ------------------------------ Constructors ------------------------------ */
 //region
 
 	/**
@@ -34,6 +36,17 @@ public class IllegalPatientIdException extends RuntimeException {
 		super(errorMessage);
 	}
 
+	/**
+     * Constructs an {@code IllegalPatientIdException} without a stack trace, for the given validation code.
+     * These should only be created through {@code ValidationCode.toException}.
+     *
+     * @param   code				the validation code.
+     * @param   args				the arguments of the code's message.
+     */
+	public IllegalPatientIdException(ValidationCode code, Object[] args) {
+		super(code, args);
+	}
+
 //endregion
 	
 
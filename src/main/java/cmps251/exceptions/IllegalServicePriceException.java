@@ -1,5 +1,7 @@
 package cmps251.exceptions;
 
+import cmps251.models.ValidationCode;
+
 /**
  * This is an exception that occurs when a service constructor is given an incorrect maximum number of slots.
  * 
@@ -13,14 +15,14 @@ package cmps251.exceptions;
  * <p> <i>Created on 17/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.6
+ * @version		1.23
  * @since		1.6
  */
-public class IllegalServicePriceException extends RuntimeException {
+public class IllegalServicePriceException extends ValidationException {
 
 
 
-/* ------------------------------- Constructor ------------------------------ */
+/* ------------------------------ Constructors ------------------------------ */
 //region
 
 	/**
@@ -32,6 +34,17 @@ public class IllegalServicePriceException extends RuntimeException {
 		super(errorMessage);
 	}
 
+	/**
+     * Constructs an {@code IllegalServicePriceException} without a stack trace, for the given validation code.
+     * These should only be created through {@code ValidationCode.toException}.
+     *
+     * @param   code				the validation code.
+     * @param   args				the arguments of the code's message.
+     */
+	public IllegalServicePriceException(ValidationCode code, Object[] args) {
+		super(code, args);
+	}
+
 //endregion
 	
 
@@ -1,5 +1,7 @@
 package cmps251.exceptions;
 
+import cmps251.models.ValidationCode;
+
 /**
  * This is an exception that occurs when a slot constructor is given an incorrect time.
  * 
@@ -9,19 +11,20 @@ package cmps251.exceptions;
  * 		<li> the given time starts before 7:00AM or after 8:30PM
  * 		<li> the given time is not within 30 minute time intervals
  * 		<li> the given time at the current slot date is in the past
+ * 		<li> the given time is outside the opening hours of the current slot date
  * </ul>
  * 
  * <p> <i>Created on 17/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.2
+ * @version		1.23
  * @since		1.2
  */
-public class IllegalSlotTimeException extends RuntimeException {
+public class IllegalSlotTimeException extends ValidationException {
 
 
 
-/* ------------------------------- Constructor ------------------------------ */
+/* ------------------------------ Constructors ------------------------------ */
 //region
 
 	/**
@@ -33,6 +36,17 @@ public class IllegalSlotTimeException extends RuntimeException {
 		super(errorMessage);
 	}
 
+	/**
+     * Constructs an {@code IllegalSlotTimeException} without a stack trace, for the given validation code.
+     * These should only be created through {@code ValidationCode.toException}.
+     *
+     * @param   code				the validation code.
+     * @param   args				the arguments of the code's message.
+     */
+	public IllegalSlotTimeException(ValidationCode code, Object[] args) {
+		super(code, args);
+	}
+
 //endregion
 	
 
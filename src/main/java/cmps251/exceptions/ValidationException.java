@@ -0,0 +1,89 @@
+package cmps251.exceptions;
+
+import cmps251.models.ValidationCode;
+
+/**
+ * This is the base of the exceptions that occur when a patient, service or slot is given invalid data.
+ *
+ * <p> An exception created from a {@code ValidationCode} has no stack trace and cannot be changed,
+ * so the same one can be thrown again from any thread. Its message is only formatted from the code's template once it is asked for.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public abstract class ValidationException extends RuntimeException {
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private static final long serialVersionUID = 1L;
+
+	private final ValidationCode code;
+	private final Object[] args;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+     * Constructs a {@code ValidationException} with the specified error message.
+     *
+     * @param   errorMessage		the error message.
+     */
+	protected ValidationException(String errorMessage) {
+		super(errorMessage);
+		this.code = null;
+		this.args = null;
+	}
+
+	/**
+     * Constructs a {@code ValidationException} without a stack trace, whose message is formatted from the given code and arguments.
+     *
+     * @param   code				the validation code.
+     * @param   args				the arguments of the code's message.
+     */
+	protected ValidationException(ValidationCode code, Object[] args) {
+		super(null, null, false, false);
+		this.code = code;
+		this.args = args;
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+     * Returns the validation code of this exception, or null if it was created with a message.
+     *
+     * @return  ValidationCode		the validation code.
+     */
+	public ValidationCode getCode() {
+		return code;
+	}
+
+	/**
+     * Returns the error message, formatting it from the validation code if there is one.
+     *
+     * @return  String				the error message.
+     */
+	@Override
+	public String getMessage() {
+		return code == null ? super.getMessage() : code.format(args);
+	}
+
+//endregion
+
+
+
+}
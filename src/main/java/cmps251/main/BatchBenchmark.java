@@ -0,0 +1,173 @@
+package cmps251.main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotRepository;
+import cmps251.utils.WriteAheadLog;
+
+/**
+ * This class benchmarks booking many slots at once in the Sehha hospital reception system
+ *
+ * <p> It books the same slots either one by one with {@code bookSlot} or in batches with {@code bookSlots},
+ * and prints the average time per slot for each batch size together with the speedup of the batches.
+ * The write-ahead log is kept open while measuring, as it is in the application, so it must not already exist in the working directory.
+ * The batch sizes can be passed in as program arguments, otherwise 10, 100, 1k, and 10k slots are used.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class BatchBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int NUM_SERVICES = 10;
+	private static final int NUM_PATIENTS = 10;
+	private static final int NUM_SLOTS = 100_000;
+	private static final int NUM_RUNS = 3;
+	private static final int[] DEFAULT_SIZES = { 10, 100, 1_000, 10_000 };
+
+	private static final ArrayList<Service> services = new ArrayList<>();
+	private static final ArrayList<Patient> patients = new ArrayList<>();
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) throws IOException {
+
+		//	Parse the batch sizes to benchmark, if any were given
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		//	Create a few services and patients, and every slot to book up front so that creating them is not measured
+		for (int i = 0; i < NUM_SERVICES; i++) {
+			Service service = new Service("Batch Service " + (char)('A' + i), Slot.MAX_SLOTS_PER_DAY, 100);
+			ServiceRepository.addService(service);
+			services.add(service);
+		}
+		for (int i = 0; i < NUM_PATIENTS; i++) {
+			Patient patient = new Patient(String.format("%011d", 40_000_000_000L + i), "Batch Patient", ResidencyType.RESIDENT);
+			PatientRepository.addPatient(patient);
+			patients.add(patient);
+		}
+		ArrayList<Slot> slotList = createSlots();
+
+		//	Record every booking in the write-ahead log, unless it holds changes that have not been saved yet
+		if (Files.exists(Paths.get(WriteAheadLog.FILE_NAME))) {
+			System.err.printf("The benchmark cannot be run while the file %s exists! %n", WriteAheadLog.FILE_NAME);
+			return;
+		}
+		WriteAheadLog.open();
+
+		//	Warm up once and then measure each batch size
+		measureSingle(slotList);
+		measureBatches(slotList, sizes[sizes.length - 1]);
+		System.out.printf("%12s %18s %18s %10s %n", "Batch size", "Single (ns/slot)", "Batch (ns/slot)", "Speedup");
+		for (int size : sizes) {
+			long single = 0;
+			long batch = 0;
+			for (int run = 0; run < NUM_RUNS; run++) {
+				single += measureSingle(slotList);
+				batch += measureBatches(slotList, size);
+			}
+			System.out.printf("%12d %18d %18d %9.1fx %n", size, single / NUM_RUNS, batch / NUM_RUNS, (double)single / batch);
+		}
+
+		//	Delete the log again
+		WriteAheadLog.close();
+		WriteAheadLog.truncate();
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Creates the slots to book, where every patient is booked at the same time with a different service each day
+	 *
+	 * @return ArrayList<Slot>		- the slots, each with its allocated service and patient
+	 */
+	private static ArrayList<Slot> createSlots() {
+		ArrayList<Slot> slotList = new ArrayList<>(NUM_SLOTS);
+		LocalDate start = LocalDate.now().plusDays(1);
+		for (int i = 0; i < NUM_SLOTS; i++) {
+			int patient = i % NUM_PATIENTS;
+			int interval = (i / NUM_PATIENTS) % Slot.MAX_SLOTS_PER_DAY;
+			int day = i / (NUM_PATIENTS * Slot.MAX_SLOTS_PER_DAY);
+			LocalTime time = Slot.MIN_TIME.plusMinutes((long)interval * Slot.SLOT_DURATION);
+			slotList.add(new Slot(start.plusDays(day), time, services.get((patient + day) % NUM_SERVICES), patients.get(patient)));
+		}
+		return slotList;
+	}
+
+	/**
+	 * Measures the average time it takes to book each of the given slots on its own
+	 *
+	 * @param slotList				- the slots to book
+	 *
+	 * @return long					- the average time per slot in nanoseconds
+	 */
+	private static long measureSingle(ArrayList<Slot> slotList) throws IOException {
+		SlotRepository.loadSlots(new TreeMap<>());
+		WriteAheadLog.truncate();
+		long start = System.nanoTime();
+		for (Slot slot : slotList) SlotRepository.bookSlot(slot, slot.getAllocatedPatient());
+		return (System.nanoTime() - start) / slotList.size();
+	}
+
+	/**
+	 * Measures the average time it takes to book the given slots in batches of the given size
+	 *
+	 * @param slotList				- the slots to book
+	 * @param size					- the number of slots in each batch
+	 *
+	 * @return long					- the average time per slot in nanoseconds
+	 */
+	private static long measureBatches(ArrayList<Slot> slotList, int size) throws IOException {
+
+		//	Split the slots into batches before measuring
+		SlotRepository.loadSlots(new TreeMap<>());
+		WriteAheadLog.truncate();
+		ArrayList<ArrayList<Slot>> batches = new ArrayList<>();
+		for (int i = 0; i < slotList.size(); i += size) batches.add(new ArrayList<>(slotList.subList(i, Math.min(i + size, slotList.size()))));
+
+		//	Book every batch
+		long start = System.nanoTime();
+		for (ArrayList<Slot> batch : batches) SlotRepository.bookSlots(batch);
+		return (System.nanoTime() - start) / slotList.size();
+
+	}
+
+//endregion
+
+
+
+}
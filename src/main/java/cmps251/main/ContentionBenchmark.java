@@ -0,0 +1,207 @@
+package cmps251.main;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cmps251.exceptions.IllegalSlotDateException;
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotRepository;
+import cmps251.utils.MutationPipeline;
+
+/**
+ * This class benchmarks booking slots from many threads at once in the Sehha hospital reception system
+ *
+ * <p> Every thread repeatedly tries to book a random slot out of a few services and days and cancels it again once booked,
+ * so that most attempts clash with a booking made by another thread. The lock-free bookings of {@code SlotRepository} are compared
+ * against a baseline where every booking and cancellation is made while synchronized on a single lock, and against the same bookings
+ * handed over to the writer thread of {@code MutationPipeline}, reporting the number of attempts per millisecond for each number of threads.
+ * The lock-free bookings are also run with every thread querying the free slots of the service and date before each attempt, like the booking dialog does,
+ * so the cost of the availability cache, which every booking and cancellation invalidates, is measured as well.
+ * The numbers of threads can be passed in as program arguments, otherwise 1, 4, 16, and 64 threads are used.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class ContentionBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int NUM_SERVICES = 4;
+	private static final int NUM_PATIENTS = 64;
+	private static final int NUM_DAYS = 2;
+	private static final int NUM_INTERVALS = 8;
+	private static final long DURATION = 1000;
+	private static final int NUM_RUNS = 3;
+	private static final int[] DEFAULT_THREADS = { 1, 4, 16, 64 };
+
+	private static final Object baselineLock = new Object();
+	private static final ArrayList<Service> services = new ArrayList<>();
+	private static final ArrayList<Patient> patients = new ArrayList<>();
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) throws InterruptedException {
+
+		//	Parse the numbers of threads to benchmark, if any were given
+		int[] threadCounts = DEFAULT_THREADS;
+		if (args.length > 0) {
+			threadCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) threadCounts[i] = Integer.parseInt(args[i]);
+		}
+
+		//	Create a few services with a small daily limit and a few patients, so that bookings clash often
+		for (int i = 0; i < NUM_SERVICES; i++) {
+			Service service = new Service("Contention Service " + (char)('A' + i), NUM_INTERVALS / 2, 100);
+			ServiceRepository.addService(service);
+			services.add(service);
+		}
+		for (int i = 0; i < NUM_PATIENTS; i++) {
+			Patient patient = new Patient(String.format("%011d", 30_000_000_000L + i), "Contention Patient", ResidencyType.RESIDENT);
+			PatientRepository.addPatient(patient);
+			patients.add(patient);
+		}
+
+		//	Warm up once and then run the benchmark for each number of threads
+		runBenchmark(Math.max(1, threadCounts[threadCounts.length - 1]), false, false);
+		runBenchmark(Math.max(1, threadCounts[threadCounts.length - 1]), true, false);
+		runBenchmark(Math.max(1, threadCounts[threadCounts.length - 1]), false, true);
+		System.out.printf("%8s %20s %22s %20s %24s %n", "Threads", "Lock-free (ops/ms)", "Synchronized (ops/ms)", "Pipeline (ops/ms)", "With queries (ops/ms)");
+		for (int threads : threadCounts) {
+			long lockFree = 0;
+			long baseline = 0;
+			long pipeline = 0;
+			long queried = 0;
+			for (int run = 0; run < NUM_RUNS; run++) {
+				lockFree += runBenchmark(threads, false, false);
+				baseline += runBenchmark(threads, true, false);
+				MutationPipeline.start();
+				pipeline += runBenchmark(threads, false, false);
+				MutationPipeline.stop();
+				queried += runBenchmark(threads, false, true);
+			}
+			System.out.printf("%8d %20d %22d %20d %24d %n", threads, lockFree / NUM_RUNS, baseline / NUM_RUNS, pipeline / NUM_RUNS, queried / NUM_RUNS);
+		}
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Runs the given number of threads for {@code DURATION} milliseconds and returns the number of booking attempts per millisecond
+	 *
+	 * @param threads				- the number of threads to run
+	 * @param synchronize			- should every booking and cancellation synchronize on a single lock?
+	 * @param query					- should every attempt query the free slots of its service and date first?
+	 *
+	 * @return long					- the number of attempts per millisecond
+	 */
+	private static long runBenchmark(int threads, boolean synchronize, boolean query) throws InterruptedException {
+
+		//	Clear any slots from the previous run
+		SlotRepository.loadSlots(new TreeMap<>());
+
+		//	Start every thread at the same moment and stop them all once the time is up
+		AtomicLong attempts = new AtomicLong();
+		CountDownLatch ready = new CountDownLatch(1);
+		long[] deadline = new long[1];
+		ArrayList<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			int index = i;
+			Thread worker = new Thread(() -> {
+				try {
+					ready.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				attempts.addAndGet(bookUntil(index, deadline[0], synchronize, query));
+			}, "contention-worker-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+		deadline[0] = System.nanoTime() + DURATION * 1_000_000;
+		ready.countDown();
+		for (Thread worker : workers) worker.join();
+
+		//	Return the throughput
+		return attempts.get() / DURATION;
+
+	}
+
+	/**
+	 * Books random slots and cancels each one once booked until the given deadline
+	 *
+	 * @param thread				- the index of the thread, used to seed its random numbers
+	 * @param deadline				- the time to stop at, as given by {@code System.nanoTime}
+	 * @param synchronize			- should every booking and cancellation synchronize on a single lock?
+	 * @param query					- should every attempt query the free slots of its service and date first?
+	 *
+	 * @return long					- the number of booking attempts made
+	 */
+	private static long bookUntil(int thread, long deadline, boolean synchronize, boolean query) {
+		Random random = new Random(thread);
+		LocalDate start = LocalDate.now().plusDays(1);
+		long attempts = 0;
+		while (System.nanoTime() < deadline) {
+
+			//	Try to book a random slot for a random patient, querying the free slots of its service and date first if asked to
+			LocalTime time = Slot.MIN_TIME.plusMinutes((long)random.nextInt(NUM_INTERVALS) * Slot.SLOT_DURATION);
+			Slot slot = new Slot(start.plusDays(random.nextInt(NUM_DAYS)), time, services.get(random.nextInt(NUM_SERVICES)));
+			if (query) SlotRepository.getAvailableCandidatesByDateService(slot.getDate(), slot.getAllocatedService());
+			Patient patient = patients.get(random.nextInt(NUM_PATIENTS));
+			attempts++;
+			try {
+				if (synchronize) {
+					synchronized (baselineLock) {
+						SlotRepository.bookSlot(slot, patient);
+					}
+				}
+				else SlotRepository.bookSlot(slot, patient);
+			}
+			catch (IllegalSlotDateException e) {
+				continue;
+			}
+
+			//	If it was booked then cancel it again so that the repository stays the same size
+			if (synchronize) {
+				synchronized (baselineLock) {
+					SlotRepository.cancelSlot(slot.getId());
+				}
+			}
+			else SlotRepository.cancelSlot(slot.getId());
+
+		}
+		return attempts;
+	}
+
+//endregion
+
+
+
+}
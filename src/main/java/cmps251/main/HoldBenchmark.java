@@ -0,0 +1,157 @@
+package cmps251.main;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import cmps251.exceptions.IllegalSlotDateException;
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotHold;
+import cmps251.repos.SlotRepository;
+import cmps251.utils.TimeUtils;
+
+/**
+ * This class benchmarks holding slots while they are being booked in the Sehha hospital reception system
+ *
+ * <p> It holds every interval of a few services over many days, measures the time per hold and per availability query while they are held,
+ * and makes sure the queries skip every held interval and that no other booking can take one.
+ * A quarter of the holds are then booked and a quarter released, and the rest are left to expire on the timing wheel,
+ * after which every interval that was not booked must be free again. The time to live of the holds is shortened for the benchmark,
+ * unless the {@code sehha.hold.ttl} system property is set. The number of days can be passed in as a program argument.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class HoldBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int NUM_SERVICES = 10;
+	private static final int DEFAULT_DAYS = 50;
+	private static final long HOLD_TTL = 2000;
+	private static final long EXPIRY_TIMEOUT = 30000;
+
+	private static final ArrayList<Service> services = new ArrayList<>();
+	private static final ArrayList<Patient> patients = new ArrayList<>();
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) throws InterruptedException {
+
+		//	Shorten the time to live of the holds, unless it was set, and parse the number of days to hold
+		if (System.getProperty(SlotRepository.HOLD_TTL_PROPERTY) == null) System.setProperty(SlotRepository.HOLD_TTL_PROPERTY, String.valueOf(HOLD_TTL));
+		int days = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DAYS;
+
+		//	Create a few services with no daily limit, and a patient to book the holds of each service
+		for (int i = 0; i < NUM_SERVICES; i++) {
+			Service service = new Service("Hold Service " + (char)('A' + i), Slot.MAX_SLOTS_PER_DAY, 100);
+			ServiceRepository.addService(service);
+			services.add(service);
+			Patient patient = new Patient(String.format("%011d", 50_000_000_000L + i), "Hold Patient", ResidencyType.RESIDENT);
+			PatientRepository.addPatient(patient);
+			patients.add(patient);
+		}
+
+		//	Hold every interval of every service for each day
+		LocalDate start = LocalDate.now().plusDays(1);
+		ArrayList<SlotHold> holds = new ArrayList<>();
+		long holdStart = System.nanoTime();
+		for (int day = 0; day < days; day++) {
+			for (Service service : services) {
+				for (int index = 0; index < Slot.MAX_SLOTS_PER_DAY; index++) holds.add(SlotRepository.holdSlot(start.plusDays(day), TimeUtils.getIndexTime(index), service));
+			}
+		}
+		long holdTime = (System.nanoTime() - holdStart) / holds.size();
+		long expiryStart = System.currentTimeMillis();
+
+		//	Make sure the availability queries skip every held interval, and that none of them can be booked
+		ArrayList<String> errors = new ArrayList<>();
+		long queryStart = System.nanoTime();
+		int free = countFree(start, days);
+		long queryTime = (System.nanoTime() - queryStart) / (days * NUM_SERVICES);
+		if (free != 0) errors.add(free + " held intervals were returned as available");
+		for (int i = 0; i < holds.size(); i += Slot.MAX_SLOTS_PER_DAY + 1) {
+			SlotHold hold = holds.get(i);
+			try {
+				SlotRepository.bookSlot(hold.getDate(), hold.getTime(), hold.getService(), patients.get(services.indexOf(hold.getService())));
+				errors.add("The held interval " + hold + " could be booked by another desk");
+			}
+			catch (IllegalSlotDateException e) {
+			}
+		}
+
+		//	Book a quarter of the holds and release another quarter, leaving the rest to expire
+		int booked = 0;
+		long bookStart = System.nanoTime();
+		for (int i = 0; i < holds.size(); i += 4) {
+			SlotHold hold = holds.get(i);
+			SlotRepository.bookHeldSlot(hold, patients.get(services.indexOf(hold.getService())));
+			booked++;
+		}
+		long bookTime = (System.nanoTime() - bookStart) / booked;
+		for (int i = 1; i < holds.size(); i += 4) SlotRepository.releaseHold(holds.get(i));
+
+		//	Wait for the rest of the holds to expire
+		long ttl = SlotRepository.getHoldTtl();
+		while (SlotRepository.getWaitingHoldCount() > 0 && System.currentTimeMillis() - expiryStart < ttl + EXPIRY_TIMEOUT) Thread.sleep(10);
+		long expiryTime = System.currentTimeMillis() - expiryStart;
+
+		//	Make sure every interval that was not booked is free again
+		free = countFree(start, days);
+		if (free != holds.size() - booked) errors.add((holds.size() - booked - free) + " intervals were not freed once their holds ended");
+		for (SlotHold hold : holds) {
+			if (hold.isActive()) errors.add("The hold " + hold + " is still active after its time to live");
+		}
+
+		//	Print the results
+		System.out.printf("Holds: %d, hold: %d ns, query while held: %d ns, book held: %d ns, expired after: %d ms (time to live %d ms) %n",
+			holds.size(), holdTime, queryTime, bookTime, expiryTime, ttl);
+		for (int i = 0; i < Math.min(errors.size(), 10); i++) System.err.printf("%s! %n", errors.get(i));
+		if (!errors.isEmpty()) System.exit(1);
+		System.out.printf("Every held interval was skipped and freed again. %n");
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Counts the free intervals of every service over the given days
+	 *
+	 * @param start					- the first day
+	 * @param days					- the number of days
+	 *
+	 * @return int					- the number of free intervals
+	 */
+	private static int countFree(LocalDate start, int days) {
+		int free = 0;
+		for (int day = 0; day < days; day++) {
+			for (Service service : services) free += SlotRepository.getAvailableCandidatesByDateService(start.plusDays(day), service).size();
+		}
+		return free;
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,129 @@
+package cmps251.main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import cmps251.models.Patient;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.PatientImport;
+import cmps251.repos.PatientRepository;
+
+/**
+ * This class benchmarks importing a large CSV file of patients into the Sehha hospital reception system
+ *
+ * <p> It stores a few patients first, then writes a file of generated rows in which some rows are invalid in one of a few ways,
+ * some repeat the ID of a stored patient or of an earlier row, and some have quoted names. It imports the file, printing the progress
+ * after each chunk and the rows per second at the end, and makes sure the expected rows were imported and rejected for the expected reasons,
+ * and that every imported patient can be found. The number of rows can be passed in as a program argument.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class ImportBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int DEFAULT_ROWS = 500_000;
+	private static final int NUM_STORED = 1_000;
+	private static final long FIRST_ID = 40_000_000_000L;
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) throws IOException {
+
+		//	Store a few patients whose IDs some of the rows will repeat
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+		for (int i = 0; i < NUM_STORED; i++) PatientRepository.addPatient(new Patient(String.valueOf(FIRST_ID + i), "Stored Patient", ResidencyType.RESIDENT));
+		int before = PatientRepository.getPatients().size();
+
+		//	Write the file, counting the rows that should be rejected for each reason
+		Path file = Files.createTempFile("patients", ".csv");
+		Map<String, Integer> expected = new HashMap<>();
+		ArrayList<String> imported = new ArrayList<>();
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("id,name,residency");
+			writer.newLine();
+			for (int i = 0; i < rows; i++) {
+				String id = String.valueOf(FIRST_ID + NUM_STORED + i);
+				String row;
+				String reason = null;
+				switch (i % 20) {
+					case 3: row = id + ",Patient " + i + ",RESIDENT"; reason = "name"; break;
+					case 7: row = id + "X,Imported Patient,RESIDENT"; reason = "id"; break;
+					case 9: row = id + ",Imported Patient,VISITOR"; reason = "id"; break;
+					case 11: row = id + ",Imported Patient"; reason = "columns"; break;
+					case 13: row = id + ",Imported Patient,TOURIST"; reason = "residency"; break;
+					case 15: row = (FIRST_ID + i % NUM_STORED) + ",Imported Patient,RESIDENT"; reason = "stored"; break;
+					case 17: row = (FIRST_ID + NUM_STORED + i - 1) + ",Imported Patient,resident"; reason = "file"; break;
+					case 19: row = id + ",\"Patient, \"\"Quoted\"\"\",RESIDENT"; break;
+					default: row = id + ", Imported Patient , Resident"; break;
+				}
+				writer.write(row);
+				writer.newLine();
+				if (reason != null) expected.merge(reason, 1, Integer::sum);
+				else imported.add(id);
+				if (i % 1_000 == 0) writer.newLine();
+			}
+		}
+
+		//	Import it, printing the progress every few chunks
+		long chunkRows = 8L * PatientRepository.IMPORT_CHUNK_SIZE;
+		PatientImport report = PatientRepository.importPatients(file, progress -> {
+			if (progress.getRowCount() % chunkRows == 0) System.out.printf("Imported %d of %d rows... %n", progress.getRowCount(), rows);
+		});
+		Files.delete(file);
+
+		//	Count the rejected rows for each reason
+		Map<String, Integer> rejected = new HashMap<>();
+		for (PatientImport.Reject reject : report.getRejects()) {
+			String reason = reject.getReason().toLowerCase();
+			String key = reason.contains("already stored") ? "stored" : reason.contains("earlier in the file") ? "file" : reason.contains("id, a name") ? "columns"
+				: reason.contains("residency") ? "residency" : reason.contains("patient name") ? "name" : "id";
+			rejected.merge(key, 1, Integer::sum);
+		}
+
+		//	Make sure the expected rows were imported and rejected, and that the imported patients can be found
+		ArrayList<String> errors = new ArrayList<>();
+		if (report.getRowCount() != rows) errors.add("Read " + report.getRowCount() + " rows instead of " + rows);
+		if (report.getImportedCount() != imported.size()) errors.add("Imported " + report.getImportedCount() + " rows instead of " + imported.size());
+		if (!rejected.equals(expected)) errors.add("Rejected " + rejected + " instead of " + expected);
+		if (PatientRepository.getPatients().size() != before + imported.size()) errors.add("Stored " + (PatientRepository.getPatients().size() - before) + " new patients");
+		for (String id : imported) {
+			if (PatientRepository.getPatientById(id) == null) {
+				errors.add("The imported patient " + id + " cannot be found");
+				break;
+			}
+		}
+		Patient quoted = PatientRepository.getPatientById(String.valueOf(FIRST_ID + NUM_STORED + 19));
+		if (quoted == null || !quoted.getName().equals("Patient, \"Quoted\"")) errors.add("The quoted name was imported as " + (quoted == null ? null : quoted.getName()));
+
+		//	Print the results
+		System.out.print(report);
+		for (int i = 0; i < Math.min(errors.size(), 10); i++) System.err.printf("%s! %n", errors.get(i));
+		if (!errors.isEmpty()) System.exit(1);
+		System.out.printf("Every row was imported or rejected as expected. %n");
+
+	}
+
+//endregion
+
+
+
+}
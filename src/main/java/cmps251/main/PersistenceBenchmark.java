@@ -0,0 +1,190 @@
+package cmps251.main;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.utils.IdUtils;
+import cmps251.utils.SnapshotFile;
+import cmps251.utils.TimeUtils;
+
+/**
+ * This class benchmarks saving and loading the slots of the Sehha hospital reception system
+ *
+ * <p> It compares the binary format written by {@code SnapshotFile} against the Java serialization used by older versions,
+ * reporting the time taken to save and load an increasing number of booked slots and the size of the resulting files.
+ * The sizes can be passed in as program arguments, otherwise 10k, 100k, and 1M slots are used.
+ * Files are written to a temporary directory, so the saved data of the system is never touched.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class PersistenceBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int NUM_SERVICES = 100;
+	private static final int NUM_PATIENTS = 5000;
+	private static final int NUM_RUNS = 3;
+	private static final int[] DEFAULT_SIZES = { 10_000, 100_000, 1_000_000 };
+
+	private static final ArrayList<Service> services = new ArrayList<>();
+	private static final ArrayList<Patient> patients = new ArrayList<>();
+	private static final TreeMap<String, Service> servicesById = new TreeMap<>();
+	private static final TreeMap<String, Patient> patientsById = new TreeMap<>();
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) throws Exception {
+
+		//	Parse the sizes to benchmark, if any were given
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		//	Create the services and patients that slots are booked under
+		for (int i = 0; i < NUM_SERVICES; i++) services.add(new Service("Benchmark Service " + (char)('A' + i % 26) + i, Slot.MAX_SLOTS_PER_DAY, 100));
+		for (int i = 0; i < NUM_PATIENTS; i++) patients.add(new Patient(String.format("%011d", 10_000_000_000L + i), "Benchmark Patient " + toLetters(i), ResidencyType.RESIDENT));
+		for (Service service : services) servicesById.put(service.getId(), service);
+		for (Patient patient : patients) patientsById.put(patient.getId(), patient);
+
+		//	Run the benchmark for each size in a temporary directory
+		Path directory = Files.createTempDirectory("sehha-benchmark");
+		System.out.printf("%10s %10s %12s %12s %12s %n", "Slots", "Format", "Save (ms)", "Load (ms)", "Size (KB)");
+		for (int size : sizes) runBenchmark(directory, size);
+
+		//	Clean up the temporary directory
+		Files.deleteIfExists(directory.resolve("slots.dat"));
+		Files.deleteIfExists(directory.resolve("slots.bin"));
+		Files.deleteIfExists(directory);
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Creates the given number of slots and prints the save and load times of both formats
+	 *
+	 * @param directory				- the directory to save the files in
+	 * @param size					- the number of slots to create
+	 */
+	private static void runBenchmark(Path directory, int size) throws Exception {
+
+		//	Create the slots and get the file paths
+		TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slots = createSlots(size);
+		Path legacy = directory.resolve("slots.dat");
+		Path binary = directory.resolve("slots.bin");
+
+		//	Measure both formats, keeping the best of a few runs to reduce noise
+		long legacySave = Long.MAX_VALUE, legacyLoad = Long.MAX_VALUE, binarySave = Long.MAX_VALUE, binaryLoad = Long.MAX_VALUE;
+		for (int run = 0; run < NUM_RUNS; run++) {
+
+			long start = System.nanoTime();
+			saveLegacy(legacy, slots);
+			legacySave = Math.min(legacySave, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			loadLegacy(legacy);
+			legacyLoad = Math.min(legacyLoad, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			SnapshotFile.saveSlots(binary, slots);
+			binarySave = Math.min(binarySave, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			SnapshotFile.loadSlots(binary, servicesById, patientsById);
+			binaryLoad = Math.min(binaryLoad, System.nanoTime() - start);
+
+		}
+
+		//	Print the results
+		System.out.printf("%10d %10s %12.1f %12.1f %12d %n", size, "legacy", legacySave / 1e6, legacyLoad / 1e6, Files.size(legacy) / 1024);
+		System.out.printf("%10d %10s %12.1f %12.1f %12d %n", size, "binary", binarySave / 1e6, binaryLoad / 1e6, Files.size(binary) / 1024);
+
+	}
+
+	/**
+	 * Creates the given number of booked slots, spread evenly over every service
+	 *
+	 * @param size																- the number of slots to create
+	 *
+	 * @return TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>	- the slots, keyed by service, date, and time
+	 */
+	private static TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> createSlots(int size) {
+		TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slots = new TreeMap<>();
+		LocalDate start = LocalDate.now().plusDays(1);
+		for (int i = 0; i < size; i++) {
+			Service service = services.get(i % NUM_SERVICES);
+			LocalDate date = start.plusDays(i / (NUM_SERVICES * Slot.MAX_SLOTS_PER_DAY));
+			LocalTime time = TimeUtils.getIndexTime((i / NUM_SERVICES) % Slot.MAX_SLOTS_PER_DAY);
+			Slot slot = Slot.restore(IdUtils.nextId(), date, time, service, patients.get(i % NUM_PATIENTS));
+			slots.computeIfAbsent(service.getId(), k -> new TreeMap<>()).computeIfAbsent(date, k -> new TreeMap<>()).put(time, slot);
+		}
+		return slots;
+	}
+
+	/**
+	 * Spells out the given number in letters, since patient names cannot contain digits
+	 */
+	private static String toLetters(int number) {
+		StringBuilder letters = new StringBuilder();
+		do {
+			letters.append((char)('a' + number % 26));
+			number /= 26;
+		} while (number > 0);
+		return letters.toString();
+	}
+
+	/**
+	 * Saves the given slots with Java serialization, the same way older versions did
+	 */
+	private static void saveLegacy(Path path, Object slots) throws IOException {
+		try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(path.toFile()))) {
+			output.writeObject(slots);
+		}
+	}
+
+	/**
+	 * Loads slots saved with Java serialization, the same way older versions did
+	 */
+	private static Object loadLegacy(Path path) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream input = new ObjectInputStream(new FileInputStream(path.toFile()))) {
+			return input.readObject();
+		}
+	}
+
+//endregion
+
+
+
+}
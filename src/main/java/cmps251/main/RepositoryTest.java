@@ -0,0 +1,280 @@
+package cmps251.main;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+
+import cmps251.exceptions.ValidationException;
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.AdminRepository;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotRepository;
+import cmps251.utils.RepoUtils;
+import cmps251.utils.TimeUtils;
+import cmps251.utils.WriteAheadLog;
+
+/**
+ * This class tests editing and booking through the repositories of the Sehha hospital reception system
+ *
+ * <p> Each check books some slots, changes the data the way the application does, and then makes sure the repositories
+ * still agree with each other and with the change. Every check uses its own services and patients, so the checks do not affect each other.
+ * Since every change is recorded in the change log, and some checks restart the repositories from it, the checks must be run
+ * from a directory without a data directory, which is then left behind.
+ * Every broken expectation is printed, and the program exits with a failure if there were any.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class RepositoryTest {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final LocalDate DATE = LocalDate.now().plusDays(2);
+	private static final LocalTime TIME = LocalTime.of(9, 0);
+
+	private static final ArrayList<String> errors = new ArrayList<>();
+	private static long nextPatient = 30_000_000_000L;
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) {
+
+		//	Make sure no saved data is changed, then start with no data and run each check
+		if (Files.exists(Paths.get(RepoUtils.DATA_DIRECTORY))) {
+			System.err.printf("The checks must be run from a directory without a %s directory! %n", RepoUtils.DATA_DIRECTORY);
+			System.exit(1);
+		}
+		AdminRepository.initializeData();
+		checkUpdateService();
+		checkUpdatePatient();
+		checkUnknownPatient();
+		checkMoveOutsideOpeningHours();
+		checkReplayEditedService();
+		checkReloadRenamedService();
+
+		//	Report the results and fail if any check was broken
+		for (String error : errors) System.err.printf("%s! %n", error);
+		if (!errors.isEmpty()) System.exit(1);
+		System.out.printf("Every check passed. %n");
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Books a slot, replaces its service with a lower limit like the service form does, and then books the same interval again,
+	 * which must be rejected under the service's stored ID
+	 */
+	private static void checkUpdateService() {
+		Service service = new Service("Test Physio", 3, 20);
+		ServiceRepository.addService(service);
+		SlotRepository.bookSlot(new Slot(DATE, TIME, service), addPatient());
+
+		//	Edit the service, which should keep its ID and be seen by its booked slots
+		ServiceRepository.updateService(service.getId(), new Service("Test Physio", 1, 20));
+		Service stored = ServiceRepository.getServiceById(service.getId());
+		if (stored == null || !stored.getId().equals(service.getId())) errors.add("The edited service is not stored under its own ID");
+		else if (stored.getMaxSlots() != 1) errors.add("The edited service has " + stored.getMaxSlots() + " maximum slots instead of 1");
+		for (Slot slot : SlotRepository.getSlotsByDateService(DATE, service.getId())) {
+			if (slot.getAllocatedService() != stored) errors.add("Slot " + slot.getId() + " still refers to the service before it was edited");
+		}
+
+		//	Book the same interval again, with both the old service and its ID
+		try {
+			SlotRepository.bookSlot(new Slot(DATE, TIME, service), addPatient());
+			errors.add("A slot was booked over the edited service's limit");
+		}
+		catch (ValidationException e) {
+
+			//	The service is full
+
+		}
+		try {
+			SlotRepository.bookSlot(DATE, TIME, service.getId(), addPatient().getId());
+			errors.add("A slot was booked over the edited service's limit by its ID");
+		}
+		catch (ValidationException e) {
+
+			//	The service is full
+
+		}
+		if (SlotRepository.getBookedCountByDateService(DATE, service.getId()) != 1) errors.add("The edited service has " + SlotRepository.getBookedCountByDateService(DATE, service.getId()) + " booked slots instead of 1");
+	}
+
+	/**
+	 * Books a slot, replaces its patient like the patient form does, and makes sure the slot shows the new data,
+	 * including after the patient's ID is changed through the same form
+	 */
+	private static void checkUpdatePatient() {
+		Service service = new Service("Test Dental", 3, 20);
+		ServiceRepository.addService(service);
+		Patient patient = addPatient();
+		SlotRepository.bookSlot(new Slot(DATE, TIME, service), patient);
+
+		//	Rename the patient, which should be seen by his booked slot
+		PatientRepository.updatePatient(patient.getId(), new Patient(patient.getId(), "Edited Patient", ResidencyType.RESIDENT));
+		Slot slot = SlotRepository.getSlotByDateTimePatient(DATE, TIME, patient.getId());
+		if (slot == null || !slot.getAllocatedPatient().getName().equals("Edited Patient")) errors.add("The booked slot does not show the patient's new name");
+		if (!patient.getName().equals("Test Patient")) errors.add("The patient given to the form was changed in place");
+
+		//	Change his ID through the form, which should move his booked slot along with him
+		String newId = String.valueOf(nextPatient++);
+		PatientRepository.updatePatient(patient.getId(), new Patient(newId, "Moved Patient", ResidencyType.RESIDENT));
+		Patient stored = PatientRepository.getPatientById(newId);
+		if (PatientRepository.getPatientById(patient.getId()) != null) errors.add("The patient is still stored under his old ID");
+		if (stored == null || !stored.getId().equals(newId) || !stored.getName().equals("Moved Patient")) errors.add("The patient is not stored under his new ID with his new name");
+		slot = SlotRepository.getSlotByDateTimePatient(DATE, TIME, newId);
+		if (slot == null || slot.getAllocatedPatient() != stored) errors.add("The booked slot did not move to the patient's new ID");
+	}
+
+	/**
+	 * Books a slot for a patient that is not stored, which must be rejected without claiming its interval
+	 */
+	private static void checkUnknownPatient() {
+		Service service = new Service("Test Cardiology", 3, 20);
+		ServiceRepository.addService(service);
+		try {
+			SlotRepository.bookSlot(new Slot(DATE, TIME, service), String.valueOf(nextPatient++));
+			errors.add("A slot was booked for a patient that is not stored");
+		}
+		catch (IllegalArgumentException e) {
+
+			//	The patient cannot be found
+
+		}
+		if (SlotRepository.getBookedCountByDateService(DATE, service.getId()) != 0) errors.add("The slot of a patient that is not stored kept its interval");
+		try {
+			SlotRepository.bookSlot(new Slot(DATE, TIME, service), addPatient());
+		}
+		catch (RuntimeException e) {
+			errors.add("The interval of a rejected booking cannot be booked again: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Books a slot, closes the afternoon of its date, and then moves it to the afternoon,
+	 * and moves it to another service at its own time once that is closed too, both of which must be rejected without moving the slot
+	 */
+	private static void checkMoveOutsideOpeningHours() {
+		Service service = new Service("Test Neurology", 3, 20);
+		Service otherService = new Service("Test Oncology", 3, 20);
+		ServiceRepository.addService(service);
+		ServiceRepository.addService(otherService);
+		LocalDate date = DATE.plusDays(1);
+		Patient patient = addPatient();
+		Slot slot = new Slot(date, TIME, service);
+		SlotRepository.bookSlot(slot, patient);
+
+		//	Move the slot to the afternoon once it is closed, and to the other service once the slot's own time is closed too
+		ArrayList<Slot> targets = new ArrayList<>();
+		targets.add(new Slot(date, LocalTime.of(13, 0), service, patient));
+		targets.add(new Slot(date, TIME, otherService, patient));
+		TimeUtils.setOpeningHours(date, LocalTime.of(7, 0), LocalTime.of(10, 0));
+		for (Slot target : targets) {
+			if (target.getTime().equals(TIME)) TimeUtils.setOpeningHours(date, LocalTime.of(7, 0), LocalTime.of(8, 0));
+			try {
+				SlotRepository.updateSlot(slot.getId(), target);
+				errors.add("A slot was moved to " + target.getAllocatedService().getTitle() + " at " + target.getTime() + ", which is outside the opening hours of its date");
+			}
+			catch (ValidationException e) {
+
+				//	The date is closed at this time
+
+			}
+		}
+		Slot stored = SlotRepository.getSlotById(slot.getKey());
+		if (stored == null || !stored.getTime().equals(TIME) || !stored.getAllocatedService().getId().equals(service.getId())) errors.add("A slot whose move was rejected was moved anyway");
+	}
+
+	/**
+	 * Saves a service, then edits it and books a slot for it, and then restarts the repositories from the saved data and the change log,
+	 * which must restore the edited service under its ID with its numeric ID, along with its slot
+	 */
+	private static void checkReplayEditedService() {
+		Service service = new Service("Test Surgery", 3, 20);
+		ServiceRepository.addService(service);
+		if (!AdminRepository.saveData(Runnable::run)) errors.add("The data could not be saved");
+		ServiceRepository.updateService(service.getId(), new Service("Test Edited Surgery", 2, 30));
+		Slot slot = new Slot(DATE, TIME, service);
+		SlotRepository.bookSlot(slot, addPatient());
+
+		//	Restart from the change log, without saving the data first
+		WriteAheadLog.close();
+		AdminRepository.initializeData();
+
+		//	Make sure the service and its slot were restored as they were
+		Service stored = ServiceRepository.getServiceById(service.getId());
+		if (stored == null) {
+			errors.add("The edited service was not restored");
+			return;
+		}
+		if (stored.getKey() != service.getKey()) errors.add("The edited service was restored with the numeric ID " + stored.getKey() + " instead of " + service.getKey());
+		if (!stored.getTitle().equals("Test Edited Surgery") || stored.getMaxSlots() != 2 || stored.getPricePerSlot() != 30) errors.add("The edited service was restored without its edits");
+		Slot restored = SlotRepository.getSlotById(slot.getKey());
+		if (restored == null) errors.add("The slot of the edited service was dropped");
+		else if (restored.getAllocatedService() != stored) errors.add("The slot of the edited service does not refer to the restored service");
+	}
+
+	/**
+	 * Books a slot for a service, gives the service another ID, and saves the data before restarting the repositories from it,
+	 * which must keep the service under its new ID along with its slot
+	 */
+	private static void checkReloadRenamedService() {
+		Service service = new Service("Test Radiology", 3, 20);
+		ServiceRepository.addService(service);
+		Slot slot = new Slot(DATE, TIME, service);
+		SlotRepository.bookSlot(slot, addPatient());
+		ServiceRepository.updateServiceId(service.getId(), "test-radiology");
+
+		//	Save the data, which also clears the change log, and restart from it
+		if (!AdminRepository.saveData(Runnable::run)) errors.add("The data could not be saved");
+		WriteAheadLog.close();
+		AdminRepository.initializeData();
+
+		//	Make sure the service kept its new ID, and its slot still refers to it
+		Service stored = ServiceRepository.getServiceById("test-radiology");
+		if (stored == null || !stored.getId().equals("test-radiology")) errors.add("The renamed service was not reloaded under its new ID");
+		if (stored != null && stored.getKey() != service.getKey()) errors.add("The renamed service was reloaded with another numeric ID");
+		Slot reloaded = SlotRepository.getSlotById(slot.getKey());
+		if (reloaded == null) errors.add("The slot of the renamed service was dropped");
+		else if (reloaded.getAllocatedService() != stored) errors.add("The slot of the renamed service does not refer to the reloaded service");
+	}
+
+	/**
+	 * Stores a new patient with an ID that no other check uses
+	 *
+	 * @return Patient				- the stored patient
+	 */
+	private static Patient addPatient() {
+		Patient patient = new Patient(String.valueOf(nextPatient++), "Test Patient", ResidencyType.RESIDENT);
+		PatientRepository.addPatient(patient);
+		return patient;
+	}
+
+//endregion
+
+
+
+}
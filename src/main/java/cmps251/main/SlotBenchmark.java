@@ -0,0 +1,188 @@
+package cmps251.main;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotRepository;
+
+/**
+ * This class benchmarks the slot related operations in the Sehha hospital reception system
+ *
+ * <p> It fills the slot repository with an increasing number of booked slots and measures
+ * the average latency of looking up and editing a slot by its ID at each size.
+ * It also measures browsing the availability of every service over a few days, both the first time and once the availability cache is warm,
+ * and prints the cache's hits and misses at the end.
+ * The sizes can be passed in as program arguments, otherwise 1k, 10k, 100k, and 1M slots are used.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SlotBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int NUM_SERVICES = 100;
+	private static final int NUM_SAMPLES = 1000;
+	private static final int NUM_BROWSE_DAYS = 14;
+	private static final int[] DEFAULT_SIZES = { 1_000, 10_000, 100_000, 1_000_000 };
+
+	private static final ArrayList<Service> services = new ArrayList<>();
+	private static final ArrayList<Patient> patients = new ArrayList<>();
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) {
+
+		//	Parse the sizes to benchmark, if any were given
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		//	Create one service and one patient for each service so bookings never clash
+		for (int i = 0; i < NUM_SERVICES; i++) {
+			Service service = new Service("Benchmark Service " + (char)('A' + i % 26) + i, Slot.MAX_SLOTS_PER_DAY, 100);
+			Patient patient = new Patient(String.format("%011d", 10_000_000_000L + i), "Benchmark Patient", ResidencyType.RESIDENT);
+			ServiceRepository.addService(service);
+			PatientRepository.addPatient(patient);
+			services.add(service);
+			patients.add(patient);
+		}
+
+		//	Run the benchmark for each size
+		System.out.printf("%12s %18s %18s %22s %22s %n", "Slots", "Lookup (ns/op)", "Edit (ns/op)", "Browse cold (ns/day)", "Browse warm (ns/day)");
+		for (int size : sizes) runBenchmark(size);
+		System.out.printf("Availability cache hits: %d, misses: %d %n", SlotRepository.getAvailabilityCacheHits(), SlotRepository.getAvailabilityCacheMisses());
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Fills the repository with the given number of slots and prints the lookup and edit latency
+	 *
+	 * @param size					- the number of slots to store before measuring
+	 */
+	private static void runBenchmark(int size) {
+
+		//	Clear any slots from the previous run and fill the repository again
+		SlotRepository.loadSlots(new TreeMap<>());
+		ArrayList<String> ids = fillSlots(size);
+
+		//	Pick a random sample of slot ids to look up and edit
+		Random random = new Random(size);
+		String[] sample = new String[NUM_SAMPLES];
+		for (int i = 0; i < NUM_SAMPLES; i++) sample[i] = ids.get(random.nextInt(ids.size()));
+
+		//	Warm up once and then measure, browsing the availability last since editing changes it
+		measureLookup(sample);
+		measureEdit(sample);
+		long lookup = measureLookup(sample);
+		long edit = measureEdit(sample);
+		long browseCold = measureBrowse();
+		long browseWarm = measureBrowse();
+		System.out.printf("%12d %18d %18d %22d %22d %n", size, lookup, edit, browseCold, browseWarm);
+
+	}
+
+	/**
+	 * Books the given number of slots, spread evenly over every service, and returns their ids
+	 *
+	 * @param size					- the number of slots to book
+	 *
+	 * @return ArrayList<String>	- the ids of the booked slots
+	 */
+	private static ArrayList<String> fillSlots(int size) {
+
+		//	Book each slot on the next free time of the next service
+		ArrayList<String> ids = new ArrayList<>(size);
+		LocalDate start = LocalDate.now().plusDays(1);
+		for (int i = 0; i < size; i++) {
+			int service = i % NUM_SERVICES;
+			int interval = (i / NUM_SERVICES) % Slot.MAX_SLOTS_PER_DAY;
+			int day = i / (NUM_SERVICES * Slot.MAX_SLOTS_PER_DAY);
+			LocalTime time = Slot.MIN_TIME.plusMinutes((long)interval * Slot.SLOT_DURATION);
+			Slot slot = new Slot(start.plusDays(day), time, services.get(service));
+			SlotRepository.bookSlot(slot, patients.get(service));
+			ids.add(slot.getId());
+		}
+
+		//	Return the booked ids
+		return ids;
+
+	}
+
+	/**
+	 * Measures the average time it takes to fetch a slot by its id
+	 *
+	 * @param sample				- the ids to fetch
+	 *
+	 * @return long					- the average time per lookup in nanoseconds
+	 */
+	private static long measureLookup(String[] sample) {
+		long start = System.nanoTime();
+		for (String id : sample) {
+			if (SlotRepository.getSlotById(id) == null) throw new IllegalStateException("Slot " + id + " was not found!");
+		}
+		return (System.nanoTime() - start) / sample.length;
+	}
+
+	/**
+	 * Measures the average time it takes to edit a slot by its id
+	 *
+	 * @param sample				- the ids to edit
+	 *
+	 * @return long					- the average time per edit in nanoseconds
+	 */
+	private static long measureEdit(String[] sample) {
+		long start = System.nanoTime();
+		for (String id : sample) {
+			Slot slot = SlotRepository.getSlotById(id);
+			SlotRepository.updateSlotPatient(id, slot.getAllocatedPatient());
+		}
+		return (System.nanoTime() - start) / sample.length;
+	}
+
+	/**
+	 * Measures the average time it takes to fetch the free times of every service for each of the first few days
+	 *
+	 * @return long					- the average time per day in nanoseconds
+	 */
+	private static long measureBrowse() {
+		LocalDate date = LocalDate.now().plusDays(1);
+		long start = System.nanoTime();
+		for (int day = 0; day < NUM_BROWSE_DAYS; day++) SlotRepository.getAvailableCandidatesByDate(date.plusDays(day));
+		return (System.nanoTime() - start) / NUM_BROWSE_DAYS;
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,312 @@
+package cmps251.main;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import cmps251.exceptions.IllegalSlotDateException;
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.repos.DataVersion;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
+import cmps251.repos.SlotRepository;
+import cmps251.utils.MutationPipeline;
+
+/**
+ * This class stress tests booking slots from many threads at once in the Sehha hospital reception system
+ *
+ * <p> It first has every thread race to book the very same slot for a different patient, where exactly one booking must succeed.
+ * It then has every thread book, move, and cancel random slots, some of them booked together, over a small number of services,
+ * patients, and days, so that most bookings clash on the same slot, the same patient, or the daily limit of a service.
+ * Meanwhile another thread keeps pinning the latest {@code DataVersion} and checks that none of them holds a patient booked twice.
+ * Afterwards it checks that no slot was booked twice, no patient has two slots at the same time, no service went over
+ * its daily limit, and every index and the latest version agree.
+ * The number of threads can be passed in as a program argument, otherwise 16 threads are used.
+ * If the {@code sehha.pipeline} system property is set, every change is applied through {@code MutationPipeline} instead.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SlotStressTest {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int NUM_SERVICES = 4;
+	private static final int NUM_PATIENTS = 32;
+	private static final int NUM_DAYS = 3;
+	private static final int NUM_ATTEMPTS = 20_000;
+	private static final int DEFAULT_THREADS = 16;
+
+	private static final ArrayList<Service> services = new ArrayList<>();
+	private static final ArrayList<Patient> patients = new ArrayList<>();
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) throws InterruptedException {
+
+		//	Parse the number of threads, if it was given
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+
+		//	Create the services, alternating between a full day of slots and a small daily limit
+		for (int i = 0; i < NUM_SERVICES; i++) {
+			Service service = new Service("Stress Service " + (char)('A' + i), i % 2 == 0 ? Slot.MAX_SLOTS_PER_DAY : 3, 100);
+			ServiceRepository.addService(service);
+			services.add(service);
+		}
+		for (int i = 0; i < Math.max(NUM_PATIENTS, threads); i++) {
+			Patient patient = new Patient(String.format("%011d", 20_000_000_000L + i), "Stress Patient", ResidencyType.RESIDENT);
+			PatientRepository.addPatient(patient);
+			patients.add(patient);
+		}
+		SlotRepository.loadSlots(new TreeMap<>());
+		if (MutationPipeline.isEnabled()) MutationPipeline.start();
+
+		//	Run both tests and check the repository afterwards
+		int sameSlot = raceForSameSlot(threads);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicInteger versions = new AtomicInteger();
+		ArrayList<String> versionErrors = new ArrayList<>();
+		Thread reader = new Thread(() -> readVersions(running, versions, versionErrors), "stress-reader");
+		reader.start();
+		long start = System.nanoTime();
+		int[] counts = bookRandomSlots(threads);
+		long elapsed = System.nanoTime() - start;
+		running.set(false);
+		reader.join();
+		ArrayList<String> errors = checkInvariants();
+		errors.addAll(versionErrors);
+		if (sameSlot != 1) errors.add(sameSlot + " threads booked the same slot");
+
+		//	Report the results and fail if any invariant was broken
+		System.out.printf("Threads: %d, booked: %d, rejected: %d, cancelled: %d, moved: %d, stored: %d, versions read: %d, time: %d ms %n",
+				threads, counts[0], counts[1], counts[2], counts[3], SlotRepository.getSlotsAsList().size(), versions.get(), elapsed / 1_000_000);
+		for (String error : errors) System.err.printf("%s! %n", error);
+		if (!errors.isEmpty()) System.exit(1);
+		System.out.printf("No double bookings were found. %n");
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Has every thread try to book the same slot for a different patient at the same moment
+	 *
+	 * @param threads				- the number of threads to run
+	 *
+	 * @return int					- the number of bookings that succeeded
+	 */
+	private static int raceForSameSlot(int threads) throws InterruptedException {
+		LocalDate date = LocalDate.now().plusDays(NUM_DAYS + 1);
+		AtomicInteger booked = new AtomicInteger();
+		runThreads(threads, thread -> {
+			try {
+				SlotRepository.bookSlot(new Slot(date, Slot.MIN_TIME, services.get(0)), patients.get(thread));
+				booked.incrementAndGet();
+			}
+			catch (IllegalSlotDateException e) {
+
+				//	Another thread booked the slot first
+
+			}
+		});
+		return booked.get();
+	}
+
+	/**
+	 * Has every thread book random slots and move or cancel some of its own bookings
+	 *
+	 * @param threads				- the number of threads to run
+	 *
+	 * @return int[]				- the number of bookings made, bookings and moves rejected, slots cancelled, and slots moved
+	 */
+	private static int[] bookRandomSlots(int threads) throws InterruptedException {
+		AtomicInteger booked = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		AtomicInteger cancelled = new AtomicInteger();
+		AtomicInteger moved = new AtomicInteger();
+		LocalDate start = LocalDate.now().plusDays(1);
+		runThreads(threads, thread -> {
+			Random random = new Random(thread);
+			ArrayList<String> ids = new ArrayList<>();
+			for (int i = 0; i < NUM_ATTEMPTS; i++) {
+
+				//	Every few attempts, move one of this thread's bookings to a random time and service
+				if (!ids.isEmpty() && random.nextInt(4) == 0) {
+					String id = ids.get(random.nextInt(ids.size()));
+					LocalTime time = Slot.MIN_TIME.plusMinutes((long)random.nextInt(8) * Slot.SLOT_DURATION);
+					try {
+						if (random.nextBoolean()) SlotRepository.updateSlotTime(id, time);
+						else SlotRepository.updateSlotService(id, services.get(random.nextInt(NUM_SERVICES)));
+						moved.incrementAndGet();
+					}
+					catch (IllegalSlotDateException e) {
+						rejected.incrementAndGet();
+					}
+					continue;
+				}
+
+				//	Every few attempts, cancel one of this thread's bookings
+				if (!ids.isEmpty() && random.nextInt(4) == 0) {
+					try {
+						SlotRepository.cancelSlot(ids.remove(random.nextInt(ids.size())));
+						cancelled.incrementAndGet();
+					}
+					catch (IllegalArgumentException e) {
+
+						//	Bookings are only cancelled by the thread that made them, so this should never happen
+						throw new IllegalStateException("A booked slot could not be found", e);
+
+					}
+					continue;
+				}
+
+				//	Else try to book a few random slots together, or a single one, for a random patient
+				ArrayList<Slot> batch = new ArrayList<>();
+				for (int j = random.nextInt(4) == 0 ? 3 : 1; j > 0; j--) {
+					LocalTime time = Slot.MIN_TIME.plusMinutes((long)random.nextInt(8) * Slot.SLOT_DURATION);
+					batch.add(new Slot(start.plusDays(random.nextInt(NUM_DAYS)), time, services.get(random.nextInt(NUM_SERVICES))));
+				}
+				try {
+					if (batch.size() > 1) SlotRepository.bookSlots(batch, patients.get(random.nextInt(NUM_PATIENTS)));
+					else SlotRepository.bookSlot(batch.get(0), patients.get(random.nextInt(NUM_PATIENTS)));
+					for (Slot slot : batch) ids.add(slot.getId());
+					booked.addAndGet(batch.size());
+				}
+				catch (IllegalSlotDateException e) {
+					rejected.incrementAndGet();
+				}
+
+			}
+		});
+		return new int[] { booked.get(), rejected.get(), cancelled.get(), moved.get() };
+	}
+
+	/**
+	 * Keeps pinning the latest version until told to stop, checking that version numbers never go back and that no version
+	 * holds two slots for the same patient at the same time, which a half-applied move or cancellation could cause
+	 *
+	 * @param running				- is the test still running?
+	 * @param versions				- counts the versions read
+	 * @param errors				- a description of each broken invariant is added to this list
+	 */
+	private static void readVersions(AtomicBoolean running, AtomicInteger versions, ArrayList<String> errors) {
+		long last = 0;
+		while (running.get() && errors.isEmpty()) {
+			DataVersion version = DataVersion.pin();
+			if (version.getNumber() < last) errors.add("Version " + version.getNumber() + " was pinned after version " + last);
+			last = version.getNumber();
+			HashSet<String> patientTimes = new HashSet<>();
+			for (Slot slot : version.getSlotsAsList()) {
+				String patient = slot.getAllocatedPatient().getId();
+				if (!patientTimes.add(patient + " " + slot.getDate() + " " + slot.getTime())) errors.add("Version " + last + " has patient " + patient + " booked twice at " + slot.getDate() + " " + slot.getTime());
+			}
+			versions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Checks that no slot, patient, or service has been double booked and that every index agrees with the stored slots
+	 *
+	 * @return ArrayList<String>	- a description of each broken invariant
+	 */
+	private static ArrayList<String> checkInvariants() {
+		ArrayList<String> errors = new ArrayList<>();
+		HashSet<String> serviceTimes = new HashSet<>();
+		HashSet<String> patientTimes = new HashSet<>();
+		HashMap<String, Integer> dailyCounts = new HashMap<>();
+		for (Slot slot : SlotRepository.getSlotsAsList()) {
+
+			//	Check that no other slot has the same service or patient at the same date and time
+			String service = slot.getAllocatedService().getId();
+			String patient = slot.getAllocatedPatient().getId();
+			if (!serviceTimes.add(service + " " + slot.getDate() + " " + slot.getTime())) errors.add("Service " + service + " was booked twice at " + slot.getDate() + " " + slot.getTime());
+			if (!patientTimes.add(patient + " " + slot.getDate() + " " + slot.getTime())) errors.add("Patient " + patient + " was booked twice at " + slot.getDate() + " " + slot.getTime());
+			dailyCounts.merge(service + " " + slot.getDate(), 1, Integer::sum);
+
+			//	Check that the indexes return this slot
+			if (SlotRepository.getSlotById(slot.getKey()) != slot) errors.add("Slot " + slot.getId() + " is missing from the id index");
+			if (SlotRepository.getSlotByDateTimePatient(slot.getDate(), slot.getTime(), patient) != slot) errors.add("Slot " + slot.getId() + " is missing from the patient index");
+
+		}
+
+		//	Check that the latest version holds exactly the stored slots
+		ArrayList<Slot> storedSlots = SlotRepository.getSlotsAsList();
+		ArrayList<Slot> versionSlots = DataVersion.pin().getSlotsAsList();
+		Set<Slot> versionSet = Collections.newSetFromMap(new IdentityHashMap<>());
+		versionSet.addAll(versionSlots);
+		if (versionSlots.size() != storedSlots.size() || !versionSet.containsAll(storedSlots)) errors.add("The latest version holds " + versionSlots.size() + " slots instead of the " + storedSlots.size() + " stored slots");
+
+		//	Check that no service went over its daily limit and that the booking masks agree with the stored slots
+		for (Service service : services) {
+			for (int day = 1; day <= NUM_DAYS + 1; day++) {
+				LocalDate date = LocalDate.now().plusDays(day);
+				int count = dailyCounts.getOrDefault(service.getId() + " " + date, 0);
+				if (count > service.getMaxSlots()) errors.add("Service " + service.getId() + " has " + count + " slots at " + date);
+				if (SlotRepository.getBookedCountByDateService(date, service) != count) errors.add("The booking mask of " + service.getId() + " at " + date + " does not match its slots");
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * Runs the given task on the given number of threads, starting them all at the same moment and waiting for them to finish
+	 *
+	 * @param threads				- the number of threads to run
+	 * @param task					- the task to run, given the index of its thread
+	 */
+	private static void runThreads(int threads, IntConsumer task) throws InterruptedException {
+		CountDownLatch ready = new CountDownLatch(1);
+		ArrayList<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			int index = i;
+			Thread worker = new Thread(() -> {
+				try {
+					ready.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				task.accept(index);
+			}, "stress-worker-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+		ready.countDown();
+		for (Thread worker : workers) worker.join();
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,129 @@
+package cmps251.main;
+
+import java.util.Random;
+
+import cmps251.exceptions.IllegalPatientIdException;
+import cmps251.exceptions.IllegalPatientNameException;
+import cmps251.models.Patient;
+import cmps251.models.ValidationCode;
+
+/**
+ * This class benchmarks validating many patient records in the Sehha hospital reception system
+ *
+ * <p> It validates the same generated IDs and names, about a quarter of which are invalid, in three ways:
+ * by throwing a new exception with a stack trace for each invalid record as the validators used to,
+ * by catching the preallocated exceptions the validators throw now, and by only checking their validation codes.
+ * It prints the average time per record of each, and makes sure all three find the same number of invalid records.
+ * The number of records can be passed in as a program argument.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class ValidationBenchmark {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final int DEFAULT_RECORDS = 1_000_000;
+	private static final int NUM_RUNS = 3;
+	private static final long SEED = 251;
+
+//endregion
+
+
+
+/* ------------------------------ Main Function ----------------------------- */
+//region
+
+	public static void main(String[] args) {
+
+		//	Generate the records, making every fourth one invalid in one of a few ways
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+		String[] ids = new String[records];
+		String[] names = new String[records];
+		Random random = new Random(SEED);
+		for (int i = 0; i < records; i++) {
+			ids[i] = String.format("%011d", 30_000_000_000L + random.nextInt(1_000_000_000));
+			names[i] = "Imported Patient";
+			if (i % 4 != 3) continue;
+			switch (random.nextInt(4)) {
+				case 0: ids[i] = ""; break;
+				case 1: ids[i] = ids[i].substring(0, 10) + "X"; break;
+				case 2: names[i] = "Patient " + i; break;
+				default: names[i] = "Al"; break;
+			}
+		}
+
+		//	Validate every record in each way a few times, only keeping the last run's time
+		int[] invalid = new int[3];
+		long[] times = new long[3];
+		for (int run = 0; run < NUM_RUNS; run++) {
+			for (int way = 0; way < 3; way++) {
+				long start = System.nanoTime();
+				invalid[way] = validate(way, ids, names);
+				times[way] = (System.nanoTime() - start) / records;
+			}
+		}
+
+		//	Print the results
+		System.out.printf("Records: %d, invalid: %d %n", records, invalid[2]);
+		System.out.printf("Exceptions with stack traces: %d ns, preallocated exceptions: %d ns, validation codes: %d ns (per record) %n", times[0], times[1], times[2]);
+		if (invalid[0] != invalid[2] || invalid[1] != invalid[2]) {
+			System.err.printf("The ways of validating found %d, %d and %d invalid records! %n", invalid[0], invalid[1], invalid[2]);
+			System.exit(1);
+		}
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Validates the ID and name of every record in the given way
+	 *
+	 * @param way					- 0 to throw new exceptions, 1 to throw the preallocated ones, and 2 to check the codes
+	 * @param ids					- the IDs of the records
+	 * @param names					- the names of the records
+	 *
+	 * @return int					- the number of invalid records
+	 */
+	private static int validate(int way, String[] ids, String[] names) {
+		int invalid = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (way == 2) {
+				if (!Patient.checkId((Patient)null, ids[i]).isValid() || !Patient.checkName(names[i]).isValid()) invalid++;
+				continue;
+			}
+			try {
+				if (way == 0) {
+					ValidationCode idCode = Patient.checkId((Patient)null, ids[i]);
+					if (!idCode.isValid()) throw new IllegalPatientIdException(idCode.format());
+					ValidationCode nameCode = Patient.checkName(names[i]);
+					if (!nameCode.isValid()) throw new IllegalPatientNameException(nameCode.format());
+				}
+				else {
+					Patient.isValidId(null, ids[i], true);
+					Patient.isValidName(names[i], true);
+				}
+			}
+			catch (IllegalPatientIdException | IllegalPatientNameException e) {
+				invalid++;
+			}
+		}
+		return invalid;
+	}
+
+//endregion
+
+
+
+}
@@ -1,16 +1,16 @@
 package cmps251.models;
 
 import java.io.Serializable;
-import java.time.LocalDateTime;
+
+import cmps251.utils.IdUtils;
 
 /**
  * This is an abstract class used by classes which implement the {@code ID} property
  * 
  * <p> Implementing this abstract class will allow others to identify objects of a class using their {@code ID}
  * 
- * <p> It is recommended to generate the {@code ID} property randomly.
- * This generation is implemented differently in each class, however a good method would be
- * to generate this value based on the object's class name and it's other properties
+ * <p> Generated objects should be given a numeric {@code ID} from {@code generateKey}, which is unique and increasing.
+ * Its string form is used as the {@code ID} property, while classes with natural IDs such as {@code Patient} only set the string
  * 
  * <p> <i>Created on 14/05/2023 by Muhammad Putra</i>
  * 
@@ -22,10 +22,20 @@ public abstract class Identifiable implements Serializable {
 
 
 	
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final long serialVersionUID = -8665595796608520084L;
+
+//endregion
+
+
+
 /* --------------------------- Private Attributes --------------------------- */
 //region
 
 	protected String id;
+	protected long key;
 
 //endregion
 
@@ -55,6 +65,28 @@ public abstract class Identifiable implements Serializable {
 		this.id = id;
 	}
 
+	/** 
+	 * Returns the numeric ID for this object, or 0 if it does not have one
+	 * 
+	 * @return long			- the object's numeric id
+	 */
+	public long getKey() {
+		return key;
+	}
+
+	/** 
+	 * Sets the numeric ID of this object, along with the matching string ID
+	 * 
+	 * <p> <b>NOTE</b>: this method should never be called directly!
+	 * It should be called only inside it's repository class or constructor 
+	 * 
+	 * @param key			- the object's numeric id
+	 */
+	public void setKey(long key) {
+		this.key = key;
+		this.id = IdUtils.toString(key);
+	}
+
 //endregion
 
 
@@ -74,39 +106,17 @@ public abstract class Identifiable implements Serializable {
 	}
 
 	/** 
-	 * Generates an ID for this object
+	 * Generates a new unique numeric ID for this object
 	 * 
-	 * <p> This is calculated by doing the following:
-	 * <ol>
-	 * 		<li> Get the class name of the object
-	 * 		<li> Fetch the current system datetime
-	 * 		<li> Concatenate these two numbers together
-	 * 		<li> Set the new id as this concatenation
-	 * </ol>
+	 * <p> IDs are generated by {@code IdUtils}, see it for more details about their format.
 	 * 
 	 * <p> <b>NOTE</b>: this method should only be called from within the constructor.
 	 * Usage outside may break certain features!
+	 * 
+	 * @return long		- the new ID
 	 */	
-	protected String generateId() {
-
-		//	Get the class name
-		String className = this.getClass().getSimpleName();
-
-		//	Fetch the current system datetime and concatenate it into a single string
-		LocalDateTime currentDateTime = LocalDateTime.now();
-		int year = currentDateTime.getYear();
-		int month = currentDateTime.getMonthValue();
-		int day = currentDateTime.getDayOfMonth();
-		int hour = currentDateTime.getHour();
-		int minute = currentDateTime.getMinute();
-		int second = currentDateTime.getSecond();
-
-		//	Concatenate the datetime and random number together
-		String idConcat = String.format("%s%04d%02d%02d%02d%02d%02d", className, year, month, day, hour, minute, second);
-
-		//	Return the new ID
-		return idConcat;
-
+	protected long generateKey() {
+		return IdUtils.nextId();
 	}
 
 //endregion
@@ -12,13 +12,22 @@ import cmps251.exceptions.IllegalPatientNameException;
  * <p> <i>Created on 16/05/2023 by Ahmad Chowdhury</i>
  * 
  * @author		Ahmad Chowdhury
- * @version		1.13
+ * @version		1.23
  * @since		1.9
  */
 public class Patient extends Identifiable {
 
 
 
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final long serialVersionUID = 1273950046640550506L;
+
+//endregion
+
+
+
 /* ---------------------------------- Enums --------------------------------- */
 //region
 
@@ -67,6 +76,18 @@ public class Patient extends Identifiable {
 		
 	}
 
+	/**
+	 * This constructor copies the data of the given patient, without validating it again
+	 *
+	 * @param patient								- the patient to copy
+	 */
+	private Patient(Patient patient) {
+		this.id = patient.id;
+		this.key = patient.key;
+		this.name = patient.name;
+		this.residency = patient.residency;
+	}
+
 //endregion
 
 
@@ -148,6 +169,51 @@ public class Patient extends Identifiable {
 /* ----------------------------- Utility Methods ---------------------------- */
 //region
 
+	/**
+	 * Returns a copy of this patient with the same ID and data
+	 * 
+	 * <p> A stored patient is never changed, since older versions of the data still hold it.
+	 * Its repository changes a copy instead and stores the copy in its place
+	 * 
+	 * @return Patient				- the copy
+	 */
+	public Patient copy() {
+		return new Patient(this);
+	}
+
+	/** 
+	 * Checks if the given ID is valid, without allocating anything
+	 * 
+	 * @param patient							- the patient to check the ID for, whose residency decides the ID's length
+	 * @param id								- the value to check the validity for
+	 * 
+	 * @return ValidationCode					- {@code VALID}, or the reason the value is invalid
+	 */
+	public static ValidationCode checkId(Patient patient, String id) {
+		return checkId(patient == null ? null : patient.residency, id);
+	}
+	public static ValidationCode checkId(ResidencyType residency, String id) {
+
+		//	If the given value is empty
+		if (id.isBlank()) return ValidationCode.PATIENT_ID_EMPTY;
+
+		//	If the given value contains anything other than digits
+		for (int i = 0; i < id.length(); i++) {
+			char digit = id.charAt(i);
+			if (digit < '0' || digit > '9') return ValidationCode.PATIENT_ID_NOT_NUMERIC;
+		}
+
+		//	If the given value is not a valid QID if patient is a resident (11 digits)
+		if (residency == ResidencyType.RESIDENT && id.length() != 11) return ValidationCode.PATIENT_ID_NOT_QID;
+
+		//	If the given value is not a valid Visa number if patient is a visitor (12 digits)
+		if (residency == ResidencyType.VISITOR && id.length() != 12) return ValidationCode.PATIENT_ID_NOT_VISA;
+
+		//	Else the given value is valid
+		return ValidationCode.VALID;
+
+	}
+
 	/** 
 	 * Checks if the given ID is valid
 	 * 
@@ -162,37 +228,32 @@ public class Patient extends Identifiable {
 	 * @throws IllegalPatientIdException		the given value is not a valid Visa number if patient is a visitor (12 digits)
 	 */
 	public static String isValidId(Patient patient, String id, boolean throwError) {
+		return checkId(patient, id).toResult(throwError);
+	}
 
-		//	If the given value is empty
-		if (id.isBlank()) {
-			String errorMessage = "Patient ID cannot be empty!";
-			if (throwError) throw new IllegalPatientIdException(errorMessage);
-			return errorMessage;
-		}
+	/** 
+	 * Checks if the given name is valid, without allocating anything
+	 * 
+	 * @param name								- the value to check the validity for
+	 * 
+	 * @return ValidationCode					- {@code VALID}, or the reason the value is invalid
+	 */
+	public static ValidationCode checkName(String name) {
 
-		//	If the given value contains letters
-		if (!id.matches("\\d+")) {
-			String errorMessage = "Patient ID should only contain numbers!";
-			if (throwError) throw new IllegalPatientIdException(errorMessage);
-			return errorMessage;
-		}
+		//	If the given value is empty
+		if (name.isBlank()) return ValidationCode.PATIENT_NAME_EMPTY;
 
-		//	If the given value is not a valid QID if patient is a resident (11 digits)
-		if (patient != null && patient.residency == ResidencyType.RESIDENT && id.length() != 11) {
-			String errorMessage = "Patient ID is not a valid QID, it should only have 11 digits!";
-			if (throwError) throw new IllegalPatientIdException(errorMessage);
-			return errorMessage;
-		}
+		//	If the given value is outside the range of 3 to 255 characters
+		if (name.length() < 3 || name.length() > 255) return ValidationCode.PATIENT_NAME_LENGTH;
 
-		//	If the given value is not a valid Visa number if patient is a visitor (12 digits)
-		if (patient != null && patient.residency == ResidencyType.VISITOR && id.length() != 12) {
-			String errorMessage = "Patient ID is not a valid Visa number, it should only have 12 digits!";
-			if (throwError) throw new IllegalPatientIdException(errorMessage);
-			return errorMessage;
+		//	If the given value contains numbers
+		for (int i = 0; i < name.length(); i++) {
+			char letter = name.charAt(i);
+			if (letter >= '0' && letter <= '9') return ValidationCode.PATIENT_NAME_NUMBERS;
 		}
 
-		//	Else return nothing since the given value is valid
-		return "";
+		//	Else the given value is valid
+		return ValidationCode.VALID;
 
 	}
 
@@ -209,31 +270,7 @@ public class Patient extends Identifiable {
 	 * @throws IllegalPatientNameException		the given value contains numbers
 	 */
 	public static String isValidName(String name, boolean throwError) {
-
-		//	If the given value is empty
-		if (name.isBlank()) {
-			String errorMessage = "Patient name cannot be empty!";
-			if (throwError) throw new IllegalPatientNameException(errorMessage);
-			return errorMessage;
-		}
-
-		//	If the given value is outside the range of 3 to 255 characters
-		if (name.length() < 3 || name.length() > 255) {
-			String errorMessage = "Patient name is either too short or too long, please keep it between 3 and 255 characters long!";
-			if (throwError) throw new IllegalPatientNameException(errorMessage);
-			return errorMessage;
-		}
-
-		//	If the given value contains numbers
-		if (name.matches(".*[0-9].*")) {
-			String errorMessage = "Patient name cannot contain numbers!";
-			if (throwError) throw new IllegalPatientNameException(errorMessage);
-			return errorMessage;
-		}
-
-		//	Else return nothing since the given value is valid
-		return "";
-
+		return checkName(name).toResult(throwError);
 	}
 
 	/** 
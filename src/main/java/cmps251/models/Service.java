@@ -14,13 +14,22 @@ import cmps251.exceptions.IllegalServicePriceException;
  * <p> <i>Created on 16/05/2023 by Grafael Karilwurara</i>
  * 
  * @author		Grafael Karilwurara
- * @version		1.20
+ * @version		1.23
  * @since		1.5
  */
 public class Service extends Identifiable implements Comparable<Service> {
 
 
 
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final long serialVersionUID = 4590989650826614184L;
+
+//endregion
+
+
+
 /* --------------------------- Private Attributes --------------------------- */
 //region
 
@@ -54,11 +63,24 @@ public class Service extends Identifiable implements Comparable<Service> {
 		this.setMaxSlots(maxSlots);
 		this.setPricePerSlot(pricePerSlot);
 
-		//	Generate a random id for this slot
-		this.setId(generateId());
+		//	Generate a unique id for this service
+		this.setKey(generateKey());
 
 	}
 
+	/**
+	 * This constructor copies the data of the given service, keeping its ID and without validating it again
+	 *
+	 * @param service								- the service to copy
+	 */
+	private Service(Service service) {
+		this.id = service.id;
+		this.key = service.key;
+		this.title = service.title;
+		this.maxSlots = service.maxSlots;
+		this.pricePerSlot = service.pricePerSlot;
+	}
+
 //endregion
  
 
@@ -148,6 +170,38 @@ public class Service extends Identifiable implements Comparable<Service> {
 /* ----------------------------- Utility Methods ---------------------------- */
 //region
 
+	/** 
+	 * Returns a copy of this service with the same ID and data
+	 * 
+	 * <p> A stored service is never changed, since older versions of the data still hold it.
+	 * Its repository changes a copy instead and stores the copy in its place
+	 * 
+	 * @return Service				- the copy
+	 */
+	public Service copy() {
+		return new Service(this);
+	}
+
+	/** 
+	 * Checks if the given max slots is valid for the given service, without allocating anything
+	 * 
+	 * @param maxSlots								- the value to check the validity for
+	 * 
+	 * @return ValidationCode						- {@code VALID}, or the reason the value is invalid
+	 */
+	public static ValidationCode checkMaxSlots(int maxSlots) {
+
+		//	If the given value is negative
+		if (maxSlots < 0) return ValidationCode.SERVICE_MAX_SLOTS_NEGATIVE;
+
+		//	If the given value exceeds the hospital's maximum number of slots per day
+		if (maxSlots > Slot.MAX_SLOTS_PER_DAY) return ValidationCode.SERVICE_MAX_SLOTS_ABOVE_LIMIT;
+
+		//	Else the given value is valid
+		return ValidationCode.VALID;
+
+	}
+
 	/** 
 	 * Checks if the given max slots is valid for the given service
 	 * 
@@ -160,23 +214,23 @@ public class Service extends Identifiable implements Comparable<Service> {
 	 * @throws IllegalServiceMaxSlotsException		if given value exceeds the maximum number of slots per day of the hospital
 	 */
 	public static String isValidMaxSlots(int maxSlots, boolean throwError) {
+		return checkMaxSlots(maxSlots).toResult(throwError);
+	}
 
-		//	If the given value is negative
-		if (maxSlots < 0) {
-			String errorMessage = "Maximum number of slots cannot be negative!";
-			if (throwError) throw new IllegalServiceMaxSlotsException(errorMessage);
-			return errorMessage;
-		}
+	/** 
+	 * Checks if the given price per slot is valid for the given service, without allocating anything
+	 * 
+	 * @param pricePerSlot						- the value to check the validity for
+	 * 
+	 * @return ValidationCode					- {@code VALID}, or the reason the value is invalid
+	 */
+	public static ValidationCode checkPricePerSlot(double pricePerSlot) {
 
-		//	If the given value exceeds the hospital's maximum number of slots per day
-		if (maxSlots > Slot.MAX_SLOTS_PER_DAY) {
-			String errorMessage = "Maximum number of slots cannot be above the hospital's limit (28)!";
-			if (throwError) throw new IllegalServiceMaxSlotsException(errorMessage);
-			return errorMessage;
-		}
+		//	If the given value is negative
+		if (pricePerSlot < 0) return ValidationCode.SERVICE_PRICE_NEGATIVE;
 
-		//	Else return nothing since the given value is valid
-		return "";
+		//	Else the given value is valid
+		return ValidationCode.VALID;
 
 	}
 
@@ -191,46 +245,9 @@ public class Service extends Identifiable implements Comparable<Service> {
 	 * @throws IllegalServicePriceException		if given value is negative
 	 */
 	public static String isValidPricePerSlot(double pricePerSlot, boolean throwError) {
-
-		//	If the given value is negative
-		if (pricePerSlot < 0) {
-			String errorMessage = "Price per slot cannot be negative!";
-			if (throwError) throw new IllegalServicePriceException(errorMessage);
-			return errorMessage;
-		}
-
-		//	Else return nothing since the given value is valid
-		return "";
-
+		return checkPricePerSlot(pricePerSlot).toResult(throwError);
 	}
  
-	/** 
-	 * Generates an ID for this service
-	 * 
-	 * <p> This is calculated by doing the following:
-	 * <ol>
-	 * 		<li> Get the initial ID from {@code Identifiable}
-	 * 		<li> Add title, max slots, and price per slot to this service ID
-	 * </ol>
-	 */	
-	protected String generateId() {
-
-		//	Get the super class id
-		String idConcat = super.generateId();
-
-		//	Fetch this object's properties and convert them into strings
-		String title = this.getTitle();
-		String maxSlots = String.valueOf(this.getMaxSlots());
-		String pricePerSlot = String.valueOf(this.getPricePerSlot());
-
-		//	Concatenate the properties together
-		idConcat += String.format("T%sMS%sPPS%s", title, maxSlots, pricePerSlot);
-
-		//	Return the new ID
-		return idConcat;
-
-	}
-
 	/** 
 	 * Returns this object as a string representation
 	 * 
@@ -22,7 +22,7 @@ import cmps251.utils.TimeUtils;
  * <p> <i>Created on 14/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.17
+ * @version		1.23
  * @since		1.0
  */
 public class Slot extends Identifiable {
@@ -37,6 +37,8 @@ public class Slot extends Identifiable {
 	public static final int SLOT_DURATION = 30;
 	public static final int MAX_SLOTS_PER_DAY = 28;
 
+	private static final long serialVersionUID = 6696264568016904180L;
+
 //endregion
 
 
@@ -69,8 +71,8 @@ public class Slot extends Identifiable {
 		this.setDate(datetime.toLocalDate());
 		this.setTime(datetime.toLocalTime());
 
-		//	Generate a random id for this slot
-		this.setId(generateId());
+		//	Generate a unique id for this slot
+		this.setKey(generateKey());
 
 	}
 	public Slot(LocalDate date, LocalTime time) {
@@ -105,9 +107,6 @@ public class Slot extends Identifiable {
 		//	Set the slot's service
 		this.setAllocatedService(allocatedService);
 
-		//	Generate a random id for this slot
-		this.setId(generateId());
-
 	}
 	public Slot(LocalDate date, LocalTime time, Service allocatedService) {
 		this(LocalDateTime.of(date, time), allocatedService);
@@ -144,9 +143,6 @@ public class Slot extends Identifiable {
 		this.setAllocatedService(allocatedService);
 		this.setAllocatedPatient(allocatedPatient);
 
-		//	Generate a random id for this slot
-		this.setId(generateId());
-
 	}
 	public Slot(LocalDate date, LocalTime time, Service allocatedService, Patient allocatedPatient) {
 		this(LocalDateTime.of(date, time), allocatedService, allocatedPatient);
@@ -155,6 +151,38 @@ public class Slot extends Identifiable {
 		this(LocalDateTime.of(date, time), allocatedService, allocatedPatient);
 	}
 
+	/**
+	 * This constructor is only used by {@code restore}, it sets no attributes and runs no validation
+	 */
+	private Slot() {
+	}
+
+	/**
+	 * Recreates a previously booked slot from saved data, keeping its original ID.
+	 * Unlike the constructors, this does not validate the date and time, since saved slots may now be in the past
+	 * 
+	 * <p> <b>NOTE</b>: this method should never be called directly!
+	 * It should be called only when loading saved data, or by {@code SlotRepository} when copying a booked slot
+	 * 
+	 * @param id							- the slot's numeric id
+	 * @param date							- the slot's date
+	 * @param time							- the slot's time
+	 * @param allocatedService				- the slot's allocated service
+	 * @param allocatedPatient				- the slot's allocated patient
+	 * 
+	 * @return Slot							- the restored slot
+	 */
+	public static Slot restore(long id, LocalDate date, LocalTime time, Service allocatedService, Patient allocatedPatient) {
+		Slot slot = new Slot();
+		slot.date = date;
+		slot.time = time;
+		slot.setBooked(true);
+		slot.setAllocatedService(allocatedService);
+		slot.setAllocatedPatient(allocatedPatient);
+		slot.setKey(id);
+		return slot;
+	}
+
 //endregion
 
 
@@ -294,7 +322,7 @@ public class Slot extends Identifiable {
 //region
 
 	/** 
-	 * Returns an array of slots for all time intervals for the given date
+	 * Returns an array of slots for all time intervals for the given date that can still be booked
 	 * 
 	 * @param date						- the date to get slots for
 	 * 
@@ -305,12 +333,12 @@ public class Slot extends Identifiable {
 		//	Create a new list of time intervals to be returned
 		ArrayList<Slot> outputList = new ArrayList<Slot>();
 
-		//	Loop through each time interval in the day
-		ArrayList<LocalTime> intervals = TimeUtils.getDateTimeIntervals(date);
-		for (LocalTime time : intervals) {
+		//	Loop through each time interval in the day that is neither in the past nor outside the opening hours, so that every slot is valid
+		int open = TimeUtils.FULL_DAY_MASK & ~TimeUtils.getClosedIntervalsMask(date);
+		for (; open != 0; open &= open - 1) {
 			
 			//	Create a slot and add it to the output list
-			outputList.add(new Slot(date, time));
+			outputList.add(new Slot(date, TimeUtils.getIndexTime(Integer.numberOfTrailingZeros(open))));
 
 		}
 
@@ -319,6 +347,40 @@ public class Slot extends Identifiable {
 
 	}
 
+	/** 
+	 * Checks if the given time is valid for the given slot, without allocating anything
+	 * 
+	 * @param slot							- the slot to check the time validity for
+	 * @param time							- the time to check the validity of
+	 * 
+	 * @return ValidationCode				- {@code VALID}, or the reason the time is invalid
+	 */
+	public static ValidationCode checkTime(Slot slot, LocalTime time) {
+
+		//	If the given time does not start one of the time intervals of a day, then find out whether it is before the opening time,
+		//	after the closing time, or not in intervals of 30 minutes
+		int index = TimeUtils.getTimeIndex(time);
+		if (index < 0) {
+			if (time.isBefore(MIN_TIME)) return ValidationCode.SLOT_TIME_BEFORE_OPENING;
+			if (time.isAfter(MAX_TIME)) return ValidationCode.SLOT_TIME_AFTER_CLOSING;
+			return ValidationCode.SLOT_TIME_NOT_INTERVAL;
+		}
+
+		//	If the current slot date is not known then the time is valid
+		if (slot == null || slot.getDate() == null) return ValidationCode.VALID;
+
+		//	If the time's interval is outside the opening hours of the current slot date
+		ValidationCode intervalCode = checkInterval(slot.getDate(), index);
+		if (!intervalCode.isValid()) return intervalCode;
+
+		//	If this combination of time and the current slot date is in the past
+		if ((TimeUtils.getPastIntervalsMask(slot.getDate()) & 1 << index) != 0) return ValidationCode.SLOT_TIME_PAST;
+
+		//	Else the given time is valid
+		return ValidationCode.VALID;
+
+	}
+
 	/** 
 	 * Checks if the given time is valid for the given slot
 	 * 
@@ -330,40 +392,75 @@ public class Slot extends Identifiable {
 	 * 
 	 * @throws IllegalSlotTimeException		if given time starts before 7:00AM or after 8:30PM
 	 * @throws IllegalSlotTimeException		if given time is not within 30 minute time intervals
+	 * @throws IllegalSlotTimeException		if given time is outside the opening hours of the current slot date
 	 * @throws IllegalSlotTimeException		if given time at the current slot date is in the past
 	 */
 	public static String isValidTime(Slot slot, LocalTime time, boolean throwError) {
+		ValidationCode code = checkTime(slot, time);
+		return code == ValidationCode.SLOT_TIME_CLOSED ? code.toResult(throwError, slot.getDate()) : code.toResult(throwError);
+	}
 
-		//	If the given time is before the opening time
-		if (time.isBefore(MIN_TIME)) {
-			String errorMessage = "Starting time cannot be before " + MIN_TIME.toString() + "!";
-			if (throwError) throw new IllegalSlotTimeException(errorMessage);
-			return errorMessage;
-		}
+	/** 
+	 * Checks if the time interval with the given index is open at the given date, which is how the repositories check the time of a slot
+	 * once they have its index. This does not check whether the interval is in the past
+	 * 
+	 * @param date							- the date to check the interval at
+	 * @param index							- the index of the time interval
+	 * 
+	 * @return ValidationCode				- {@code VALID}, or the reason the interval cannot be booked, whose message takes the date
+	 */
+	public static ValidationCode checkInterval(LocalDate date, int index) {
 
-		//	If the given time is after the closing time
-		if (time.isAfter(MAX_TIME)) {
-			String errorMessage = "Starting time cannot be after " + MAX_TIME.toString() + "!";
-			if (throwError) throw new IllegalSlotTimeException(errorMessage);
-			return errorMessage;
-		}
+		//	If the given index is not one of the time intervals of a day
+		if (index < 0 || index >= MAX_SLOTS_PER_DAY) return ValidationCode.SLOT_TIME_NOT_INTERVAL;
 
-		//	If the given time is not in intervals of 30 minutes
-		if (time.getMinute() != 0 && time.getMinute() != 30) {
-			String errorMessage = "Starting time must be within 30 minute intervals!";
-			if (throwError) throw new IllegalSlotTimeException(errorMessage);
-			return errorMessage;
-		}
+		//	If the given interval is outside the opening hours of the given date
+		if (!TimeUtils.isOpen(date, index)) return ValidationCode.SLOT_TIME_CLOSED;
 
-		//	If this combination of time and the current slot date is in the past
-		if (slot != null && slot.getDate() != null && LocalDateTime.of(slot.getDate(), time).isBefore(LocalDateTime.now())) {
-			String errorMessage = "Starting time must not be in the past!";
-			if (throwError) throw new IllegalSlotTimeException(errorMessage);
-			return errorMessage;
-		}
+		//	Else the interval is open
+		return ValidationCode.VALID;
+
+	}
+
+	/** 
+	 * Checks if the time interval with the given index is open at the given date
+	 * 
+	 * @param date							- the date to check the interval at
+	 * @param index							- the index of the time interval
+	 * @param throwError					- should we throw an error here?
+	 * 
+	 * @return String						- the error message
+	 * 
+	 * @throws IllegalSlotTimeException		if given index is not one of the time intervals of a day
+	 * @throws IllegalSlotTimeException		if given interval is outside the opening hours of the given date
+	 */
+	public static String isValidInterval(LocalDate date, int index, boolean throwError) {
+		ValidationCode code = checkInterval(date, index);
+		return code.isValid() ? "" : code.toResult(throwError, date);
+	}
+
+	/** 
+	 * Checks if the given date is valid for the given slot, without allocating anything
+	 * 
+	 * @param slot							- the slot to check the date validity for
+	 * @param date							- the date to check the validity of
+	 * 
+	 * @return ValidationCode				- {@code VALID}, or the reason the date is invalid
+	 */
+	public static ValidationCode checkDate(Slot slot, LocalDate date) {
+
+		//	If the given date is in the past
+		if (date.isBefore(LocalDate.now().minusDays(1))) return ValidationCode.SLOT_DATE_PAST;
 
-		//	Else return nothing since the given time is valid
-		return "";
+		//	If the current slot time is not known then the date is valid
+		int index = slot == null ? -1 : TimeUtils.getTimeIndex(slot.getTime());
+		if (index < 0) return ValidationCode.VALID;
+
+		//	If this combination of date and the current slot time is in the past
+		if ((TimeUtils.getPastIntervalsMask(date) & 1 << index) != 0) return ValidationCode.SLOT_DATE_TIME_PAST;
+
+		//	Else check that the current slot time is within the opening hours of the given date
+		return checkInterval(date, index);
 
 	}
 
@@ -378,25 +475,33 @@ public class Slot extends Identifiable {
 	 * 
 	 * @throws IllegalSlotDateException		if given date is in the past
 	 * @throws IllegalSlotDateException		if given date at the current slot time is in the past
+	 * @throws IllegalSlotTimeException		if the current slot time is outside the opening hours of given date
 	 */
 	public static String isValidDate(Slot slot, LocalDate date, boolean throwError) {
+		ValidationCode code = checkDate(slot, date);
+		return code == ValidationCode.SLOT_TIME_CLOSED ? code.toResult(throwError, date) : code.toResult(throwError);
+	}
 
-		//	If the given date is in the past
-		if (date.isBefore(LocalDate.now().minusDays(1))) {
-			String errorMessage = "Starting date must not be in the past!";
-			if (throwError) throw new IllegalSlotDateException(errorMessage);
-			return errorMessage;
-		}
+	/** 
+	 * Checks if the given date time combination is valid, without allocating anything
+	 * 
+	 * @param date							- the date to check the validity of
+	 * @param time							- the time to check the validity of
+	 * 
+	 * @return ValidationCode				- {@code VALID}, or the reason the date or time is invalid
+	 */
+	public static ValidationCode checkDateTime(LocalDate date, LocalTime time) {
 
-		//	If this combination of date and the current slot time is in the past
-		if (slot != null && slot.getTime() != null && LocalDateTime.of(date, slot.getTime()).isBefore(LocalDateTime.now())) {
-			String errorMessage = "Starting date and time must not be in the past!";
-			if (throwError) throw new IllegalSlotDateException(errorMessage);
-			return errorMessage;
-		}
+		//	Check validity of date
+		ValidationCode dateCode = checkDate(null, date);
+		if (!dateCode.isValid()) return dateCode;
 
-		//	Else return nothing since the given date is valid
-		return "";
+		//	Check validity of time
+		ValidationCode timeCode = checkTime(null, time);
+		if (!timeCode.isValid()) return timeCode;
+
+		//	Check that the time's interval is open at the date
+		return checkInterval(date, TimeUtils.getTimeIndex(time));
 
 	}
 
@@ -412,40 +517,25 @@ public class Slot extends Identifiable {
 	 * @throws IllegalSlotDateException		if given date at the current slot time is in the past
 	 * @throws IllegalSlotTimeException		if given time starts before 7:00AM or after 8:30PM
 	 * @throws IllegalSlotTimeException		if given time is not within 30 minute time intervals
-	 * @throws IllegalSlotTimeException		if given time at the current slot date is in the past
+	 * @throws IllegalSlotTimeException		if given time is outside the opening hours of given date
 	 */
 	public static String isValidDateTime(LocalDate date, LocalTime time, boolean throwError) {
-
-		//	Check validity of date
-		String dateError = isValidDate(null, date, throwError);
-		if (dateError != "") return dateError;
-
-		//	Check validity of time
-		String timeError = isValidTime(null, time, throwError);
-		if (timeError != "") return timeError;
-
-		//	Else return nothing since the given date is valid
-		return "";
-
+		ValidationCode code = checkDateTime(date, time);
+		return code == ValidationCode.SLOT_TIME_CLOSED ? code.toResult(throwError, date) : code.toResult(throwError);
 	}
 	public static String isValidDateTime(LocalTime time, LocalDate date, boolean throwError) {
 		return isValidDateTime(date, time, throwError);
 	}
 
 	/** 
-	 * Checks if the given booking is valid
+	 * Checks if the given booking is valid, without allocating anything besides the repository lookups
 	 * 
 	 * @param slot							- the slot to check the booking validity for
 	 * @param patient						- the patient who will book the slot
-	 * @param throwError					- should we throw an error here?
-	 * 
-	 * @return String						- the error message
 	 * 
-	 * @throws IllegalArgumentException		if the given slot is already booked
-	 * @throws IllegalArgumentException		if the given patient already has a booking at this date and time for another service
-	 * @throws IllegalArgumentException		if the given slot's service has reached the maximum number of bookings for the day
+	 * @return ValidationCode				- {@code VALID}, or the reason the booking is invalid, whose message takes the service's maximum number of slots
 	 */
-	public static String isValidBooking(Slot slot, String patient, boolean throwError) {
+	public static ValidationCode checkBooking(Slot slot, String patient) {
 
 		//	Deconstruct slot properties
 		LocalDate date = slot.getDate();
@@ -453,30 +543,36 @@ public class Slot extends Identifiable {
 		String service = slot.getAllocatedService().getId();
 
 		//	If the given slot is already booked
-		if (SlotRepository.getSlotByDateTimeService(date, time, service) != null) {
-			String errorMessage = "This slot is unavailable!";
-			if (throwError) throw new IllegalSlotDateException(errorMessage);
-			return errorMessage;
-		}
+		if (SlotRepository.getSlotByDateTimeService(date, time, service) != null) return ValidationCode.SLOT_UNAVAILABLE;
 
 		//	If the given patient already has a booking at this date and time for another service
-		if (SlotRepository.getSlotByDateTimePatient(date, time, patient) != null) {
-			String errorMessage = "You cannot book 2 slots at the same date and time!";
-			if (throwError) throw new IllegalSlotDateException(errorMessage);
-			return errorMessage;
-		}
+		if (SlotRepository.getSlotByDateTimePatient(date, time, patient) != null) return ValidationCode.SLOT_PATIENT_BOOKED;
 
 		//	If the given slot's service has reached the maximum number of bookings for the day
-		if (SlotRepository.getSlotsByDateService(date, service).size() >= slot.getAllocatedService().getMaxSlots()) {
-			String errorMessage = "This slot has reached the maximum number of bookings for the day (" + slot.getAllocatedService().getMaxSlots() + ")!";
-			if (throwError) throw new IllegalSlotDateException(errorMessage);
-			return errorMessage;
-		}
+		if (SlotRepository.getBookedCountByDateService(date, service) >= slot.getAllocatedService().getMaxSlots()) return ValidationCode.SLOT_SERVICE_FULL;
 
-		//	Else return nothing since the given booking is valid
-		return "";
+		//	Else the given booking is valid
+		return ValidationCode.VALID;
 
 	}
+
+	/** 
+	 * Checks if the given booking is valid
+	 * 
+	 * @param slot							- the slot to check the booking validity for
+	 * @param patient						- the patient who will book the slot
+	 * @param throwError					- should we throw an error here?
+	 * 
+	 * @return String						- the error message
+	 * 
+	 * @throws IllegalArgumentException		if the given slot is already booked
+	 * @throws IllegalArgumentException		if the given patient already has a booking at this date and time for another service
+	 * @throws IllegalArgumentException		if the given slot's service has reached the maximum number of bookings for the day
+	 */
+	public static String isValidBooking(Slot slot, String patient, boolean throwError) {
+		ValidationCode code = checkBooking(slot, patient);
+		return code == ValidationCode.SLOT_SERVICE_FULL ? code.toResult(throwError, slot.getAllocatedService().getMaxSlots()) : code.toResult(throwError);
+	}
 	public static String isValidBooking(Slot slot, Patient patient, boolean throwError) {
 		return isValidBooking(slot, patient.getId(), throwError);
 	}
@@ -517,34 +613,6 @@ public class Slot extends Identifiable {
 		return isValidBooking(LocalDateTime.of(date, time), service.getId(), patient.getId(), throwError);
 	}
 	
-	/** 
-	 * Generates an ID for this slot
-	 * 
-	 * <p> This is calculated by doing the following:
-	 * <ol>
-	 * 		<li> Get the initial ID from {@code Identifiable}
-	 * 		<li> Add date, time, service ID, and patient ID to the slot ID
-	 * </ol>
-	 */	
-	protected String generateId() {
-
-		//	Get the super class id
-		String idConcat = super.generateId();
-
-		//	Fetch this object's properties and convert them into strings
-		String date = this.getDate().toString();
-		String time = this.getTime().toString();
-		String service = this.getAllocatedService() != null ? this.getAllocatedService().getId() : "None";
-		String patient = this.getAllocatedPatient() != null ? this.getAllocatedPatient().getId() : "None";
-
-		//	Concatenate the properties together
-		idConcat += String.format("D%sT%sS%sP%s", date, time, service, patient);
-
-		//	Return the new ID
-		return idConcat;
-
-	}
-
 	/** 
 	 * Returns this object as a string representation
 	 * 
@@ -0,0 +1,127 @@
+package cmps251.models;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import cmps251.utils.TimeUtils;
+
+/**
+ * This class represents a free time interval that can be booked in the Sehha hospital reception system
+ *
+ * <p> It is a lightweight alternative to an unbooked {@code Slot}, returned by availability queries.
+ * It holds only the service, the date, and the index of the time interval in the day,
+ * so creating one does not generate an ID or run any validation.
+ * A {@code Slot} should only be created from it once the user actually books it.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SlotCandidate {
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private final Service service;
+	private final LocalDate date;
+	private final int index;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the service, date, and time interval index of a free slot
+	 *
+	 * @param service						- the service the slot would be booked under
+	 * @param date							- the date of the slot
+	 * @param index							- the index of the slot's time interval in the day
+	 */
+	public SlotCandidate(Service service, LocalDate date, int index) {
+		this.service = service;
+		this.date = date;
+		this.index = index;
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the service the slot would be booked under
+	 *
+	 * @return Service		- the slot's service
+	 */
+	public Service getService() {
+		return service;
+	}
+
+	/**
+	 * Returns the date of the slot
+	 *
+	 * @return LocalDate	- the slot's date
+	 */
+	public LocalDate getDate() {
+		return date;
+	}
+
+	/**
+	 * Returns the index of the slot's time interval in the day
+	 *
+	 * @return int			- the slot's time interval index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the starting time of the slot
+	 *
+	 * @return LocalTime	- the slot's starting time
+	 */
+	public LocalTime getTime() {
+		return TimeUtils.getIndexTime(index);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Creates an unbooked slot for this candidate, ready to be booked
+	 *
+	 * @return Slot			- a new slot at this candidate's date and time under its service
+	 */
+	public Slot toSlot() {
+		return new Slot(date, getTime(), service);
+	}
+
+	/**
+	 * Returns this object as a string representation
+	 *
+	 * <p> This method formats the properties in the following way:
+	 * <p> {@code Time Slot: <date> <time>, Service: <service>}
+	 */
+	@Override
+	public String toString() {
+		return String.format("Time Slot: %sT%s, Service: %s", date, getTime(), service.getTitle());
+	}
+
+//endregion
+
+
+
+}
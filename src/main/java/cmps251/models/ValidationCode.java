@@ -0,0 +1,176 @@
+package cmps251.models;
+
+import java.util.function.BiFunction;
+
+import cmps251.exceptions.IllegalPatientIdException;
+import cmps251.exceptions.IllegalPatientNameException;
+import cmps251.exceptions.IllegalServiceMaxSlotsException;
+import cmps251.exceptions.IllegalServicePriceException;
+import cmps251.exceptions.IllegalSlotDateException;
+import cmps251.exceptions.IllegalSlotTimeException;
+import cmps251.exceptions.ValidationException;
+
+/**
+ * This enum lists the results of validating the data of a patient, service or slot in the Sehha hospital reception system
+ *
+ * <p> The {@code check} methods of the models return one of these instead of an error message, so validating a value allocates nothing.
+ * Each code has a message template that is only formatted once the message is actually shown, with the arguments given at that point.
+ * A code whose template takes no arguments keeps a single preallocated exception, which is what {@code toException} returns,
+ * and every other exception it creates skips filling in its stack trace, so throwing a validation error stays cheap as well.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public enum ValidationCode {
+
+
+
+/* ---------------------------------- Codes --------------------------------- */
+//region
+
+	VALID(null, ""),
+
+	PATIENT_ID_EMPTY(IllegalPatientIdException::new, "Patient ID cannot be empty!"),
+	PATIENT_ID_NOT_NUMERIC(IllegalPatientIdException::new, "Patient ID should only contain numbers!"),
+	PATIENT_ID_NOT_QID(IllegalPatientIdException::new, "Patient ID is not a valid QID, it should only have 11 digits!"),
+	PATIENT_ID_NOT_VISA(IllegalPatientIdException::new, "Patient ID is not a valid Visa number, it should only have 12 digits!"),
+	PATIENT_NAME_EMPTY(IllegalPatientNameException::new, "Patient name cannot be empty!"),
+	PATIENT_NAME_LENGTH(IllegalPatientNameException::new, "Patient name is either too short or too long, please keep it between 3 and 255 characters long!"),
+	PATIENT_NAME_NUMBERS(IllegalPatientNameException::new, "Patient name cannot contain numbers!"),
+
+	SERVICE_MAX_SLOTS_NEGATIVE(IllegalServiceMaxSlotsException::new, "Maximum number of slots cannot be negative!"),
+	SERVICE_MAX_SLOTS_ABOVE_LIMIT(IllegalServiceMaxSlotsException::new, "Maximum number of slots cannot be above the hospital's limit (28)!"),
+	SERVICE_PRICE_NEGATIVE(IllegalServicePriceException::new, "Price per slot cannot be negative!"),
+
+	SLOT_TIME_BEFORE_OPENING(IllegalSlotTimeException::new, "Starting time cannot be before 07:00!"),
+	SLOT_TIME_AFTER_CLOSING(IllegalSlotTimeException::new, "Starting time cannot be after 20:30!"),
+	SLOT_TIME_NOT_INTERVAL(IllegalSlotTimeException::new, "Starting time must be within 30 minute intervals!"),
+	SLOT_TIME_CLOSED(IllegalSlotTimeException::new, "Starting time must be within the opening hours of %s!"),
+	SLOT_TIME_PAST(IllegalSlotTimeException::new, "Starting time must not be in the past!"),
+	SLOT_DATE_PAST(IllegalSlotDateException::new, "Starting date must not be in the past!"),
+	SLOT_DATE_TIME_PAST(IllegalSlotDateException::new, "Starting date and time must not be in the past!"),
+	SLOT_UNAVAILABLE(IllegalSlotDateException::new, "This slot is unavailable!"),
+	SLOT_PATIENT_BOOKED(IllegalSlotDateException::new, "You cannot book 2 slots at the same date and time!"),
+	SLOT_SERVICE_FULL(IllegalSlotDateException::new, "This slot has reached the maximum number of bookings for the day (%d)!"),
+	SLOT_BATCH_UNAVAILABLE(IllegalSlotDateException::new, "The slot at %s %s cannot be booked. This slot is unavailable!"),
+	SLOT_BATCH_PATIENT_BOOKED(IllegalSlotDateException::new, "The slot at %s %s cannot be booked. You cannot book 2 slots at the same date and time!"),
+	SLOT_BATCH_SERVICE_FULL(IllegalSlotDateException::new, "The slot at %s %s cannot be booked. This slot has reached the maximum number of bookings for the day (%d)!");
+
+//endregion
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final BiFunction<ValidationCode, Object[], ValidationException> factory;
+	private final String template;
+	private final ValidationException error;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the constructor of the code's exception and its message template,
+	 * and preallocates its exception if the template takes no arguments
+	 *
+	 * @param factory						- the constructor of the exception thrown for this code
+	 * @param template						- the message template, in the format of {@code String.format}
+	 */
+	private ValidationCode(BiFunction<ValidationCode, Object[], ValidationException> factory, String template) {
+		this.factory = factory;
+		this.template = template;
+		this.error = factory == null || template.contains("%") ? null : factory.apply(this, new Object[0]);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Returns whether this code means the validated value is valid
+	 *
+	 * @return boolean						- is the value valid?
+	 */
+	public boolean isValid() {
+		return this == VALID;
+	}
+
+	/**
+	 * Returns the message template of this code, before any arguments are filled in
+	 *
+	 * @return String						- the message template
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Returns the error message of this code, filling in the given arguments if its template takes any
+	 *
+	 * @param args							- the arguments of the message
+	 *
+	 * @return String						- the error message, which is empty if the code is {@code VALID}
+	 */
+	public String format(Object... args) {
+		if (error != null || factory == null || args.length == 0) return template;
+		return String.format(template, args);
+	}
+	public String format() {
+		return template;
+	}
+
+	/**
+	 * Returns the exception to throw for this code. If the template takes no arguments this is always the same preallocated exception,
+	 * and else a new one without a stack trace, which formats its message from the given arguments once it is asked for
+	 *
+	 * @param args							- the arguments of the message
+	 *
+	 * @return ValidationException			- the exception
+	 *
+	 * @throws IllegalStateException		if this code is {@code VALID}
+	 */
+	public ValidationException toException(Object... args) {
+		if (factory == null) throw new IllegalStateException("A valid result has no exception!");
+		if (error != null) return error;
+		return factory.apply(this, args);
+	}
+	public ValidationException toException() {
+		return toException(NO_ARGUMENTS);
+	}
+
+	/**
+	 * Turns this code into the result of the older validation methods, which return an empty string if the value is valid,
+	 * and else either throw the code's exception or return its error message
+	 *
+	 * @param throwError					- should we throw an error here?
+	 * @param args							- the arguments of the message
+	 *
+	 * @return String						- the error message
+	 */
+	public String toResult(boolean throwError, Object... args) {
+		if (factory == null) return "";
+		if (throwError) throw toException(args);
+		return format(args);
+	}
+	public String toResult(boolean throwError) {
+		return toResult(throwError, NO_ARGUMENTS);
+	}
+
+//endregion
+
+
+
+}
@@ -1,13 +1,36 @@
 package cmps251.repos;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import cmps251.models.Patient;
 import cmps251.models.Service;
 import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.utils.AutoSaver;
+import cmps251.utils.IdUtils;
 import cmps251.utils.RepoUtils;
+import cmps251.utils.SlotArchive;
+import cmps251.utils.SlotPartition;
+import cmps251.utils.WriteAheadLog;
 import cmps251.utils.RepoUtils.DataType;
 
 /**
@@ -27,54 +50,516 @@ public final class AdminRepository {
 
 
 
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final String ARCHIVE_PROPERTY = "sehha.archive";
+	public static final int STARTUP_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private static final Object saveLock = new Object();
+	private static final Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+	private static final Set<DataType> failedTypes = Collections.synchronizedSet(EnumSet.noneOf(DataType.class));
+
+	private static volatile CompletableFuture<Snapshot> pendingSnapshot;
+
+//endregion
+
+
+
+/* ------------------------------ Inner Classes ----------------------------- */
+//region
+
+	/**
+	 * Holds the dirty data taken for a save
+	 */
+	private static final class Snapshot {
+		private EnumSet<DataType> types;
+		private final EnumMap<DataType, Object> values = new EnumMap<>(DataType.class);
+		private long logPosition;
+		private boolean archived;
+	}
+
+//endregion
+
+
+
 /* ----------------------------- Utility Methods ---------------------------- */
 //region
 
+	/** 
+	 * Initializes the data by clearing it and fetching from files if they exist, on the calling thread
+	 * 
+	 * @return Map<String, Long>		- the time taken by each phase of the startup, in nanoseconds
+	 */
+	public static Map<String, Long> initializeData() {
+		ExecutorService workers = createWorkers();
+		try {
+			return initializeData(workers);
+		}
+		finally {
+			workers.shutdown();
+		}
+	}
+
+	/** 
+	 * Initializes the data by clearing it and fetching from files if they exist, on a background thread.
+	 * The repositories should not be used until the returned future completes
+	 * 
+	 * @return CompletableFuture<Map<String, Long>>		- completes with the time taken by each phase of the startup, in nanoseconds
+	 */
+	public static CompletableFuture<Map<String, Long>> initializeDataAsync() {
+		CompletableFuture<Map<String, Long>> future = new CompletableFuture<>();
+		Thread thread = new Thread(() -> {
+			try {
+				future.complete(initializeData());
+			}
+			catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}, "startup");
+		thread.setDaemon(true);
+		thread.start();
+		return future;
+	}
+
 	/** 
 	 * Initializes the data by clearing it and fetching from files if they exist
+	 * 
+	 * <p> The patients and services are decoded in parallel, followed by the slots of the current and future months.
+	 * Each store that fails to load starts empty without affecting the others, and is not saved again until it can be loaded,
+	 * so that the data in its file is never overwritten
+	 * 
+	 * @param workers					- the pool that decodes the files and builds the indexes
+	 * 
+	 * @return Map<String, Long>		- the time taken by each phase of the startup, in nanoseconds
 	 */
-	public static void initializeData() {
+	private static Map<String, Long> initializeData(ExecutorService workers) {
 
-		//	Initialize lists for the data to be stored in
-		TreeMap<String, Patient> patientList = new TreeMap<>(); 
-		TreeMap<String, Service> serviceList = new TreeMap<>(); 
-		TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slotList = new TreeMap<>(); 
+		//	Clear the timings and failures of any previous startup
+		long start = System.nanoTime();
+		timings.clear();
+		failedTypes.clear();
 
-		//	Try to initialize the data
-		try {
+		//	Data still stored in legacy files is dirty, so it is saved in the current format at the next save
+		for (DataType type : DataType.values()) {
+			if (!Files.exists(Paths.get(type.getFileName())) && Files.exists(Paths.get(type.getLegacyFileName()))) AutoSaver.markDirty(type);
+		}
+		if (!RepoUtils.hasSlotPartitions() && Files.exists(Paths.get(DataType.SLOT.getFileName()))) AutoSaver.markDirty(DataType.SLOT);
 
-			//	Try and fetch data from files if they exist
-			patientList = (TreeMap<String, Patient>) RepoUtils.loadDataFromFile(DataType.PATIENT);
-			serviceList = (TreeMap<String, Service>) RepoUtils.loadDataFromFile(DataType.SERVICE);
-			slotList = (TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>) RepoUtils.loadDataFromFile(DataType.SLOT);
+		//	Decode the patients and services in parallel
+		CompletableFuture<TreeMap<String, Patient>> patientTask = submit(workers, "decode patients", () -> (TreeMap<String, Patient>) RepoUtils.loadDataFromFile(DataType.PATIENT));
+		CompletableFuture<TreeMap<String, Service>> serviceTask = submit(workers, "decode services", () -> (TreeMap<String, Service>) RepoUtils.loadDataFromFile(DataType.SERVICE));
+		TreeMap<String, Patient> patientList = join(patientTask, DataType.PATIENT, new TreeMap<>());
+		TreeMap<String, Service> serviceList = join(serviceTask, DataType.SERVICE, new TreeMap<>());
 
+		//	Slots that refer to a service or patient that failed to load would be dropped, so they should not be saved either
+		if (failedTypes.contains(DataType.PATIENT) || failedTypes.contains(DataType.SERVICE)) failedTypes.add(DataType.SLOT);
+
+		//	Decode the slots, either from the partitions of the current and future months in parallel or from a single file
+		TreeMap<YearMonth, SlotPartition> partitionList = null;
+		TreeMap<YearMonth, TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>> partitions = new TreeMap<>();
+		TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slotList = new TreeMap<>();
+		long slotStart = System.nanoTime();
+		if (RepoUtils.hasSlotPartitions()) {
+			partitionList = join(submit(workers, "decode manifest", () -> RepoUtils.loadSlotManifest()), DataType.SLOT, null);
+			if (partitionList != null) {
+				TreeMap<YearMonth, CompletableFuture<TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>>> partitionTasks = new TreeMap<>();
+				for (YearMonth month : partitionList.tailMap(YearMonth.now(), true).keySet()) {
+					partitionTasks.put(month, submit(workers, null, () -> RepoUtils.loadSlotPartition(month, serviceList, patientList)));
+				}
+				for (Map.Entry<YearMonth, CompletableFuture<TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>>> task : partitionTasks.entrySet()) {
+					try {
+						partitions.put(task.getKey(), task.getValue().join());
+					}
+					catch (CompletionException e) {
+						partitions.put(task.getKey(), null);
+					}
+				}
+			}
 		}
-		catch (Exception e) {
+		else slotList = join(submit(workers, null, () -> (TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>) RepoUtils.loadDataFromFile(DataType.SLOT, serviceList, patientList)), DataType.SLOT, new TreeMap<>());
+		timings.put("decode slots", System.nanoTime() - slotStart);
+
+		//	Build the indexes in parallel, the services are stored before the slots since storing them can upgrade their IDs
+		TreeMap<YearMonth, SlotPartition> months = partitionList;
+		TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slotMap = slotList;
+		long indexStart = System.nanoTime();
+		CompletableFuture.allOf(
+			submit(workers, "index patients", () -> {
+				PatientRepository.loadPatients(patientList);
+				return null;
+			}),
+			submit(workers, "index slots", () -> {
+				ServiceRepository.loadServices(serviceList);
+				if (months != null) SlotRepository.openPartitions(months, partitions);
+				else SlotRepository.loadSlots(slotMap);
+				return null;
+			})
+		).join();
+		timings.put("index", System.nanoTime() - indexStart);
 
-			//	If an error occurs then reset all lists to avoid errors
-			patientList.clear();
-			serviceList.clear();
-			slotList.clear();
+		//	Map the archive of past slots, if it is enabled
+		long recoverStart = System.nanoTime();
+		try {
+			if (isArchiveEnabled()) SlotRepository.openArchive(Paths.get(SlotArchive.FILE_NAME));
+		}
+		catch (IOException e) {
+			System.err.printf("We were unable to open the file %s! %n", SlotArchive.FILE_NAME);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+		}
 
+		//	Replay any changes made since the data was last saved, then start recording new changes
+		try {
+			replayLog();
+			WriteAheadLog.open();
 		}
+		catch (IOException e) {
+			System.err.printf("We were unable to open the file %s! %n", WriteAheadLog.FILE_NAME);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+		}
+
+		//	Move any past slots into the archive so that only current and future slots stay in memory
+		archiveSlots();
+		timings.put("recover", System.nanoTime() - recoverStart);
 
-		//	Add the results to the local lists
-		PatientRepository.getPatients().putAll(patientList);
-		ServiceRepository.getServices().putAll(serviceList);
-		SlotRepository.getSlots().putAll(slotList);
+		//	Report the time taken by each phase
+		timings.put("total", System.nanoTime() - start);
+		for (Map.Entry<String, Long> timing : getStartupTimings().entrySet()) System.out.printf("Startup phase %-16s %8.1f ms %n", timing.getKey(), timing.getValue() / 1e6);
+		return getStartupTimings();
+
+	}
+
+	/** 
+	 * Returns the time taken by each phase of the last startup
+	 * 
+	 * @return Map<String, Long>		- the time taken by each phase, in nanoseconds, in the order they finished
+	 */
+	public static Map<String, Long> getStartupTimings() {
+		synchronized (timings) {
+			return Collections.unmodifiableMap(new LinkedHashMap<>(timings));
+		}
+	}
 
+	/** 
+	 * Returns the types of data that failed to load on startup, which are not saved so that their files are not overwritten
+	 * 
+	 * @return Set<DataType>			- the types of data that failed to load
+	 */
+	public static Set<DataType> getFailedTypes() {
+		synchronized (failedTypes) {
+			EnumSet<DataType> types = EnumSet.noneOf(DataType.class);
+			types.addAll(failedTypes);
+			return types;
+		}
 	}
 
 	/** 
-	 * Saves data to files
+	 * Saves the data that changed since it was last saved to files, on the calling thread
+	 * 
+	 * <p> Once the files are saved, the changes recorded before they were saved are removed from the change log
 	 */
 	public static void saveData() {
+		saveData(Runnable::run);
+	}
+
+	/** 
+	 * Saves the data that changed since it was last saved to files
+	 * 
+	 * <p> Past slots are first moved into the archive on the calling thread. The dirty data is then copied by a task given to the given executor,
+	 * which should run it on the thread that modifies the repositories. The copies are then written on the calling thread,
+	 * so the executor's thread is only held up for as long as it takes to capture the current version and position in the change log
+	 * 
+	 * @param snapshotExecutor			- runs the task that copies the dirty data
+	 * 
+	 * @return boolean					- was everything saved successfully?
+	 */
+	public static boolean saveData(Executor snapshotExecutor) {
+		synchronized (saveLock) {
+
+			//	Move past slots into the archive first, so that they are left out of the slot file
+			boolean archived = archiveSlots();
+
+			//	Ask the executor to copy the dirty data, and wait for the copy unless the save is cancelled
+			CompletableFuture<Snapshot> future = new CompletableFuture<>();
+			pendingSnapshot = future;
+			snapshotExecutor.execute(() -> {
+				if (future.isDone()) return;
+				try {
+					future.complete(takeSnapshot(archived));
+				}
+				catch (RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+			Snapshot snapshot;
+			try {
+				snapshot = future.join();
+			}
+			catch (CancellationException e) {
+				return false;
+			}
+			finally {
+				pendingSnapshot = null;
+			}
+
+			//	Make sure every recorded change is on disk before the files are replaced
+			try {
+				WriteAheadLog.sync();
+			}
+			catch (IOException e) {
+				System.err.printf("We were unable to write to the file %s! %n", WriteAheadLog.FILE_NAME);
+			}
+
+			//	Save each dirty type of data, marking it as dirty again if it could not be saved.
+			//	If any type failed to load then the change log is kept, since its changes are not saved anywhere else
+			boolean saved = snapshot.archived && failedTypes.isEmpty();
+			for (DataType type : snapshot.types) {
+				if (RepoUtils.saveDataToFile(type, snapshot.values.get(type))) continue;
+				AutoSaver.markDirty(type);
+				if (type == DataType.SLOT) SlotRepository.markPartitionsDirty(((Map<YearMonth, ?>) snapshot.values.get(type)).keySet());
+				saved = false;
+			}
+
+			//	If everything was saved then the changes recorded before the copy are no longer needed
+			if (!saved) return false;
+			try {
+				WriteAheadLog.truncate(snapshot.logPosition);
+			}
+			catch (IOException e) {
+				System.err.printf("We were unable to clear the file %s! %n", WriteAheadLog.FILE_NAME);
+			}
+			return true;
+
+		}
+	}
+
+	/** 
+	 * Starts saving dirty data in the background every {@code AutoSaver.getInterval} milliseconds
+	 * 
+	 * @param snapshotExecutor			- runs the task that copies the dirty data, such as {@code Platform::runLater}
+	 */
+	public static void startAutoSave(Executor snapshotExecutor) {
+		AutoSaver.start(AutoSaver.getInterval(), () -> {
+			if (AutoSaver.isDirty(DataType.PATIENT) || AutoSaver.isDirty(DataType.SERVICE) || AutoSaver.isDirty(DataType.SLOT)) saveData(snapshotExecutor);
+		});
+	}
+
+	/** 
+	 * Stops saving dirty data in the background.
+	 * A save waiting for its copy is cancelled, so this can safely be called from the thread that runs the copy
+	 */
+	public static void stopAutoSave() {
+		CompletableFuture<Snapshot> future = pendingSnapshot;
+		if (future != null) future.cancel(false);
+		AutoSaver.stop();
+	}
+
+	/** 
+	 * Returns whether past slots should be kept in the archive instead of in memory.
+	 * This is enabled by setting the {@code sehha.archive} system property, and stays enabled once an archive exists
+	 * 
+	 * @return boolean					- is the archive enabled?
+	 */
+	public static boolean isArchiveEnabled() {
+		return Boolean.getBoolean(ARCHIVE_PROPERTY) || Files.exists(Paths.get(SlotArchive.FILE_NAME));
+	}
+
+	/** 
+	 * Moves every slot before today into the archive, if the archive is enabled
+	 * 
+	 * @return boolean					- were the slots archived successfully?
+	 */
+	private static boolean archiveSlots() {
+		if (!isArchiveEnabled()) return true;
+
+		//	If an archive exists but could not be mapped then leave it alone rather than replace it
+		if (Files.exists(Paths.get(SlotArchive.FILE_NAME)) && !SlotRepository.isArchiveOpen()) return false;
+
+		//	Else move the slots into a new archive
+		try {
+			SlotRepository.archiveSlots(Paths.get(SlotArchive.FILE_NAME), LocalDate.now());
+			return true;
+		}
+		catch (IOException e) {
+			System.err.printf("We were unable to write to the file %s! %n", SlotArchive.FILE_NAME);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			return false;
+		}
+	}
+
+	/** 
+	 * Takes every dirty type of data from the current version, along with the current position in the change log.
+	 * Since versions are never changed, this only keeps a reference to the data instead of copying it
+	 * 
+	 * <p> Slots may still be booked from other threads, since every slot change is published before it is recorded in the change log
+	 * 
+	 * @param archived					- were past slots archived successfully before the snapshot?
+	 * 
+	 * @return Snapshot					- the copied data
+	 */
+	private static Snapshot takeSnapshot(boolean archived) {
+
+		//	Past slots have already been moved into the archive by the saving thread
+		Snapshot snapshot = new Snapshot();
+		snapshot.archived = archived;
+
+		//	Remember where the change log ends before copying, so that every change before this point is in the copy
+		try {
+			snapshot.logPosition = WriteAheadLog.checkpoint();
+		}
+		catch (IOException e) {
+			snapshot.archived = false;
+		}
+
+		//	Take each dirty type of data, only taking the months of slots that changed
+		snapshot.types = AutoSaver.takeDirty();
+		snapshot.types.removeAll(getFailedTypes());
+		if (snapshot.types.contains(DataType.PATIENT)) snapshot.values.put(DataType.PATIENT, PatientRepository.getPatients());
+		if (snapshot.types.contains(DataType.SERVICE)) snapshot.values.put(DataType.SERVICE, ServiceRepository.getServices());
+		if (snapshot.types.contains(DataType.SLOT)) snapshot.values.put(DataType.SLOT, SlotRepository.takeDirtyPartitions());
+		return snapshot;
+
+	}
+
+	/** 
+	 * Creates the pool of daemon threads that decode the files and build the indexes on startup
+	 * 
+	 * @return ExecutorService			- the pool of workers
+	 */
+	private static ExecutorService createWorkers() {
+		return Executors.newFixedThreadPool(STARTUP_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "startup-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** 
+	 * Runs the given task on the given pool, recording the time it took under the given phase
+	 * 
+	 * @param workers					- the pool to run the task on
+	 * @param phase						- the name of the phase to record, or null to not record it
+	 * @param task						- the task to run
+	 * 
+	 * @return CompletableFuture<T>		- completes with the result of the task
+	 */
+	private static <T> CompletableFuture<T> submit(Executor workers, String phase, Callable<T> task) {
+		return CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			try {
+				return task.call();
+			}
+			catch (Exception e) {
+				throw new CompletionException(e);
+			}
+			finally {
+				if (phase != null) timings.put(phase, System.nanoTime() - start);
+			}
+		}, workers);
+	}
+
+	/** 
+	 * Waits for the given task that loads data of the given type, marking the type as failed if the task failed
+	 * 
+	 * @param task						- the task to wait for
+	 * @param type						- the type of data the task loads
+	 * @param fallback					- the value to use if the task failed
+	 * 
+	 * @return T						- the result of the task, or the fallback if it failed
+	 */
+	private static <T> T join(CompletableFuture<T> task, DataType type, T fallback) {
+		try {
+			return task.join();
+		}
+		catch (CompletionException e) {
+			failedTypes.add(type);
+			System.err.printf("We were unable to load data of the type %s, so it will not be saved until it can be loaded! %n", type.toString());
+			return fallback;
+		}
+	}
+
+	/** 
+	 * Applies every change recorded in the change log since the data was last saved, and marks all data as dirty if there were any
+	 * 
+	 * @throws IOException				if the change log could not be read
+	 */
+	private static void replayLog() throws IOException {
+		int count = WriteAheadLog.replay(new WriteAheadLog.Handler() {
+
+			@Override
+			public void patientPut(String key, String id, String name, ResidencyType residency) {
+				Patient patient = PatientRepository.getPatients().get(key);
+				if (patient != null && patient.getId().equals(id)) {
+					Patient newPatient = patient.copy();
+					newPatient.setName(name);
+					newPatient.setResidency(residency);
+					SlotRepository.replacePatient(key, newPatient);
+				}
+				else PatientRepository.restorePatient(key, new Patient(id, name, residency));
+			}
+
+			@Override
+			public void patientRemove(String id) {
+				PatientRepository.deletePatient(id);
+			}
+
+			@Override
+			public void patientIdChange(String oldId, String newId) {
+				if (PatientRepository.getPatientById(oldId) != null) PatientRepository.updatePatientId(oldId, newId);
+			}
+
+			@Override
+			public void servicePut(String key, long id, String title, int maxSlots, double pricePerSlot) {
+
+				//	Recreate the service with the logged data, giving it the logged numeric ID while keeping the ID it is stored under
+				Service service = ServiceRepository.getServices().get(key);
+				Service newService = service == null ? new Service(title, maxSlots, pricePerSlot) : service.copy();
+				newService.setTitle(title);
+				newService.setMaxSlots(maxSlots);
+				newService.setPricePerSlot(pricePerSlot);
+				newService.setKey(id);
+				newService.setId(key);
+				IdUtils.observeId(id);
+
+				//	Then store it, along with its booked slots if it was already stored
+				if (service == null) ServiceRepository.restoreService(key, newService);
+				else SlotRepository.replaceService(key, newService);
+
+			}
+
+			@Override
+			public void serviceRemove(String id) {
+				ServiceRepository.deleteService(id);
+			}
+
+			@Override
+			public void serviceIdChange(String oldId, String newId) {
+				if (ServiceRepository.getServiceById(oldId) != null) ServiceRepository.updateServiceId(oldId, newId);
+			}
+
+			@Override
+			public void slotPut(long id, String service, String patient, LocalDate date, LocalTime time) {
+				Service allocatedService = ServiceRepository.getServiceById(service);
+				Patient allocatedPatient = PatientRepository.getPatientById(patient);
+				if (allocatedService == null || allocatedPatient == null) return;
+				SlotRepository.restoreSlot(Slot.restore(id, date, time, allocatedService, allocatedPatient));
+				IdUtils.observeId(id);
+			}
+
+			@Override
+			public void slotRemove(long id) {
+				Slot slot = SlotRepository.getSlotById(id);
+				if (slot != null) SlotRepository.cancelSlot(slot.getId());
+			}
 
-		//	Save data to files
-		RepoUtils.saveDataToFile(DataType.PATIENT, PatientRepository.getPatients());
-		RepoUtils.saveDataToFile(DataType.SERVICE, ServiceRepository.getServices());
-		RepoUtils.saveDataToFile(DataType.SLOT, SlotRepository.getSlots());
+			@Override
+			public void slotMove(long oldId, long id, String service, String patient, LocalDate date, LocalTime time) {
+				slotRemove(oldId);
+				slotPut(id, service, patient, date, time);
+			}
 
+		});
+		if (count > 0) AutoSaver.markDirty(EnumSet.allOf(DataType.class));
 	}
 
 //endregion
@@ -0,0 +1,386 @@
+package cmps251.repos;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.utils.PersistentMap;
+import cmps251.utils.SlotArchive;
+
+/**
+ * This class is an immutable version of all the patients, services, and slots in the Sehha hospital reception system
+ *
+ * <p> Every change to the repositories publishes a new version once it has been fully applied, so a version never holds half of a change.
+ * Readers pin the current version with {@code pin} and can then read it for as long as they like without taking any lock,
+ * since later changes publish new versions instead of changing the pinned one.
+ * Each version is made of persistent maps, so a new version shares everything the change did not touch with the previous one.
+ * The repositories keep no other copy of the patients, services, and slot tree map, so reading them always reads the latest version.
+ *
+ * <p> <b>NOTE</b>: a version holds the same patient, service, and slot objects as the repositories, so they are never edited once stored.
+ * Updating a patient or service instead stores a changed copy of it, along with copies of its slots that refer to the copy,
+ * in a single new version, so older versions keep seeing the patient or service and its slots as they were
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class DataVersion {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	private static final AtomicReference<DataVersion> latest = new AtomicReference<>(new DataVersion(0, PersistentMap.empty(), PersistentMap.empty(), PersistentMap.empty(), null));
+
+	private final long number;
+	private final PersistentMap<String, Patient> patients;
+	private final PersistentMap<String, Service> services;
+	private final PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slots;
+	private final SlotArchive archive;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	private DataVersion(long number, PersistentMap<String, Patient> patients, PersistentMap<String, Service> services, PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slots, SlotArchive archive) {
+		this.number = number;
+		this.patients = patients;
+		this.services = services;
+		this.slots = slots;
+		this.archive = archive;
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the latest published version as it is, which only holds the slots of the months that have been loaded
+	 *
+	 * <p> The slots of past months are loaded once a query needs them, so a view that reads slots from the version
+	 * should pin it for the dates it shows instead
+	 *
+	 * @return DataVersion			- the current version
+	 */
+	public static DataVersion pin() {
+		return latest.get();
+	}
+
+	/**
+	 * Returns the latest published version, loading the slots of the months between the two given dates first, inclusive
+	 *
+	 * @param startDate				- the first date the version should hold the slots of
+	 * @param endDate				- the last date the version should hold the slots of
+	 *
+	 * @return DataVersion			- the current version
+	 */
+	public static DataVersion pin(LocalDate startDate, LocalDate endDate) {
+		SlotRepository.loadMonths(startDate, endDate);
+		return latest.get();
+	}
+
+	/**
+	 * Returns the number of this version, which grows by one with every published change
+	 *
+	 * @return long					- the version number
+	 */
+	public long getNumber() {
+		return number;
+	}
+
+	/**
+	 * Returns the patients of this version, by ID
+	 *
+	 * @return PersistentMap<String, Patient>		- the patients
+	 */
+	public PersistentMap<String, Patient> getPatients() {
+		return patients;
+	}
+
+	/**
+	 * Returns the services of this version, by ID
+	 *
+	 * @return PersistentMap<String, Service>		- the services
+	 */
+	public PersistentMap<String, Service> getServices() {
+		return services;
+	}
+
+	/**
+	 * Returns the slots of this version that are not archived, by service ID, date, and time
+	 *
+	 * @return PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>		- the slots
+	 */
+	public PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Returns a list of the patients of this version
+	 *
+	 * @return ArrayList<Patient>	- the patients
+	 */
+	public ArrayList<Patient> getPatientsAsList() {
+		return new ArrayList<>(patients.values());
+	}
+
+	/**
+	 * Returns a list of the services of this version
+	 *
+	 * @return ArrayList<Service>	- the services
+	 */
+	public ArrayList<Service> getServicesAsList() {
+		return new ArrayList<>(services.values());
+	}
+
+	/**
+	 * Returns a list of all the slots of this version, starting with any archived slots.
+	 * This restores every archived slot on the heap, so views should only read the dates they show with {@code getSlotsBetweenDates}
+	 *
+	 * @return ArrayList<Slot>		- the slots
+	 */
+	public ArrayList<Slot> getSlotsAsList() {
+		ArrayList<Slot> outputList = SlotRepository.getArchivedSlots(archive);
+		for (PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap : slots.values()) {
+			for (PersistentMap<LocalTime, Slot> timeMap : dateMap.values()) outputList.addAll(timeMap.values());
+		}
+		return outputList;
+	}
+
+	/**
+	 * Returns a list of the slots of this version between the two given dates, inclusive, starting with any archived slots.
+	 * Only the archived records in the range are read from the mapping, through the archive's index of dates
+	 *
+	 * @param startDate				- the first date to fetch slots for
+	 * @param endDate				- the last date to fetch slots for
+	 *
+	 * @return ArrayList<Slot>		- the slots in the range
+	 */
+	public ArrayList<Slot> getSlotsBetweenDates(LocalDate startDate, LocalDate endDate) {
+		ArrayList<Slot> outputList = SlotRepository.getArchivedSlots(archive, startDate, endDate);
+		for (PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap : slots.values()) {
+			for (PersistentMap<LocalTime, Slot> timeMap : dateMap.subMap(startDate, endDate).values()) outputList.addAll(timeMap.values());
+		}
+		return outputList;
+	}
+
+//endregion
+
+
+
+/* ---------------------------- Publish Methods ----------------------------- */
+//region
+
+	/**
+	 * Applies the given change to the current version and publishes the result as the next version.
+	 * The change may be applied more than once if another change is published at the same time, so it should not have side effects
+	 *
+	 * @param change				- returns the changed version, or the same version if nothing changed
+	 */
+	static void publish(UnaryOperator<DataVersion> change) {
+		latest.updateAndGet(version -> {
+			DataVersion changed = change.apply(version);
+			if (changed == version) return version;
+			return new DataVersion(version.number + 1, changed.patients, changed.services, changed.slots, changed.archive);
+		});
+	}
+
+	/**
+	 * Returns a copy of this version with the given patient stored under the given ID
+	 *
+	 * @param id					- the ID to store the patient under
+	 * @param patient				- the patient, or null to remove the ID
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withPatient(String id, Patient patient) {
+		return withPatients(patient == null ? patients.without(id) : patients.with(id, patient));
+	}
+
+	/**
+	 * Returns a copy of this version with the given patients
+	 *
+	 * @param patientList			- the patients, by ID
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withPatients(SortedMap<String, Patient> patientList) {
+		return withPatients(PersistentMap.of(patientList));
+	}
+
+	/**
+	 * Returns a copy of this version with the given patients added, replacing any patients stored under the same IDs
+	 *
+	 * @param patientList			- the patients to add, by ID
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withAddedPatients(SortedMap<String, Patient> patientList) {
+		return withPatients(patients.withAll(patientList));
+	}
+
+	/**
+	 * Returns a copy of this version with the given service stored under the given ID
+	 *
+	 * @param id					- the ID to store the service under
+	 * @param service				- the service, or null to remove the ID
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withService(String id, Service service) {
+		return withServices(service == null ? services.without(id) : services.with(id, service));
+	}
+
+	/**
+	 * Returns a copy of this version with the given services
+	 *
+	 * @param serviceList			- the services, by ID
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withServices(SortedMap<String, Service> serviceList) {
+		return withServices(PersistentMap.of(serviceList));
+	}
+
+	/**
+	 * Returns a copy of this version with the service and slots stored under the given ID moved to the new ID
+	 *
+	 * @param oldId					- the service's previous ID
+	 * @param newId					- the service's new ID
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withServiceId(String oldId, String newId) {
+		Service service = services.get(oldId);
+		PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap = slots.get(oldId);
+		DataVersion version = withService(oldId, null).withService(newId, service);
+		if (dateMap == null) return version;
+		return version.withSlots(version.slots.without(oldId).with(newId, dateMap));
+	}
+
+	/**
+	 * Returns a copy of this version with the given slot replaced by another.
+	 * The old slot is only removed if it is still the slot stored at its service, date, and time
+	 *
+	 * @param oldSlot				- the slot to remove, or null to only add the new slot
+	 * @param newSlot				- the slot to add, or null to only remove the old slot
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withSlot(Slot oldSlot, Slot newSlot) {
+		PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slotMap = slots;
+		if (oldSlot != null) slotMap = removeSlot(slotMap, oldSlot);
+		if (newSlot != null) slotMap = addSlot(slotMap, newSlot);
+		return withSlots(slotMap);
+	}
+
+	/**
+	 * Returns a copy of this version with the given slots replaced by others
+	 *
+	 * @param oldSlots				- the slots to remove, each only if it is still the slot stored at its service, date, and time
+	 * @param newSlots				- the slots to add
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withSlots(Collection<Slot> oldSlots, Collection<Slot> newSlots) {
+		PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slotMap = slots;
+		for (Slot slot : oldSlots) slotMap = removeSlot(slotMap, slot);
+		for (Slot slot : newSlots) slotMap = addSlot(slotMap, slot);
+		return withSlots(slotMap);
+	}
+
+	/**
+	 * Returns a copy of this version with the given slots, replacing every slot that is not archived
+	 *
+	 * @param slotList				- the slots, by service ID, date, and time
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withSlots(SortedMap<String, ? extends SortedMap<LocalDate, ? extends SortedMap<LocalTime, Slot>>> slotList) {
+		return withSlots(PersistentMap.of(slotList, dateMap -> PersistentMap.of(dateMap, timeMap -> PersistentMap.of(timeMap))));
+	}
+
+	/**
+	 * Returns a copy of this version with the given archive of past slots
+	 *
+	 * @param newArchive			- the archive, or null if none is mapped
+	 *
+	 * @return DataVersion			- the changed version
+	 */
+	DataVersion withArchive(SlotArchive newArchive) {
+		return newArchive == archive ? this : new DataVersion(number, patients, services, slots, newArchive);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	private DataVersion withPatients(PersistentMap<String, Patient> newPatients) {
+		return newPatients == patients ? this : new DataVersion(number, newPatients, services, slots, archive);
+	}
+
+	private DataVersion withServices(PersistentMap<String, Service> newServices) {
+		return newServices == services ? this : new DataVersion(number, patients, newServices, slots, archive);
+	}
+
+	private DataVersion withSlots(PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> newSlots) {
+		return newSlots == slots ? this : new DataVersion(number, patients, services, newSlots, archive);
+	}
+
+	/**
+	 * Returns a copy of the given slot map with the given slot added at its service, date, and time
+	 *
+	 * @param slotMap				- the slot map
+	 * @param slot					- the slot to add
+	 *
+	 * @return PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>		- the new slot map
+	 */
+	private static PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> addSlot(PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slotMap, Slot slot) {
+		String service = slot.getAllocatedService().getId();
+		PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap = slotMap.getOrDefault(service, PersistentMap.empty());
+		PersistentMap<LocalTime, Slot> timeMap = dateMap.getOrDefault(slot.getDate(), PersistentMap.empty());
+		return slotMap.with(service, dateMap.with(slot.getDate(), timeMap.with(slot.getTime(), slot)));
+	}
+
+	/**
+	 * Returns a copy of the given slot map without the given slot, along with any maps left empty
+	 *
+	 * @param slotMap				- the slot map
+	 * @param slot					- the slot to remove, only if it is the slot stored at its service, date, and time
+	 *
+	 * @return PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>		- the new slot map
+	 */
+	private static PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> removeSlot(PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slotMap, Slot slot) {
+		String service = slot.getAllocatedService().getId();
+		PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap = slotMap.get(service);
+		PersistentMap<LocalTime, Slot> timeMap = dateMap == null ? null : dateMap.get(slot.getDate());
+		if (timeMap == null || timeMap.get(slot.getTime()) != slot) return slotMap;
+		timeMap = timeMap.without(slot.getTime());
+		dateMap = timeMap.isEmpty() ? dateMap.without(slot.getDate()) : dateMap.with(slot.getDate(), timeMap);
+		return dateMap.isEmpty() ? slotMap.without(service) : slotMap.with(service, dateMap);
+	}
+
+//endregion
+
+
+
+}
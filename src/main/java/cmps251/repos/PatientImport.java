@@ -0,0 +1,239 @@
+package cmps251.repos;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * This class reports on a bulk import of patients from a CSV file into the Sehha hospital reception system
+ *
+ * <p> It is returned by {@code PatientRepository.importPatients}, and updated after each chunk of rows the import stores,
+ * so its counts and rate can be read from another thread while the import is still running.
+ * Every row that is not imported is kept as a {@code Reject}, holding its line number, its text, and the reason it was rejected.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class PatientImport {
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private final Path source;
+	private final long startTime = System.nanoTime();
+	private final ArrayList<Reject> rejects = new ArrayList<>();
+
+	private volatile long rowCount;
+	private volatile long importedCount;
+	private volatile long filterHits;
+	private volatile long endTime;
+	private volatile boolean done;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the file being imported, and starts the import's clock
+	 *
+	 * @param source						- the imported file
+	 */
+	PatientImport(Path source) {
+		this.source = source;
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the imported file
+	 *
+	 * @return Path							- the file
+	 */
+	public Path getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the number of rows read so far, not counting the header or blank lines
+	 *
+	 * @return long							- the number of rows
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns the number of rows stored as patients so far
+	 *
+	 * @return long							- the number of imported rows
+	 */
+	public long getImportedCount() {
+		return importedCount;
+	}
+
+	/**
+	 * Returns the number of rows rejected so far
+	 *
+	 * @return long							- the number of rejected rows
+	 */
+	public synchronized long getRejectedCount() {
+		return rejects.size();
+	}
+
+	/**
+	 * Returns the rows rejected so far, in the order of the file
+	 *
+	 * @return ArrayList<Reject>			- a copy of the rejected rows
+	 */
+	public synchronized ArrayList<Reject> getRejects() {
+		return new ArrayList<>(rejects);
+	}
+
+	/**
+	 * Returns the number of rows whose ID the Bloom filter reported as possibly stored, which are the only rows whose ID was looked up.
+	 * Those that turned out not to be stored were false positives of the filter
+	 *
+	 * @return long							- the number of rows that were looked up
+	 */
+	public long getFilterHits() {
+		return filterHits;
+	}
+
+	/**
+	 * Returns the time the import has taken so far, or took if it is done
+	 *
+	 * @return long							- the time in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return (done ? endTime : System.nanoTime()) - startTime;
+	}
+
+	/**
+	 * Returns the average number of rows read per second so far
+	 *
+	 * @return double						- the number of rows per second
+	 */
+	public double getRowsPerSecond() {
+		long elapsed = getElapsedNanos();
+		return elapsed <= 0 ? 0 : rowCount * 1e9 / elapsed;
+	}
+
+	/**
+	 * Returns whether the import has finished, either by reading the whole file or by failing to read it
+	 *
+	 * @return boolean						- is the import done?
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * A row that was not imported, along with the reason why
+	 */
+	public static final class Reject {
+
+		private final long line;
+		private final String text;
+		private final String reason;
+
+		private Reject(long line, String text, String reason) {
+			this.line = line;
+			this.text = text;
+			this.reason = reason;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Line %d: %s (%s)", line, reason, text);
+		}
+
+	}
+
+	/**
+	 * Returns a summary of the import
+	 *
+	 * @return String						- the summary
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+			"Rows: %d, imported: %d, rejected: %d, filter hits: %d, time: %d ms, rows per second: %.0f %n",
+			rowCount, importedCount, getRejectedCount(), filterHits, getElapsedNanos() / 1_000_000, getRowsPerSecond()
+		);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Records that the row at the given line was rejected for the given reason
+	 *
+	 * @param line							- the line number of the row
+	 * @param text							- the text of the row
+	 * @param reason						- the reason it was rejected
+	 */
+	synchronized void reject(long line, String text, String reason) {
+		rejects.add(new Reject(line, text, reason));
+	}
+
+	/**
+	 * Records that a chunk of rows was read, of which the given number were imported
+	 *
+	 * @param rows							- the number of rows in the chunk
+	 * @param imported						- the number of them that were imported
+	 * @param hits							- the number of them whose ID the Bloom filter reported as possibly stored
+	 */
+	void addChunk(int rows, int imported, int hits) {
+		rowCount += rows;
+		importedCount += imported;
+		filterHits += hits;
+	}
+
+	/**
+	 * Stops the import's clock
+	 */
+	void finish() {
+		endTime = System.nanoTime();
+		done = true;
+	}
+
+//endregion
+
+
+
+}
@@ -1,10 +1,24 @@
 package cmps251.repos;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import cmps251.models.Patient;
+import cmps251.models.ValidationCode;
 import cmps251.models.Patient.ResidencyType;
+import cmps251.utils.BloomFilter;
+import cmps251.utils.MutationPipeline;
+import cmps251.utils.PersistentMap;
+import cmps251.utils.WriteAheadLog;
 
 /**
  * This class contains all the data related operations and functions for patients in the Sehha hospital reception system
@@ -12,10 +26,17 @@ import cmps251.models.Patient.ResidencyType;
  * <p> This is where all the patients are managed
  * From here, you can add, modify, or remove patients, along with some extra utility functions
  * 
+ * <p> The patients are stored in the current {@code DataVersion}, and every change publishes a new version
+ * 
+ * <p> Large CSV files of patients are imported with {@code importPatients}, which reads them in chunks of {@code IMPORT_CHUNK_SIZE} rows.
+ * The rows of a chunk are parsed and validated in parallel on the common fork-join pool, then checked for duplicates in the order of the file,
+ * only looking up the IDs that a Bloom filter of the stored and imported IDs might contain, and the rest are stored with a single new version.
+ * A row that cannot be imported is reported as rejected instead of stopping the import
+ * 
  * <p> <i>Created on 18/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.14
+ * @version		1.23
  * @since		1.12
  */
 public final class PatientRepository {
@@ -25,7 +46,16 @@ public final class PatientRepository {
 /* --------------------------- Constant Attributes -------------------------- */
 //region
 
-	private static final TreeMap<String, Patient> patients = new TreeMap<>();
+	public static final int IMPORT_CHUNK_SIZE = 16_384;
+	private static final double IMPORT_FALSE_POSITIVE_RATE = 0.01;
+	private static final int IMPORT_BYTES_PER_ROW = 32;
+
+	private static final String BAD_COLUMNS = "The row must have an ID, a name and a residency";
+	private static final String BAD_RESIDENCY = "The residency must be either RESIDENT or VISITOR";
+	private static final String STORED_DUPLICATE = "A patient with this ID is already stored";
+	private static final String FILE_DUPLICATE = "A patient with this ID appears earlier in the file";
+
+	private static volatile PatientImport lastImport;
 
 //endregion
 
@@ -35,12 +65,14 @@ public final class PatientRepository {
 //region
 
 	/** 
-	 * Gets all the patients currently stored
+	 * Gets all the patients currently stored, as they are in the current version
 	 * 
-	 * @return ArrayList<Patient>		- the list of patients currently stored
+	 * <p> The returned map is never changed, later changes to the patients publish a new version instead
+	 * 
+	 * @return PersistentMap<String, Patient>		- the patients currently stored, by ID
 	 */
-	public static TreeMap<String, Patient> getPatients() {
-		return patients;
+	public static PersistentMap<String, Patient> getPatients() {
+		return DataVersion.pin().getPatients();
 	}
 
 	/** 
@@ -49,7 +81,7 @@ public final class PatientRepository {
 	 * @return ArrayList<Patient>		- the list of patients currently stored
 	 */
 	public static ArrayList<Patient> getPatientsAsList() {
-		return new ArrayList<Patient>(patients.values());
+		return new ArrayList<Patient>(getPatients().values());
 	}
 
 	/** 
@@ -60,7 +92,7 @@ public final class PatientRepository {
 	 * @return Patient				- the patient with the given id
 	 */
 	public static Patient getPatientById(String id) {
-		return patients.get(id);
+		return getPatients().get(id);
 	}
 
 	/** 
@@ -73,6 +105,7 @@ public final class PatientRepository {
 	public static ArrayList<Patient> getPatientsByIds(ArrayList<String> ids) {
 
 		//	Create a list to store the output results
+		PersistentMap<String, Patient> patients = getPatients();
 		ArrayList<Patient> outputList = new ArrayList<Patient>();
 
 		//	Loop through each patient and find those with the same id
@@ -98,7 +131,7 @@ public final class PatientRepository {
 		ArrayList<Patient> outputList = new ArrayList<Patient>();
 
 		//	Loop through each patient and find those with the same name
-		for (Patient patient : patients.values()) {
+		for (Patient patient : getPatients().values()) {
 			if (patient.getName().equals(name)) outputList.add(patient);
 		}
 
@@ -120,7 +153,7 @@ public final class PatientRepository {
 		ArrayList<Patient> outputList = new ArrayList<Patient>();
 
 		//	Loop through each patient and find those with the same name
-		for (Patient patient : patients.values()) {
+		for (Patient patient : getPatients().values()) {
 			if (names.contains(patient.getName())) outputList.add(patient);
 		}
 
@@ -142,7 +175,7 @@ public final class PatientRepository {
 		ArrayList<Patient> outputList = new ArrayList<Patient>();
 
 		//	Loop through each patient and find those with the same residency
-		for (Patient patient : patients.values()) {
+		for (Patient patient : getPatients().values()) {
 			if (patient.getResidency() == residency) outputList.add(patient);
 		}
 
@@ -158,6 +191,28 @@ public final class PatientRepository {
 /* --------------------------------- Adders --------------------------------- */
 //region
 
+	/** 
+	 * Replaces all stored patients with the given patients, usually fetched from a file
+	 * 
+	 * @param patientList					- the tree map of patients to load
+	 */
+	public static void loadPatients(TreeMap<String, Patient> patientList) {
+		DataVersion.publish(version -> version.withPatients(patientList));
+	}
+
+	/** 
+	 * Stores a patient recreated from saved data under the given key, replacing any patient stored under it.
+	 * Unlike {@code addPatient}, this does not record the change
+	 * 
+	 * <p> <b>NOTE</b>: this should only be called while replaying the change log on startup
+	 * 
+	 * @param key							- the key to store the patient under
+	 * @param patient						- the restored patient
+	 */
+	static void restorePatient(String key, Patient patient) {
+		DataVersion.publish(version -> version.withPatient(key, patient));
+	}
+
 	/** 
 	 * Adds a single given patient to the list of patients
 	 * 
@@ -167,11 +222,15 @@ public final class PatientRepository {
 	 */
 	public static void addPatient(Patient patient) {
 
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> addPatient(patient))) return;
+
 		//	If the patient already exists
-		if (patients.containsKey(patient.getId())) throw new IllegalArgumentException("The given patient is already in the list!");
+		if (getPatients().containsKey(patient.getId())) throw new IllegalArgumentException("The given patient is already in the list!");
 
-		//	If it doesn't exist then add it
-		patients.put(patient.getId(), patient);
+		//	If it doesn't exist then add it and record the change
+		DataVersion.publish(version -> version.withPatient(patient.getId(), patient));
+		WriteAheadLog.logPatientPut(patient.getId(), patient);
 
 	}
 
@@ -186,6 +245,67 @@ public final class PatientRepository {
 		for (Patient patient : patients) addPatient(patient);
 	}
 
+	/** 
+	 * Imports the patients of the given CSV file, which has a row of ID, name, and residency for each patient, optionally after a header row.
+	 * Fields may be quoted, and the residency is either RESIDENT or VISITOR. Rows that are invalid, or whose ID is already stored
+	 * or appears earlier in the file, are rejected and reported instead of stopping the import
+	 * 
+	 * @param path							- the CSV file to import
+	 * @param progress						- called with the import's report after each chunk is stored, or null
+	 * 
+	 * @return PatientImport				- the report of the import
+	 * 
+	 * @throws IOException					if the file could not be read, in which case the chunks read before are still imported
+	 */
+	public static PatientImport importPatients(Path path, Consumer<PatientImport> progress) throws IOException {
+
+		//	Add every stored ID to a filter sized for them and the rows the file probably holds
+		PatientImport report = new PatientImport(path);
+		lastImport = report;
+		PersistentMap<String, Patient> stored = getPatients();
+		long expectedRows = Files.size(path) / IMPORT_BYTES_PER_ROW;
+		BloomFilter filter = new BloomFilter((int)Math.min(Integer.MAX_VALUE, stored.size() + expectedRows), IMPORT_FALSE_POSITIVE_RATE);
+		for (String id : stored.keySet()) filter.add(id);
+
+		//	Read the file a chunk of rows at a time, skipping the header and blank lines, and import each chunk
+		HashSet<String> imported = new HashSet<>();
+		String[] lines = new String[IMPORT_CHUNK_SIZE];
+		long[] lineNumbers = new long[IMPORT_CHUNK_SIZE];
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			long line = 0;
+			while (true) {
+				int count = 0;
+				String text;
+				while (count < lines.length && (text = reader.readLine()) != null) {
+					line++;
+					if (text.isBlank() || line == 1 && text.strip().replace("\"", "").regionMatches(true, 0, "id", 0, 2)) continue;
+					lines[count] = text;
+					lineNumbers[count++] = line;
+				}
+				if (count == 0) break;
+				importChunk(lines, lineNumbers, count, filter, imported, report);
+				if (progress != null) progress.accept(report);
+			}
+		}
+		finally {
+			report.finish();
+		}
+		return report;
+
+	}
+	public static PatientImport importPatients(Path path) throws IOException {
+		return importPatients(path, null);
+	}
+
+	/** 
+	 * Returns the report of the import that is running, or of the last one to finish, so that its progress can be followed from another thread
+	 * 
+	 * @return PatientImport				- the report, or null if nothing was imported yet
+	 */
+	public static PatientImport getLastImport() {
+		return lastImport;
+	}
+
 //endregion
 
 
@@ -197,12 +317,29 @@ public final class PatientRepository {
 	 * Updates the info of the patient with the given ID
 	 * 
 	 * <p> <b>NOTE</b>: this replaces all the previously stored information!
+	 * The given patient is not stored itself, its data is copied onto a copy of the stored patient,
+	 * which is then stored along with his booked slots. If it has another ID then the patient's ID is changed first
 	 * 
 	 * @param id				- the ID of the patient to update
 	 * @param newPatient		- the new data to replace the old patient with
 	 */
 	public static void updatePatient(String id, Patient newPatient) {
-		patients.replace(id, newPatient);
+
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> updatePatient(id, newPatient))) return;
+		if (!getPatients().containsKey(id)) return;
+
+		//	Change the patient's ID first if it was changed, so that he is always stored under his own ID
+		String newId = newPatient.getId();
+		if (!newId.equals(id)) updatePatientId(id, newId);
+
+		//	Then copy the new data onto a copy of him, and store it along with his booked slots
+		Patient patient = getPatients().get(newId).copy();
+		patient.setName(newPatient.getName());
+		patient.setResidency(newPatient.getResidency());
+		SlotRepository.replacePatient(newId, patient);
+		WriteAheadLog.logPatientPut(newId, patient);
+
 	}
 	public static void updatePatient(Patient patient, Patient newPatient) {
 		updatePatient(patient.getId(), newPatient);
@@ -216,15 +353,19 @@ public final class PatientRepository {
 	 */
 	public static void updatePatientId(String id, String newId) {
 
-		//	Store the old patient temporarily
-		Patient patient = patients.get(id);
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> updatePatientId(id, newId))) return;
 
-		//	Remove him from the list
-		patients.remove(id);
+		//	If another patient already has the new ID
+		if (getPatients().containsKey(newId)) throw new IllegalArgumentException("The given patient is already in the list!");
 
-		//	Update his ID and add him back
-		patient.setId(newId);
-		addPatient(patient);
+		//	Give a copy of him the new ID, and store it along with his booked slots under the new ID
+		Patient patient = getPatients().get(id);
+		if (patient == null) return;
+		Patient newPatient = patient.copy();
+		newPatient.setId(newId);
+		SlotRepository.replacePatient(id, newPatient);
+		WriteAheadLog.logPatientIdChange(id, newId);
 
 	}
 	public static void updatePatientId(Patient patient, String newId) {
@@ -238,7 +379,13 @@ public final class PatientRepository {
 	 * @param name				- the patient's new name
 	 */
 	public static void updatePatientName(String id, String name) {
-		patients.get(id).setName(name);
+		if (MutationPipeline.handOver(() -> updatePatientName(id, name))) return;
+		Patient patient = getPatients().get(id);
+		if (patient == null) return;
+		Patient newPatient = patient.copy();
+		newPatient.setName(name);
+		SlotRepository.replacePatient(id, newPatient);
+		WriteAheadLog.logPatientPut(id, newPatient);
 	}
 	public static void updatePatientName(Patient patient, String name) {
 		updatePatientName(patient.getId(), name);
@@ -251,7 +398,13 @@ public final class PatientRepository {
 	 * @param residency				- the patient's new name
 	 */
 	public static void updatePatientResidency(String id, ResidencyType residency) {
-		patients.get(id).setResidency(residency);
+		if (MutationPipeline.handOver(() -> updatePatientResidency(id, residency))) return;
+		Patient patient = getPatients().get(id);
+		if (patient == null) return;
+		Patient newPatient = patient.copy();
+		newPatient.setResidency(residency);
+		SlotRepository.replacePatient(id, newPatient);
+		WriteAheadLog.logPatientPut(id, newPatient);
 	}
 	public static void updatePatientResidency(Patient patient, ResidencyType residency) {
 		updatePatientResidency(patient.getId(), residency);
@@ -270,7 +423,11 @@ public final class PatientRepository {
 	 * @param id							- the patient with this id will be deleted
 	 */
 	public static void deletePatient(String id) {
-		patients.remove(id);
+		if (MutationPipeline.handOver(() -> deletePatient(id))) return;
+		if (getPatients().containsKey(id)) {
+			DataVersion.publish(version -> version.withPatient(id, null));
+			WriteAheadLog.logPatientRemove(id);
+		}
 		SlotRepository.cancelSlotsByPatient(id);
 	}
 
@@ -286,5 +443,169 @@ public final class PatientRepository {
 //endregion
 
 
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/** 
+	 * Imports the given chunk of rows, rejecting the invalid and duplicate ones, and stores the rest together
+	 * 
+	 * @param lines							- the rows of the chunk
+	 * @param lineNumbers					- the line number of each row
+	 * @param count							- the number of rows in the chunk
+	 * @param filter						- the filter of every ID stored or imported so far
+	 * @param imported						- the IDs imported so far
+	 * @param report						- the report of the import
+	 */
+	private static void importChunk(String[] lines, long[] lineNumbers, int count, BloomFilter filter, HashSet<String> imported, PatientImport report) {
+
+		//	Parse and validate the rows in parallel on the common fork-join pool
+		Patient[] parsed = new Patient[count];
+		String[] reasons = new String[count];
+		IntStream.range(0, count).parallel().forEach(i -> reasons[i] = parsePatient(lines[i], parsed, i));
+
+		//	Then go through them in the order of the file, only looking up the IDs the filter might contain to find the duplicates
+		PersistentMap<String, Patient> stored = getPatients();
+		TreeMap<String, Patient> accepted = new TreeMap<>();
+		HashMap<String, Integer> rows = new HashMap<>();
+		int hits = 0;
+		for (int i = 0; i < count; i++) {
+			if (reasons[i] != null) {
+				report.reject(lineNumbers[i], lines[i], reasons[i]);
+				continue;
+			}
+			String id = parsed[i].getId();
+			if (filter.mightContain(id)) {
+				hits++;
+				String duplicate = imported.contains(id) ? FILE_DUPLICATE : stored.containsKey(id) ? STORED_DUPLICATE : null;
+				if (duplicate != null) {
+					report.reject(lineNumbers[i], lines[i], duplicate);
+					continue;
+				}
+			}
+			accepted.put(id, parsed[i]);
+			rows.put(id, i);
+			imported.add(id);
+			filter.add(id);
+		}
+
+		//	Store the accepted patients with a single new version and a single record, rejecting any that were stored by another change meanwhile
+		HashSet<String> clashes = new HashSet<>();
+		addImportedPatients(accepted, clashes);
+		for (String id : clashes) {
+			int i = rows.get(id);
+			report.reject(lineNumbers[i], lines[i], STORED_DUPLICATE);
+			imported.remove(id);
+		}
+		report.addChunk(count, accepted.size(), hits);
+
+	}
+
+	/** 
+	 * Stores the given imported patients together, which have already been checked for duplicates.
+	 * The filter only knows the IDs stored when the import started, and another change may store a patient under one of their IDs meanwhile,
+	 * so they are checked again against the version they are added to. Those patients are left out and removed from the given patients,
+	 * and their IDs are added to the given set
+	 * 
+	 * @param patients						- the patients to store, by ID
+	 * @param clashes						- the set to add the IDs of the patients that were left out to
+	 */
+	private static void addImportedPatients(TreeMap<String, Patient> patients, HashSet<String> clashes) {
+		if (patients.isEmpty()) return;
+		if (MutationPipeline.handOver(() -> addImportedPatients(patients, clashes))) return;
+
+		//	Add the patients whose IDs are still free, the change may be applied more than once so the clashes are found again each time
+		DataVersion.publish(version -> {
+			clashes.clear();
+			for (String id : patients.keySet()) {
+				if (version.getPatients().containsKey(id)) clashes.add(id);
+			}
+			if (clashes.isEmpty()) return version.withAddedPatients(patients);
+			TreeMap<String, Patient> added = new TreeMap<>(patients);
+			added.keySet().removeAll(clashes);
+			return added.isEmpty() ? version : version.withAddedPatients(added);
+		});
+
+		//	Then record the patients that were added
+		patients.keySet().removeAll(clashes);
+		if (!patients.isEmpty()) WriteAheadLog.logPatientPuts(patients.values());
+
+	}
+
+	/** 
+	 * Parses and validates the given CSV row, storing the patient it holds at the given index of the output
+	 * 
+	 * @param line							- the row to parse
+	 * @param output						- the array to store the patient in
+	 * @param index							- the index to store it at
+	 * 
+	 * @return String						- the reason the row is invalid, or null if it is valid
+	 */
+	private static String parsePatient(String line, Patient[] output, int index) {
+
+		//	Split the row into its fields, which must be exactly three
+		String[] fields = new String[3];
+		int count = 0;
+		int position = 0;
+		while (position <= line.length()) {
+			if (count == fields.length) return BAD_COLUMNS;
+			StringBuilder field = new StringBuilder();
+			position = readField(line, position, field);
+			fields[count++] = field.toString().strip();
+		}
+		if (count != fields.length) return BAD_COLUMNS;
+
+		//	Check the residency, then the name, then the ID, whose length depends on the residency
+		ResidencyType residency;
+		if (fields[2].equalsIgnoreCase("RESIDENT")) residency = ResidencyType.RESIDENT;
+		else if (fields[2].equalsIgnoreCase("VISITOR")) residency = ResidencyType.VISITOR;
+		else return BAD_RESIDENCY;
+		ValidationCode code = Patient.checkName(fields[1]);
+		if (!code.isValid()) return code.format();
+		code = Patient.checkId(residency, fields[0]);
+		if (!code.isValid()) return code.format();
+
+		//	Else create the patient
+		output[index] = new Patient(fields[0], fields[1], residency);
+		return null;
+
+	}
+
+	/** 
+	 * Reads the CSV field starting at the given position of the given row, unquoting it if it is quoted
+	 * 
+	 * @param line							- the row
+	 * @param position						- the position the field starts at
+	 * @param field							- the builder to add the field's characters to
+	 * 
+	 * @return int							- the position after the comma that ends the field, or past the end of the row if it is the last field
+	 */
+	private static int readField(String line, int position, StringBuilder field) {
+
+		//	If the field is not quoted then it ends at the next comma
+		if (position == line.length() || line.charAt(position) != '"') {
+			int end = line.indexOf(',', position);
+			if (end < 0) end = line.length();
+			field.append(line, position, end);
+			return end + 1;
+		}
+
+		//	Else it ends at the next quote that is not doubled, and a doubled quote stands for a single one
+		for (position++; position < line.length(); position++) {
+			char character = line.charAt(position);
+			if (character != '"') field.append(character);
+			else if (position + 1 < line.length() && line.charAt(position + 1) == '"') field.append(line.charAt(++position));
+			else break;
+		}
+
+		//	Then skip anything between the closing quote and the next comma
+		int end = line.indexOf(',', position);
+		return end < 0 ? line.length() + 1 : end + 1;
+
+	}
+
+//endregion
+
+
 	
 }
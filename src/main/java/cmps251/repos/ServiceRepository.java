@@ -1,9 +1,16 @@
 package cmps251.repos;
 
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.TreeMap;
 
 import cmps251.models.Service;
+import cmps251.utils.AutoSaver;
+import cmps251.utils.IdUtils;
+import cmps251.utils.MutationPipeline;
+import cmps251.utils.PersistentMap;
+import cmps251.utils.RepoUtils.DataType;
+import cmps251.utils.WriteAheadLog;
 
 /**
  * This class contains all the data related operations and functions for services in the Sehha hospital reception system
@@ -11,6 +18,8 @@ import cmps251.models.Service;
  * <p> This is where all the services are managed
  * From here, you can add, modify, or remove services, along with some extra utility functions
  * 
+ * <p> The services are stored in the current {@code DataVersion}, and every change publishes a new version
+ * 
  * <p> <i>Created on 18/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
@@ -21,25 +30,18 @@ public final class ServiceRepository {
 
 
 
-/* --------------------------- Constant Attributes -------------------------- */
-//region
-
-	private static final TreeMap<String, Service> services = new TreeMap<>();
-
-//endregion
-
-
-
 /* --------------------------------- Getters -------------------------------- */
 //region
 
 	/** 
-	 * Gets all the services currently stored
+	 * Gets all the services currently stored, as they are in the current version
+	 * 
+	 * <p> The returned map is never changed, later changes to the services publish a new version instead
 	 * 
-	 * @return ArrayList<Service>		- the tree map of services currently stored
+	 * @return PersistentMap<String, Service>		- the services currently stored, by ID
 	 */
-	public static TreeMap<String, Service> getServices() {
-		return services;
+	public static PersistentMap<String, Service> getServices() {
+		return DataVersion.pin().getServices();
 	}
 
 	/** 
@@ -48,7 +50,7 @@ public final class ServiceRepository {
 	 * @return ArrayList<Service>		- the list of services currently stored
 	 */
 	public static ArrayList<Service> getServicesAsList() {
-		return new ArrayList<Service>(services.values());
+		return new ArrayList<Service>(getServices().values());
 	}
 
 	/** 
@@ -59,7 +61,7 @@ public final class ServiceRepository {
 	 * @return Service					- a service with the given id
 	 */
 	public static Service getServiceById(String id) {
-		return services.get(id);
+		return getServices().get(id);
 	}
 
 	/** 
@@ -72,6 +74,7 @@ public final class ServiceRepository {
 	public static ArrayList<Service> getServicesByIds(ArrayList<String> ids) {
 
 		//	Create a list to store the output results
+		PersistentMap<String, Service> services = getServices();
 		ArrayList<Service> outputList = new ArrayList<Service>();
 
 		//	Loop through each service and find those with the same id
@@ -97,7 +100,7 @@ public final class ServiceRepository {
 		ArrayList<Service> outputList = new ArrayList<Service>();
 
 		//	Loop through each service and find those with the same title
-		for (Service service : services.values()) {
+		for (Service service : getServices().values()) {
 			if (service.getTitle().equals(title)) outputList.add(service);
 		}
 
@@ -119,7 +122,7 @@ public final class ServiceRepository {
 		ArrayList<Service> outputList = new ArrayList<Service>();
 
 		//	Loop through each service and find those with the same title
-		for (Service service : services.values()) {
+		for (Service service : getServices().values()) {
 			if (titles.contains(service.getTitle())) outputList.add(service);
 		}
 
@@ -135,6 +138,47 @@ public final class ServiceRepository {
 /* --------------------------------- Adders --------------------------------- */
 //region
 
+	/** 
+	 * Replaces all stored services with the given services, usually fetched from a file
+	 * 
+	 * <p> Services saved with a legacy string ID are given a new numeric ID, see {@code IdUtils}, and are stored under it.
+	 * Every other service is stored under the key it was saved under, and is given that key as its ID if they differ,
+	 * in which case the services are marked as changed so that they are saved that way
+	 * 
+	 * @param serviceList					- the tree map of services to load
+	 */
+	public static void loadServices(TreeMap<String, Service> serviceList) {
+		TreeMap<String, Service> services = new TreeMap<>();
+		for (Map.Entry<String, Service> entry : serviceList.entrySet()) {
+			Service service = entry.getValue();
+			if (service.getKey() == 0) {
+				IdUtils.upgradeLegacyId(service);
+				services.put(service.getId(), service);
+				continue;
+			}
+			IdUtils.observeId(service.getKey());
+			if (!service.getId().equals(entry.getKey())) {
+				service.setId(entry.getKey());
+				AutoSaver.markDirty(DataType.SERVICE);
+			}
+			services.put(entry.getKey(), service);
+		}
+		DataVersion.publish(version -> version.withServices(services));
+	}
+
+	/** 
+	 * Stores a service recreated from saved data under the given key, replacing any service stored under it.
+	 * Unlike {@code addService}, this does not record the change
+	 * 
+	 * <p> <b>NOTE</b>: this should only be called while replaying the change log on startup
+	 * 
+	 * @param key							- the key to store the service under
+	 * @param service						- the restored service
+	 */
+	static void restoreService(String key, Service service) {
+		DataVersion.publish(version -> version.withService(key, service));
+	}
+
 	/** 
 	 * Adds a single given service to the list of services
 	 * 
@@ -144,11 +188,15 @@ public final class ServiceRepository {
 	 */
 	public static void addService(Service service) {
 
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> addService(service))) return;
+
 		//	If the service already exists
-		if (services.containsKey(service.getId())) throw new IllegalArgumentException("The given service is already in the list!");
+		if (getServices().containsKey(service.getId())) throw new IllegalArgumentException("The given service is already in the list!");
 
-		//	If it doesn't exist then add it
-		services.put(service.getId(), service);
+		//	If it doesn't exist then add it and record the change
+		DataVersion.publish(version -> version.withService(service.getId(), service));
+		WriteAheadLog.logServicePut(service.getId(), service);
 
 	}
 
@@ -174,12 +222,22 @@ public final class ServiceRepository {
 	 * Updates the info of the service with the given ID
 	 * 
 	 * <p> <b>NOTE</b>: this replaces all the previously stored information!
+	 * The given service is not stored itself, its data is copied onto a copy of the stored service,
+	 * which keeps the stored service's ID and is then stored along with its booked slots
 	 * 
 	 * @param id				- the ID of the service to update
 	 * @param newService		- the new data to replace the old service with
 	 */
 	public static void updateService(String id, Service newService) {
-		services.replace(id, newService);
+		if (MutationPipeline.handOver(() -> updateService(id, newService))) return;
+		Service service = getServices().get(id);
+		if (service == null) return;
+		Service copy = service.copy();
+		copy.setTitle(newService.getTitle());
+		copy.setMaxSlots(newService.getMaxSlots());
+		copy.setPricePerSlot(newService.getPricePerSlot());
+		SlotRepository.replaceService(id, copy);
+		WriteAheadLog.logServicePut(id, copy);
 	}
 
 	/** 
@@ -190,15 +248,19 @@ public final class ServiceRepository {
 	 */
 	public static void updateServiceId(String id, String newId) {
 
-		//	Store the old service temporarily
-		Service service = services.get(id);
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> updateServiceId(id, newId))) return;
 
-		//	Remove it from the list
-		services.remove(id);
+		//	If another service already has the new ID
+		if (getServices().containsKey(newId)) throw new IllegalArgumentException("The given service is already in the list!");
 
-		//	Update the ID and add it back
-		service.setId(newId);
-		addService(service);
+		//	Give a copy of it the new ID, and store it along with its booked slots under the new ID
+		Service service = getServices().get(id);
+		if (service == null) return;
+		Service newService = service.copy();
+		newService.setId(newId);
+		SlotRepository.replaceService(id, newService);
+		WriteAheadLog.logServiceIdChange(id, newId);
 
 	}
 
@@ -209,7 +271,13 @@ public final class ServiceRepository {
 	 * @param title				- the service's new title
 	 */
 	public static void updateServiceName(String id, String title) {
-		services.get(id).setTitle(title);
+		if (MutationPipeline.handOver(() -> updateServiceName(id, title))) return;
+		Service service = getServices().get(id);
+		if (service == null) return;
+		Service newService = service.copy();
+		newService.setTitle(title);
+		SlotRepository.replaceService(id, newService);
+		WriteAheadLog.logServicePut(id, newService);
 	}
 
 	/** 
@@ -219,7 +287,13 @@ public final class ServiceRepository {
 	 * @param maxSlots			- the service's new maximum number of slots
 	 */
 	public static void updateServiceMaxSlots(String id, int maxSlots) {
-		services.get(id).setMaxSlots(maxSlots);
+		if (MutationPipeline.handOver(() -> updateServiceMaxSlots(id, maxSlots))) return;
+		Service service = getServices().get(id);
+		if (service == null) return;
+		Service newService = service.copy();
+		newService.setMaxSlots(maxSlots);
+		SlotRepository.replaceService(id, newService);
+		WriteAheadLog.logServicePut(id, newService);
 	}
 
 	/** 
@@ -229,7 +303,13 @@ public final class ServiceRepository {
 	 * @param pricePerSlot		- the service's new price per slot
 	 */
 	public static void updateServicePricePerSlot(String id, double pricePerSlot) {
-		services.get(id).setPricePerSlot(pricePerSlot);
+		if (MutationPipeline.handOver(() -> updateServicePricePerSlot(id, pricePerSlot))) return;
+		Service service = getServices().get(id);
+		if (service == null) return;
+		Service newService = service.copy();
+		newService.setPricePerSlot(pricePerSlot);
+		SlotRepository.replaceService(id, newService);
+		WriteAheadLog.logServicePut(id, newService);
 	}
 
 //endregion
@@ -245,7 +325,11 @@ public final class ServiceRepository {
 	 * @param id							- the service with this id will be deleted
 	 */
 	public static void deleteService(String id) {
-		services.remove(id);
+		if (MutationPipeline.handOver(() -> deleteService(id))) return;
+		if (getServices().containsKey(id)) {
+			DataVersion.publish(version -> version.withService(id, null));
+			WriteAheadLog.logServiceRemove(id);
+		}
 		SlotRepository.cancelSlotsByService(id);
 	}
 
@@ -0,0 +1,166 @@
+package cmps251.repos;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cmps251.models.Service;
+import cmps251.utils.TimeUtils;
+
+/**
+ * This class represents a short-lived hold on a free time interval of a service, taken while a booking is being filled in
+ *
+ * <p> A hold claims its interval in the service's occupancy word just like a booking does, so availability queries
+ * skip it and no other booking can take it. It ends in exactly one of three ways: it is turned into a booking with
+ * {@code SlotRepository.bookHeldSlot}, it is released with {@code SlotRepository.releaseHold}, or it expires once its time to live has passed.
+ * Holds are never saved, so they do not survive a restart.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SlotHold {
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private static final int ACTIVE = 0;
+	private static final int BOOKED = 1;
+	private static final int RELEASED = 2;
+
+	private final Service service;
+	private final LocalDate date;
+	private final int index;
+	private final AtomicInteger word;
+	private final AtomicInteger state = new AtomicInteger(ACTIVE);
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the held interval, along with the occupancy word it was claimed in
+	 *
+	 * @param service						- the service the interval is held under
+	 * @param date							- the date of the interval
+	 * @param index							- the index of the interval in the day
+	 * @param word							- the service's occupancy word at the date, with the interval's bit already claimed
+	 */
+	SlotHold(Service service, LocalDate date, int index, AtomicInteger word) {
+		this.service = service;
+		this.date = date;
+		this.index = index;
+		this.word = word;
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the service the interval is held under
+	 *
+	 * @return Service		- the held service
+	 */
+	public Service getService() {
+		return service;
+	}
+
+	/**
+	 * Returns the date of the held interval
+	 *
+	 * @return LocalDate	- the held date
+	 */
+	public LocalDate getDate() {
+		return date;
+	}
+
+	/**
+	 * Returns the index of the held interval in the day
+	 *
+	 * @return int			- the held interval index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the starting time of the held interval
+	 *
+	 * @return LocalTime	- the held time
+	 */
+	public LocalTime getTime() {
+		return TimeUtils.getIndexTime(index);
+	}
+
+	/**
+	 * Returns the occupancy word the interval was claimed in.
+	 * If the slots have been reloaded since, this is no longer the service's word at the date
+	 *
+	 * @return AtomicInteger	- the claimed occupancy word
+	 */
+	AtomicInteger getWord() {
+		return word;
+	}
+
+	/**
+	 * Checks if the interval is still held, so that it has not been booked, released, or expired yet
+	 *
+	 * @return boolean		- is the hold active?
+	 */
+	public boolean isActive() {
+		return state.get() == ACTIVE;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Turns the hold into a booking, keeping its interval claimed for the booked slot
+	 *
+	 * @return boolean		- was the hold still active? If not, the interval has to be claimed again
+	 */
+	boolean take() {
+		return state.compareAndSet(ACTIVE, BOOKED);
+	}
+
+	/**
+	 * Ends the hold and frees its interval, if it is still active.
+	 * This is called both when the hold is released and when it expires
+	 */
+	void release() {
+		if (!state.compareAndSet(ACTIVE, RELEASED)) return;
+		word.getAndUpdate(mask -> mask & ~(1 << index));
+		SlotRepository.invalidateAvailability(service.getId(), date);
+	}
+
+	/**
+	 * Returns this object as a string representation
+	 *
+	 * <p> This method formats the properties in the following way:
+	 * <p> {@code Held Slot: <date> <time>, Service: <service>}
+	 */
+	@Override
+	public String toString() {
+		return String.format("Held Slot: %sT%s, Service: %s", date, getTime(), service.getTitle());
+	}
+
+//endregion
+
+
+
+}
@@ -1,16 +1,45 @@
 package cmps251.repos;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.TreeMap;
-
-import cmps251.exceptions.IllegalSlotTimeException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import cmps251.exceptions.IllegalSlotDateException;
+import cmps251.exceptions.ValidationException;
 import cmps251.models.Patient;
 import cmps251.models.Service;
 import cmps251.models.Slot;
+import cmps251.models.SlotCandidate;
+import cmps251.models.ValidationCode;
+import cmps251.utils.AutoSaver;
+import cmps251.utils.IdUtils;
+import cmps251.utils.LruCache;
+import cmps251.utils.RepoUtils;
+import cmps251.utils.SlotArchive;
+import cmps251.utils.SlotPartition;
+import cmps251.utils.MutationPipeline;
+import cmps251.utils.PersistentMap;
+import cmps251.utils.WriteAheadLog;
 import cmps251.utils.TimeUtils;
+import cmps251.utils.TimingWheel;
+import cmps251.utils.RepoUtils.DataType;
 
 /**
  * This class contains all the data related operations and functions for slots in the Sehha hospital reception system
@@ -18,6 +47,24 @@ import cmps251.utils.TimeUtils;
  * <p> This is where all the slots are managed
  * From here, you can add, modify, or remove slots, along with some extra utility functions
  * 
+ * <p> The tree map of slots by service, date, and time is stored in the current {@code DataVersion}, while the other indexes are concurrent maps.
+ * Slots are saved to a partition per month. The partitions of the current and future months are loaded on startup,
+ * while those of past months are only loaded once a query needs them
+ * 
+ * <p> Slots can be booked and cancelled from several threads at once. Each service and patient has an occupancy word per day,
+ * holding a bit for each booked time interval. A booking claims its bit in both words with compare-and-set, which decides
+ * whether the slot is free and the service's daily limit has not been reached without taking any lock.
+ * Only once the slot has been claimed does it lock the service and the patient at the slot's date, using one of {@code LOCK_STRIPES}
+ * locks each, to add the slot to the indexes and publish a new version. Queries never lock, since every index is a concurrent map or an immutable version
+ * 
+ * <p> While a booking is being filled in, its interval can be held with {@code holdSlot}. A hold claims the interval in the service's
+ * occupancy word like a booking, so queries skip it and other bookings cannot take it, until it is booked, released, or expires.
+ * Holds are expired by a single timing wheel, so any number of them cost no more than one entry each
+ * 
+ * <p> The free candidates of each service and date are cached in a bounded LRU cache. A cached entry is dropped by every change
+ * to the occupancy word of its service and date, and is checked against the service's daily limit and the current time when read,
+ * so browsing availability repeatedly only computes each service and date once
+ * 
  * <p> <i>Created on 18/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
@@ -31,7 +78,34 @@ public final class SlotRepository {
 /* --------------------------- Constant Attributes -------------------------- */
 //region
 
-	private static final TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slots = new TreeMap<>();
+	private static final ConcurrentHashMap<Long, Slot> slotsById = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>>> slotsByPatient = new ConcurrentHashMap<>();
+	private static final ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>>> slotsByDate = new ConcurrentSkipListMap<>();
+	private static final ConcurrentHashMap<String, ConcurrentHashMap<LocalDate, AtomicInteger>> bookingMasks = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, ConcurrentHashMap<LocalDate, AtomicInteger>> patientMasks = new ConcurrentHashMap<>();
+
+	private static final ConcurrentSkipListSet<YearMonth> unloadedMonths = new ConcurrentSkipListSet<>();
+	private static final ConcurrentSkipListSet<YearMonth> unreadableMonths = new ConcurrentSkipListSet<>();
+	private static final ConcurrentSkipListSet<YearMonth> dirtyMonths = new ConcurrentSkipListSet<>();
+	private static final ConcurrentHashMap<YearMonth, SlotPartition> partitionRanges = new ConcurrentHashMap<>();
+	private static final Object partitionLock = new Object();
+
+	public static final int LOCK_STRIPES = 64;
+	private static final int CLAIMED = 0;
+	private static final int SLOT_BOOKED = 1;
+	private static final int PATIENT_BOOKED = 2;
+	private static final int SERVICE_FULL = 3;
+	private static final ReentrantLock[] locks = createLocks();
+
+	public static final String HOLD_TTL_PROPERTY = "sehha.hold.ttl";
+	public static final long DEFAULT_HOLD_TTL = 120000;
+	public static final long HOLD_TICK = 100;
+	private static final TimingWheel<SlotHold> holdWheel = new TimingWheel<>("hold-expiry", HOLD_TICK, SlotHold::release);
+
+	public static final int AVAILABILITY_CACHE_SIZE = 4096;
+	private static final LruCache<Map.Entry<String, LocalDate>, Availability> availabilityCache = new LruCache<>(AVAILABILITY_CACHE_SIZE);
+
+	private static volatile SlotArchive archive;
 
 //endregion
 
@@ -43,24 +117,43 @@ public final class SlotRepository {
 	/** 
 	 * Returns the slot with the given ID
 	 * 
+	 * <p> Legacy string IDs that were mapped when the slot was loaded are also accepted
+	 * 
 	 * @param id					- the id to fetch slots for
 	 * 
 	 * @return Slot					- a slot with the given id
 	 */
 	public static Slot getSlotById(String id) {
-		for (Slot slot : getSlotsAsList()) {
-			if (slot.getId().equals(id)) return slot;
+		return getSlotById(IdUtils.parseId(id));
+	}
+	public static Slot getSlotById(long id) {
+
+		//	If the slot is not on the heap then load the past months whose range of IDs could hold it
+		Slot slot = slotsById.get(id);
+		if (slot == null && !unloadedMonths.isEmpty()) {
+			loadMonthsHolding(id);
+			slot = slotsById.get(id);
 		}
-		return null;
+
+		//	If it is still not found then look for it in the archive
+		SlotArchive archive = SlotRepository.archive;
+		if (slot != null || archive == null) return slot;
+		ArrayList<Slot> archived = new ArrayList<>(1);
+		archive.get(id, addArchived(archived, null, null));
+		return archived.isEmpty() ? null : archived.get(0);
+
 	}
 
 	/** 
-	 * Returns a tree map of all booked slots for all dates under all services.
+	 * Returns a tree map of all booked slots for all dates under all services, as they are in the current version.
+	 * 
+	 * <p> The returned map is never changed, later changes to the slots publish a new version instead
 	 * 
-	 * @return TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>	- a tree map of all booked slots for all dates under all services
+	 * @return PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>	- a tree map of all booked slots for all dates under all services
 	 */
-	public static TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> getSlots() {
-		return slots;
+	public static PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> getSlots() {
+		loadAllMonths();
+		return DataVersion.pin().getSlots();
 	}
 
 	/** 
@@ -69,15 +162,35 @@ public final class SlotRepository {
 	 * @return ArrayList<Slot>		- a list of all booked slots for all dates under all services
 	 */
 	public static ArrayList<Slot> getSlotsAsList() {
-		
+		loadAllMonths();
+		return DataVersion.pin().getSlotsAsList();
+	}
+
+	/** 
+	 * Returns a list of all booked slots for a given date
+	 * 
+	 * @param date					- the date to fetch slots for
+	 * 
+	 * @return ArrayList<Slot>		- a list of booked slots for the given date
+	 */
+	public static ArrayList<Slot> getSlotsByDate(LocalDate date) {
+
 		//	Create a new list of slots to be returned
 		ArrayList<Slot> outputList = new ArrayList<>();
 
-		//	Loop through each service and date and return slots for each time
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			for (TreeMap<LocalTime, Slot> timeMap : dateMap.values()) {
-				outputList.addAll(timeMap.values());
-			}
+		//	If a date is not given, return an empty list
+		if (date == null) return outputList;
+
+		//	Add any archived slots at this date
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByDate(date, date, addArchived(outputList, null, null));
+		loadMonths(date, date);
+
+		//	Fetch the services booked at this date and return their slots
+		ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap = slotsByDate.get(date);
+		if (serviceMap == null) return outputList;
+		for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : serviceMap.values()) {
+			outputList.addAll(timeMap.values());
 		}
 
 		//	Return the given service slots
@@ -86,26 +199,35 @@ public final class SlotRepository {
 	}
 
 	/** 
-	 * Returns a list of all booked slots for a given date
+	 * Returns a list of all booked slots between the two given dates, inclusive
 	 * 
-	 * @param date					- the date to fetch slots for
+	 * @param startDate				- the first date to fetch slots for
+	 * @param endDate				- the last date to fetch slots for
 	 * 
-	 * @return ArrayList<Slot>		- a list of booked slots for the given date
+	 * @return ArrayList<Slot>		- a list of booked slots between the given dates
 	 */
-	public static ArrayList<Slot> getSlotsByDate(LocalDate date) {
+	public static ArrayList<Slot> getSlotsBetweenDates(LocalDate startDate, LocalDate endDate) {
 
 		//	Create a new list of slots to be returned
 		ArrayList<Slot> outputList = new ArrayList<>();
 
-		//	If a date is not given, return an empty list
-		if (date == null) return outputList;
+		//	If a date is not given or the range is empty, return an empty list
+		if (startDate == null || endDate == null || endDate.isBefore(startDate)) return outputList;
 
-		//	Loop through each service and return slots for the given date
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			outputList.addAll(dateMap.getOrDefault(date, new TreeMap<>()).values());
+		//	Add any archived slots in the range
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByDate(startDate, endDate, addArchived(outputList, null, null));
+		loadMonths(startDate, endDate);
+
+		//	Loop through each date in the range and return its slots
+		NavigableMap<LocalDate, ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>>> dateRange = slotsByDate.subMap(startDate, true, endDate, true);
+		for (ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap : dateRange.values()) {
+			for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : serviceMap.values()) {
+				outputList.addAll(timeMap.values());
+			}
 		}
 
-		//	Return the given service slots
+		//	Return the slots in the range
 		return outputList;
 
 	}
@@ -125,9 +247,14 @@ public final class SlotRepository {
 		//	If a time is not given, return an empty list
 		if (time == null) return outputList;
 
+		//	Add any archived slots at this time
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEach(addArchived(outputList, null, time));
+		loadAllMonths();
+
 		//	Loop through each service and date and return slots for the given time
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			for (TreeMap<LocalTime, Slot> timeMap : dateMap.values()) {
+		for (PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap : DataVersion.pin().getSlots().values()) {
+			for (PersistentMap<LocalTime, Slot> timeMap : dateMap.values()) {
 				if (timeMap.containsKey(time)) outputList.add(timeMap.get(time));
 			}
 		}
@@ -152,8 +279,13 @@ public final class SlotRepository {
 		//	If a service is not given, return an empty list
 		if (service == null) return outputList;
 
+		//	Add any archived slots under this service
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByService(service, LocalDate.MIN, LocalDate.MAX, addArchived(outputList, null, null));
+		loadAllMonths();
+
 		//	Check if there are slots for this service
-		for (TreeMap<LocalTime, Slot> timeMap : slots.getOrDefault(service, new TreeMap<>()).values()) {
+		for (PersistentMap<LocalTime, Slot> timeMap : DataVersion.pin().getSlots().getOrDefault(service, PersistentMap.empty()).values()) {
 			outputList.addAll(timeMap.values());
 		}
 
@@ -180,9 +312,14 @@ public final class SlotRepository {
 		//	If a patient is not given, return an empty list
 		if (patient == null) return outputList;
 
-		//	Cast the tree map into a list, iterate this list, and find the slots with the given patient
-		for (Slot slot : getSlotsAsList()) {
-			if (slot.getAllocatedPatient().getId().equals(patient)) outputList.add(slot);
+		//	Add any archived slots booked by the patient
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByPatient(patient, addArchived(outputList, null, null));
+		loadAllMonths();
+
+		//	Loop through each date booked by the patient and return its slots
+		for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : slotsByPatient.getOrDefault(patient, new ConcurrentSkipListMap<>()).values()) {
+			outputList.addAll(timeMap.values());
 		}
 
 		//	Return the given patient slots
@@ -208,12 +345,18 @@ public final class SlotRepository {
 		//	If a datetime is not given, return an empty list
 		if (datetime == null) return outputList;
 
-		//	Loop through each service and return slots for the given date
-		LocalDate date = datetime.toLocalDate();
+		//	Add any archived slots at this date and time
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByDate(datetime.toLocalDate(), datetime.toLocalDate(), addArchived(outputList, null, datetime.toLocalTime()));
+		loadMonths(datetime.toLocalDate(), datetime.toLocalDate());
+
+		//	Loop through each service booked at this date and return its slot at this time
+		ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap = slotsByDate.get(datetime.toLocalDate());
+		if (serviceMap == null) return outputList;
 		LocalTime time = datetime.toLocalTime();
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			TreeMap<LocalTime, Slot> timeMap = dateMap.getOrDefault(date, new TreeMap<>());
-			if (timeMap.containsKey(time)) outputList.add(timeMap.get(time));
+		for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : serviceMap.values()) {
+			Slot slot = timeMap.get(time);
+			if (slot != null) outputList.add(slot);
 		}
 
 		//	Return the given service slots
@@ -243,8 +386,13 @@ public final class SlotRepository {
 		//	If a date or service is not given, return an empty list
 		if (date == null || service == null) return outputList;
 
+		//	Add any archived slots under this service at this date
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByService(service, date, date, addArchived(outputList, null, null));
+		loadMonths(date, date);
+
 		//	If a service is given, return it's slots
-		outputList.addAll(slots.getOrDefault(service, new TreeMap<>()).getOrDefault(date, new TreeMap<>()).values());
+		outputList.addAll(DataVersion.pin().getSlots().getOrDefault(service, PersistentMap.empty()).getOrDefault(date, PersistentMap.empty()).values());
 
 		//	Return the given service slots
 		return outputList;
@@ -270,10 +418,14 @@ public final class SlotRepository {
 		//	If a date or patient is not given, return an empty list
 		if (date == null || patient == null) return outputList;
 
-		//	Loop through each slot at this date and return those with the given patient
-		for (Slot slot : getSlotsByDate(date)) {
-			if (slot.getAllocatedPatient().getId().equals(patient)) outputList.add(slot);
-		}
+		//	Add any archived slots booked by the patient at this date
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByDate(date, date, addArchived(outputList, patient, null));
+		loadMonths(date, date);
+
+		//	Return the slots booked by the patient at this date
+		ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> dateMap = slotsByPatient.getOrDefault(patient, new ConcurrentSkipListMap<>());
+		outputList.addAll(dateMap.getOrDefault(date, new ConcurrentSkipListMap<>()).values());
 
 		//	Return the given service slots
 		return outputList;
@@ -299,8 +451,13 @@ public final class SlotRepository {
 		//	If a time or service is not given, return an empty list
 		if (time == null || service == null) return outputList;
 
+		//	Add any archived slots under this service at this time
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByService(service, LocalDate.MIN, LocalDate.MAX, addArchived(outputList, null, time));
+		loadAllMonths();
+
 		//	Check if there are slots for this service and time
-		for (TreeMap<LocalTime, Slot> timeMap : slots.getOrDefault(service, new TreeMap<>()).values()) {
+		for (PersistentMap<LocalTime, Slot> timeMap : DataVersion.pin().getSlots().getOrDefault(service, PersistentMap.empty()).values()) {
 			if (timeMap.containsKey(time)) outputList.add(timeMap.get(time));
 		}
 
@@ -328,9 +485,14 @@ public final class SlotRepository {
 		//	If a time or patient is not given, return an empty list
 		if (time == null || patient == null) return outputList;
 
-		//	Loop through each slot at this time and return those with the given patient
-		for (Slot slot : getSlotsByTime(time)) {
-			if (slot.getAllocatedPatient().getId().equals(patient)) outputList.add(slot);
+		//	Add any archived slots booked by the patient at this time
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) archive.forEachByPatient(patient, addArchived(outputList, null, time));
+		loadAllMonths();
+
+		//	Loop through each date booked by the patient and return its slot at this time
+		for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : slotsByPatient.getOrDefault(patient, new ConcurrentSkipListMap<>()).values()) {
+			if (timeMap.containsKey(time)) outputList.add(timeMap.get(time));
 		}
 
 		//	Return the given service slots
@@ -357,9 +519,9 @@ public final class SlotRepository {
 		//	If a service or patient is not given, return an empty list
 		if (service == null || patient == null) return outputList;
 
-		//	Loop through each slot under this service and return those with the given patient
-		for (Slot slot : getSlotsByService(service)) {
-			if (slot.getAllocatedPatient().getId().equals(patient)) outputList.add(slot);
+		//	Loop through each slot booked by the patient and return those under this service
+		for (Slot slot : getSlotsByPatient(patient)) {
+			if (slot.getAllocatedService().getId().equals(service)) outputList.add(slot);
 		}
 
 		//	Return the given service slots
@@ -392,8 +554,9 @@ public final class SlotRepository {
 		//	Loop through each service and return slots for the given date
 		LocalDate date = datetime.toLocalDate();
 		LocalTime time = datetime.toLocalTime();
-		TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap = slots.getOrDefault(service, new TreeMap<>());
-		TreeMap<LocalTime, Slot> timeMap = dateMap.getOrDefault(date, new TreeMap<>());
+		loadMonths(date, date);
+		PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap = DataVersion.pin().getSlots().getOrDefault(service, PersistentMap.empty());
+		PersistentMap<LocalTime, Slot> timeMap = dateMap.getOrDefault(date, PersistentMap.empty());
 
 		//	Return the given slot
 		return timeMap.get(time);
@@ -432,14 +595,10 @@ public final class SlotRepository {
 		//	If a datetime or patient is not given, return null
 		if (datetime == null || patient == null) return null;
 
-		//	Loop through each service and return slots for the given date
-		ArrayList<Slot> datetimeSlots = getSlotsByDateTime(datetime);
-		for (Slot slot : datetimeSlots) {
-			if (slot.getAllocatedPatient().getId().equals(patient)) return slot;
-		}
-
-		//	If no slot was found then return null
-		return null;
+		//	Return the slot booked by the patient at this date and time, if any
+		loadMonths(datetime.toLocalDate(), datetime.toLocalDate());
+		ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> dateMap = slotsByPatient.getOrDefault(patient, new ConcurrentSkipListMap<>());
+		return dateMap.getOrDefault(datetime.toLocalDate(), new ConcurrentSkipListMap<>()).get(datetime.toLocalTime());
 
 	}
 	public static Slot getSlotByDateTimePatient(LocalDateTime datetime, Patient patient) {
@@ -479,15 +638,13 @@ public final class SlotRepository {
 		//	If a date, service, or patient is not given, return an empty list
 		if (date == null || service == null || patient == null) return outputList;
 
-		//	Loop through each service and return slots for the given date
-		TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap = slots.getOrDefault(service, new TreeMap<>());
-		TreeMap<LocalTime, Slot> timeMap = dateMap.getOrDefault(date, new TreeMap<>());
-		for (Slot slot : timeMap.values()) {
-			if (slot.getAllocatedPatient().getId().equals(patient)) outputList.add(slot);
+		//	Loop through each slot booked by the patient at this date and return those under this service
+		for (Slot slot : getSlotsByDatePatient(date, patient)) {
+			if (slot.getAllocatedService().getId().equals(service)) outputList.add(slot);
 		}
 
-		//	If no slot was found then return null
-		return null;
+		//	Return the filtered slots
+		return outputList;
 
 	}
 	public static ArrayList<Slot> getSlotsByDateServicePatient(LocalDate date, Service service, String patient) {
@@ -517,15 +674,13 @@ public final class SlotRepository {
 		//	If a time, service, or patient is not given, return an empty list
 		if (time == null || service == null || patient == null) return outputList;
 
-		//	Loop through each service and return slots for the given time
-		TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap = slots.getOrDefault(service, new TreeMap<>());
-		for (TreeMap<LocalTime, Slot> timeMap : dateMap.values()) {
-			Slot slot = timeMap.get(time);
-			if (slot != null && slot.getAllocatedPatient().getId().equals(patient)) outputList.add(slot);
+		//	Loop through each slot booked by the patient at this time and return those under this service
+		for (Slot slot : getSlotsByTimePatient(time, patient)) {
+			if (slot.getAllocatedService().getId().equals(service)) outputList.add(slot);
 		}
 
-		//	If no slot was found then return null
-		return null;
+		//	Return the filtered slots
+		return outputList;
 
 	}
 	public static ArrayList<Slot> getSlotsByTimeServicePatient(LocalTime time, Service service, String patient) {
@@ -539,51 +694,118 @@ public final class SlotRepository {
 	}
 
 	/** 
-	 * Returns a list of slots for the given date that are available.
-	 * Note that this date cannot be in the past!
+	 * Returns a bitmask of the booked time intervals for the given date under the given service.
+	 * Bit {@code i} is set if the interval at index {@code i} of {@code TimeUtils.getDateTimeIntervals} is booked or held
 	 * 
 	 * @param date					- the date to check slots for
+	 * @param service				- the service to check slots for
 	 * 
-	 * @return ArrayList<Slot>		- a list of available slots for the given date
+	 * @return int					- the bitmask of booked time intervals
 	 */
-	public static ArrayList<Slot> getAvailableSlotsByDate(LocalDate date) {
+	public static int getBookedMaskByDateService(LocalDate date, String service) {
+		loadMonths(date, date);
+		ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks = bookingMasks.get(service);
+		AtomicInteger word = dateMasks == null ? null : dateMasks.get(date);
+		int mask = word == null ? 0 : word.get();
+		SlotArchive archive = SlotRepository.archive;
+		if (archive != null) mask |= archive.getBookedMask(service, date);
+		return mask;
+	}
 
-		//	Create a new list of slots to be returned
-		ArrayList<Slot> outputList = new ArrayList<>();
+	/** 
+	 * Returns the number of booked slots for the given date under the given service
+	 * 
+	 * @param date					- the date to count slots for
+	 * @param service				- the service to count slots for
+	 * 
+	 * @return int					- the number of booked slots
+	 */
+	public static int getBookedCountByDateService(LocalDate date, String service) {
+		return Integer.bitCount(getBookedMaskByDateService(date, service));
+	}
+	public static int getBookedCountByDateService(LocalDate date, Service service) {
+		return getBookedCountByDateService(date, service.getId());
+	}
+
+	/** 
+	 * Returns a bitmask of the time intervals that can still be booked for the given date under the given service.
+	 * Intervals in the past or outside the date's opening hours are never free, and none are free once the service has reached its maximum number of slots
+	 * 
+	 * @param date					- the date to check slots for
+	 * @param service				- the service to check slots for
+	 * 
+	 * @return int					- the bitmask of free time intervals
+	 */
+	public static int getFreeMaskByDateService(LocalDate date, Service service) {
+		return getFreeMask(date, service, TimeUtils.getClosedIntervalsMask(date));
+	}
+
+	/** 
+	 * Returns a list of free time intervals for the given date under every service.
+	 * Unlike {@code getAvailableSlotsByDate}, this does not create a {@code Slot} for each interval
+	 * 
+	 * @param date						- the date to check slots for
+	 * 
+	 * @return ArrayList<SlotCandidate>	- a list of free time intervals for the given date
+	 */
+	public static ArrayList<SlotCandidate> getAvailableCandidatesByDate(LocalDate date) {
 
-		//	Check if the given date is in the past
-		if (Slot.isValidDate(null, date, false) != "") return outputList;
+		//	Create a new list of candidates to be returned
+		ArrayList<SlotCandidate> outputList = new ArrayList<>();
 
-		//	Loop through each service
-		for (Service service : ServiceRepository.getServicesAsList()) {
+		//	If a date is not given, return an empty list
+		if (date == null) return outputList;
 
-			//	Loop through each time interval in the day
-			ArrayList<LocalTime> intervals = TimeUtils.getDateTimeIntervals(date);
-			TreeMap<LocalTime, Slot> allSlots = slots.getOrDefault(service.getId(), new TreeMap<>()).getOrDefault(date, new TreeMap<>());
-			for (LocalTime time : intervals) {
+		//	Loop through each service and add a candidate for each of its free time intervals
+		for (Service service : ServiceRepository.getServices().values()) {
+			addFreeCandidates(outputList, date, service);
+		}
 
-				//	Catch illegal slot time exceptions
-				try {
-					
-					//	If there is no slot at this time then add it as a free slot
-					if (!allSlots.containsKey(time)) outputList.add(new Slot(date, time, service));
+		//	Return the free candidates
+		return outputList;
 
-				}
-				catch (IllegalSlotTimeException e) {
+	}
 
-					//	If the given time is in the past, don't add it to the output list
-					continue;
+	/** 
+	 * Returns a list of free time intervals for the given date under the given service.
+	 * Unlike {@code getAvailableSlotsByDateService}, this does not create a {@code Slot} for each interval
+	 * 
+	 * @param date						- the date to check slots for
+	 * @param service					- the service to check slots for
+	 * 
+	 * @return ArrayList<SlotCandidate>	- a list of free time intervals for the given date and service
+	 */
+	public static ArrayList<SlotCandidate> getAvailableCandidatesByDateService(LocalDate date, String service) {
 
-				}
+		//	Create a new list of candidates to be returned
+		ArrayList<SlotCandidate> outputList = new ArrayList<>();
 
-			}
+		//	If a date or a valid service is not given, return an empty list
+		Service allocatedService = ServiceRepository.getServiceById(service);
+		if (date == null || allocatedService == null) return outputList;
 
-		}
+		//	Add a candidate for each free time interval of the service
+		addFreeCandidates(outputList, date, allocatedService);
 
-		//	Return the filtered slots
+		//	Return the free candidates
 		return outputList;
 
 	}
+	public static ArrayList<SlotCandidate> getAvailableCandidatesByDateService(LocalDate date, Service service) {
+		return getAvailableCandidatesByDateService(date, service.getId());
+	}
+
+	/** 
+	 * Returns a list of slots for the given date that are available.
+	 * Note that this date cannot be in the past!
+	 * 
+	 * @param date					- the date to check slots for
+	 * 
+	 * @return ArrayList<Slot>		- a list of available slots for the given date
+	 */
+	public static ArrayList<Slot> getAvailableSlotsByDate(LocalDate date) {
+		return toSlots(getAvailableCandidatesByDate(date));
+	}
 
 	/** 
 	 * Returns a list of slots for the given service that are available for the given date.
@@ -595,42 +817,30 @@ public final class SlotRepository {
 	 * @return ArrayList<Slot>		- a list of available slots for the given date and service
 	 */
 	public static ArrayList<Slot> getAvailableSlotsByDateService(LocalDate date, String service) {
-
-		//	Create a new list of slots to be returned
-		ArrayList<Slot> outputList = new ArrayList<>();
-
-		//	Check if the given date is in the past
-		if (Slot.isValidDate(null, date, false) != "") return outputList;
-
-		//	Loop through each time interval in the day
-		ArrayList<LocalTime> intervals = TimeUtils.getDateTimeIntervals(date);
-		TreeMap<LocalTime, Slot> allSlots = slots.getOrDefault(service, new TreeMap<>()).getOrDefault(date, new TreeMap<>());
-		for (LocalTime time : intervals) {
-
-			//	Catch illegal slot time exceptions
-			try {
-				
-				//	If there is no slot at this time then add it as a free slot
-				if (!allSlots.containsKey(time)) outputList.add(new Slot(date, time, ServiceRepository.getServiceById(service)));
-
-			}
-			catch (IllegalSlotTimeException e) {
-
-				//	If the given time is in the past, don't add it to the output list
-				continue;
-
-			}
-
-		}
-
-		//	Return the filtered slots
-		return outputList;
-
+		return toSlots(getAvailableCandidatesByDateService(date, service));
 	}
 	public static ArrayList<Slot> getAvailableSlotsByDateService(LocalDate date, Service service) {
 		return getAvailableSlotsByDateService(date, service.getId());
 	}
 
+	/** 
+	 * Returns the number of availability queries of a service and date that were answered from the cache
+	 * 
+	 * @return long					- the number of cache hits
+	 */
+	public static long getAvailabilityCacheHits() {
+		return availabilityCache.getHits();
+	}
+
+	/** 
+	 * Returns the number of availability queries of a service and date that had to be computed
+	 * 
+	 * @return long					- the number of cache misses
+	 */
+	public static long getAvailabilityCacheMisses() {
+		return availabilityCache.getMisses();
+	}
+
 //endregion
 
 
@@ -647,29 +857,66 @@ public final class SlotRepository {
 	 * @throws IllegalArgumentException		if the given slot is already booked
 	 * @throws IllegalArgumentException		if the given patient already has a booking at this date and time for another service
 	 * @throws IllegalArgumentException		if the given slot's service has reached the maximum number of bookings for the day
+	 * @throws IllegalArgumentException		if the given patient cannot be found
+	 * @throws IllegalSlotTimeException		if the given slot's time is outside the opening hours of its date
 	 */
 	public static void bookSlot(Slot slot, String patient) {
 
-		//	Deconstruct slot properties
-		LocalDate date = slot.getDate();
-		LocalTime time = slot.getTime();
+		//	Make sure the patient exists before anything is claimed for him
+		Patient allocatedPatient = PatientRepository.getPatientById(patient);
+		if (allocatedPatient == null) throw new IllegalArgumentException("The patient with the given ID cannot be found!");
+
+		//	Point the slot at the stored service, so that it is claimed against the service's current limit
+		allocate(slot, patient);
+
+		//	Make sure the slot's time has an interval in the occupancy words, and that the interval is open at the slot's date
 		String service = slot.getAllocatedService().getId();
+		int index = TimeUtils.getTimeIndex(slot.getTime());
+		if (index < 0) throw Slot.checkTime(null, slot.getTime()).toException();
+		ValidationCode intervalCode = Slot.checkInterval(slot.getDate(), index);
+		if (!intervalCode.isValid()) throw intervalCode.toException(slot.getDate());
+		loadMonths(slot.getDate(), slot.getDate());
+
+		//	If the pipeline's writer is running, throw a clash that is already booked straight away, and else let the writer book the slot
+		if (MutationPipeline.isRunning()) {
+			int check = checkSlot(service, patient, slot.getDate(), index, slot.getAllocatedService().getMaxSlots());
+			if (check != CLAIMED) {
+				ValidationCode bookingCode = Slot.checkBooking(slot, patient);
+				if (!bookingCode.isValid()) throw bookingCode.toException(slot.getAllocatedService().getMaxSlots());
+				throw getClaimError(check, slot.getAllocatedService());
+			}
+			if (MutationPipeline.handOver(() -> bookSlot(slot, patient))) return;
+		}
 
-		//	Validate this booking
-		if (Slot.isValidBooking(slot, patient, true) != "") return;
+		//	Claim the slot's interval, and if it is taken then throw the reason.
+		//	A booking that has claimed the interval but is still being added counts as booked, so its clash is thrown without validating
+		int claim = claimSlot(service, patient, slot.getDate(), index, slot.getAllocatedService().getMaxSlots());
+		if (claim != CLAIMED) {
+			ValidationCode bookingCode = Slot.checkBooking(slot, patient);
+			if (!bookingCode.isValid()) throw bookingCode.toException(slot.getAllocatedService().getMaxSlots());
+			throw getClaimError(claim, slot.getAllocatedService());
+		}
 
 		//	Create a new slot with the given data
-		Patient allocatedPatient = PatientRepository.getPatientById(patient);
 		slot.setAllocatedPatient(allocatedPatient);
 
-		//	Add tree maps if they are not already present
-		if (!slots.containsKey(service)) slots.put(service, new TreeMap<>());
-		TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap = slots.getOrDefault(service, new TreeMap<>());
-		if (!dateMap.containsKey(date)) dateMap.put(date, new TreeMap<>());
-		TreeMap<LocalTime, Slot> timeMap = dateMap.getOrDefault(date, new TreeMap<>());
+		//	Add the newly booked slot to the list and record the change, locking the indexes it is added to
+		boolean stored = false;
+		lock(service, patient, slot.getDate());
+		try {
+			allocate(slot, patient);
+			putSlot(slot);
+			DataVersion.publish(version -> version.withSlot(null, slot));
+			stored = true;
+			WriteAheadLog.logSlotPut(slot);
+		}
+		finally {
+
+			//	If the slot could not be stored then take it out of any index it was added to, and hand back its claimed interval
+			if (!stored) unindexSlot(slot, true);
+			unlock(service, patient, slot.getDate());
 
-		//	Add the newly booked slot to the list
-		timeMap.put(time, slot);
+		}
 
 	}
 	public static void bookSlot(Slot slot, Patient patient) {
@@ -711,6 +958,119 @@ public final class SlotRepository {
 	public static void bookSlot(LocalTime time, LocalDate date, Service service, Patient patient) {
 		bookSlot(LocalDateTime.of(date, time), service.getId(), patient.getId());
 	}
+
+	/** 
+	 * Books all of the given slots together, each for its own allocated patient, or none of them if any cannot be booked.
+	 * The slots are checked against each other and against the booked slots with one claim per service and patient per day,
+	 * so booking many slots at once costs far less than booking them one by one
+	 * 
+	 * @param slotList						- the slots to book, each with its allocated service and patient
+	 * 
+	 * @throws IllegalArgumentException		if any slot does not have an allocated service or patient
+	 * @throws IllegalSlotDateException		if any slot is already booked, also in the given list
+	 * @throws IllegalSlotDateException		if any slot's patient already has a booking at its date and time, also in the given list
+	 * @throws IllegalSlotDateException		if any slot's service would go over the maximum number of bookings for the day
+	 * @throws IllegalSlotTimeException		if any slot's time is outside the opening hours of its date
+	 */
+	public static void bookSlots(ArrayList<Slot> slotList) {
+
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> bookSlots(slotList))) return;
+
+		//	Group the slots by service and by patient for each date, making sure every time has an interval in the occupancy words that is open at its date
+		HashMap<String, HashMap<LocalDate, ArrayList<Slot>>> serviceGroups = new HashMap<>();
+		HashMap<String, HashMap<LocalDate, ArrayList<Slot>>> patientGroups = new HashMap<>();
+		LocalDate startDate = LocalDate.MAX;
+		LocalDate endDate = LocalDate.MIN;
+		for (Slot slot : slotList) {
+			if (slot.getAllocatedService() == null || slot.getAllocatedPatient() == null) throw new IllegalArgumentException("Every slot must have an allocated service and patient!");
+			allocate(slot, slot.getAllocatedPatient().getId());
+			int index = TimeUtils.getTimeIndex(slot.getTime());
+			if (index < 0) throw Slot.checkTime(null, slot.getTime()).toException();
+			ValidationCode intervalCode = Slot.checkInterval(slot.getDate(), index);
+			if (!intervalCode.isValid()) throw intervalCode.toException(slot.getDate());
+			serviceGroups.computeIfAbsent(slot.getAllocatedService().getId(), k -> new HashMap<>()).computeIfAbsent(slot.getDate(), k -> new ArrayList<>()).add(slot);
+			patientGroups.computeIfAbsent(slot.getAllocatedPatient().getId(), k -> new HashMap<>()).computeIfAbsent(slot.getDate(), k -> new ArrayList<>()).add(slot);
+			if (slot.getDate().isBefore(startDate)) startDate = slot.getDate();
+			if (slot.getDate().isAfter(endDate)) endDate = slot.getDate();
+		}
+		if (slotList.isEmpty()) return;
+		loadMonths(startDate, endDate);
+
+		//	Claim the intervals of each service and then each patient at each date, keeping track of them so they can be handed back
+		ArrayList<AtomicInteger> claimedWords = new ArrayList<>();
+		ArrayList<Integer> claimedBits = new ArrayList<>();
+		ValidationException error = null;
+		SlotArchive archive = SlotRepository.archive;
+		claims:
+		for (int pass = 0; pass < 2; pass++) {
+			boolean services = pass == 0;
+			for (Map.Entry<String, HashMap<LocalDate, ArrayList<Slot>>> idEntry : (services ? serviceGroups : patientGroups).entrySet()) {
+				for (Map.Entry<LocalDate, ArrayList<Slot>> dateEntry : idEntry.getValue().entrySet()) {
+
+					//	Make sure the slots of the group do not share an interval with each other
+					ArrayList<Slot> group = dateEntry.getValue();
+					int bits = 0;
+					for (Slot slot : group) {
+						int bit = 1 << TimeUtils.getTimeIndex(slot.getTime());
+						if ((bits & bit) != 0) {
+							error = getBatchError(slot, services ? SLOT_BOOKED : PATIENT_BOOKED);
+							break claims;
+						}
+						bits |= bit;
+					}
+
+					//	Then claim all of the group's intervals at once
+					AtomicInteger word = getWord(services ? bookingMasks : patientMasks, idEntry.getKey(), dateEntry.getKey());
+					int fixed = services && archive != null ? archive.getBookedMask(idEntry.getKey(), dateEntry.getKey()) : 0;
+					int limit = services ? group.get(0).getAllocatedService().getMaxSlots() : Slot.MAX_SLOTS_PER_DAY;
+					int claim = claimInterval(word, bits, fixed, limit);
+					if (claim != CLAIMED) {
+						error = getBatchError(getClash(group, word.get() | fixed), services ? claim : PATIENT_BOOKED);
+						break claims;
+					}
+					if (services) invalidateAvailability(idEntry.getKey(), dateEntry.getKey());
+					claimedWords.add(word);
+					claimedBits.add(bits);
+
+				}
+			}
+		}
+
+		//	If any claim failed then hand back every interval claimed so far and throw the reason
+		if (error != null) {
+			for (int i = 0; i < claimedWords.size(); i++) {
+				int bits = claimedBits.get(i);
+				claimedWords.get(i).getAndUpdate(mask -> mask & ~bits);
+			}
+			for (Map.Entry<String, HashMap<LocalDate, ArrayList<Slot>>> serviceEntry : serviceGroups.entrySet()) {
+				for (LocalDate date : serviceEntry.getValue().keySet()) invalidateAvailability(serviceEntry.getKey(), date);
+			}
+			throw error;
+		}
+
+		//	Add every slot to the list and record them as a single change, locking every index they are added to
+		int[] stripes = getStripes(slotList);
+		lock(stripes);
+		try {
+			for (Slot slot : slotList) allocate(slot, slot.getAllocatedPatient().getId());
+			indexSlots(serviceGroups, patientGroups);
+			DataVersion.publish(version -> version.withSlots(List.of(), slotList));
+			WriteAheadLog.logSlotPuts(slotList);
+		}
+		finally {
+			unlock(stripes);
+		}
+
+	}
+	public static void bookSlots(ArrayList<Slot> slotList, String patient) {
+		bookSlots(slotList, PatientRepository.getPatientById(patient));
+	}
+	public static void bookSlots(ArrayList<Slot> slotList, Patient patient) {
+		if (patient == null) throw new IllegalArgumentException("The patient with the given ID cannot be found!");
+		for (Slot slot : slotList) slot.setAllocatedPatient(patient);
+		bookSlots(slotList);
+	}
 	
 //endregion
 
@@ -719,6 +1079,111 @@ public final class SlotRepository {
 /* -------------------------------- Updaters -------------------------------- */
 //region
 
+	/** 
+	 * Moves the given booked slot to the date, time, service, and patient of the given target slot, as a single change.
+	 * The target is validated and its positions are claimed before the slot is released, so if the target cannot be booked
+	 * the slot is kept as it was. If the target has a different ID, the slot is replaced by the target
+	 * 
+	 * <p> Positions that the slot already holds, such as its time when only the patient changes, are kept rather than claimed again,
+	 * and a slot that stays under the same service and day does not count twice towards the service's daily limit
+	 * 
+	 * @param slot							- the booked slot to move
+	 * @param target						- the slot to move it to
+	 * 
+	 * @throws IllegalArgumentException		if the given slot is not booked
+	 * @throws IllegalSlotDateException		if the target's date is in the past, or its slot or patient is already booked
+	 * @throws IllegalSlotTimeException		if the target's time is not valid, or is outside the opening hours of its date
+	 */
+	public static void moveSlot(Slot slot, Slot target) {
+
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> moveSlot(slot, target))) return;
+
+		//	Find the slot in the heap, or else in the archive
+		if (slot == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+		Slot source = slotsById.get(slot.getKey());
+		boolean archived = source == null;
+		if (archived) source = getSlotById(slot.getKey());
+		if (source == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+		allocate(target, target.getAllocatedPatient().getId());
+
+		//	Validate the target's date and time before anything changes, if they are not the slot's own
+		if (!source.getDate().equals(target.getDate()) || !source.getTime().equals(target.getTime())) {
+			ValidationCode dateCode = Slot.checkDate(target, target.getDate());
+			if (!dateCode.isValid()) throw dateCode.toException(target.getDate());
+			ValidationCode timeCode = Slot.checkTime(target, target.getTime());
+			if (!timeCode.isValid()) throw timeCode.toException(target.getDate());
+		}
+		String service = target.getAllocatedService().getId();
+		String patient = target.getAllocatedPatient().getId();
+		LocalDate date = target.getDate();
+		int index = TimeUtils.getTimeIndex(target.getTime());
+		if (index < 0) throw Slot.checkTime(null, target.getTime()).toException();
+
+		//	Make sure the target's interval is open at its date, even if it is the slot's own, since the target is claimed like a new booking
+		ValidationCode intervalCode = Slot.checkInterval(date, index);
+		if (!intervalCode.isValid()) throw intervalCode.toException(date);
+		int bit = 1 << index;
+		loadMonths(date, date);
+
+		//	Work out which of the target's positions the slot already holds
+		boolean sameDay = !archived && source.getDate().equals(date);
+		boolean sameServiceDay = sameDay && source.getAllocatedService().getId().equals(service);
+		boolean holdsService = sameServiceDay && source.getTime().equals(target.getTime());
+		boolean holdsPatient = sameDay && source.getTime().equals(target.getTime()) && source.getAllocatedPatient().getId().equals(patient);
+
+		//	Claim the positions it does not hold yet, handing back the service's position if the patient's cannot be claimed
+		if (!holdsService) {
+			SlotArchive archive = SlotRepository.archive;
+			int fixed = archive == null ? 0 : archive.getBookedMask(service, date);
+			int claim = claimInterval(getWord(bookingMasks, service, date), bit, fixed, target.getAllocatedService().getMaxSlots() + (sameServiceDay ? 1 : 0));
+			if (claim != CLAIMED) throw getClaimError(claim, target.getAllocatedService());
+			invalidateAvailability(service, date);
+		}
+		if (!holdsPatient && claimInterval(getWord(patientMasks, patient, date), bit, 0, Slot.MAX_SLOTS_PER_DAY) != CLAIMED) {
+			if (!holdsService) releaseInterval(bookingMasks, service, date, bit);
+			throw getClaimError(PATIENT_BOOKED, target.getAllocatedService());
+		}
+
+		//	Lock both the slot and the target, and make sure the slot was not cancelled in the meantime
+		int[] stripes = getStripes(source, target);
+		lock(stripes);
+		try {
+			if (archived ? archive == null || !archive.contains(source.getKey()) : slotsById.get(source.getKey()) != source) {
+				if (!holdsService) releaseInterval(bookingMasks, service, date, bit);
+				if (!holdsPatient) releaseInterval(patientMasks, patient, date, bit);
+				throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+			}
+
+			//	Replace the slot with the target, keeping the positions they share, and publish both as a single change
+			Slot moved = archived ? null : source;
+			if (archived) {
+				archive.remove(source.getKey());
+				invalidateAvailability(source.getAllocatedService().getId(), source.getDate());
+			}
+			else unindexSlot(source, false);
+			allocate(target, patient);
+			putSlot(target);
+			DataVersion.publish(version -> version.withSlot(moved, target));
+
+			//	Then free the positions of the slot that the target does not use
+			int sourceIndex = TimeUtils.getTimeIndex(source.getTime());
+			if (!archived && sourceIndex >= 0) {
+				if (!holdsService) releaseInterval(bookingMasks, source.getAllocatedService().getId(), source.getDate(), 1 << sourceIndex);
+				if (!holdsPatient) releaseInterval(patientMasks, source.getAllocatedPatient().getId(), source.getDate(), 1 << sourceIndex);
+			}
+
+			//	Record the move as a single change
+			if (source.getKey() == target.getKey()) WriteAheadLog.logSlotPut(target);
+			else WriteAheadLog.logSlotMove(source.getKey(), target);
+
+		}
+		finally {
+			unlock(stripes);
+		}
+
+	}
+
 	/** 
 	 * Updates the info of the slot with the given ID
 	 * 
@@ -728,13 +1193,7 @@ public final class SlotRepository {
 	 * @param newSlot		- the new data to replace the old slot with
 	 */
 	public static void updateSlot(String id, Slot newSlot) {
-
-		//	Cancel the old slot
-		cancelSlot(id);
-
-		//	Replace it with the new slot
-		bookSlot(newSlot, newSlot.getAllocatedPatient());
-
+		moveSlot(getSlotById(id), newSlot);
 	}
 	public static void updateSlot(Slot slot, Slot newSlot) {
 		updateSlot(slot.getId(), newSlot);
@@ -747,19 +1206,9 @@ public final class SlotRepository {
 	 * @param newDate			- the slot's new date
 	 */
 	public static void updateSlotDate(String id, LocalDate newDate) {
-
-		//	Temporarily store the old slot
 		Slot slot = getSlotById(id);
-
-		//	Cancel the old one
-		cancelSlot(id);
-
-		//	Modify the date of the slot
-		slot.setDate(newDate);
-
-		//	Replace with new slot
-		bookSlot(slot, slot.getAllocatedPatient());
-
+		if (slot == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+		moveSlot(slot, copySlot(slot, newDate, slot.getTime(), slot.getAllocatedService(), slot.getAllocatedPatient()));
 	}
 	public static void updateSlotDate(Slot slot, LocalDate newDate) {
 		updateSlotDate(slot.getId(), newDate);
@@ -772,19 +1221,9 @@ public final class SlotRepository {
 	 * @param newDate			- the slot's new time
 	 */
 	public static void updateSlotTime(String id, LocalTime newTime) {
-
-		//	Temporarily store the old slot
 		Slot slot = getSlotById(id);
-
-		//	Cancel the old one
-		cancelSlot(id);
-
-		//	Modify the time of the slot
-		slot.setTime(newTime);
-
-		//	Replace with new slot
-		bookSlot(slot, slot.getAllocatedPatient());
-
+		if (slot == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+		moveSlot(slot, copySlot(slot, slot.getDate(), newTime, slot.getAllocatedService(), slot.getAllocatedPatient()));
 	}
 	public static void updateSlotTime(Slot slot, LocalTime newTime) {
 		updateSlotTime(slot.getId(), newTime);
@@ -797,19 +1236,9 @@ public final class SlotRepository {
 	 * @param newService		- the slot's new service
 	 */
 	public static void updateSlotService(String id, Service newService) {
-
-		//	Temporarily store the old slot
 		Slot slot = getSlotById(id);
-
-		//	Cancel the old one
-		cancelSlot(id);
-
-		//	Modify the service of the slot
-		slot.setAllocatedService(newService);
-
-		//	Replace with new slot
-		bookSlot(slot, slot.getAllocatedPatient());
-
+		if (slot == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+		moveSlot(slot, copySlot(slot, slot.getDate(), slot.getTime(), newService, slot.getAllocatedPatient()));
 	}
 	public static void updateSlotService(Slot slot, Service newService) {
 		updateSlotService(slot.getId(), newService);
@@ -822,19 +1251,9 @@ public final class SlotRepository {
 	 * @param newPatient		- the slot's new patient
 	 */
 	public static void updateSlotPatient(String id, Patient newPatient) {
-
-		//	Temporarily store the old slot
 		Slot slot = getSlotById(id);
-
-		//	Cancel the old one
-		cancelSlot(id);
-
-		//	Modify the patient of the slot
-		slot.setAllocatedPatient(newPatient);
-
-		//	Replace with new slot
-		bookSlot(slot, newPatient);
-
+		if (slot == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
+		moveSlot(slot, copySlot(slot, slot.getDate(), slot.getTime(), slot.getAllocatedService(), newPatient));
 	}
 	public static void updateSlotPatient(Slot slot, Patient newPatient) {
 		updateSlotPatient(slot.getId(), newPatient);
@@ -863,9 +1282,7 @@ public final class SlotRepository {
 		if (slot == null) throw new IllegalArgumentException("The slot with the given ID cannot be found!");
 
 		//	Else try to delete it from the list
-		slots.getOrDefault(slot.getAllocatedService().getId(), new TreeMap<>())
-			.getOrDefault(slot.getDate(), new TreeMap<>())
-			.remove(slot.getTime());
+		removeSlot(slot);
 
 	}
 
@@ -886,9 +1303,7 @@ public final class SlotRepository {
 	 * @param date							- the slots at this date will be cancelled
 	 */
 	public static void cancelSlotsByDate(LocalDate date) {
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			if (dateMap.containsKey(date)) dateMap.remove(date);
-		}
+		for (Slot slot : getSlotsByDate(date)) removeSlot(slot);
 	}
 
 	/** 
@@ -897,11 +1312,7 @@ public final class SlotRepository {
 	 * @param time							- the slots at this time will be cancelled
 	 */
 	public static void cancelSlotsByTime(LocalTime time) {
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			for (TreeMap<LocalTime, Slot> timeMap : dateMap.values()) {
-				if (timeMap.containsKey(time)) timeMap.remove(time);
-			}
-		}
+		for (Slot slot : getSlotsByTime(time)) removeSlot(slot);
 	}
 
 	/** 
@@ -910,7 +1321,7 @@ public final class SlotRepository {
 	 * @param service						- the slots with this given service will be cancelled
 	 */
 	public static void cancelSlotsByService(String service) {
-		slots.remove(service);
+		for (Slot slot : getSlotsByService(service)) removeSlot(slot);
 	}
 	public static void cancelSlotsByService(Service service) {
 		cancelSlotsByService(service.getId());
@@ -922,20 +1333,7 @@ public final class SlotRepository {
 	 * @param patient						- the slots with this given patient will be cancelled
 	 */
 	public static void cancelSlotsByPatient(String patient) {
-
-		//	Try to get a slot with this ID
-		ArrayList<Slot> patientSlots = getSlotsByPatient(patient);
-
-		//	If it doesn't exist then exit
-		if (patientSlots.isEmpty()) return;
-
-		//	Else try to delete it from the list
-		for (Slot slot : patientSlots) {
-			slots.getOrDefault(slot.getAllocatedService(), new TreeMap<>())
-				.getOrDefault(slot.getDate(), new TreeMap<>())
-				.remove(slot.getTime());
-		}
-
+		for (Slot slot : getSlotsByPatient(patient)) removeSlot(slot);
 	}
 	public static void cancelSlotsByPatient(Patient patient) {
 		cancelSlotsByPatient(patient.getId());
@@ -947,12 +1345,7 @@ public final class SlotRepository {
 	 * @param datetime						- the slots at this date and time will be cancelled
 	 */
 	public static void cancelSlotsByDateTime(LocalDateTime datetime) {
-		LocalDate date = datetime.toLocalDate();
-		LocalTime time = datetime.toLocalTime();
-		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slots.values()) {
-			TreeMap<LocalTime, Slot> timeMap = dateMap.get(date);
-			if (timeMap.containsKey(time)) timeMap.remove(time);
-		}
+		for (Slot slot : getSlotsByDateTime(datetime)) removeSlot(slot);
 	}
 	public static void cancelSlotsByDateTime(LocalDate date, LocalTime time) {
 		cancelSlotsByDateTime(LocalDateTime.of(date, time));
@@ -968,16 +1361,8 @@ public final class SlotRepository {
 	 * @param service						- the slot under this service will be cancelled
 	 */
 	public static void cancelSlotByDateTimeService(LocalDateTime datetime, String service) {
-		
-		//	Deconstruct date time into its components
-		LocalDate date = datetime.toLocalDate();
-		LocalTime time = datetime.toLocalTime();
-
-		//	Remove slots at the given date, time, and service
-		TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap = slots.get(service);
-		TreeMap<LocalTime, Slot> timeMap = dateMap.get(date);
-		if (timeMap.containsKey(time)) timeMap.remove(time);
-
+		Slot slot = getSlotByDateTimeService(datetime, service);
+		if (slot != null) removeSlot(slot);
 	}
 	public static void cancelSlotByDateTimeService(LocalDateTime datetime, Service service) {
 		cancelSlotByDateTimeService(datetime, service.getId());
@@ -1002,24 +1387,8 @@ public final class SlotRepository {
 	 * @param patient						- the slot under this patient will be cancelled
 	 */
 	public static void cancelSlotByDateTimePatient(LocalDateTime datetime, String patient) {
-
-		//	Deconstruct date time into its components
-		LocalDate date = datetime.toLocalDate();
-		LocalTime time = datetime.toLocalTime();
-
-		//	Try to get a slot with this allocated patient
-		ArrayList<Slot> patientSlots = getSlotsByPatient(patient);
-
-		//	If it doesn't exist then exit
-		if (patientSlots.isEmpty()) return;
-
-		//	Else try to delete it from the list
-		for (Slot slot : patientSlots) {
-			slots.getOrDefault(slot.getAllocatedService(), new TreeMap<>())
-				.getOrDefault(date, new TreeMap<>())
-				.remove(time);
-		}
-
+		Slot slot = getSlotByDateTimePatient(datetime, patient);
+		if (slot != null) removeSlot(slot);
 	}
 	public static void cancelSlotByDateTimePatient(LocalDateTime datetime, Patient patient) {
 		cancelSlotByDateTimePatient(datetime, patient.getId());
@@ -1040,5 +1409,1292 @@ public final class SlotRepository {
 //endregion
 
 
-	
+
+/* ------------------------------ Hold Methods ------------------------------ */
+//region
+
+	/** 
+	 * Returns how long a hold lasts before it expires, in milliseconds
+	 * 
+	 * @return long					- the time to live set by the system property, or {@code DEFAULT_HOLD_TTL}
+	 */
+	public static long getHoldTtl() {
+		return Math.max(HOLD_TICK, Long.getLong(HOLD_TTL_PROPERTY, DEFAULT_HOLD_TTL));
+	}
+
+	/** 
+	 * Returns the number of holds waiting on the timing wheel, including those that have already been booked or released
+	 * 
+	 * @return int					- the number of waiting holds
+	 */
+	public static int getWaitingHoldCount() {
+		return holdWheel.size();
+	}
+
+	/** 
+	 * Holds the given time interval of the given service, so that no other booking can take it until the hold ends.
+	 * The hold expires on its own once {@code getHoldTtl} has passed
+	 * 
+	 * @param date							- the date of the interval to hold
+	 * @param time							- the starting time of the interval to hold
+	 * @param service						- the service to hold the interval under
+	 * 
+	 * @return SlotHold						- the hold, to be booked with {@code bookHeldSlot} or released with {@code releaseHold}
+	 * 
+	 * @throws IllegalArgumentException		if the given service cannot be found
+	 * @throws IllegalSlotDateException		if the given date and time is in the past, or the interval is already booked or held
+	 * @throws IllegalSlotDateException		if the service has reached the maximum number of bookings for the day
+	 * @throws IllegalSlotTimeException		if the given time is not valid, or outside the opening hours of the given date
+	 */
+	public static SlotHold holdSlot(LocalDate date, LocalTime time, String service) {
+
+		//	Make sure the service exists, and the date and time are valid and have an interval in the occupancy words
+		Service allocatedService = ServiceRepository.getServiceById(service);
+		if (allocatedService == null) throw new IllegalArgumentException("The service with the given ID cannot be found!");
+		ValidationCode dateTimeCode = Slot.checkDateTime(date, time);
+		if (!dateTimeCode.isValid()) throw dateTimeCode.toException(date);
+		int index = TimeUtils.getTimeIndex(time);
+		loadMonths(date, date);
+
+		//	Claim the interval for the service like a booking would, and if it is taken then throw the reason
+		SlotArchive archive = SlotRepository.archive;
+		AtomicInteger word = getWord(bookingMasks, service, date);
+		int claim = claimInterval(word, 1 << index, archive == null ? 0 : archive.getBookedMask(service, date), allocatedService.getMaxSlots());
+		if (claim != CLAIMED) throw getClaimError(claim, allocatedService);
+		invalidateAvailability(service, date);
+
+		//	Then put the hold on the timing wheel, which releases it once its time to live has passed
+		SlotHold hold = new SlotHold(allocatedService, date, index, word);
+		holdWheel.schedule(hold, getHoldTtl());
+		return hold;
+
+	}
+	public static SlotHold holdSlot(LocalDate date, LocalTime time, Service service) {
+		return holdSlot(date, time, service.getId());
+	}
+
+	/** 
+	 * Books the interval of the given hold for the given patient, ending the hold.
+	 * If the hold has already ended, the interval is booked like any other slot, if it is still free
+	 * 
+	 * @param hold							- the hold to book
+	 * @param patient						- the patient to book it for
+	 * 
+	 * @throws IllegalArgumentException		if the given patient cannot be found
+	 * @throws IllegalSlotDateException		if the given patient already has a booking at this date and time, which keeps the hold
+	 * @throws IllegalSlotDateException		if the hold has ended and its interval has been booked or held since
+	 */
+	public static void bookHeldSlot(SlotHold hold, String patient) {
+
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> bookHeldSlot(hold, patient))) return;
+
+		//	If the hold has ended, or the slots were reloaded since it was taken, then book its interval like any other slot
+		String service = hold.getService().getId();
+		LocalDate date = hold.getDate();
+		Slot slot = new Slot(date, hold.getTime(), hold.getService());
+		allocate(slot, patient);
+		if (!hold.isActive() || getWord(bookingMasks, service, date) != hold.getWord()) {
+			hold.release();
+			bookSlot(slot, patient);
+			return;
+		}
+
+		//	Claim the interval for the patient first, so that the hold is kept if the patient is already booked at this time
+		Patient allocatedPatient = PatientRepository.getPatientById(patient);
+		if (allocatedPatient == null) throw new IllegalArgumentException("The patient with the given ID cannot be found!");
+		int bit = 1 << hold.getIndex();
+		if (claimInterval(getWord(patientMasks, patient, date), bit, 0, Slot.MAX_SLOTS_PER_DAY) != CLAIMED) throw getClaimError(PATIENT_BOOKED, hold.getService());
+
+		//	Then turn the hold into the booking, claiming the interval again if the hold expired in the meantime
+		if (!hold.take()) {
+			SlotArchive archive = SlotRepository.archive;
+			int claim = claimInterval(getWord(bookingMasks, service, date), bit, archive == null ? 0 : archive.getBookedMask(service, date), slot.getAllocatedService().getMaxSlots());
+			if (claim != CLAIMED) {
+				releaseInterval(patientMasks, patient, date, bit);
+				throw getClaimError(claim, slot.getAllocatedService());
+			}
+			invalidateAvailability(service, date);
+		}
+
+		//	Add the newly booked slot to the list and record the change, locking the indexes it is added to
+		slot.setAllocatedPatient(allocatedPatient);
+		lock(service, patient, date);
+		try {
+			allocate(slot, patient);
+			putSlot(slot);
+			DataVersion.publish(version -> version.withSlot(null, slot));
+			WriteAheadLog.logSlotPut(slot);
+		}
+		finally {
+			unlock(service, patient, date);
+		}
+
+	}
+	public static void bookHeldSlot(SlotHold hold, Patient patient) {
+		bookHeldSlot(hold, patient.getId());
+	}
+
+	/** 
+	 * Releases the given hold, freeing its interval for other bookings.
+	 * Nothing happens if the hold has already been booked, released, or expired
+	 * 
+	 * @param hold					- the hold to release
+	 */
+	public static void releaseHold(SlotHold hold) {
+		if (hold != null) hold.release();
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Index Methods ------------------------------ */
+//region
+
+	/** 
+	 * Replaces all stored slots with the given tree map and rebuilds every slot index from it.
+	 * Every month with slots is marked as changed, so that it is saved to its partition
+	 * 
+	 * @param slotList				- the tree map of slots to load, usually fetched from a file
+	 */
+	public static void loadSlots(TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slotList) {
+		lockAll();
+		try {
+
+			//	Clear the currently stored slots, indexes, and partitions
+			slotsById.clear();
+			slotsByPatient.clear();
+			slotsByDate.clear();
+			bookingMasks.clear();
+			patientMasks.clear();
+			availabilityCache.clear();
+			unloadedMonths.clear();
+			unreadableMonths.clear();
+			dirtyMonths.clear();
+			partitionRanges.clear();
+
+			//	Loop through each service, date, and time and add its slot, upgrading any legacy ids
+			TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> loadedSlots = new TreeMap<>();
+			for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slotList.values()) {
+				for (TreeMap<LocalTime, Slot> timeMap : dateMap.values()) {
+					for (Slot slot : timeMap.values()) {
+						IdUtils.upgradeLegacyId(slot);
+						IdUtils.upgradeLegacyId(slot.getAllocatedService());
+						putSlot(slot);
+						loadedSlots.computeIfAbsent(slot.getAllocatedService().getId(), k -> new TreeMap<>()).computeIfAbsent(slot.getDate(), k -> new TreeMap<>()).put(slot.getTime(), slot);
+					}
+				}
+			}
+
+			//	Then replace the slots of the current version with them all at once
+			DataVersion.publish(version -> version.withSlots(loadedSlots));
+
+		}
+		finally {
+			unlockAll();
+		}
+	}
+
+	/** 
+	 * Stores a slot recreated from saved data, replacing any slot stored with the same ID.
+	 * Unlike {@code bookSlot}, this does not validate the slot or record the change
+	 * 
+	 * <p> <b>NOTE</b>: this does not lock the slot either, it should only be called while replaying the change log on startup
+	 * 
+	 * @param slot					- the restored slot to store
+	 */
+	static void restoreSlot(Slot slot) {
+		loadMonths(slot.getDate(), slot.getDate());
+		Slot oldSlot = slotsById.get(slot.getKey());
+		if (oldSlot != null) unindexSlot(oldSlot, true);
+		putSlot(slot);
+		DataVersion.publish(version -> version.withSlot(oldSlot, slot));
+	}
+
+	/** 
+	 * Stores the given slot in every slot index, and marks its month as changed.
+	 * The slot is only added to the slot tree map once the caller publishes it in a new version
+	 * 
+	 * <p> <b>NOTE</b>: this does not validate the slot, it should only be called after validation
+	 * 
+	 * @param slot					- the slot to store
+	 */
+	private static void putSlot(Slot slot) {
+		loadMonths(slot.getDate(), slot.getDate());
+		indexSlot(slot);
+		dirtyMonths.add(YearMonth.from(slot.getDate()));
+	}
+
+	/** 
+	 * Stores the given slot in every slot index, other than the slot tree map of the current version
+	 * 
+	 * @param slot					- the slot to store
+	 */
+	private static void indexSlot(Slot slot) {
+
+		//	Add the slot to the id index
+		slotsById.put(slot.getKey(), slot);
+
+		//	Add the slot to the patient index
+		ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> patientDateMap = slotsByPatient.computeIfAbsent(slot.getAllocatedPatient().getId(), k -> new ConcurrentSkipListMap<>());
+		patientDateMap.computeIfAbsent(slot.getDate(), k -> new ConcurrentSkipListMap<>()).put(slot.getTime(), slot);
+
+		//	Add the slot to the date index
+		ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap = slotsByDate.computeIfAbsent(slot.getDate(), k -> new ConcurrentSkipListMap<>());
+		serviceMap.computeIfAbsent(slot.getAllocatedService().getId(), k -> new ConcurrentSkipListMap<>()).put(slot.getTime(), slot);
+
+		//	Mark the slot's time interval as booked in the occupancy words, which a booking has already done when it claimed the slot
+		int index = TimeUtils.getTimeIndex(slot.getTime());
+		if (index >= 0) {
+			getWord(bookingMasks, slot.getAllocatedService().getId(), slot.getDate()).getAndUpdate(mask -> mask | 1 << index);
+			getWord(patientMasks, slot.getAllocatedPatient().getId(), slot.getDate()).getAndUpdate(mask -> mask | 1 << index);
+			invalidateAvailability(slot.getAllocatedService().getId(), slot.getDate());
+		}
+
+	}
+
+	/** 
+	 * Stores the given groups of slots in every slot index, other than the slot tree map of the current version, finding the maps of each group only once.
+	 * The slots' time intervals should already be claimed in the occupancy words
+	 * 
+	 * @param serviceGroups			- the slots to store, grouped by the ID of their service and then by date
+	 * @param patientGroups			- the same slots, grouped by the ID of their patient and then by date
+	 */
+	private static void indexSlots(HashMap<String, HashMap<LocalDate, ArrayList<Slot>>> serviceGroups, HashMap<String, HashMap<LocalDate, ArrayList<Slot>>> patientGroups) {
+
+		//	Add each group of slots to the date index and the id index
+		for (Map.Entry<String, HashMap<LocalDate, ArrayList<Slot>>> serviceEntry : serviceGroups.entrySet()) {
+			for (Map.Entry<LocalDate, ArrayList<Slot>> dateEntry : serviceEntry.getValue().entrySet()) {
+				ConcurrentSkipListMap<LocalTime, Slot> serviceMap = slotsByDate.computeIfAbsent(dateEntry.getKey(), k -> new ConcurrentSkipListMap<>()).computeIfAbsent(serviceEntry.getKey(), k -> new ConcurrentSkipListMap<>());
+				for (Slot slot : dateEntry.getValue()) {
+					serviceMap.put(slot.getTime(), slot);
+					slotsById.put(slot.getKey(), slot);
+				}
+				dirtyMonths.add(YearMonth.from(dateEntry.getKey()));
+			}
+		}
+
+		//	Add each group of slots to the patient index
+		for (Map.Entry<String, HashMap<LocalDate, ArrayList<Slot>>> patientEntry : patientGroups.entrySet()) {
+			ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> patientDateMap = slotsByPatient.computeIfAbsent(patientEntry.getKey(), k -> new ConcurrentSkipListMap<>());
+			for (Map.Entry<LocalDate, ArrayList<Slot>> dateEntry : patientEntry.getValue().entrySet()) {
+				ConcurrentSkipListMap<LocalTime, Slot> timeMap = patientDateMap.computeIfAbsent(dateEntry.getKey(), k -> new ConcurrentSkipListMap<>());
+				for (Slot slot : dateEntry.getValue()) timeMap.put(slot.getTime(), slot);
+			}
+		}
+
+	}
+
+	/** 
+	 * Removes the given slot from the slot tree map and every slot index, or from the archive, and records the change.
+	 * Nothing is recorded if the slot was neither stored nor archived, such as when it was already cancelled
+	 * 
+	 * @param slot					- the slot to remove
+	 */
+	private static void removeSlot(Slot slot) {
+		if (MutationPipeline.handOver(() -> removeSlot(slot))) return;
+		String service = slot.getAllocatedService().getId();
+		String patient = slot.getAllocatedPatient().getId();
+		lock(service, patient, slot.getDate());
+		try {
+			if (slotsById.get(slot.getKey()) == slot) {
+				unindexSlot(slot, true);
+				DataVersion.publish(version -> version.withSlot(slot, null));
+				WriteAheadLog.logSlotRemove(slot.getKey());
+			}
+			else if (archive != null && archive.remove(slot.getKey())) {
+				invalidateAvailability(service, slot.getDate());
+				WriteAheadLog.logSlotRemove(slot.getKey());
+			}
+		}
+		finally {
+			unlock(service, patient, slot.getDate());
+		}
+	}
+
+	/** 
+	 * Removes the given slot from every slot index, and marks its month as changed.
+	 * The slot is only removed from the slot tree map once the caller publishes a new version without it
+	 * 
+	 * <p> Only the maps guarded by the slot's locks are removed once empty.
+	 * The maps of each service, patient, and date are shared by several locks, so they are only removed by {@code pruneIndexes}.
+	 * Occupancy words are never removed here, since a booking may be about to claim them without holding any lock
+	 * 
+	 * @param slot					- the slot to remove
+	 * @param release				- should the slot's time interval be freed in the occupancy words?
+	 */
+	private static void unindexSlot(Slot slot, boolean release) {
+
+		//	Mark the slot's month as changed
+		dirtyMonths.add(YearMonth.from(slot.getDate()));
+
+		//	Remove the slot from the id index
+		String service = slot.getAllocatedService().getId();
+		slotsById.remove(slot.getKey(), slot);
+
+		//	Remove the slot from the patient index, along with any maps left empty
+		String patient = slot.getAllocatedPatient().getId();
+		ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> patientDateMap = slotsByPatient.get(patient);
+		if (patientDateMap != null) {
+			ConcurrentSkipListMap<LocalTime, Slot> timeMap = patientDateMap.get(slot.getDate());
+			if (timeMap != null && timeMap.get(slot.getTime()) == slot) timeMap.remove(slot.getTime());
+			if (timeMap != null && timeMap.isEmpty()) patientDateMap.remove(slot.getDate());
+		}
+
+		//	Remove the slot from the date index, along with any maps left empty
+		ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap = slotsByDate.get(slot.getDate());
+		if (serviceMap != null) {
+			ConcurrentSkipListMap<LocalTime, Slot> timeMap = serviceMap.get(service);
+			if (timeMap != null && timeMap.get(slot.getTime()) == slot) timeMap.remove(slot.getTime());
+			if (timeMap != null && timeMap.isEmpty()) serviceMap.remove(service);
+		}
+
+		//	Free the slot's time interval in the occupancy words last, so that the interval can only be claimed again once the slot is gone
+		int index = TimeUtils.getTimeIndex(slot.getTime());
+		if (release && index >= 0) {
+			releaseInterval(bookingMasks, service, slot.getDate(), 1 << index);
+			releaseInterval(patientMasks, patient, slot.getDate(), 1 << index);
+		}
+
+	}
+
+	/** 
+	 * Removes every map of a service, patient, or date that has been left empty by cancelled or archived slots,
+	 * along with the empty occupancy words of every date before the given date
+	 * 
+	 * <p> Occupancy words of later dates, and the maps holding them, are kept since bookings claim them without holding any lock.
+	 * Slots cannot be booked in the past, so the words of past dates are no longer claimed
+	 * 
+	 * <p> <b>NOTE</b>: this should only be called while holding every lock
+	 * 
+	 * @param date					- empty occupancy words before this date are removed
+	 */
+	private static void pruneIndexes(LocalDate date) {
+		synchronized (partitionLock) {
+			slotsByPatient.values().removeIf(Map::isEmpty);
+			slotsByDate.values().removeIf(Map::isEmpty);
+			for (ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks : bookingMasks.values()) dateMasks.entrySet().removeIf(entry -> entry.getKey().isBefore(date) && entry.getValue().get() == 0);
+			for (ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks : patientMasks.values()) dateMasks.entrySet().removeIf(entry -> entry.getKey().isBefore(date) && entry.getValue().get() == 0);
+		}
+	}
+
+	/** 
+	 * Claims the given time interval for the given service and patient at the given date, without taking any lock.
+	 * The claim fails if either of them already has the interval booked, or if the service has reached its maximum number of slots for the day
+	 * 
+	 * @param service				- the ID of the service to claim the interval for
+	 * @param patient				- the ID of the patient to claim the interval for
+	 * @param date					- the date of the interval
+	 * @param index					- the index of the interval
+	 * @param maxSlots				- the maximum number of slots of the service per day
+	 * 
+	 * @return int					- {@code CLAIMED} if the interval was claimed, otherwise the reason it could not be
+	 */
+	private static int claimSlot(String service, String patient, LocalDate date, int index, int maxSlots) {
+
+		//	Claim the interval for the service first, counting any archived slots at this date as booked
+		SlotArchive archive = SlotRepository.archive;
+		int archived = archive == null ? 0 : archive.getBookedMask(service, date);
+		int claim = claimInterval(getWord(bookingMasks, service, date), 1 << index, archived, maxSlots);
+		if (claim != CLAIMED) return claim;
+		invalidateAvailability(service, date);
+
+		//	Then claim it for the patient, handing it back to the service if the patient is already booked
+		if (claimInterval(getWord(patientMasks, patient, date), 1 << index, 0, Slot.MAX_SLOTS_PER_DAY) == CLAIMED) return CLAIMED;
+		releaseInterval(bookingMasks, service, date, 1 << index);
+		return PATIENT_BOOKED;
+
+	}
+
+	/** 
+	 * Checks if the given time interval could be claimed for the given service and patient at the given date, without claiming it
+	 * 
+	 * @param service				- the ID of the service to check
+	 * @param patient				- the ID of the patient to check
+	 * @param date					- the date of the interval
+	 * @param index					- the index of the interval
+	 * @param maxSlots				- the maximum number of slots of the service per day
+	 * 
+	 * @return int					- {@code CLAIMED} if the interval is free, otherwise the reason it could not be claimed
+	 */
+	private static int checkSlot(String service, String patient, LocalDate date, int index, int maxSlots) {
+		int booked = getBookedMaskByDateService(date, service);
+		if ((booked & 1 << index) != 0) return SLOT_BOOKED;
+		if (Integer.bitCount(booked) >= maxSlots) return SERVICE_FULL;
+		ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks = patientMasks.get(patient);
+		AtomicInteger word = dateMasks == null ? null : dateMasks.get(date);
+		return word != null && (word.get() & 1 << index) != 0 ? PATIENT_BOOKED : CLAIMED;
+	}
+
+	/** 
+	 * Sets the given bits of the given occupancy word with compare-and-set, if none of them are set and the limit would not be passed
+	 * 
+	 * @param word					- the occupancy word to claim the bits in
+	 * @param bits					- the bits of the intervals to claim
+	 * @param fixed					- bits that also count as booked, without being part of the word
+	 * @param limit					- the maximum number of booked bits
+	 * 
+	 * @return int					- {@code CLAIMED}, {@code SLOT_BOOKED} if any of the bits is already set, or {@code SERVICE_FULL} if the limit would be passed
+	 */
+	private static int claimInterval(AtomicInteger word, int bits, int fixed, int limit) {
+		while (true) {
+			int mask = word.get();
+			int booked = mask | fixed;
+			if ((booked & bits) != 0) return SLOT_BOOKED;
+			if (Integer.bitCount(booked) + Integer.bitCount(bits) > limit) return SERVICE_FULL;
+			if (word.compareAndSet(mask, mask | bits)) return CLAIMED;
+		}
+	}
+
+	/** 
+	 * Clears the given bit of the occupancy word of the given service or patient at the given date
+	 * 
+	 * @param words					- the occupancy words of every service or every patient
+	 * @param id					- the ID of the service or patient
+	 * @param date					- the date of the interval
+	 * @param bit					- the bit of the interval to clear
+	 */
+	private static void releaseInterval(ConcurrentHashMap<String, ConcurrentHashMap<LocalDate, AtomicInteger>> words, String id, LocalDate date, int bit) {
+		ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks = words.get(id);
+		AtomicInteger word = dateMasks == null ? null : dateMasks.get(date);
+		if (word != null) word.getAndUpdate(mask -> mask & ~bit);
+		if (words == bookingMasks) invalidateAvailability(id, date);
+	}
+
+	/** 
+	 * Returns the occupancy word of the given service or patient at the given date, creating it if needed
+	 * 
+	 * @param words					- the occupancy words of every service or every patient
+	 * @param id					- the ID of the service or patient
+	 * @param date					- the date of the word
+	 * 
+	 * @return AtomicInteger		- the occupancy word
+	 */
+	private static AtomicInteger getWord(ConcurrentHashMap<String, ConcurrentHashMap<LocalDate, AtomicInteger>> words, String id, LocalDate date) {
+		return words.computeIfAbsent(id, k -> new ConcurrentHashMap<>()).computeIfAbsent(date, k -> new AtomicInteger());
+	}
+
+	/** 
+	 * Returns the error to throw when a slot could not be claimed for the given reason
+	 * 
+	 * @param claim							- the reason returned by the claim
+	 * @param service						- the service the slot was claimed for
+	 * 
+	 * @return ValidationException			- the error, which is preallocated unless it names the service's limit
+	 */
+	private static ValidationException getClaimError(int claim, Service service) {
+		if (claim == PATIENT_BOOKED) return ValidationCode.SLOT_PATIENT_BOOKED.toException();
+		if (claim == SERVICE_FULL) return ValidationCode.SLOT_SERVICE_FULL.toException(service.getMaxSlots());
+		return ValidationCode.SLOT_UNAVAILABLE.toException();
+	}
+
+	/** 
+	 * Returns the error to throw when the given slot of a batch could not be claimed for the given reason,
+	 * which names the slot in its message
+	 * 
+	 * @param slot							- the slot that could not be claimed
+	 * @param claim							- the reason returned by the claim
+	 * 
+	 * @return ValidationException			- the error
+	 */
+	private static ValidationException getBatchError(Slot slot, int claim) {
+		if (claim == PATIENT_BOOKED) return ValidationCode.SLOT_BATCH_PATIENT_BOOKED.toException(slot.getDate(), slot.getTime());
+		if (claim == SERVICE_FULL) return ValidationCode.SLOT_BATCH_SERVICE_FULL.toException(slot.getDate(), slot.getTime(), slot.getAllocatedService().getMaxSlots());
+		return ValidationCode.SLOT_BATCH_UNAVAILABLE.toException(slot.getDate(), slot.getTime());
+	}
+
+	/** 
+	 * Returns the first of the given slots whose time interval is booked in the given mask, or the first slot if none are
+	 * 
+	 * @param group					- the slots to check
+	 * @param mask					- the booked intervals
+	 * 
+	 * @return Slot					- the clashing slot
+	 */
+	private static Slot getClash(ArrayList<Slot> group, int mask) {
+		for (Slot slot : group) {
+			if ((mask & 1 << TimeUtils.getTimeIndex(slot.getTime())) != 0) return slot;
+		}
+		return group.get(0);
+	}
+
+	/** 
+	 * Creates a copy of the given slot with the given data, keeping its ID.
+	 * The copy is not validated, since {@code moveSlot} validates it before it is booked
+	 * 
+	 * @param slot					- the slot to copy
+	 * @param date					- the copy's date
+	 * @param time					- the copy's time
+	 * @param service				- the copy's service
+	 * @param patient				- the copy's patient
+	 * 
+	 * @return Slot					- the copy
+	 */
+	private static Slot copySlot(Slot slot, LocalDate date, LocalTime time, Service service, Patient patient) {
+		return Slot.restore(slot.getKey(), date, time, service, patient);
+	}
+
+	/** 
+	 * Points the given slot at the stored service with the ID of its service, and at the stored patient with the given ID.
+	 * Updating a service or patient stores a copy of it, so a slot made before the update may still refer to the old one.
+	 * This is called before the slot is claimed, so that it is claimed against the service's current limit,
+	 * and again while holding the slot's locks, so that an update either sees the stored slot and replaces it, or is seen here
+	 * 
+	 * @param slot					- the slot about to be stored
+	 * @param patient				- the ID of the slot's patient
+	 */
+	private static void allocate(Slot slot, String patient) {
+		Service allocatedService = ServiceRepository.getServiceById(slot.getAllocatedService().getId());
+		if (allocatedService != null) slot.setAllocatedService(allocatedService);
+		Patient allocatedPatient = PatientRepository.getPatientById(patient);
+		if (allocatedPatient != null) slot.setAllocatedPatient(allocatedPatient);
+	}
+
+	/** 
+	 * The free candidates of a service at a date, along with what they were computed from besides the occupancy words
+	 */
+	private static final class Availability {
+
+		private final Service service;
+		private final int maxSlots;
+		private final int closed;
+		private final ArrayList<SlotCandidate> candidates;
+
+		private Availability(Service service, int closed, ArrayList<SlotCandidate> candidates) {
+			this.service = service;
+			this.maxSlots = service.getMaxSlots();
+			this.closed = closed;
+			this.candidates = candidates;
+		}
+
+	}
+
+	/** 
+	 * Adds a candidate to the given list for each free time interval of the given date under the given service.
+	 * The candidates are taken from the availability cache if they are still up to date, and else computed and cached
+	 * 
+	 * @param outputList			- the list to add the free candidates to
+	 * @param date					- the date to check slots for
+	 * @param service				- the service to check slots for
+	 */
+	private static void addFreeCandidates(ArrayList<SlotCandidate> outputList, LocalDate date, Service service) {
+
+		//	If the candidates are cached, and neither the service's limit nor the closed intervals have changed since, then add them straight away
+		Map.Entry<String, LocalDate> key = Map.entry(service.getId(), date);
+		int closed = TimeUtils.getClosedIntervalsMask(date);
+		Availability availability = availabilityCache.get(key);
+		if (availability != null) {
+			if (availability.service == service && availability.maxSlots == service.getMaxSlots() && availability.closed == closed) {
+				outputList.addAll(availability.candidates);
+				return;
+			}
+			availabilityCache.reject(key);
+		}
+
+		//	Else loop through each set bit of the free mask, lowest first, taking the cache's stamp before the occupancy words are read
+		long stamp = availabilityCache.getStamp(key);
+		int free = getFreeMask(date, service, closed);
+		ArrayList<SlotCandidate> candidates = new ArrayList<>(Integer.bitCount(free));
+		while (free != 0) {
+			candidates.add(new SlotCandidate(service, date, Integer.numberOfTrailingZeros(free)));
+			free &= free - 1;
+		}
+
+		//	Then cache them, unless an occupancy word changed in the meantime
+		availabilityCache.putIfUnchanged(key, new Availability(service, closed, candidates), stamp);
+		outputList.addAll(candidates);
+
+	}
+
+	/** 
+	 * Returns a bitmask of the time intervals that can still be booked for the given date under the given service
+	 * 
+	 * @param date					- the date to check slots for
+	 * @param service				- the service to check slots for
+	 * @param closed				- the bitmask of the date's intervals that are in the past or outside its opening hours
+	 * 
+	 * @return int					- the bitmask of free time intervals
+	 */
+	private static int getFreeMask(LocalDate date, Service service, int closed) {
+
+		//	If the service is fully booked for the day then nothing is free
+		int booked = getBookedMaskByDateService(date, service.getId());
+		if (Integer.bitCount(booked) >= service.getMaxSlots()) return 0;
+
+		//	Else every interval that is neither booked nor closed is free
+		return TimeUtils.FULL_DAY_MASK & ~booked & ~closed;
+
+	}
+
+	/** 
+	 * Drops the cached free candidates of the given service at the given date.
+	 * This is called after every change to the service's occupancy word at the date
+	 * 
+	 * @param service				- the ID of the service
+	 * @param date					- the date
+	 */
+	static void invalidateAvailability(String service, LocalDate date) {
+		availabilityCache.invalidate(Map.entry(service, date));
+	}
+
+	/** 
+	 * Creates an unbooked slot for each of the given candidates
+	 * 
+	 * @param candidates			- the candidates to create slots for
+	 * 
+	 * @return ArrayList<Slot>		- a list of unbooked slots
+	 */
+	private static ArrayList<Slot> toSlots(ArrayList<SlotCandidate> candidates) {
+		ArrayList<Slot> outputList = new ArrayList<>(candidates.size());
+		for (SlotCandidate candidate : candidates) outputList.add(candidate.toSlot());
+		return outputList;
+	}
+
+	/** 
+	 * Replaces the stored patient with the given ID by a changed copy, and replaces each of its slots by a copy that refers to it,
+	 * publishing both as a single change. If its ID changed, its index entries are moved over to the new ID as well
+	 * 
+	 * <p> <b>NOTE</b>: this should be called by {@code PatientRepository} whenever a patient is updated.
+	 * Stored patients and slots are never changed in place, since older versions still hold them
+	 * 
+	 * @param oldId					- the patient's previous ID
+	 * @param newPatient			- the changed copy of the patient
+	 */
+	public static void replacePatient(String oldId, Patient newPatient) {
+
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> replacePatient(oldId, newPatient))) return;
+
+		//	If the ID changed then load every month first, since partitions refer to the patient by ID
+		String newId = newPatient.getId();
+		boolean renamed = !oldId.equals(newId);
+		if (renamed) loadAllMonths();
+
+		lockAll();
+		try {
+
+			//	Move the patient's slots over to the new ID and mark their months as changed, so that they are saved under it
+			if (renamed) {
+				ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> dateMap = slotsByPatient.remove(oldId);
+				if (dateMap != null) {
+					slotsByPatient.put(newId, dateMap);
+					for (LocalDate date : dateMap.keySet()) dirtyMonths.add(YearMonth.from(date));
+				}
+				ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks = patientMasks.remove(oldId);
+				if (dateMasks != null) patientMasks.put(newId, dateMasks);
+				if (archive != null) archive.renamePatient(oldId, newId);
+			}
+
+			//	Replace each of the patient's slots by a copy that refers to the new patient, keeping their positions
+			ArrayList<Slot> oldSlots = new ArrayList<>();
+			ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<LocalTime, Slot>> dateMap = slotsByPatient.get(newId);
+			if (dateMap != null) {
+				for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : dateMap.values()) oldSlots.addAll(timeMap.values());
+			}
+			ArrayList<Slot> newSlots = new ArrayList<>(oldSlots.size());
+			for (Slot slot : oldSlots) {
+				Slot copy = copySlot(slot, slot.getDate(), slot.getTime(), slot.getAllocatedService(), newPatient);
+				indexSlot(copy);
+				newSlots.add(copy);
+			}
+
+			//	Then publish the patient and its slots together
+			DataVersion.publish(version -> (renamed ? version.withPatient(oldId, null) : version).withPatient(newId, newPatient).withSlots(oldSlots, newSlots));
+
+		}
+		finally {
+			unlockAll();
+		}
+
+	}
+
+	/** 
+	 * Replaces the stored service with the given ID by a changed copy, and replaces each of its slots by a copy that refers to it,
+	 * publishing both as a single change. If its ID changed, its index entries are moved over to the new ID as well
+	 * 
+	 * <p> <b>NOTE</b>: this should be called by {@code ServiceRepository} whenever a service is updated.
+	 * Stored services and slots are never changed in place, since older versions still hold them
+	 * 
+	 * @param oldId					- the service's previous ID
+	 * @param newService			- the changed copy of the service
+	 */
+	public static void replaceService(String oldId, Service newService) {
+
+		//	Let the pipeline's writer apply this change, if it is running
+		if (MutationPipeline.handOver(() -> replaceService(oldId, newService))) return;
+
+		//	If the ID changed then load every month first, since partitions refer to the service by ID
+		String newId = newService.getId();
+		boolean renamed = !oldId.equals(newId);
+		if (renamed) loadAllMonths();
+
+		lockAll();
+		try {
+
+			//	Move the service's booking masks and date index entries over to the new ID, and mark each month as changed, so that they are saved under it
+			PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> dateMap = DataVersion.pin().getSlots().getOrDefault(oldId, PersistentMap.empty());
+			if (renamed) {
+				ConcurrentHashMap<LocalDate, AtomicInteger> dateMasks = bookingMasks.remove(oldId);
+				if (dateMasks != null) bookingMasks.put(newId, dateMasks);
+				for (LocalDate date : dateMap.keySet()) {
+					ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap = slotsByDate.get(date);
+					ConcurrentSkipListMap<LocalTime, Slot> timeMap = serviceMap == null ? null : serviceMap.remove(oldId);
+					if (timeMap != null) serviceMap.put(newId, timeMap);
+					dirtyMonths.add(YearMonth.from(date));
+				}
+			}
+			availabilityCache.clear();
+
+			//	Replace each of the service's slots by a copy that refers to the new service, keeping their positions
+			ArrayList<Slot> oldSlots = new ArrayList<>();
+			for (PersistentMap<LocalTime, Slot> timeMap : dateMap.values()) oldSlots.addAll(timeMap.values());
+			ArrayList<Slot> newSlots = new ArrayList<>(oldSlots.size());
+			for (Slot slot : oldSlots) {
+				Slot copy = copySlot(slot, slot.getDate(), slot.getTime(), newService, slot.getAllocatedPatient());
+				indexSlot(copy);
+				newSlots.add(copy);
+			}
+
+			//	Then publish the service and its slots together, the old slots are no longer found under the old ID once it has been moved
+			DataVersion.publish(version -> (renamed ? version.withServiceId(oldId, newId) : version).withService(newId, newService).withSlots(oldSlots, newSlots));
+
+		}
+		finally {
+			unlockAll();
+		}
+
+	}
+
+//endregion
+
+
+
+/* ---------------------------- Archive Methods ----------------------------- */
+//region
+
+	/** 
+	 * Maps the archive of past slots at the given path, if it exists.
+	 * Once mapped, queries also return the archived slots, reading them from the file as needed
+	 * 
+	 * @param path					- the archive file to map
+	 * 
+	 * @throws IOException			if the file could not be mapped
+	 */
+	public static void openArchive(Path path) throws IOException {
+		openArchive(path, new ArrayList<>());
+	}
+
+	/** 
+	 * Maps the archive of past slots at the given path, if it exists, and removes the given slots that were moved into it from the heap.
+	 * Both are published as a single change, so that a version never holds a slot both in the archive and on the heap
+	 * 
+	 * @param path					- the archive file to map
+	 * @param movedSlots			- the slots that were moved into the archive
+	 * 
+	 * @throws IOException			if the file could not be mapped
+	 */
+	private static void openArchive(Path path, ArrayList<Slot> movedSlots) throws IOException {
+
+		//	Map the new archive before replacing the old one, so that queries always see a complete archive
+		SlotArchive newArchive = Files.exists(path) ? SlotArchive.open(path) : null;
+		SlotArchive oldArchive;
+		lockAll();
+		try {
+			oldArchive = archive;
+			archive = newArchive;
+			availabilityCache.clear();
+			for (Slot slot : movedSlots) unindexSlot(slot, true);
+			DataVersion.publish(version -> version.withArchive(newArchive).withSlots(movedSlots, List.of()));
+		}
+		finally {
+			unlockAll();
+		}
+
+		//	Closing the old archive only closes its file, so queries that are still reading it are not affected
+		close(oldArchive);
+
+	}
+
+	/** 
+	 * Unmaps the archive of past slots, if one is mapped
+	 */
+	public static void closeArchive() {
+		SlotArchive oldArchive;
+		lockAll();
+		try {
+			oldArchive = archive;
+			archive = null;
+			availabilityCache.clear();
+			DataVersion.publish(version -> version.withArchive(null));
+		}
+		finally {
+			unlockAll();
+		}
+		close(oldArchive);
+	}
+
+	/** 
+	 * Returns whether an archive of past slots is mapped
+	 * 
+	 * @return boolean				- is an archive mapped?
+	 */
+	public static boolean isArchiveOpen() {
+		return archive != null;
+	}
+
+	/** 
+	 * Moves every slot before the given date from the heap into the archive at the given path, and maps the new archive.
+	 * The archive is only written again if there are slots to move or archived slots were cancelled
+	 * 
+	 * <p> Past slots can no longer be booked, so the new archive is written while other changes carry on, and every change is only stopped
+	 * to swap it in. If a past slot was cancelled or moved, or the old archive changed, while it was being written, it is written again before the swap
+	 * 
+	 * <p> Moved slots are not recorded in the change log, since the archive is synced to disk before they leave the heap
+	 * 
+	 * @param path					- the archive file to write
+	 * @param date					- slots before this date are moved
+	 * 
+	 * @throws IOException			if the archive could not be written
+	 */
+	public static void archiveSlots(Path path, LocalDate date) throws IOException {
+
+		//	Load the months of the slots to move and collect them, remembering how many changes the old archive had
+		loadMonths(LocalDate.MIN, date.minusDays(1));
+		SlotArchive oldArchive = archive;
+		int changeCount = oldArchive == null ? 0 : oldArchive.getChangeCount();
+		ArrayList<Slot> pastSlots = getPastSlots(date);
+
+		//	If nothing has changed then the current archive is still up to date
+		if (pastSlots.isEmpty() && (oldArchive == null || !oldArchive.hasRemovals())) return;
+
+		//	Write the new archive without stopping any changes
+		SlotArchive.write(path, oldArchive, pastSlots);
+
+		//	Then stop every change to map it and drop the moved slots from the heap, writing it again first if it is already out of date
+		lockAll();
+		try {
+			if (archive != oldArchive || oldArchive != null && oldArchive.getChangeCount() != changeCount || !isStored(pastSlots)) {
+				pastSlots = getPastSlots(date);
+				SlotArchive.write(path, archive, pastSlots);
+			}
+			openArchive(path, pastSlots);
+			pruneIndexes(date);
+			if (!pastSlots.isEmpty()) AutoSaver.markDirty(DataType.SLOT);
+		}
+		finally {
+			unlockAll();
+		}
+
+	}
+
+	/** 
+	 * Returns a list of every slot in the given archive, restoring each one
+	 * 
+	 * @param archive				- the archive to read, or null if none is mapped
+	 * 
+	 * @return ArrayList<Slot>		- the archived slots
+	 */
+	static ArrayList<Slot> getArchivedSlots(SlotArchive archive) {
+		ArrayList<Slot> outputList = new ArrayList<>();
+		if (archive != null) archive.forEach(addArchived(outputList, null, null));
+		return outputList;
+	}
+
+	/** 
+	 * Returns a list of the slots in the given archive between the two given dates, inclusive, restoring only those
+	 * 
+	 * @param archive				- the archive to read, or null if none is mapped
+	 * @param startDate				- the first date to fetch slots for
+	 * @param endDate				- the last date to fetch slots for
+	 * 
+	 * @return ArrayList<Slot>		- the archived slots in the range
+	 */
+	static ArrayList<Slot> getArchivedSlots(SlotArchive archive, LocalDate startDate, LocalDate endDate) {
+		ArrayList<Slot> outputList = new ArrayList<>();
+		if (archive != null && !endDate.isBefore(startDate)) archive.forEachByDate(startDate, endDate, addArchived(outputList, null, null));
+		return outputList;
+	}
+
+	/** 
+	 * Returns a list of every slot on the heap before the given date
+	 * 
+	 * @param date					- the date to fetch slots before
+	 * 
+	 * @return ArrayList<Slot>		- the past slots
+	 */
+	private static ArrayList<Slot> getPastSlots(LocalDate date) {
+		ArrayList<Slot> outputList = new ArrayList<>();
+		for (ConcurrentSkipListMap<String, ConcurrentSkipListMap<LocalTime, Slot>> serviceMap : slotsByDate.headMap(date).values()) {
+			for (ConcurrentSkipListMap<LocalTime, Slot> timeMap : serviceMap.values()) outputList.addAll(timeMap.values());
+		}
+		return outputList;
+	}
+
+	/** 
+	 * Checks if every given slot is still stored on the heap, and has not been cancelled or moved
+	 * 
+	 * @param slotList				- the slots to check
+	 * 
+	 * @return boolean				- are all the slots still stored?
+	 */
+	private static boolean isStored(ArrayList<Slot> slotList) {
+		for (Slot slot : slotList) {
+			if (slotsById.get(slot.getKey()) != slot) return false;
+		}
+		return true;
+	}
+
+	/** 
+	 * Closes the file of the given archive, if there is one
+	 * 
+	 * @param oldArchive			- the archive to close
+	 */
+	private static void close(SlotArchive oldArchive) {
+		if (oldArchive == null) return;
+		try {
+			oldArchive.close();
+		}
+		catch (IOException e) {
+			System.err.printf("We were unable to close the slot archive! %n");
+		}
+	}
+
+	/** 
+	 * Returns a visitor that restores each archived slot it receives and adds it to the given list
+	 * 
+	 * @param outputList			- the list to add the restored slots to
+	 * @param patient				- only slots booked by this patient are added, or every slot if null
+	 * @param time					- only slots at this time are added, or every slot if null
+	 * 
+	 * @return SlotArchive.Visitor	- the visitor
+	 */
+	private static SlotArchive.Visitor addArchived(ArrayList<Slot> outputList, String patient, LocalTime time) {
+		int index = time == null ? -1 : TimeUtils.getTimeIndex(time);
+		return (key, service, slotPatient, date, slotIndex) -> {
+
+			//	Skip slots that do not match the filters
+			if (patient != null && !patient.equals(slotPatient)) return;
+			if (time != null && index != slotIndex) return;
+
+			//	Restore the slot against the current service and patient, skipping it if either no longer exists
+			Service allocatedService = ServiceRepository.getServiceById(service);
+			Patient allocatedPatient = PatientRepository.getPatientById(slotPatient);
+			if (allocatedService == null || allocatedPatient == null) return;
+			outputList.add(Slot.restore(key, date, TimeUtils.getIndexTime(slotIndex), allocatedService, allocatedPatient));
+
+		};
+	}
+
+//endregion
+
+
+
+/* --------------------------- Partition Methods ---------------------------- */
+//region
+
+	/** 
+	 * Replaces all stored slots with the slots of the given partitions, which have already been loaded.
+	 * The partitions of the other months are loaded once a query needs them
+	 * 
+	 * <p> Slot IDs start with the time they were created at, so the IDs in partitions that are not loaded yet
+	 * are always lower than the next generated ID
+	 * 
+	 * <p> The manifest entry of each month holds the range of slot IDs in its partition, so a slot can be found by its ID
+	 * without loading the months that cannot hold it
+	 * 
+	 * @param months				- the manifest entry of each month that has a saved partition
+	 * @param partitions			- the slots of each loaded month, or null for a month whose partition could not be loaded
+	 */
+	public static void openPartitions(Map<YearMonth, SlotPartition> months, Map<YearMonth, TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>> partitions) {
+		lockAll();
+		try {
+			synchronized (partitionLock) {
+				loadSlots(new TreeMap<>());
+				unloadedMonths.addAll(months.keySet());
+				partitionRanges.putAll(months);
+				for (Map.Entry<YearMonth, TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>> partition : partitions.entrySet()) {
+					indexPartition(partition.getKey(), partition.getValue());
+				}
+			}
+		}
+		finally {
+			unlockAll();
+		}
+	}
+
+	/** 
+	 * Returns whether the partition of the given month has been loaded
+	 * 
+	 * @param month					- the month to check
+	 * 
+	 * @return boolean				- is the month loaded?
+	 */
+	public static boolean isMonthLoaded(YearMonth month) {
+		return !unloadedMonths.contains(month);
+	}
+
+	/** 
+	 * Takes the slots of every month that changed since it was last taken from the current version, and marks them as unchanged.
+	 * Months whose partition could not be loaded are left out, so that their saved slots are not overwritten
+	 * 
+	 * <p> The slots of each month are cut out of the version's tree map with {@code subMap}, which shares them instead of copying them.
+	 * Slots may be booked or cancelled meanwhile. A month that changes after it has been taken is marked as changed again,
+	 * and the change stays in the change log, so nothing is lost if the version misses it
+	 * 
+	 * @return TreeMap<YearMonth, TreeMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>>	- the slots of each changed month, keyed by service, date, and time
+	 */
+	public static TreeMap<YearMonth, TreeMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>> takeDirtyPartitions() {
+
+		//	Take the changed months, skipping those that could not be loaded
+		ArrayList<YearMonth> months = new ArrayList<>();
+		for (YearMonth month : dirtyMonths) {
+			if (unreadableMonths.contains(month)) continue;
+			dirtyMonths.remove(month);
+			months.add(month);
+		}
+
+		//	Then cut the slots of each month out of the current version, under each service
+		PersistentMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> slotMap = DataVersion.pin().getSlots();
+		TreeMap<YearMonth, TreeMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>>> partitions = new TreeMap<>();
+		for (YearMonth month : months) {
+			TreeMap<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> partition = new TreeMap<>();
+			for (Map.Entry<String, PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>>> dateMap : slotMap.entrySet()) {
+				PersistentMap<LocalDate, PersistentMap<LocalTime, Slot>> monthMap = dateMap.getValue().subMap(month.atDay(1), month.atEndOfMonth());
+				if (!monthMap.isEmpty()) partition.put(dateMap.getKey(), monthMap);
+			}
+			partitions.put(month, partition);
+		}
+		return partitions;
+
+	}
+
+	/** 
+	 * Marks the given months as changed again, should be called if their partitions could not be saved
+	 * 
+	 * @param months				- the months to mark
+	 */
+	public static void markPartitionsDirty(Collection<YearMonth> months) {
+		dirtyMonths.addAll(months);
+	}
+
+	/** 
+	 * Loads the partitions of every month between the two given dates, inclusive, that is not loaded yet
+	 * 
+	 * @param startDate				- the first date that needs to be loaded
+	 * @param endDate				- the last date that needs to be loaded
+	 */
+	static void loadMonths(LocalDate startDate, LocalDate endDate) {
+		if (unloadedMonths.isEmpty() || endDate.isBefore(startDate)) return;
+		for (YearMonth month : new ArrayList<>(unloadedMonths.subSet(YearMonth.from(startDate), true, YearMonth.from(endDate), true))) loadMonth(month);
+	}
+
+	/** 
+	 * Loads the partitions of the months that are not loaded yet and whose range of slot IDs holds the given ID, newest first,
+	 * stopping once the slot is found
+	 * 
+	 * @param key					- the ID of the slot to load
+	 */
+	private static void loadMonthsHolding(long key) {
+		for (YearMonth month : new ArrayList<>(unloadedMonths.descendingSet())) {
+			SlotPartition partition = partitionRanges.get(month);
+			if (partition != null && !partition.mightHold(key)) continue;
+			loadMonth(month);
+			if (slotsById.containsKey(key)) return;
+		}
+	}
+
+	/** 
+	 * Loads the partitions of every month that is not loaded yet
+	 */
+	static void loadAllMonths() {
+		if (unloadedMonths.isEmpty()) return;
+		for (YearMonth month : new ArrayList<>(unloadedMonths)) loadMonth(month);
+	}
+
+	/** 
+	 * Loads the partition of the given month and adds its slots to every slot index, without marking the month as changed.
+	 * If the partition cannot be loaded then the month is never saved, so that the partition can still be recovered
+	 * 
+	 * <p> Only one month is loaded at a time, and the month is only marked as loaded once all its slots are in the indexes
+	 * 
+	 * @param month					- the month to load
+	 */
+	private static void loadMonth(YearMonth month) {
+		synchronized (partitionLock) {
+
+			//	If another thread loaded the month while waiting then there is nothing to do
+			if (!unloadedMonths.contains(month)) return;
+
+			//	Else load its partition and index it
+			TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slotList = null;
+			try {
+				slotList = RepoUtils.loadSlotPartition(month, ServiceRepository.getServices(), PatientRepository.getPatients());
+			}
+			catch (IOException e) {
+
+				//	The error has already been printed, the month is marked as unreadable below
+
+			}
+			indexPartition(month, slotList);
+
+		}
+	}
+
+	/** 
+	 * Adds the slots of the given month's partition to every slot index, without marking the month as changed
+	 * 
+	 * @param month					- the month of the partition
+	 * @param slotList				- the slots of the partition, or null if it could not be loaded
+	 */
+	private static void indexPartition(YearMonth month, TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slotList) {
+
+		//	If the partition could not be loaded then make sure it is never saved
+		if (slotList == null) {
+			unreadableMonths.add(month);
+			unloadedMonths.remove(month);
+			System.err.printf("The slots of %s could not be loaded, so they will not be saved! %n", month);
+			return;
+		}
+
+		//	Else add each slot that is not already stored and publish them together, before marking the month as loaded
+		ArrayList<Slot> indexedSlots = new ArrayList<>();
+		for (TreeMap<LocalDate, TreeMap<LocalTime, Slot>> dateMap : slotList.values()) {
+			for (TreeMap<LocalTime, Slot> timeMap : dateMap.values()) {
+				for (Slot slot : timeMap.values()) {
+					if (slotsById.containsKey(slot.getKey())) continue;
+					indexSlot(slot);
+					indexedSlots.add(slot);
+				}
+			}
+		}
+		DataVersion.publish(version -> version.withSlots(List.of(), indexedSlots));
+		unloadedMonths.remove(month);
+
+	}
+
+//endregion
+
+
+
+/* ------------------------------ Lock Methods ------------------------------ */
+//region
+
+	/** 
+	 * Creates the locks that guard the slots of each service and patient at each date
+	 * 
+	 * @return ReentrantLock[]		- the locks
+	 */
+	private static ReentrantLock[] createLocks() {
+		ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+		for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new ReentrantLock();
+		return locks;
+	}
+
+	/** 
+	 * Returns the index of the lock that guards the slots of the given service or patient at the given date
+	 * 
+	 * @param id					- the ID of the service or patient
+	 * @param date					- the date of the slots
+	 * 
+	 * @return int					- the index of the lock
+	 */
+	private static int getStripe(String id, LocalDate date) {
+		int hash = id.hashCode() * 31 + date.hashCode();
+		return (hash ^ hash >>> 16) & LOCK_STRIPES - 1;
+	}
+
+	/** 
+	 * Locks the given service and patient at the given date, waiting for any change to them to finish.
+	 * The two locks are always taken in the same order, so that two threads can never wait for each other
+	 * 
+	 * @param service				- the ID of the service to lock
+	 * @param patient				- the ID of the patient to lock
+	 * @param date					- the date to lock them at
+	 */
+	private static void lock(String service, String patient, LocalDate date) {
+		int serviceStripe = getStripe(service, date);
+		int patientStripe = getStripe(patient, date);
+		locks[Math.min(serviceStripe, patientStripe)].lock();
+		if (serviceStripe != patientStripe) locks[Math.max(serviceStripe, patientStripe)].lock();
+	}
+
+	/** 
+	 * Unlocks the given service and patient at the given date
+	 * 
+	 * @param service				- the ID of the service to unlock
+	 * @param patient				- the ID of the patient to unlock
+	 * @param date					- the date to unlock them at
+	 */
+	private static void unlock(String service, String patient, LocalDate date) {
+		int serviceStripe = getStripe(service, date);
+		int patientStripe = getStripe(patient, date);
+		if (serviceStripe != patientStripe) locks[Math.max(serviceStripe, patientStripe)].unlock();
+		locks[Math.min(serviceStripe, patientStripe)].unlock();
+	}
+
+	/** 
+	 * Returns the indexes of the locks that guard both given slots, in the order they should be taken
+	 * 
+	 * @param slot					- the first slot
+	 * @param other					- the second slot
+	 * 
+	 * @return int[]				- the sorted indexes of the locks, without duplicates
+	 */
+	private static int[] getStripes(Slot slot, Slot other) {
+		return IntStream.of(
+			getStripe(slot.getAllocatedService().getId(), slot.getDate()), getStripe(slot.getAllocatedPatient().getId(), slot.getDate()),
+			getStripe(other.getAllocatedService().getId(), other.getDate()), getStripe(other.getAllocatedPatient().getId(), other.getDate())
+		).sorted().distinct().toArray();
+	}
+
+	/** 
+	 * Returns the indexes of the locks that guard all of the given slots, in the order they should be taken
+	 * 
+	 * @param slotList				- the slots
+	 * 
+	 * @return int[]				- the sorted indexes of the locks, without duplicates
+	 */
+	private static int[] getStripes(ArrayList<Slot> slotList) {
+		return slotList.stream().flatMapToInt(slot -> IntStream.of(
+			getStripe(slot.getAllocatedService().getId(), slot.getDate()), getStripe(slot.getAllocatedPatient().getId(), slot.getDate())
+		)).sorted().distinct().toArray();
+	}
+
+	/** 
+	 * Takes the locks with the given indexes, which should be sorted
+	 * 
+	 * @param stripes				- the indexes of the locks
+	 */
+	private static void lock(int[] stripes) {
+		for (int stripe : stripes) locks[stripe].lock();
+	}
+
+	/** 
+	 * Releases the locks with the given indexes
+	 * 
+	 * @param stripes				- the indexes of the locks
+	 */
+	private static void unlock(int[] stripes) {
+		for (int i = stripes.length - 1; i >= 0; i--) locks[stripes[i]].unlock();
+	}
+
+	/** 
+	 * Takes every lock, waiting for all changes to finish, for changes that affect many services, patients, or dates at once
+	 */
+	private static void lockAll() {
+		for (ReentrantLock lock : locks) lock.lock();
+	}
+
+	/** 
+	 * Releases every lock taken by {@code lockAll}
+	 */
+	private static void unlockAll() {
+		for (int i = LOCK_STRIPES - 1; i >= 0; i--) locks[i].unlock();
+	}
+
+//endregion
+
+
+
 }
@@ -0,0 +1,156 @@
+package cmps251.utils;
+
+import java.util.EnumSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cmps251.utils.RepoUtils.DataType;
+
+/**
+ * This class keeps track of which data has changed since it was last saved, and saves it periodically in the background
+ *
+ * <p> Every change marks its type of data as dirty. A background thread then runs the save task every {@code getInterval} milliseconds,
+ * so a burst of changes made within one interval is saved only once, and types of data that did not change are not saved at all.
+ * The interval can be set with the {@code sehha.autosave.interval} system property.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class AutoSaver {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final String INTERVAL_PROPERTY = "sehha.autosave.interval";
+	public static final long DEFAULT_INTERVAL = 5000;
+	public static final long STOP_TIMEOUT = 30000;
+
+	private static final AtomicInteger dirty = new AtomicInteger();
+
+	private static ScheduledExecutorService saver;
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Returns how often the background thread saves, in milliseconds
+	 *
+	 * @return long						- the interval set by the system property, or {@code DEFAULT_INTERVAL}
+	 */
+	public static long getInterval() {
+		return Math.max(1, Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL));
+	}
+
+	/**
+	 * Marks the given type of data as changed since it was last saved
+	 *
+	 * @param type						- the type of data that changed
+	 */
+	public static void markDirty(DataType type) {
+		dirty.getAndUpdate(bits -> bits | 1 << type.ordinal());
+	}
+
+	/**
+	 * Marks the given types of data as changed since they were last saved
+	 *
+	 * @param types						- the types of data that changed
+	 */
+	public static void markDirty(EnumSet<DataType> types) {
+		for (DataType type : types) markDirty(type);
+	}
+
+	/**
+	 * Checks if the given type of data changed since it was last saved
+	 *
+	 * @param type						- the type of data to check
+	 *
+	 * @return boolean					- is the data dirty?
+	 */
+	public static boolean isDirty(DataType type) {
+		return (dirty.get() & 1 << type.ordinal()) != 0;
+	}
+
+	/**
+	 * Returns every type of data that changed since it was last saved and marks them as clean.
+	 * If saving them fails, they should be marked as dirty again
+	 *
+	 * @return EnumSet<DataType>		- the types of data that need to be saved
+	 */
+	public static EnumSet<DataType> takeDirty() {
+		int bits = dirty.getAndSet(0);
+		EnumSet<DataType> types = EnumSet.noneOf(DataType.class);
+		for (DataType type : DataType.values()) {
+			if ((bits & 1 << type.ordinal()) != 0) types.add(type);
+		}
+		return types;
+	}
+
+	/**
+	 * Starts running the given save task in the background, replacing any task that is already running
+	 *
+	 * @param interval					- how often to run the task, in milliseconds
+	 * @param task						- the task that saves the dirty data
+	 */
+	public static synchronized void start(long interval, Runnable task) {
+		stop();
+		saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "auto-saver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		saver.scheduleWithFixedDelay(() -> {
+			try {
+				task.run();
+			}
+			catch (RuntimeException e) {
+				System.err.printf("We were unable to save the data in the background! %n");
+				System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops running the save task, waiting for a save that is already in progress to finish
+	 */
+	public static synchronized void stop() {
+
+		//	If the task is not running then there is nothing to do
+		if (saver == null) return;
+
+		//	Else stop scheduling it and wait for the current run to finish
+		saver.shutdown();
+		try {
+			saver.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		saver = null;
+
+	}
+
+	/**
+	 * Checks if the save task is currently running in the background
+	 *
+	 * @return boolean					- is the auto saver running?
+	 */
+	public static synchronized boolean isRunning() {
+		return saver != null;
+	}
+
+//endregion
+
+
+
+}
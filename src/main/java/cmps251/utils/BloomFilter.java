@@ -0,0 +1,172 @@
+package cmps251.utils;
+
+/**
+ * This class is a Bloom filter of strings, which tells whether a string might have been added using a fixed number of bits
+ *
+ * <p> Each string sets a few bits picked by its hashes. A string none of whose bits are set was never added, so it can be skipped
+ * without looking it up anywhere else, while a string whose bits are all set was probably added, and has to be looked up to be sure.
+ * The number of bits and hashes are picked from the expected number of strings and the wanted rate of false positives.
+ * It is not safe to add strings from several threads at once.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class BloomFilter {
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private static final int MAX_BITS = 1 << 30;
+
+	private final long[] bits;
+	private final int mask;
+	private final int hashCount;
+
+	private int size;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in how many strings are expected to be added, and how often a string that was not added may be reported as added
+	 *
+	 * @param expectedSize					- the expected number of strings
+	 * @param falsePositiveRate				- the wanted rate of false positives, between 0 and 1
+	 */
+	public BloomFilter(int expectedSize, double falsePositiveRate) {
+
+		//	Work out the optimal number of bits, rounded up to a power of two so that a hash can be masked instead of divided
+		double rate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+		double optimalBits = -Math.max(1, expectedSize) * Math.log(rate) / (Math.log(2) * Math.log(2));
+		int bitCount = Long.SIZE;
+		while (bitCount < optimalBits && bitCount < MAX_BITS) bitCount <<= 1;
+
+		//	Then the number of hashes that gives the lowest rate of false positives for that many bits
+		this.bits = new long[bitCount / Long.SIZE];
+		this.mask = bitCount - 1;
+		this.hashCount = Math.max(1, (int)Math.round((double)bitCount / Math.max(1, expectedSize) * Math.log(2)));
+
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the number of bits of the filter
+	 *
+	 * @return int							- the number of bits
+	 */
+	public int getBitCount() {
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the number of bits each string sets
+	 *
+	 * @return int							- the number of hashes
+	 */
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * Returns the number of strings added so far
+	 *
+	 * @return int							- the number of strings
+	 */
+	public int size() {
+		return size;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Adds the given string to the filter
+	 *
+	 * @param key							- the string to add
+	 */
+	public void add(CharSequence key) {
+		long hash = hash(key);
+		int first = (int)hash;
+		int second = (int)(hash >>> 32) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			int bit = first + i * second & mask;
+			bits[bit >>> 6] |= 1L << bit;
+		}
+		size++;
+	}
+
+	/**
+	 * Checks if the given string might have been added to the filter
+	 *
+	 * @param key							- the string to check
+	 *
+	 * @return boolean						- false if the string was certainly never added, and else true
+	 */
+	public boolean mightContain(CharSequence key) {
+		long hash = hash(key);
+		int first = (int)hash;
+		int second = (int)(hash >>> 32) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			int bit = first + i * second & mask;
+			if ((bits[bit >>> 6] & 1L << bit) == 0) return false;
+		}
+		return true;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Hashes the given string into 64 well mixed bits, whose two halves are used as the two hashes the bits are picked from
+	 *
+	 * @param key							- the string to hash
+	 *
+	 * @return long							- the hash
+	 */
+	private static long hash(CharSequence key) {
+
+		//	Hash the characters with 64 bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		//	Then mix the bits, so that strings that only differ in their last characters still differ in every bit
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,202 @@
+package cmps251.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cmps251.models.Identifiable;
+
+/**
+ * This class offers some utility methods related to generating and parsing IDs
+ *
+ * <p> IDs are 64-bit numbers made of the milliseconds since {@code EPOCH} followed by a 16 bit sequence number.
+ * Every generated ID is strictly greater than the previous one, so IDs never collide even when many are generated in the same millisecond.
+ * Their string form is a fixed width hexadecimal number, so sorting the strings sorts the IDs by creation time.
+ *
+ * <p> IDs saved by older versions of the system were strings made of the class name, a timestamp, and the object's properties.
+ * These are mapped to a numeric ID made of their timestamp followed by a 16 bit hash of the whole string.
+ * Each legacy string is mapped once and the result is kept, so the old string can still be looked up and copies of the same object stay equal.
+ * Since many objects used to be created in the same second, two different strings may hash to the same ID,
+ * in which case the later one takes the next ID that no other legacy string has taken.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class IdUtils {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final long EPOCH = 1684022400000L;
+	public static final int SEQUENCE_BITS = 16;
+	public static final int ID_LENGTH = 16;
+
+	private static final DateTimeFormatter LEGACY_FORMAT = DateTimeFormatter.ofPattern("uuuuMMddHHmmss");
+	private static final int LEGACY_TIMESTAMP_LENGTH = 14;
+
+	private static final AtomicLong lastId = new AtomicLong();
+	private static final ConcurrentHashMap<String, Long> legacyKeys = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<Long, String> legacyOwners = new ConcurrentHashMap<>();
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Generates a new unique ID
+	 *
+	 * @return long					- an ID greater than every previously generated or observed ID
+	 */
+	public static long nextId() {
+		long timestamp = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+		return lastId.updateAndGet(last -> Math.max(last + 1, timestamp));
+	}
+
+	/**
+	 * Makes sure that IDs generated from now on are greater than the given ID, should be called for every loaded ID
+	 *
+	 * @param id					- an ID that is already in use
+	 */
+	public static void observeId(long id) {
+		lastId.accumulateAndGet(id, Math::max);
+	}
+
+	/**
+	 * Returns the string representation of the given ID
+	 *
+	 * @param id					- the ID to convert
+	 *
+	 * @return String				- the ID as a fixed width hexadecimal string
+	 */
+	public static String toString(long id) {
+		String hex = Long.toHexString(id);
+		return "0".repeat(ID_LENGTH - hex.length()) + hex;
+	}
+
+	/**
+	 * Parses the given string ID into its numeric ID, mapping legacy string IDs if needed
+	 *
+	 * @param id					- the string ID to parse
+	 *
+	 * @return long					- the numeric ID, or 0 if the string is not a known ID
+	 */
+	public static long parseId(String id) {
+
+		//	If no ID is given then it cannot be parsed
+		if (id == null) return 0;
+
+		//	If the ID is in the current format then parse it directly
+		if (id.length() == ID_LENGTH) {
+			try {
+				return Long.parseUnsignedLong(id, 16);
+			}
+			catch (NumberFormatException e) {
+				//	Fall through and treat it as a legacy ID
+			}
+		}
+
+		//	Else treat it as a legacy ID
+		return parseLegacyId(id);
+
+	}
+
+	/**
+	 * Maps the given legacy string ID to its numeric ID, which is the one it was given when loaded if it was loaded already
+	 *
+	 * @param id					- the legacy string ID, such as {@code Service20230514093000T...}
+	 *
+	 * @return long					- the numeric ID, or 0 if the string is not a legacy ID
+	 */
+	public static long parseLegacyId(String id) {
+		Long key = legacyKeys.get(id);
+		return key != null ? key : hashLegacyId(id);
+	}
+
+	/**
+	 * Gives the given object a numeric ID if it was loaded with a legacy string ID
+	 *
+	 * <p> The same legacy string is always mapped to the same numeric ID, so copies of the same object stay equal,
+	 * while a different legacy string whose hash clashes with it is given the next free ID instead of silently sharing it.
+	 * The numeric IDs of loaded objects are observed so that new IDs never collide with them.
+	 *
+	 * @param object				- the loaded object to upgrade
+	 */
+	public static void upgradeLegacyId(Identifiable object) {
+
+		//	If the object already has a numeric ID then just observe it
+		if (object.getKey() != 0) {
+			observeId(object.getKey());
+			return;
+		}
+
+		//	Else map its legacy ID to a numeric ID, reusing the one it was given before if another copy was loaded already
+		long id = legacyKeys.computeIfAbsent(object.getId(), IdUtils::claimLegacyId);
+		observeId(id);
+		object.setKey(id);
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Hashes the given legacy string ID into a numeric ID, made of its timestamp followed by a hash of the whole string
+	 *
+	 * @param id					- the legacy string ID
+	 *
+	 * @return long					- the numeric ID, or 0 if the string is not a legacy ID
+	 */
+	private static long hashLegacyId(String id) {
+
+		//	Find the timestamp that follows the class name
+		int start = 0;
+		while (start < id.length() && !Character.isDigit(id.charAt(start))) start++;
+		if (start + LEGACY_TIMESTAMP_LENGTH > id.length()) return 0;
+
+		//	Parse the timestamp, and combine it with a hash of the whole string
+		try {
+			LocalDateTime timestamp = LocalDateTime.parse(id.substring(start, start + LEGACY_TIMESTAMP_LENGTH), LEGACY_FORMAT);
+			long millis = timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() - EPOCH;
+			return (Math.max(millis, 0) << SEQUENCE_BITS) | (id.hashCode() & ((1 << SEQUENCE_BITS) - 1));
+		}
+		catch (DateTimeParseException e) {
+			return 0;
+		}
+
+	}
+
+	/**
+	 * Picks the numeric ID of the given legacy string ID that is loaded for the first time. This is its hash if no other legacy string
+	 * has taken it, and else the next ID after it that is free, or a new ID if the string cannot be parsed
+	 *
+	 * @param id					- the legacy string ID
+	 *
+	 * @return long					- the numeric ID
+	 */
+	private static long claimLegacyId(String id) {
+		long key = hashLegacyId(id);
+		if (key == 0) key = nextId();
+		while (legacyOwners.putIfAbsent(key, id) != null) key++;
+		return key;
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,278 @@
+package cmps251.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class caches values by key, evicting the least recently used values once it holds more than its capacity
+ *
+ * <p> It counts every lookup as a hit or a miss, so the caller can tell how well the cache is working.
+ * Values should be dropped with {@code invalidate} as soon as the data they were computed from changes.
+ * Since a value may be computed from data that changes while it is being computed, the caller should take {@code getStamp}
+ * for its key before reading the data and store the value with {@code putIfUnchanged}, which drops it if the key was invalidated in the meantime.
+ *
+ * <p> The values are kept in a {@code ConcurrentHashMap} and nothing is synchronized, so the cache can be shared between threads.
+ * Keys are spread over {@code STRIPES} stamps, and every value keeps the stamp of its key from when it was computed.
+ * Invalidating a key only bumps its stamp and removes its value, which is cheap enough to do on every booking,
+ * and a value whose stamp is out of date is never returned, even if it was stored after the invalidation.
+ * Each value keeps the time it was last used instead of a shared access order, and once the cache holds more than its capacity
+ * the thread that stored the last value evicts the least recently used values, while every other thread carries on.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class LruCache<K, V> {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final int STRIPES = 256;
+
+//endregion
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private final int capacity;
+	private final ConcurrentHashMap<K, Entry<V>> values = new ConcurrentHashMap<>();
+	private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * A cached value, along with the stamp of its key when it was computed and the time it was last used
+	 */
+	private static final class Entry<V> {
+
+		private final V value;
+		private final long stamp;
+		private volatile long lastUsed;
+
+		private Entry(V value, long stamp) {
+			this.value = value;
+			this.stamp = stamp;
+			this.lastUsed = System.nanoTime();
+		}
+
+	}
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the maximum number of values to keep
+	 *
+	 * @param capacity						- the maximum number of values
+	 */
+	public LruCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the value cached for the given key, marking it as recently used, and counts the lookup as a hit or a miss.
+	 * A value whose key was invalidated after it was computed is dropped and counted as a miss
+	 *
+	 * @param key							- the key to look up
+	 *
+	 * @return V							- the cached value, or null if there is none
+	 */
+	public V get(K key) {
+		Entry<V> entry = values.get(key);
+		if (entry != null && entry.stamp != getStamp(key)) {
+			values.remove(key, entry);
+			entry = null;
+		}
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		entry.lastUsed = System.nanoTime();
+		hits.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Returns the number of values currently cached
+	 *
+	 * @return int							- the number of values
+	 */
+	public int size() {
+		return values.size();
+	}
+
+	/**
+	 * Returns the maximum number of values that are kept
+	 *
+	 * @return int							- the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of lookups that found a value
+	 *
+	 * @return long							- the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a value
+	 *
+	 * @return long							- the number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of invalidations so far of the stripe the given key belongs to, to be passed to {@code putIfUnchanged}
+	 *
+	 * @param key							- the key the value will be cached for
+	 *
+	 * @return long							- the key's current stamp
+	 */
+	public long getStamp(K key) {
+		return stamps.get(getStripe(key));
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Caches the given value for the given key, unless the key was invalidated since the given stamp was taken.
+	 * If the cache then holds more than its capacity, the least recently used values are evicted
+	 *
+	 * @param key							- the key to cache the value for
+	 * @param value							- the value to cache
+	 * @param stamp							- the stamp of the key taken before the value's data was read
+	 *
+	 * @return boolean						- was the value cached?
+	 */
+	public boolean putIfUnchanged(K key, V value, long stamp) {
+		if (getStamp(key) != stamp) return false;
+		values.put(key, new Entry<>(value, stamp));
+		if (values.size() > capacity) evict();
+		return true;
+	}
+
+	/**
+	 * Counts a lookup that found an out of date value as a miss instead of a hit, and drops the value
+	 *
+	 * @param key							- the key whose value is out of date
+	 */
+	public void reject(K key) {
+		hits.decrement();
+		misses.increment();
+		values.remove(key);
+	}
+
+	/**
+	 * Drops the value cached for the given key, since the data it was computed from has changed
+	 *
+	 * @param key							- the key to drop
+	 */
+	public void invalidate(K key) {
+		stamps.incrementAndGet(getStripe(key));
+		values.remove(key);
+	}
+
+	/**
+	 * Drops every cached value, keeping the hit and miss counts
+	 */
+	public void clear() {
+		for (int i = 0; i < STRIPES; i++) stamps.incrementAndGet(i);
+		values.clear();
+	}
+
+	/**
+	 * Resets the hit and miss counts to zero
+	 */
+	public void resetCounts() {
+		hits.reset();
+		misses.reset();
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Returns the stripe of stamps the given key belongs to
+	 *
+	 * @param key							- the key
+	 *
+	 * @return int							- the index of the key's stamp
+	 */
+	private int getStripe(K key) {
+		int hash = key.hashCode();
+		return (hash ^ hash >>> 16) & STRIPES - 1;
+	}
+
+	/**
+	 * Evicts the least recently used values until the cache holds an eighth less than its capacity, so it is not evicting after every value.
+	 * Only one thread evicts at a time, any other thread that finds the cache over its capacity meanwhile leaves it to that thread
+	 */
+	private void evict() {
+		if (!evicting.compareAndSet(false, true)) return;
+		try {
+
+			//	Find the time the values to evict were last used by, from a copy of the times since they keep changing
+			int excess = values.size() - (capacity - capacity / 8);
+			if (excess <= 0) return;
+			long[] times = new long[values.size()];
+			int count = 0;
+			for (Entry<V> entry : values.values()) {
+				if (count == times.length) break;
+				times[count++] = entry.lastUsed;
+			}
+			if (count == 0) return;
+			Arrays.sort(times, 0, count);
+			long cutoff = times[Math.min(excess, count) - 1];
+
+			//	Then evict every value that has not been used since
+			values.values().removeIf(entry -> entry.lastUsed <= cutoff);
+
+		}
+		finally {
+			evicting.set(false);
+		}
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,291 @@
+package cmps251.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * This class applies every change to the repositories on a single writer thread, when the pipeline is running
+ *
+ * <p> Changes made on any other thread are put on a bounded ring buffer and applied by the writer in the order they arrived,
+ * so every desk sees the same order of changes and no two changes ever wait on each other's locks.
+ * The writer takes as many waiting changes as it can at once, applies them, and then syncs the write-ahead log once for the
+ * whole batch before completing their futures, so a change is only reported as done once it is on disk.
+ * After each batch the writer publishes the number of changes applied so far as the current version.
+ * The pipeline is used by the application when the {@code sehha.pipeline} system property is set.
+ *
+ * <p> The repositories hand their changes over with {@code handOver}, which waits for the change and throws its errors
+ * as if it had been made on the calling thread. Changes made on the writer thread itself, such as a change made by another change, are applied straight away.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class MutationPipeline {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final String PIPELINE_PROPERTY = "sehha.pipeline";
+	public static final int CAPACITY = 1024;
+	public static final int MAX_BATCH = 256;
+
+	private static final ArrayBlockingQueue<Mutation<?>> queue = new ArrayBlockingQueue<>(CAPACITY);
+	private static final Mutation<Void> STOP = new Mutation<>(() -> null);
+
+	private static volatile Thread writer;
+	private static volatile long version;
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Returns whether the application should apply its changes through the pipeline.
+	 * This is enabled by setting the {@code sehha.pipeline} system property
+	 *
+	 * @return boolean					- is the pipeline enabled?
+	 */
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(PIPELINE_PROPERTY);
+	}
+
+	/**
+	 * Checks if the writer thread is currently running and applying changes
+	 *
+	 * @return boolean					- is the pipeline running?
+	 */
+	public static boolean isRunning() {
+		return writer != null;
+	}
+
+	/**
+	 * Returns the number of changes applied by the writer that have been synced and published so far
+	 *
+	 * @return long						- the current version
+	 */
+	public static long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Starts the writer thread, so that changes made from now on are applied through the pipeline
+	 */
+	public static synchronized void start() {
+		if (writer != null) return;
+		Thread thread = new Thread(MutationPipeline::run, "mutation-writer");
+		thread.setDaemon(true);
+		writer = thread;
+		thread.start();
+	}
+
+	/**
+	 * Stops the writer thread once every change given to it so far has been applied.
+	 * Changes made from now on are applied straight away on the thread that makes them
+	 */
+	public static synchronized void stop() {
+
+		//	If the writer is not running then there is nothing to do
+		Thread thread = writer;
+		if (thread == null) return;
+
+		//	Else stop handing changes over and tell the writer to stop after the changes already waiting
+		writer = null;
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(STOP);
+				thread.join();
+				break;
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+
+	}
+
+	/**
+	 * Gives the given change to the writer and returns a future that completes once it has been applied and synced.
+	 * If the pipeline is not running, or this is the writer thread, the change is applied straight away
+	 *
+	 * @param change					- the change to apply
+	 *
+	 * @return CompletableFuture<T>		- the result of the change, or the error it threw
+	 */
+	public static <T> CompletableFuture<T> submit(Supplier<T> change) {
+		Mutation<T> mutation = new Mutation<>(change);
+		if (!enqueue(mutation)) {
+			mutation.apply();
+			mutation.complete();
+		}
+		return mutation.future;
+	}
+	public static CompletableFuture<Void> submit(Runnable change) {
+		return submit(() -> {
+			change.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Gives the given change to the writer and waits for it, throwing any error it threw, if the change should not be applied on this thread.
+	 * The repositories call this at the start of every change, passing the change itself
+	 *
+	 * @param change					- the change to apply
+	 *
+	 * @return boolean					- was the change applied by the writer? If not, the caller should apply it itself
+	 */
+	public static boolean handOver(Runnable change) {
+
+		//	If the change should be applied on this thread then let the caller apply it
+		Mutation<Void> mutation = new Mutation<>(() -> {
+			change.run();
+			return null;
+		});
+		if (!enqueue(mutation)) return false;
+
+		//	Else wait for the writer, throwing any error as if the change had been made here
+		try {
+			mutation.future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw e;
+		}
+		return true;
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * A change waiting to be applied by the writer, along with the future of its result
+	 */
+	private static final class Mutation<T> {
+
+		private final Supplier<T> change;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private T result;
+		private RuntimeException error;
+
+		private Mutation(Supplier<T> change) {
+			this.change = change;
+		}
+
+		/**
+		 * Applies the change, keeping its result or error until the change can be completed
+		 */
+		private void apply() {
+			try {
+				result = change.get();
+			}
+			catch (RuntimeException e) {
+				error = e;
+			}
+		}
+
+		/**
+		 * Completes the future with the result or error of the change
+		 */
+		private void complete() {
+			if (error != null) future.completeExceptionally(error);
+			else future.complete(result);
+		}
+
+	}
+
+	/**
+	 * Puts the given change on the ring buffer, unless the pipeline is not running or this is the writer thread
+	 *
+	 * @param mutation					- the change to put on the ring buffer
+	 *
+	 * @return boolean					- was the change given to the writer? If not, it should be applied by the caller
+	 */
+	private static boolean enqueue(Mutation<?> mutation) {
+
+		//	If there is no writer, or this is the writer, then the change should not wait for it
+		Thread thread = writer;
+		if (thread == null || thread == Thread.currentThread()) return false;
+
+		//	Else wait for space on the ring buffer
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(mutation);
+				break;
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+
+		//	If the writer was stopped in the meantime and did not take the change, then take it back
+		return writer != null || !queue.remove(mutation);
+
+	}
+
+	/**
+	 * Applies the changes on the ring buffer in batches, until it is told to stop
+	 */
+	private static void run() {
+		ArrayList<Mutation<?>> batch = new ArrayList<>(MAX_BATCH);
+		boolean stopped = false;
+		while (!stopped) {
+
+			//	Wait for a change and take any others that are already waiting
+			try {
+				batch.add(queue.take());
+			}
+			catch (InterruptedException e) {
+				continue;
+			}
+			queue.drainTo(batch, MAX_BATCH - 1);
+
+			//	Apply the changes in order, stopping after this batch if told to
+			int applied = 0;
+			for (Mutation<?> mutation : batch) {
+				if (mutation == STOP) stopped = true;
+				else {
+					mutation.apply();
+					applied++;
+				}
+			}
+
+			//	Sync the whole batch to the log once, then publish it and complete each change
+			try {
+				WriteAheadLog.sync();
+			}
+			catch (IOException e) {
+				System.err.printf("We were unable to write to the file %s! %n", WriteAheadLog.FILE_NAME);
+				System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			}
+			version += applied;
+			for (Mutation<?> mutation : batch) mutation.complete();
+			batch.clear();
+
+		}
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,454 @@
+package cmps251.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Function;
+
+/**
+ * This class is an immutable sorted map in the Sehha hospital reception system, which is never changed once created
+ *
+ * <p> Instead of changing the map, {@code with} and {@code without} return a new map with the change applied.
+ * The new map shares every part of the tree that the change did not touch with the old one, so a change only copies
+ * the path from the root to the changed key, and both maps stay valid and can be read by any thread without locking.
+ * The tree is kept balanced, so lookups and changes take logarithmic time, and its entries are iterated in the order of their keys.
+ * A range of keys can also be taken out in logarithmic time with {@code subMap}, which shares the nodes of the range instead of copying them.
+ *
+ * <p> Every method that would change the map in place throws an {@code UnsupportedOperationException}
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class PersistentMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V> {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentMap EMPTY = new PersistentMap<>(null);
+
+	private final Node<K, V> root;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	private PersistentMap(Node<K, V> root) {
+		this.root = root;
+	}
+
+	/**
+	 * Returns the empty map
+	 *
+	 * @return PersistentMap<K, V>		- a map without any entries
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K extends Comparable<? super K>, V> PersistentMap<K, V> empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Creates a map holding the entries of the given map, which must be sorted by the natural order of its keys.
+	 * Since the entries are already sorted, the tree is built in linear time
+	 *
+	 * @param map						- the map to copy
+	 * @param mapper					- converts each value of the given map into a value of the new map
+	 *
+	 * @return PersistentMap<K, V>		- the new map
+	 */
+	public static <K extends Comparable<? super K>, T, V> PersistentMap<K, V> of(SortedMap<K, T> map, Function<? super T, ? extends V> mapper) {
+		if (map.isEmpty()) return empty();
+		@SuppressWarnings("unchecked")
+		Map.Entry<K, T>[] entries = map.entrySet().toArray((Map.Entry<K, T>[]) new Map.Entry<?, ?>[0]);
+		return new PersistentMap<>(build(entries, 0, entries.length - 1, mapper));
+	}
+	public static <K extends Comparable<? super K>, V> PersistentMap<K, V> of(SortedMap<K, ? extends V> map) {
+		return of(map, Function.identity());
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	@Override
+	public V get(Object key) {
+		Node<K, V> node = find(key);
+		return node == null ? null : node.getValue();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator<>(root);
+			}
+
+			@Override
+			public int size() {
+				return PersistentMap.this.size();
+			}
+
+		};
+	}
+
+//endregion
+
+
+
+/* -------------------------------- Changers -------------------------------- */
+//region
+
+	/**
+	 * Returns a map with the given key mapped to the given value, leaving this map unchanged
+	 *
+	 * @param key						- the key to map
+	 * @param value						- the value to map the key to
+	 *
+	 * @return PersistentMap<K, V>		- the new map, or this map if the key is already mapped to the value
+	 */
+	public PersistentMap<K, V> with(K key, V value) {
+		Node<K, V> newRoot = insert(root, key, value);
+		return newRoot == root ? this : new PersistentMap<>(newRoot);
+	}
+
+	/**
+	 * Returns a map with every entry of the given map added, replacing the values of keys that are already mapped, leaving this map unchanged.
+	 * A few entries are inserted one by one, but once there are enough of them that most of the tree would be copied anyway,
+	 * the entries of both maps are merged in the order of their keys and the tree is built again in linear time.
+	 * The given map must be sorted by the natural order of its keys
+	 *
+	 * @param map						- the entries to add
+	 *
+	 * @return PersistentMap<K, V>		- the new map, or this map if there are no entries to add
+	 */
+	public PersistentMap<K, V> withAll(SortedMap<K, ? extends V> map) {
+
+		//	If only a few entries are added compared to the size of this map then insert them one by one
+		int size = size();
+		if (map.isEmpty()) return this;
+		if ((long)map.size() * (Integer.SIZE - Integer.numberOfLeadingZeros(size)) < size) {
+			PersistentMap<K, V> result = this;
+			for (Map.Entry<K, ? extends V> entry : map.entrySet()) result = result.with(entry.getKey(), entry.getValue());
+			return result;
+		}
+
+		//	Else merge both sorted sequences of entries, taking the given value of a key that is in both
+		@SuppressWarnings("unchecked")
+		Map.Entry<K, V>[] entries = (Map.Entry<K, V>[]) new Map.Entry<?, ?>[size + map.size()];
+		int count = 0;
+		Iterator<Map.Entry<K, V>> oldEntries = new EntryIterator<>(root);
+		Iterator<? extends Map.Entry<K, ? extends V>> newEntries = map.entrySet().iterator();
+		Map.Entry<K, V> oldEntry = oldEntries.hasNext() ? oldEntries.next() : null;
+		Map.Entry<K, ? extends V> newEntry = newEntries.next();
+		while (oldEntry != null || newEntry != null) {
+			int compare = oldEntry == null ? 1 : newEntry == null ? -1 : oldEntry.getKey().compareTo(newEntry.getKey());
+			if (compare < 0) {
+				entries[count++] = oldEntry;
+				oldEntry = oldEntries.hasNext() ? oldEntries.next() : null;
+				continue;
+			}
+			@SuppressWarnings("unchecked")
+			Map.Entry<K, V> added = (Map.Entry<K, V>) newEntry;
+			entries[count++] = added;
+			newEntry = newEntries.hasNext() ? newEntries.next() : null;
+			if (compare == 0) oldEntry = oldEntries.hasNext() ? oldEntries.next() : null;
+		}
+		return new PersistentMap<>(build(entries, 0, count - 1, Function.identity()));
+
+	}
+
+	/**
+	 * Returns a map with only the keys between the given keys, leaving this map unchanged.
+	 * Only the paths to the two ends of the range are copied, so this takes logarithmic time however many keys are in the range
+	 *
+	 * @param fromKey					- the first key to keep, inclusive
+	 * @param toKey						- the last key to keep, inclusive
+	 *
+	 * @return PersistentMap<K, V>		- the new map, or this map if every key is in the range
+	 */
+	public PersistentMap<K, V> subMap(K fromKey, K toKey) {
+		Node<K, V> newRoot = head(tail(root, fromKey), toKey);
+		return newRoot == root ? this : newRoot == null ? empty() : new PersistentMap<>(newRoot);
+	}
+
+	/**
+	 * Returns a map without the given key, leaving this map unchanged
+	 *
+	 * @param key						- the key to remove
+	 *
+	 * @return PersistentMap<K, V>		- the new map, or this map if the key is not mapped
+	 */
+	public PersistentMap<K, V> without(K key) {
+		Node<K, V> newRoot = delete(root, key);
+		return newRoot == root ? this : newRoot == null ? empty() : new PersistentMap<>(newRoot);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * A node of the tree, which is also the entry it holds
+	 */
+	private static final class Node<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Node<K, V> left;
+		private final Node<K, V> right;
+		private final int height;
+		private final int size;
+
+		private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+			super(key, value);
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.size = size(left) + size(right) + 1;
+		}
+
+	}
+
+	/**
+	 * Iterates the entries of a tree in the order of their keys, keeping the path to the next entry on a stack
+	 */
+	private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+		private final ArrayDeque<Node<K, V>> path = new ArrayDeque<>();
+
+		private EntryIterator(Node<K, V> root) {
+			pushLeft(root);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !path.isEmpty();
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (path.isEmpty()) throw new NoSuchElementException();
+			Node<K, V> node = path.pop();
+			pushLeft(node.right);
+			return node;
+		}
+
+		private void pushLeft(Node<K, V> node) {
+			for (; node != null; node = node.left) path.push(node);
+		}
+
+	}
+
+	private static int height(Node<?, ?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static int size(Node<?, ?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Finds the node holding the given key
+	 *
+	 * @param key						- the key to find
+	 *
+	 * @return Node<K, V>				- the node, or null if the key is not mapped
+	 */
+	@SuppressWarnings("unchecked")
+	private Node<K, V> find(Object key) {
+		K k = (K)key;
+		Node<K, V> node = root;
+		while (node != null) {
+			int compare = k.compareTo(node.getKey());
+			if (compare == 0) return node;
+			node = compare < 0 ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates a node with the given entry and children, rotating them first if one child has grown two levels taller than the other
+	 *
+	 * @param key						- the key of the node
+	 * @param value						- the value of the node
+	 * @param left						- the left child, holding smaller keys
+	 * @param right						- the right child, holding larger keys
+	 *
+	 * @return Node<K, V>				- the balanced node
+	 */
+	private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+		int difference = height(left) - height(right);
+		if (difference > 1) {
+			if (height(left.left) >= height(left.right)) return new Node<>(left.getKey(), left.getValue(), left.left, new Node<>(key, value, left.right, right));
+			Node<K, V> middle = left.right;
+			return new Node<>(middle.getKey(), middle.getValue(), new Node<>(left.getKey(), left.getValue(), left.left, middle.left), new Node<>(key, value, middle.right, right));
+		}
+		if (difference < -1) {
+			if (height(right.right) >= height(right.left)) return new Node<>(right.getKey(), right.getValue(), new Node<>(key, value, left, right.left), right.right);
+			Node<K, V> middle = right.left;
+			return new Node<>(middle.getKey(), middle.getValue(), new Node<>(key, value, left, middle.left), new Node<>(right.getKey(), right.getValue(), middle.right, right.right));
+		}
+		return new Node<>(key, value, left, right);
+	}
+
+	/**
+	 * Returns a copy of the given tree with the given key mapped to the given value, copying only the path to the key
+	 *
+	 * @param node						- the root of the tree
+	 * @param key						- the key to map
+	 * @param value						- the value to map the key to
+	 *
+	 * @return Node<K, V>				- the root of the new tree, or the given root if nothing changed
+	 */
+	private static <K extends Comparable<? super K>, V> Node<K, V> insert(Node<K, V> node, K key, V value) {
+		if (node == null) return new Node<>(key, value, null, null);
+		int compare = key.compareTo(node.getKey());
+		if (compare < 0) {
+			Node<K, V> left = insert(node.left, key, value);
+			return left == node.left ? node : balance(node.getKey(), node.getValue(), left, node.right);
+		}
+		if (compare > 0) {
+			Node<K, V> right = insert(node.right, key, value);
+			return right == node.right ? node : balance(node.getKey(), node.getValue(), node.left, right);
+		}
+		return node.getValue() == value ? node : new Node<>(node.getKey(), value, node.left, node.right);
+	}
+
+	/**
+	 * Returns a copy of the given tree without the given key, copying only the path to the key
+	 *
+	 * @param node						- the root of the tree
+	 * @param key						- the key to remove
+	 *
+	 * @return Node<K, V>				- the root of the new tree, or the given root if nothing changed
+	 */
+	private static <K extends Comparable<? super K>, V> Node<K, V> delete(Node<K, V> node, K key) {
+		if (node == null) return null;
+		int compare = key.compareTo(node.getKey());
+		if (compare < 0) {
+			Node<K, V> left = delete(node.left, key);
+			return left == node.left ? node : balance(node.getKey(), node.getValue(), left, node.right);
+		}
+		if (compare > 0) {
+			Node<K, V> right = delete(node.right, key);
+			return right == node.right ? node : balance(node.getKey(), node.getValue(), node.left, right);
+		}
+
+		//	Replace the node with the smallest entry of its right child, if it has both children
+		if (node.left == null) return node.right;
+		if (node.right == null) return node.left;
+		Node<K, V> first = node.right;
+		while (first.left != null) first = first.left;
+		return balance(first.getKey(), first.getValue(), node.left, deleteFirst(node.right));
+
+	}
+
+	private static <K, V> Node<K, V> deleteFirst(Node<K, V> node) {
+		if (node.left == null) return node.right;
+		return balance(node.getKey(), node.getValue(), deleteFirst(node.left), node.right);
+	}
+
+	/**
+	 * Creates a balanced tree from two trees and an entry whose key lies between theirs, however different their heights are.
+	 * The entry is placed down the side of the taller tree where the shorter one fits, so this takes time in the difference of their heights
+	 *
+	 * @param left						- the tree of smaller keys
+	 * @param key						- the key of the entry
+	 * @param value						- the value of the entry
+	 * @param right						- the tree of larger keys
+	 *
+	 * @return Node<K, V>				- the root of the joined tree
+	 */
+	private static <K, V> Node<K, V> join(Node<K, V> left, K key, V value, Node<K, V> right) {
+		if (height(left) > height(right) + 1) return balance(left.getKey(), left.getValue(), left.left, join(left.right, key, value, right));
+		if (height(right) > height(left) + 1) return balance(right.getKey(), right.getValue(), join(left, key, value, right.left), right.right);
+		return new Node<>(key, value, left, right);
+	}
+
+	/**
+	 * Returns the part of the given tree with keys of at least the given key
+	 *
+	 * @param node						- the root of the tree
+	 * @param fromKey					- the smallest key to keep
+	 *
+	 * @return Node<K, V>				- the root of the new tree, or the given root if every key is kept
+	 */
+	private static <K extends Comparable<? super K>, V> Node<K, V> tail(Node<K, V> node, K fromKey) {
+		if (node == null) return null;
+		if (node.getKey().compareTo(fromKey) < 0) return tail(node.right, fromKey);
+		Node<K, V> left = tail(node.left, fromKey);
+		return left == node.left ? node : join(left, node.getKey(), node.getValue(), node.right);
+	}
+
+	/**
+	 * Returns the part of the given tree with keys of at most the given key
+	 *
+	 * @param node						- the root of the tree
+	 * @param toKey						- the largest key to keep
+	 *
+	 * @return Node<K, V>				- the root of the new tree, or the given root if every key is kept
+	 */
+	private static <K extends Comparable<? super K>, V> Node<K, V> head(Node<K, V> node, K toKey) {
+		if (node == null) return null;
+		if (node.getKey().compareTo(toKey) > 0) return head(node.left, toKey);
+		Node<K, V> right = head(node.right, toKey);
+		return right == node.right ? node : join(node.left, node.getKey(), node.getValue(), right);
+	}
+
+	/**
+	 * Builds a balanced tree from the given sorted entries
+	 *
+	 * @param entries					- the sorted entries
+	 * @param low						- the index of the first entry to add
+	 * @param high						- the index of the last entry to add
+	 * @param mapper					- converts each value of the entries into a value of the tree
+	 *
+	 * @return Node<K, V>				- the root of the tree, or null if there are no entries to add
+	 */
+	private static <K, T, V> Node<K, V> build(Map.Entry<K, T>[] entries, int low, int high, Function<? super T, ? extends V> mapper) {
+		if (low > high) return null;
+		int middle = (low + high) >>> 1;
+		return new Node<>(entries[middle].getKey(), mapper.apply(entries[middle].getValue()), build(entries, low, middle - 1, mapper), build(entries, middle + 1, high, mapper));
+	}
+
+//endregion
+
+
+
+}
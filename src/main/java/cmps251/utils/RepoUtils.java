@@ -5,14 +5,37 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.repos.PatientRepository;
+import cmps251.repos.ServiceRepository;
 
 /**
  * This class offers some utility methods related to the repository and files
  * 
+ * <p> Data is saved in the binary format described in {@code SnapshotFile}.
+ * Files saved by older versions with Java serialization are still loaded if no binary file exists yet,
+ * and are replaced by a binary file the next time the data is saved.
+ * Files are written to a temporary file first and then renamed, so a half written file is never loaded.
+ * 
+ * <p> Slots are saved to a partition per month in {@code SLOT_DIRECTORY}, listed in a manifest file, so only the months that changed are written again.
+ * Slots saved by older versions to a single file are still loaded if there is no manifest yet, and are split into partitions the next time they are saved.
+ * 
  * <p> <i>Created on 17/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.10
+ * @version		1.23
  * @since		1.8
  */
 public class RepoUtils {
@@ -23,6 +46,8 @@ public class RepoUtils {
 //region
 
 	public static final String DATA_DIRECTORY = "data/";
+	public static final String SLOT_DIRECTORY = DATA_DIRECTORY + "slots/";
+	public static final String MANIFEST_FILE_NAME = SLOT_DIRECTORY + "manifest.bin";
 
 //endregion
 
@@ -32,10 +57,12 @@ public class RepoUtils {
 //region
 
 	public enum DataType {
-		PATIENT("patients.dat"), SERVICE("services.dat"), SLOT("slots.dat");
+		PATIENT("patients.bin", "patients.dat"), SERVICE("services.bin", "services.dat"), SLOT("slots.bin", "slots.dat");
 		private String fileName;
-		private DataType(String fileName) { this.fileName = DATA_DIRECTORY + fileName; }
+		private String legacyFileName;
+		private DataType(String fileName, String legacyFileName) { this.fileName = DATA_DIRECTORY + fileName; this.legacyFileName = DATA_DIRECTORY + legacyFileName; }
 		public String getFileName() { return fileName; }
+		public String getLegacyFileName() { return legacyFileName; }
 	}
 
 //endregion
@@ -46,7 +73,8 @@ public class RepoUtils {
 //region
 
 	/** 
-	 * Loads data of the given type from the respective file
+	 * Loads data of the given type from the respective file, falling back to the legacy file if there is no binary file yet.
+	 * Slots are resolved against the services and patients currently stored in their repositories
 	 * 
 	 * @param type						- the type of data being loaded
 	 * 
@@ -54,9 +82,65 @@ public class RepoUtils {
 	 * @throws ClassNotFoundException	if the file was corrupted
 	 */
 	public static Object loadDataFromFile(DataType type) throws IOException, ClassNotFoundException {
+		return loadDataFromFile(type, ServiceRepository.getServices(), PatientRepository.getPatients());
+	}
+
+	/** 
+	 * Loads data of the given type from the respective file, falling back to the legacy file if there is no binary file yet.
+	 * If neither file exists, an empty tree map is returned, since the data has never been saved
+	 * 
+	 * @param type						- the type of data being loaded
+	 * @param services					- the services that loaded slots should refer to, keyed by their id
+	 * @param patients					- the patients that loaded slots should refer to, keyed by their id
+	 * 
+	 * @throws IOException				if there was a problem loading the data
+	 * @throws ClassNotFoundException	if the file was corrupted
+	 */
+	@SuppressWarnings("unchecked")
+	public static Object loadDataFromFile(DataType type, Map<String, Service> services, Map<String, Patient> patients) throws IOException, ClassNotFoundException {
+
+		//	If there is no binary file yet then load the legacy file instead, making its slots refer to the given services and patients
+		Path path = Paths.get(type.getFileName());
+		if (!Files.exists(path) && Files.exists(Paths.get(type.getLegacyFileName()))) {
+			Object obj = loadLegacyDataFromFile(type);
+			if (type == DataType.SLOT) resolveSlots((Map<String, Map<LocalDate, Map<LocalTime, Slot>>>) obj, services, patients);
+			return obj;
+		}
+
+		//	If neither file exists then nothing has been saved yet, so start with no data instead of failing
+		if (!Files.exists(path)) return new TreeMap<>();
+
+		//	Try and load data from the specified file based on the type
+		try {
+			switch (type) {
+				case PATIENT: return SnapshotFile.loadPatients(path);
+				case SERVICE: return SnapshotFile.loadServices(path);
+				default: return SnapshotFile.loadSlots(path, services, patients);
+			}
+		}
+		catch (IOException e) {
+
+			//	Print error message
+			System.err.printf("We were unable to load data from the file %s! %n", path);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			throw new IOException(String.format("We were unable to load data from the file %s!", path));
+			
+		}
+
+	}
+
+	/** 
+	 * Loads data of the given type from the respective legacy file, saved with Java serialization
+	 * 
+	 * @param type						- the type of data being loaded
+	 * 
+	 * @throws IOException				if there was a problem loading the data
+	 * @throws ClassNotFoundException	if the file was corrupted
+	 */
+	public static Object loadLegacyDataFromFile(DataType type) throws IOException, ClassNotFoundException {
 
 		//	Get the final file path
-		String path = type.getFileName();
+		String path = type.getLegacyFileName();
 
 		//	Try and load data from the specified file based on the type
 		try {
@@ -92,15 +176,64 @@ public class RepoUtils {
 	}
 
 	/** 
-	 * Saves the given values to the appropriate file
+	 * Saves the given values to the appropriate file.
+	 * Slots are given as the partitions to save, keyed by their month
+	 * 
+	 * @param type						- the type of data being saved
+	 * @param values					- the values to be saved
+	 * 
+	 * @return boolean					- were the values saved successfully?
+	 */
+	@SuppressWarnings("unchecked")
+	public static boolean saveDataToFile(DataType type, Object values) {
+
+		//	Slots are saved to their partitions instead of a single file
+		if (type == DataType.SLOT) return saveSlotPartitions((Map<YearMonth, ? extends Map<String, ? extends Map<LocalDate, ? extends Map<LocalTime, Slot>>>>) values);
+
+		//	Get the final file path
+		Path path = Paths.get(type.getFileName());
+
+		//	Try and save the values to the specified file based on the type
+		try {
+
+			//	Make sure the data directory exists
+			Files.createDirectories(path.toAbsolutePath().getParent());
+
+			//	Export the given values to a temporary file
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			switch (type) {
+				case PATIENT: SnapshotFile.savePatients(temp, (Map<String, Patient>) values); break;
+				default: SnapshotFile.saveServices(temp, (Map<String, Service>) values); break;
+			}
+
+			//	Then replace the old file with it in one step, so a half written file is never loaded
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+
+		}
+		catch (IOException e) {
+
+			//	Print error message
+			System.err.printf("We were unable to save data of the type %s! %n", type.toString());
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			return false;
+			
+		}
+
+	}
+
+	/** 
+	 * Saves the given values to the appropriate legacy file with Java serialization
 	 * 
 	 * @param type						- the type of data being saved
 	 * @param values					- the values to be saved
+	 * 
+	 * @return boolean					- were the values saved successfully?
 	 */
-	public static void saveDataToFile(DataType type, Object values) {
+	public static boolean saveLegacyDataToFile(DataType type, Object values) {
 
 		//	Get the final file path
-		String path = type.getFileName();
+		String path = type.getLegacyFileName();
 
 		//	Try and save the values to the specified file based on the type
 		try {
@@ -111,6 +244,7 @@ public class RepoUtils {
 			//	Export the given values to the file
 			output.writeObject(values);
 			output.close();
+			return true;
 
 		}
 		catch (IOException e) {
@@ -118,11 +252,174 @@ public class RepoUtils {
 			//	Print error message
 			System.err.printf("We were unable to save data of the type %s! %n", type.toString());
 			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			return false;
 			
 		}
 
 	}
 
+	/** 
+	 * Checks if slots have been saved to partitions, in which case they should be loaded with {@code loadSlotManifest}
+	 * 
+	 * @return boolean					- does the manifest file exist?
+	 */
+	public static boolean hasSlotPartitions() {
+		return Files.exists(Paths.get(MANIFEST_FILE_NAME));
+	}
+
+	/** 
+	 * Returns the path of the partition that holds the slots of the given month
+	 * 
+	 * @param month						- the month of the partition
+	 * 
+	 * @return Path						- the path of the partition
+	 */
+	public static Path getSlotPartitionPath(YearMonth month) {
+		return Paths.get(SLOT_DIRECTORY + month + ".bin");
+	}
+
+	/** 
+	 * Loads the list of slot partitions from the manifest file
+	 * 
+	 * @return TreeMap<YearMonth, SlotPartition>	- the partition saved for each month
+	 * 
+	 * @throws IOException							if there was a problem loading the manifest
+	 */
+	public static TreeMap<YearMonth, SlotPartition> loadSlotManifest() throws IOException {
+
+		//	Try and load the manifest
+		Path path = Paths.get(MANIFEST_FILE_NAME);
+		try {
+			return SnapshotFile.loadManifest(path);
+		}
+		catch (IOException e) {
+
+			//	Print error message
+			System.err.printf("We were unable to load data from the file %s! %n", path);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			throw new IOException(String.format("We were unable to load data from the file %s!", path));
+
+		}
+
+	}
+
+	/** 
+	 * Loads the slots of the given month from its partition
+	 * 
+	 * @param month																- the month to load slots for
+	 * @param services															- the services that loaded slots should refer to, keyed by their id
+	 * @param patients															- the patients that loaded slots should refer to, keyed by their id
+	 * 
+	 * @return TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>	- the loaded slots, keyed by service, date, and time
+	 * 
+	 * @throws IOException														if there was a problem loading the partition
+	 */
+	public static TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> loadSlotPartition(YearMonth month, Map<String, Service> services, Map<String, Patient> patients) throws IOException {
+
+		//	If the partition does not exist then the month has no slots
+		Path path = getSlotPartitionPath(month);
+		if (!Files.exists(path)) return new TreeMap<>();
+
+		//	Else try and load the slots from it
+		try {
+			return SnapshotFile.loadSlots(path, services, patients);
+		}
+		catch (IOException e) {
+
+			//	Print error message
+			System.err.printf("We were unable to load data from the file %s! %n", path);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			throw new IOException(String.format("We were unable to load data from the file %s!", path));
+
+		}
+
+	}
+
+	/** 
+	 * Saves the given slot partitions, deleting the partitions of months that no longer have any slots, and updates the manifest
+	 * 
+	 * @param partitions				- the slots of each month to save, keyed by service, date, and time
+	 * 
+	 * @return boolean					- were the partitions saved successfully?
+	 */
+	public static boolean saveSlotPartitions(Map<YearMonth, ? extends Map<String, ? extends Map<LocalDate, ? extends Map<LocalTime, Slot>>>> partitions) {
+
+		//	If nothing changed and the manifest exists then there is nothing to do
+		Path manifestPath = Paths.get(MANIFEST_FILE_NAME);
+		if (partitions.isEmpty() && Files.exists(manifestPath)) return true;
+
+		//	Try and save each partition
+		try {
+
+			//	Make sure the slot directory exists, and fetch the partitions saved so far
+			Files.createDirectories(manifestPath.toAbsolutePath().getParent());
+			TreeMap<YearMonth, SlotPartition> manifest = Files.exists(manifestPath) ? SnapshotFile.loadManifest(manifestPath) : new TreeMap<>();
+
+			//	Save each partition to a temporary file and rename it, or delete it if its month has no slots left
+			for (Map.Entry<YearMonth, ? extends Map<String, ? extends Map<LocalDate, ? extends Map<LocalTime, Slot>>>> partition : partitions.entrySet()) {
+				Path path = getSlotPartitionPath(partition.getKey());
+				int count = 0;
+				long minKey = Long.MAX_VALUE;
+				long maxKey = Long.MIN_VALUE;
+				for (Map<LocalDate, ? extends Map<LocalTime, Slot>> dateMap : partition.getValue().values()) {
+					for (Map<LocalTime, Slot> timeMap : dateMap.values()) {
+						for (Slot slot : timeMap.values()) {
+							minKey = Math.min(minKey, slot.getKey());
+							maxKey = Math.max(maxKey, slot.getKey());
+						}
+						count += timeMap.size();
+					}
+				}
+				if (count == 0) {
+					Files.deleteIfExists(path);
+					manifest.remove(partition.getKey());
+					continue;
+				}
+				Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+				SnapshotFile.saveSlots(temp, partition.getValue());
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				manifest.put(partition.getKey(), new SlotPartition(count, minKey, maxKey));
+			}
+
+			//	Save the manifest last, so that it never lists a partition that was not saved
+			Path temp = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+			SnapshotFile.saveManifest(temp, manifest);
+			Files.move(temp, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+
+		}
+		catch (IOException e) {
+
+			//	Print error message
+			System.err.printf("We were unable to save data of the type %s! %n", DataType.SLOT.toString());
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+			return false;
+
+		}
+
+	}
+
+	/** 
+	 * Replaces the copies of services and patients held by the given slots with the given ones, where they exist.
+	 * Legacy files store a separate copy for every slot, so without this they would drift apart from the repositories
+	 * 
+	 * @param slots						- the loaded slots, keyed by service, date, and time
+	 * @param services					- the services that the slots should refer to, keyed by their id
+	 * @param patients					- the patients that the slots should refer to, keyed by their id
+	 */
+	private static void resolveSlots(Map<String, Map<LocalDate, Map<LocalTime, Slot>>> slots, Map<String, Service> services, Map<String, Patient> patients) {
+		for (Map<LocalDate, Map<LocalTime, Slot>> dateMap : slots.values()) {
+			for (Map<LocalTime, Slot> timeMap : dateMap.values()) {
+				for (Slot slot : timeMap.values()) {
+					Service service = services.get(slot.getAllocatedService().getId());
+					Patient patient = patients.get(slot.getAllocatedPatient().getId());
+					if (service != null) slot.setAllocatedService(service);
+					if (patient != null) slot.setAllocatedPatient(patient);
+				}
+			}
+		}
+	}
+
 //endregion
 
 
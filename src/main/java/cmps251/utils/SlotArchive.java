@@ -0,0 +1,630 @@
+package cmps251.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cmps251.models.Slot;
+
+/**
+ * This class stores historic slots in a memory-mapped file instead of on the heap
+ *
+ * <p> Every slot is stored as a fixed width record, sorted by service, date, and time interval,
+ * and an index of where each (service, epoch day) starts lets queries jump straight to the records they need.
+ * Records are read in place from the mapping and only turned into {@code Slot} objects by the caller, if at all.
+ * Only the tables of service and patient IDs, and the keys of cancelled slots, are kept on the heap.
+ *
+ * <p> The file is never modified once written. Cancelled slots are remembered until the archive is written again with {@code write},
+ * which merges the slots of the previous archive with any newly archived slots.
+ * Records are only read through absolute positions in the mapping, so the archive can be queried from several threads at once.
+ *
+ * <p> The file is laid out as {@code <header><day index><records><key index><id tables>}.
+ * Since the whole file is mapped at once, it can hold around 80 million slots.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SlotArchive implements Closeable {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final String FILE_NAME = RepoUtils.DATA_DIRECTORY + "archive.bin";
+	public static final int MAGIC = 0x53454841;
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 32;
+	private static final int INDEX_ENTRY_SIZE = 16;
+	private static final int RECORD_SIZE = 24;
+	private static final int KEY_ENTRY_SIZE = 12;
+
+//endregion
+
+
+
+/* ------------------------------- Interfaces ------------------------------- */
+//region
+
+	/**
+	 * Receives the fields of archived slots as they are read from the file
+	 */
+	public interface Visitor {
+		void visit(long key, String service, String patient, LocalDate date, int index);
+	}
+
+//endregion
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int recordCount;
+	private final int indexCount;
+	private final int recordsOffset;
+	private final int keysOffset;
+
+	private final String[] services;
+	private final String[] patients;
+	private final ConcurrentHashMap<String, Integer> serviceRefs = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Integer> patientRefs = new ConcurrentHashMap<>();
+	private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger changeCount = new AtomicInteger();
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor maps the given archive file and reads its ID tables
+	 *
+	 * @param path					- the archive file to map
+	 *
+	 * @throws IOException			if the file could not be mapped or is not an archive file
+	 */
+	private SlotArchive(Path path) throws IOException {
+
+		//	Map the whole file
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			//	Check the header
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException(String.format("The file at %s is not an archive file!", path));
+			if (buffer.getInt(4) != VERSION) throw new IOException(String.format("The file at %s has an unsupported version (%d)!", path, buffer.getInt(4)));
+			recordCount = buffer.getInt(8);
+			indexCount = buffer.getInt(12);
+			recordsOffset = HEADER_SIZE + indexCount * INDEX_ENTRY_SIZE;
+			keysOffset = recordsOffset + recordCount * RECORD_SIZE;
+
+			//	Read the service and patient ID tables
+			ByteBuffer tables = buffer.duplicate();
+			tables.position((int)buffer.getLong(24));
+			services = readTable(tables, buffer.getInt(16));
+			patients = readTable(tables, buffer.getInt(20));
+			for (int i = 0; i < services.length; i++) serviceRefs.put(services[i], i);
+			for (int i = 0; i < patients.length; i++) patientRefs.put(patients[i], i);
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e instanceof IOException ? (IOException)e : new IOException(String.format("The file at %s is corrupted!", path));
+		}
+
+	}
+
+	/**
+	 * Maps the given archive file
+	 *
+	 * @param path					- the archive file to map
+	 *
+	 * @return SlotArchive			- the mapped archive
+	 *
+	 * @throws IOException			if the file could not be mapped or is not an archive file
+	 */
+	public static SlotArchive open(Path path) throws IOException {
+		return new SlotArchive(path);
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the number of slots in the archive, not counting cancelled ones
+	 *
+	 * @return int					- the number of archived slots
+	 */
+	public int size() {
+		return recordCount - removed.size();
+	}
+
+	/**
+	 * Returns whether any archived slots were cancelled since the archive was written
+	 *
+	 * @return boolean				- are there cancelled slots waiting to be left out of the next archive?
+	 */
+	public boolean hasRemovals() {
+		return !removed.isEmpty();
+	}
+
+	/**
+	 * Returns the number of changes made to the archive since it was mapped, which are cancelled slots and renamed patients.
+	 * A new archive written from this one only holds the changes made before it was written
+	 *
+	 * @return int					- the number of changes
+	 */
+	public int getChangeCount() {
+		return changeCount.get();
+	}
+
+	/**
+	 * Returns whether the slot with the given ID is in the archive
+	 *
+	 * @param key					- the ID of the slot
+	 *
+	 * @return boolean				- is the slot archived and not cancelled?
+	 */
+	public boolean contains(long key) {
+		return !removed.contains(key) && findRecord(key) >= 0;
+	}
+
+	/**
+	 * Reads the slot with the given ID, if it is in the archive
+	 *
+	 * @param key					- the ID of the slot
+	 * @param visitor				- receives the fields of the slot
+	 *
+	 * @return boolean				- was the slot found?
+	 */
+	public boolean get(long key, Visitor visitor) {
+		if (removed.contains(key)) return false;
+		int record = findRecord(key);
+		if (record < 0) return false;
+		visitRecord(record, visitor);
+		return true;
+	}
+
+	/**
+	 * Reads every slot in the archive
+	 *
+	 * @param visitor				- receives the fields of each slot
+	 */
+	public void forEach(Visitor visitor) {
+		for (int record = 0; record < recordCount; record++) visitRecord(record, visitor);
+	}
+
+	/**
+	 * Reads every slot under the given service between the two given dates, inclusive
+	 *
+	 * @param service				- the ID of the service
+	 * @param startDate				- the first date to read slots for
+	 * @param endDate				- the last date to read slots for
+	 * @param visitor				- receives the fields of each slot
+	 */
+	public void forEachByService(String service, LocalDate startDate, LocalDate endDate, Visitor visitor) {
+		Integer ref = serviceRefs.get(service);
+		if (ref != null) forEachInRange(ref, toDay(startDate), toDay(endDate), visitor);
+	}
+
+	/**
+	 * Reads every slot under every service between the two given dates, inclusive
+	 *
+	 * @param startDate				- the first date to read slots for
+	 * @param endDate				- the last date to read slots for
+	 * @param visitor				- receives the fields of each slot
+	 */
+	public void forEachByDate(LocalDate startDate, LocalDate endDate, Visitor visitor) {
+		for (int ref = 0; ref < services.length; ref++) forEachInRange(ref, toDay(startDate), toDay(endDate), visitor);
+	}
+
+	/**
+	 * Reads every slot booked by the given patient
+	 *
+	 * <p> Records are not indexed by patient, so this scans the patient field of every record in place
+	 *
+	 * @param patient				- the ID of the patient
+	 * @param visitor				- receives the fields of each slot
+	 */
+	public void forEachByPatient(String patient, Visitor visitor) {
+		Integer ref = patientRefs.get(patient);
+		if (ref == null) return;
+		for (int record = 0; record < recordCount; record++) {
+			if (buffer.getInt(recordsOffset + record * RECORD_SIZE + 16) == ref) visitRecord(record, visitor);
+		}
+	}
+
+	/**
+	 * Returns a bitmask of the archived time intervals for the given date under the given service
+	 *
+	 * @param service				- the ID of the service
+	 * @param date					- the date to check slots for
+	 *
+	 * @return int					- the bitmask of archived time intervals
+	 */
+	public int getBookedMask(String service, LocalDate date) {
+
+		//	Find the records of the service at this date
+		Integer ref = serviceRefs.get(service);
+		if (ref == null) return 0;
+		int day = (int)date.toEpochDay();
+		int entry = findIndexEntry(ref, day);
+		if (entry >= indexCount || buffer.getInt(HEADER_SIZE + entry * INDEX_ENTRY_SIZE) != ref || buffer.getInt(HEADER_SIZE + entry * INDEX_ENTRY_SIZE + 4) != day) return 0;
+
+		//	Set the bit of each record that is not cancelled
+		int mask = 0;
+		int first = buffer.getInt(HEADER_SIZE + entry * INDEX_ENTRY_SIZE + 8);
+		int count = buffer.getInt(HEADER_SIZE + entry * INDEX_ENTRY_SIZE + 12);
+		for (int record = first; record < first + count; record++) {
+			int offset = recordsOffset + record * RECORD_SIZE;
+			if (removed.isEmpty() || !removed.contains(buffer.getLong(offset))) mask |= 1 << buffer.get(offset + 20);
+		}
+		return mask;
+
+	}
+
+//endregion
+
+
+
+/* -------------------------------- Modifiers ------------------------------- */
+//region
+
+	/**
+	 * Marks the slot with the given ID as cancelled, it will be left out the next time the archive is written
+	 *
+	 * @param key					- the ID of the cancelled slot
+	 *
+	 * @return boolean				- was the slot archived and not cancelled already?
+	 */
+	public boolean remove(long key) {
+		if (findRecord(key) < 0 || !removed.add(key)) return false;
+		changeCount.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Updates the patient ID that archived slots refer to
+	 *
+	 * @param oldId					- the patient's previous ID
+	 * @param newId					- the patient's new ID
+	 */
+	public void renamePatient(String oldId, String newId) {
+		Integer ref = patientRefs.remove(oldId);
+		if (ref == null) return;
+		patients[ref] = newId;
+		patientRefs.put(newId, ref);
+		changeCount.incrementAndGet();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+//endregion
+
+
+
+/* ------------------------------ Write Methods ----------------------------- */
+//region
+
+	/**
+	 * Writes a new archive holding the slots of the previous archive along with the given slots.
+	 * Cancelled slots of the previous archive are left out, and the given slots replace any archived slot with the same ID.
+	 *
+	 * <p> The archive is first written to a temporary file which then replaces the old one,
+	 * so a crash while writing never leaves a half written archive behind
+	 *
+	 * @param path					- the archive file to write
+	 * @param previous				- the previous archive, or null if there is none
+	 * @param slots					- the slots to add to the archive
+	 *
+	 * @throws IOException			if the file could not be written
+	 */
+	public static void write(Path path, SlotArchive previous, Collection<Slot> slots) throws IOException {
+
+		//	Sort the new slots the same way as the records of the archive
+		ArrayList<Slot> added = new ArrayList<>(slots);
+		added.sort(Comparator.comparing((Slot slot) -> slot.getAllocatedService().getId()).thenComparing(Slot::getDate).thenComparing(Slot::getTime));
+		HashSet<Long> addedKeys = new HashSet<>();
+		for (Slot slot : added) addedKeys.add(slot.getKey());
+
+		//	Build the sorted service table and the patient table from both sources
+		TreeSet<String> serviceSet = new TreeSet<>();
+		ArrayList<String> patientList = new ArrayList<>();
+		HashMap<String, Integer> patientRefs = new HashMap<>();
+		if (previous != null) {
+			serviceSet.addAll(Arrays.asList(previous.services));
+			for (String patient : previous.patients) addTableEntry(patientList, patientRefs, patient);
+		}
+		for (Slot slot : added) {
+			serviceSet.add(slot.getAllocatedService().getId());
+			addTableEntry(patientList, patientRefs, slot.getAllocatedPatient().getId());
+		}
+		String[] serviceTable = serviceSet.toArray(new String[0]);
+		HashMap<String, Integer> serviceRefs = new HashMap<>();
+		for (int i = 0; i < serviceTable.length; i++) serviceRefs.put(serviceTable[i], i);
+
+		//	Merge the records of the previous archive with the new slots, both already sorted
+		int capacity = (previous == null ? 0 : previous.recordCount) + added.size();
+		long[] keys = new long[capacity];
+		int[] days = new int[capacity], serviceRefList = new int[capacity], patientRefList = new int[capacity];
+		byte[] indexes = new byte[capacity];
+		int count = 0, next = 0;
+		int previousCount = previous == null ? 0 : previous.recordCount;
+		for (int record = 0; record <= previousCount; record++) {
+
+			//	Read the next record of the previous archive, skipping it if it was cancelled or replaced
+			long key = 0;
+			int service = Integer.MAX_VALUE, day = 0, index = 0;
+			if (record < previousCount) {
+				int offset = previous.recordsOffset + record * RECORD_SIZE;
+				key = previous.buffer.getLong(offset);
+				if (previous.removed.contains(key) || addedKeys.contains(key)) continue;
+				day = previous.buffer.getInt(offset + 8);
+				service = serviceRefs.get(previous.services[previous.buffer.getInt(offset + 12)]);
+				index = previous.buffer.get(offset + 20);
+			}
+
+			//	Write every new slot that comes before it
+			while (next < added.size()) {
+				Slot slot = added.get(next);
+				int addedService = serviceRefs.get(slot.getAllocatedService().getId());
+				int addedDay = (int)slot.getDate().toEpochDay();
+				int addedIndex = TimeUtils.getTimeIndex(slot.getTime());
+				if (record < previousCount && compare(addedService, addedDay, addedIndex, service, day, index) > 0) break;
+				keys[count] = slot.getKey();
+				days[count] = addedDay;
+				serviceRefList[count] = addedService;
+				patientRefList[count] = patientRefs.get(slot.getAllocatedPatient().getId());
+				indexes[count++] = (byte)addedIndex;
+				next++;
+			}
+
+			//	Then write the record itself, unless a new slot took its place
+			if (record == previousCount) break;
+			if (count > 0 && compare(serviceRefList[count - 1], days[count - 1], indexes[count - 1], service, day, index) == 0) continue;
+			keys[count] = key;
+			days[count] = day;
+			serviceRefList[count] = service;
+			patientRefList[count] = patientRefs.get(previous.patients[previous.buffer.getInt(previous.recordsOffset + record * RECORD_SIZE + 16)]);
+			indexes[count++] = (byte)index;
+
+		}
+
+		//	Build the day index, one entry for each run of records with the same service and date
+		ArrayList<int[]> dayIndex = new ArrayList<>();
+		for (int record = 0; record < count; record++) {
+			int[] last = dayIndex.isEmpty() ? null : dayIndex.get(dayIndex.size() - 1);
+			if (last != null && last[0] == serviceRefList[record] && last[1] == days[record]) last[3]++;
+			else dayIndex.add(new int[] { serviceRefList[record], days[record], record, 1 });
+		}
+
+		//	Sort the records by key for the key index
+		int[] byKey = new int[count];
+		for (int i = 0; i < count; i++) byKey[i] = i;
+		sortByKey(byKey, keys, 0, count - 1);
+
+		//	Write everything to a temporary file
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer out = ByteBuffer.allocateDirect(SnapshotFile.BUFFER_SIZE);
+
+			//	Write the header, leaving the offset of the ID tables to be filled in once it is known
+			long tablesOffset = HEADER_SIZE + (long)dayIndex.size() * INDEX_ENTRY_SIZE + (long)count * (RECORD_SIZE + KEY_ENTRY_SIZE);
+			out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dayIndex.size());
+			out.putInt(serviceTable.length).putInt(patientList.size()).putLong(tablesOffset);
+
+			//	Write the day index, the records, and the key index
+			for (int[] entry : dayIndex) {
+				flushIfFull(output, out, INDEX_ENTRY_SIZE);
+				out.putInt(entry[0]).putInt(entry[1]).putInt(entry[2]).putInt(entry[3]);
+			}
+			for (int record = 0; record < count; record++) {
+				flushIfFull(output, out, RECORD_SIZE);
+				out.putLong(keys[record]).putInt(days[record]).putInt(serviceRefList[record]).putInt(patientRefList[record]);
+				out.put(indexes[record]).put((byte)0).putShort((short)0);
+			}
+			for (int record : byKey) {
+				flushIfFull(output, out, KEY_ENTRY_SIZE);
+				out.putLong(keys[record]).putInt(record);
+			}
+
+			//	Write the ID tables
+			for (String id : serviceTable) writeTableEntry(output, out, id);
+			for (String id : patientList) writeTableEntry(output, out, id);
+
+			//	Write out what is left and make sure it reaches the disk
+			flush(output, out);
+			output.force(true);
+		}
+
+		//	Replace the old archive with the new one
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Passes the fields of the given record to the visitor, unless the slot was cancelled
+	 */
+	private void visitRecord(int record, Visitor visitor) {
+		int offset = recordsOffset + record * RECORD_SIZE;
+		long key = buffer.getLong(offset);
+		if (!removed.isEmpty() && removed.contains(key)) return;
+		LocalDate date = LocalDate.ofEpochDay(buffer.getInt(offset + 8));
+		visitor.visit(key, services[buffer.getInt(offset + 12)], patients[buffer.getInt(offset + 16)], date, buffer.get(offset + 20));
+	}
+
+	/**
+	 * Passes every record of the given service between the two given epoch days to the visitor
+	 */
+	private void forEachInRange(int ref, int startDay, int endDay, Visitor visitor) {
+		for (int entry = findIndexEntry(ref, startDay); entry < indexCount; entry++) {
+			int offset = HEADER_SIZE + entry * INDEX_ENTRY_SIZE;
+			if (buffer.getInt(offset) != ref || buffer.getInt(offset + 4) > endDay) return;
+			int first = buffer.getInt(offset + 8);
+			int count = buffer.getInt(offset + 12);
+			for (int record = first; record < first + count; record++) visitRecord(record, visitor);
+		}
+	}
+
+	/**
+	 * Returns the position of the first day index entry at or after the given service and epoch day
+	 */
+	private int findIndexEntry(int ref, int day) {
+		int low = 0, high = indexCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int offset = HEADER_SIZE + mid * INDEX_ENTRY_SIZE;
+			if (compare(buffer.getInt(offset), buffer.getInt(offset + 4), 0, ref, day, 0) < 0) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the position of the record with the given key, or -1 if there is none
+	 */
+	private int findRecord(long key) {
+		int low = 0, high = recordCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midKey = buffer.getLong(keysOffset + mid * KEY_ENTRY_SIZE);
+			if (midKey < key) low = mid + 1;
+			else if (midKey > key) high = mid - 1;
+			else return buffer.getInt(keysOffset + mid * KEY_ENTRY_SIZE + 8);
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the epoch day of the given date, clamped so that {@code LocalDate.MIN} and {@code LocalDate.MAX} can be used as open bounds
+	 */
+	private static int toDay(LocalDate date) {
+		return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+	}
+
+	/**
+	 * Compares two records by service, then date, then time interval
+	 */
+	private static int compare(int serviceA, int dayA, int indexA, int serviceB, int dayB, int indexB) {
+		if (serviceA != serviceB) return Integer.compare(serviceA, serviceB);
+		if (dayA != dayB) return Integer.compare(dayA, dayB);
+		return Integer.compare(indexA, indexB);
+	}
+
+	/**
+	 * Sorts the given record positions by their keys, keys are unique so a plain quicksort is enough
+	 */
+	private static void sortByKey(int[] order, long[] keys, int low, int high) {
+		while (low < high) {
+			long pivot = keys[order[(low + high) >>> 1]];
+			int i = low, j = high;
+			while (i <= j) {
+				while (keys[order[i]] < pivot) i++;
+				while (keys[order[j]] > pivot) j--;
+				if (i <= j) {
+					int temp = order[i];
+					order[i++] = order[j];
+					order[j--] = temp;
+				}
+			}
+			if (j - low < high - i) {
+				sortByKey(order, keys, low, j);
+				low = i;
+			}
+			else {
+				sortByKey(order, keys, i, high);
+				high = j;
+			}
+		}
+	}
+
+	/**
+	 * Reads the given number of length prefixed strings
+	 */
+	private static String[] readTable(ByteBuffer tables, int size) {
+		String[] table = new String[size];
+		for (int i = 0; i < size; i++) {
+			byte[] bytes = new byte[tables.getInt()];
+			tables.get(bytes);
+			table[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return table;
+	}
+
+	/**
+	 * Writes a length prefixed string
+	 */
+	private static void writeTableEntry(FileChannel output, ByteBuffer out, String id) throws IOException {
+		byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+		flushIfFull(output, out, Integer.BYTES + bytes.length);
+		out.putInt(bytes.length).put(bytes);
+	}
+
+	/**
+	 * Adds the given ID to the end of the table, unless it is already in it
+	 */
+	private static void addTableEntry(ArrayList<String> table, HashMap<String, Integer> refs, String id) {
+		if (refs.putIfAbsent(id, table.size()) == null) table.add(id);
+	}
+
+	/**
+	 * Writes out the buffer if it does not have room for the given number of bytes
+	 */
+	private static void flushIfFull(FileChannel output, ByteBuffer out, int bytes) throws IOException {
+		if (out.remaining() < bytes) flush(output, out);
+	}
+
+	/**
+	 * Writes out everything in the buffer
+	 */
+	private static void flush(FileChannel output, ByteBuffer out) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) output.write(out);
+		out.clear();
+	}
+
+//endregion
+
+
+
+}
@@ -0,0 +1,112 @@
+package cmps251.utils;
+
+/**
+ * This class represents an entry of the slot manifest, describing the partition of slots saved for one month
+ *
+ * <p> Along with the number of slots, it holds the lowest and highest slot ID in the partition,
+ * so a slot can be looked up by its ID without loading the partitions that cannot hold it.
+ * Manifests saved by older versions did not hold these IDs, so their partitions cover every ID until they are saved again.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SlotPartition {
+
+
+
+/* --------------------------- Private Attributes --------------------------- */
+//region
+
+	private final int count;
+	private final long minKey;
+	private final long maxKey;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the number of slots in the partition and the range of their IDs
+	 *
+	 * @param count							- the number of slots in the partition
+	 * @param minKey						- the lowest slot ID in the partition
+	 * @param maxKey						- the highest slot ID in the partition
+	 */
+	public SlotPartition(int count, long minKey, long maxKey) {
+		this.count = count;
+		this.minKey = minKey;
+		this.maxKey = maxKey;
+	}
+
+	/**
+	 * This constructor takes in the number of slots in a partition whose IDs are not known, so it covers every ID
+	 *
+	 * @param count							- the number of slots in the partition
+	 */
+	public SlotPartition(int count) {
+		this(count, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+//endregion
+
+
+
+/* --------------------------------- Getters -------------------------------- */
+//region
+
+	/**
+	 * Returns the number of slots in the partition
+	 *
+	 * @return int			- the number of slots
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the lowest slot ID in the partition
+	 *
+	 * @return long			- the lowest slot ID
+	 */
+	public long getMinKey() {
+		return minKey;
+	}
+
+	/**
+	 * Returns the highest slot ID in the partition
+	 *
+	 * @return long			- the highest slot ID
+	 */
+	public long getMaxKey() {
+		return maxKey;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Checks if the partition could hold the slot with the given ID
+	 *
+	 * @param key			- the slot ID to check
+	 *
+	 * @return boolean		- is the ID within the partition's range?
+	 */
+	public boolean mightHold(long key) {
+		return key >= minKey && key <= maxKey;
+	}
+
+//endregion
+
+
+
+}
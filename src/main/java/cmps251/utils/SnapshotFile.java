@@ -0,0 +1,589 @@
+package cmps251.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+
+/**
+ * This class reads and writes the binary snapshot files that the repositories are saved to
+ *
+ * <p> Every file starts with a header made of {@code MAGIC}, the format version, and the type of data it holds, followed by the number of records.
+ * Dates are stored as epoch days and times as the index of their time interval in the day.
+ * Strings are dictionary encoded, so a string is only written out the first time it appears and is referred to by its position afterwards.
+ *
+ * <p> Slots are stored as the IDs of their service and patient, and are resolved against the given services and patients when loaded,
+ * so every slot shares the same service and patient objects as the repositories.
+ * Slot files of version 1 held a copy of each service and patient instead, these copies are replaced by the shared objects where possible.
+ *
+ * <p> Slots are split into a file per month, which are listed along with their number of slots in a manifest file.
+ * Since version 3 the manifest also holds the lowest and highest slot ID of each month, so a slot can be found by its ID without loading every month.
+ *
+ * <p> Files are written through a buffered {@code FileChannel} and read back by a streaming decoder,
+ * so neither side needs to hold the whole file in memory.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class SnapshotFile {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final int MAGIC = 0x53454848;
+	public static final int VERSION = 3;
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int TYPE_PATIENT = 0;
+	private static final int TYPE_SERVICE = 1;
+	private static final int TYPE_SLOT = 2;
+	private static final int TYPE_MANIFEST = 3;
+
+//endregion
+
+
+
+/* ------------------------------ Save Methods ------------------------------ */
+//region
+
+	/**
+	 * Saves the given patients to the given file
+	 *
+	 * @param path						- the file to save to
+	 * @param patients					- the patients to save, keyed by their id
+	 *
+	 * @throws IOException				if the file could not be written
+	 */
+	public static void savePatients(Path path, Map<String, Patient> patients) throws IOException {
+		try (Output output = new Output(path, TYPE_PATIENT, patients.size())) {
+			for (Map.Entry<String, Patient> entry : patients.entrySet()) {
+				Patient patient = entry.getValue();
+				output.writeString(entry.getKey());
+				output.writeString(patient.getId());
+				output.writeString(patient.getName());
+				output.writeByte(patient.getResidency().ordinal());
+			}
+		}
+	}
+
+	/**
+	 * Saves the given services to the given file
+	 *
+	 * @param path						- the file to save to
+	 * @param services					- the services to save, keyed by their id
+	 *
+	 * @throws IOException				if the file could not be written
+	 */
+	public static void saveServices(Path path, Map<String, Service> services) throws IOException {
+		try (Output output = new Output(path, TYPE_SERVICE, services.size())) {
+			for (Map.Entry<String, Service> entry : services.entrySet()) {
+				output.writeString(entry.getKey());
+				writeService(output, entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Saves the given slots to the given file, referring to their service and patient by ID
+	 *
+	 * @param path						- the file to save to
+	 * @param slots						- the slots to save, keyed by service, date, and time
+	 *
+	 * @throws IOException				if the file could not be written
+	 */
+	public static void saveSlots(Path path, Map<String, ? extends Map<LocalDate, ? extends Map<LocalTime, Slot>>> slots) throws IOException {
+
+		//	Count the slots so that the header can be written first
+		int count = 0;
+		for (Map<LocalDate, ? extends Map<LocalTime, Slot>> dateMap : slots.values()) {
+			for (Map<LocalTime, Slot> timeMap : dateMap.values()) count += timeMap.size();
+		}
+
+		//	Write each slot
+		try (Output output = new Output(path, TYPE_SLOT, count)) {
+			for (Map<LocalDate, ? extends Map<LocalTime, Slot>> dateMap : slots.values()) {
+				for (Map<LocalTime, Slot> timeMap : dateMap.values()) {
+					for (Slot slot : timeMap.values()) {
+						output.writeLong(slot.getKey());
+						output.writeInt((int)slot.getDate().toEpochDay());
+						output.writeByte(TimeUtils.getTimeIndex(slot.getTime()));
+						output.writeByte(slot.isBooked() ? 1 : 0);
+						output.writeString(slot.getAllocatedService().getId());
+						output.writeString(slot.getAllocatedPatient().getId());
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Saves the given list of slot partitions to the given manifest file
+	 *
+	 * @param path						- the file to save to
+	 * @param partitions				- the partition saved for each month
+	 *
+	 * @throws IOException				if the file could not be written
+	 */
+	public static void saveManifest(Path path, Map<YearMonth, SlotPartition> partitions) throws IOException {
+		try (Output output = new Output(path, TYPE_MANIFEST, partitions.size())) {
+			for (Map.Entry<YearMonth, SlotPartition> entry : partitions.entrySet()) {
+				output.writeInt(entry.getKey().getYear());
+				output.writeByte(entry.getKey().getMonthValue());
+				output.writeInt(entry.getValue().getCount());
+				output.writeLong(entry.getValue().getMinKey());
+				output.writeLong(entry.getValue().getMaxKey());
+			}
+		}
+	}
+
+//endregion
+
+
+
+/* ------------------------------ Load Methods ------------------------------ */
+//region
+
+	/**
+	 * Loads the patients saved in the given file
+	 *
+	 * @param path								- the file to load from
+	 *
+	 * @return TreeMap<String, Patient>			- the loaded patients, keyed by their id
+	 *
+	 * @throws IOException						if the file could not be read or is corrupted
+	 */
+	public static TreeMap<String, Patient> loadPatients(Path path) throws IOException {
+		TreeMap<String, Patient> patients = new TreeMap<>();
+		try (Input input = new Input(path, TYPE_PATIENT)) {
+			for (int i = input.getCount(); i > 0; i--) {
+				String key = input.readString();
+				String id = input.readString();
+				String name = input.readString();
+				ResidencyType residency = ResidencyType.values()[input.readByte()];
+				patients.put(key, new Patient(id, name, residency));
+			}
+		}
+		return patients;
+	}
+
+	/**
+	 * Loads the services saved in the given file
+	 *
+	 * @param path								- the file to load from
+	 *
+	 * @return TreeMap<String, Service>			- the loaded services, keyed by their id
+	 *
+	 * @throws IOException						if the file could not be read or is corrupted
+	 */
+	public static TreeMap<String, Service> loadServices(Path path) throws IOException {
+		TreeMap<String, Service> services = new TreeMap<>();
+		try (Input input = new Input(path, TYPE_SERVICE)) {
+			for (int i = input.getCount(); i > 0; i--) {
+				String key = input.readString();
+				services.put(key, readService(input));
+			}
+		}
+		return services;
+	}
+
+	/**
+	 * Loads the slots saved in the given file, resolving their service and patient against the given ones.
+	 * Slots whose service or patient cannot be found are skipped
+	 *
+	 * @param path																- the file to load from
+	 * @param services															- the services to resolve against, keyed by their id
+	 * @param patients															- the patients to resolve against, keyed by their id
+	 *
+	 * @return TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>>	- the loaded slots, keyed by service, date, and time
+	 *
+	 * @throws IOException														if the file could not be read or is corrupted
+	 */
+	public static TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> loadSlots(Path path, Map<String, Service> services, Map<String, Patient> patients) throws IOException {
+		TreeMap<String, TreeMap<LocalDate, TreeMap<LocalTime, Slot>>> slots = new TreeMap<>();
+		try (Input input = new Input(path, TYPE_SLOT)) {
+
+			//	Keep the copies held by version 1 files in case they are missing from the given services and patients
+			HashMap<String, Service> serviceCopies = new HashMap<>();
+			HashMap<String, Patient> patientCopies = new HashMap<>();
+			HashMap<String, Service> servicesById = null;
+
+			//	Read each slot
+			int skipped = 0;
+			for (int i = input.getCount(); i > 0; i--) {
+
+				//	Read the slot's own properties
+				long key = input.readLong();
+				LocalDate date = LocalDate.ofEpochDay(input.readInt());
+				LocalTime time = TimeUtils.getIndexTime(input.readByte());
+				boolean booked = input.readByte() == 1;
+
+				//	Read the id of the slot's service, along with its copy if this is a version 1 file
+				String serviceId = input.readString();
+				if (input.getVersion() == 1 && input.readByte() == 1) serviceCopies.put(serviceId, readService(input));
+
+				//	Read the id of the slot's patient, along with its copy if this is a version 1 file
+				String patientId = input.readString();
+				if (input.getVersion() == 1 && input.readByte() == 1) {
+					String name = input.readString();
+					ResidencyType residency = ResidencyType.values()[input.readByte()];
+					patientCopies.put(patientId, new Patient(patientId, name, residency));
+				}
+
+				//	Resolve the service and patient, also by the service's own ID in case it was stored under another key, skipping the slot if either cannot be found
+				Service service = services.getOrDefault(serviceId, serviceCopies.get(serviceId));
+				if (service == null) {
+					if (servicesById == null) {
+						servicesById = new HashMap<>();
+						for (Service stored : services.values()) servicesById.put(stored.getId(), stored);
+					}
+					service = servicesById.get(serviceId);
+				}
+				Patient patient = patients.getOrDefault(patientId, patientCopies.get(patientId));
+				if (service == null || patient == null) {
+					skipped++;
+					continue;
+				}
+
+				//	Recreate the slot and add it to the tree map
+				Slot slot = Slot.restore(key, date, time, service, patient);
+				slot.setBooked(booked);
+				slots.computeIfAbsent(serviceId, k -> new TreeMap<>()).computeIfAbsent(date, k -> new TreeMap<>()).put(time, slot);
+
+			}
+
+			//	Print a warning if any slots were skipped
+			if (skipped > 0) System.err.printf("%d slots in the file %s refer to a missing service or patient and were skipped! %n", skipped, path);
+
+		}
+		return slots;
+	}
+
+	/**
+	 * Loads the list of slot partitions saved in the given manifest file
+	 *
+	 * @param path								- the file to load from
+	 *
+	 * @return TreeMap<YearMonth, SlotPartition>	- the partition saved for each month
+	 *
+	 * @throws IOException							if the file could not be read or is corrupted
+	 */
+	public static TreeMap<YearMonth, SlotPartition> loadManifest(Path path) throws IOException {
+		TreeMap<YearMonth, SlotPartition> partitions = new TreeMap<>();
+		try (Input input = new Input(path, TYPE_MANIFEST)) {
+			for (int i = input.getCount(); i > 0; i--) {
+				int year = input.readInt();
+				int month = input.readByte();
+				if (month < 1 || month > 12) throw new IOException(String.format("The file at %s is corrupted!", path));
+				int count = input.readInt();
+
+				//	Manifests older than version 3 do not hold the range of slot IDs in each partition
+				if (input.getVersion() < 3) partitions.put(YearMonth.of(year, month), new SlotPartition(count));
+				else partitions.put(YearMonth.of(year, month), new SlotPartition(count, input.readLong(), input.readLong()));
+			}
+		}
+		return partitions;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Writes the properties of the given service
+	 *
+	 * @param output					- the file to write to
+	 * @param service					- the service to write
+	 *
+	 * @throws IOException				if the file could not be written
+	 */
+	private static void writeService(Output output, Service service) throws IOException {
+		output.writeString(service.getId());
+		output.writeLong(service.getKey());
+		output.writeString(service.getTitle());
+		output.writeByte(service.getMaxSlots());
+		output.writeDouble(service.getPricePerSlot());
+	}
+
+	/**
+	 * Reads the properties of a service and recreates it
+	 *
+	 * @param input						- the file to read from
+	 *
+	 * @return Service					- the recreated service
+	 *
+	 * @throws IOException				if the file could not be read
+	 */
+	private static Service readService(Input input) throws IOException {
+		String id = input.readString();
+		long key = input.readLong();
+		Service service = new Service(input.readString(), input.readByte(), input.readDouble());
+
+		//	Give it its numeric ID before its ID, since the ID may have been changed since the numeric ID was generated
+		if (key != 0) service.setKey(key);
+		service.setId(id);
+		return service;
+	}
+
+//endregion
+
+
+
+/* ------------------------------ Inner Classes ----------------------------- */
+//region
+
+	/**
+	 * Writes values to a snapshot file through a buffered file channel
+	 */
+	private static final class Output implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final HashMap<String, Integer> dictionary = new HashMap<>();
+
+		/**
+		 * Opens the given file, replacing its contents, and writes the header
+		 *
+		 * @param path					- the file to write to
+		 * @param type					- the type of data stored in the file
+		 * @param count					- the number of records that will be written
+		 *
+		 * @throws IOException			if the file could not be opened
+		 */
+		Output(Path path, int type, int count) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			writeInt(MAGIC);
+			writeByte(VERSION);
+			writeByte(type);
+			writeInt(count);
+		}
+
+		void writeByte(int value) throws IOException {
+			ensure(Byte.BYTES);
+			buffer.put((byte)value);
+		}
+
+		void writeInt(int value) throws IOException {
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		void writeLong(long value) throws IOException {
+			ensure(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		void writeDouble(double value) throws IOException {
+			ensure(Double.BYTES);
+			buffer.putDouble(value);
+		}
+
+		/**
+		 * Writes an unsigned number using as few bytes as possible, 7 bits per byte
+		 */
+		void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+
+		/**
+		 * Writes a reference to the given string if it was written before, otherwise writes the string itself
+		 */
+		void writeString(String value) throws IOException {
+
+			//	If the string was already written then refer to its position in the dictionary
+			Integer reference = dictionary.get(value);
+			if (reference != null) {
+				writeVarInt(reference + 1);
+				return;
+			}
+
+			//	Else write the string and add it to the dictionary
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(0);
+			writeVarInt(bytes.length);
+			for (int offset = 0; offset < bytes.length; ) {
+				ensure(1);
+				int length = Math.min(buffer.remaining(), bytes.length - offset);
+				buffer.put(bytes, offset, length);
+				offset += length;
+			}
+			dictionary.put(value, dictionary.size());
+
+		}
+
+		/**
+		 * Makes sure the buffer has room for the given number of bytes, writing it out if it does not
+		 */
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) flush();
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) channel.write(buffer);
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+				channel.force(false);
+			}
+			finally {
+				channel.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Reads values from a snapshot file through a buffered file channel, one buffer at a time
+	 */
+	private static final class Input implements Closeable {
+
+		private final Path path;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final ArrayList<String> dictionary = new ArrayList<>();
+		private final int version;
+		private final int count;
+
+		/**
+		 * Opens the given file and checks its header
+		 *
+		 * @param path					- the file to read from
+		 * @param type					- the type of data expected in the file
+		 *
+		 * @throws IOException			if the file could not be opened or does not hold the expected data
+		 */
+		Input(Path path, int type) throws IOException {
+			this.path = path;
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+			buffer.limit(0);
+			try {
+				if (readInt() != MAGIC) throw new IOException(String.format("The file at %s is not a snapshot file!", path));
+				version = readByte();
+				if (version < 1 || version > VERSION) throw new IOException(String.format("The file at %s has an unsupported version (%d)!", path, version));
+				if (readByte() != type) throw new IOException(String.format("The file at %s holds the wrong type of data!", path));
+				count = readInt();
+			}
+			catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		int getVersion() {
+			return version;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		int readByte() throws IOException {
+			ensure(Byte.BYTES);
+			return buffer.get() & 0xFF;
+		}
+
+		int readInt() throws IOException {
+			ensure(Integer.BYTES);
+			return buffer.getInt();
+		}
+
+		long readLong() throws IOException {
+			ensure(Long.BYTES);
+			return buffer.getLong();
+		}
+
+		double readDouble() throws IOException {
+			ensure(Double.BYTES);
+			return buffer.getDouble();
+		}
+
+		int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) return value;
+			}
+			throw new IOException(String.format("The file at %s is corrupted!", path));
+		}
+
+		String readString() throws IOException {
+
+			//	If this is a reference then look the string up in the dictionary
+			int reference = readVarInt();
+			if (reference > 0) {
+				if (reference > dictionary.size()) throw new IOException(String.format("The file at %s is corrupted!", path));
+				return dictionary.get(reference - 1);
+			}
+
+			//	Else read the string and add it to the dictionary
+			byte[] bytes = new byte[readVarInt()];
+			for (int offset = 0; offset < bytes.length; ) {
+				ensure(1);
+				int length = Math.min(buffer.remaining(), bytes.length - offset);
+				buffer.get(bytes, offset, length);
+				offset += length;
+			}
+			String value = new String(bytes, StandardCharsets.UTF_8);
+			dictionary.add(value);
+			return value;
+
+		}
+
+		/**
+		 * Makes sure the buffer holds at least the given number of bytes, reading more of the file if it does not
+		 */
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes) return;
+			buffer.compact();
+			while (buffer.position() < bytes) {
+				if (channel.read(buffer) < 0) throw new EOFException(String.format("The file at %s ended unexpectedly!", path));
+			}
+			buffer.flip();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+	}
+
+//endregion
+
+
+
+}
@@ -1,52 +1,220 @@
 package cmps251.utils;
 
-import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cmps251.models.Slot;
 
 /**
  * This class offers some utility methods related to time
  * 
+ * <p> The time intervals of a day are numbered from 0, starting at {@code Slot.MIN_TIME}, and their starting times are kept in a shared table,
+ * so converting between an index and its time never creates a new object. The slots and their occupancy words refer to intervals by index.
+ * Every interval is open on every date, unless special opening hours are set for the date. These are only kept in memory
+ * 
  * <p> <i>Created on 14/05/2023 by Muhammad Putra</i>
  * 
  * @author		Muhammad Putra
- * @version		1.1
+ * @version		1.23
  * @since		1.1
  */
 public final class TimeUtils {
 
 
 
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final int FULL_DAY_MASK = (int)((1L << Slot.MAX_SLOTS_PER_DAY) - 1);
+
+	private static final int INTERVAL_SECONDS = Slot.SLOT_DURATION * 60;
+	private static final LocalTime[] intervalTimes = createIntervalTimes();
+	public static final List<LocalTime> INTERVALS = List.of(intervalTimes);
+
+	private static final ConcurrentHashMap<LocalDate, Integer> openingMasks = new ConcurrentHashMap<>();
+
+//endregion
+
+
+
 /* ----------------------------- Utility Methods ---------------------------- */
 //region
 
 	/** 
-	 * Returns an array of time intervals for the given date
+	 * Returns the starting times of the time intervals that are open at the given date
+	 * 
+	 * <p> The returned list cannot be changed. Unless special opening hours are set for the date, it is the shared {@code INTERVALS} table
 	 * 
 	 * @param date							- the date to get time intervals for
 	 * 
-	 * @return ArrayList<LocalTime>			- an array of time intervals for the given date
+	 * @return List<LocalTime>				- the starting times of the open time intervals of the given date
+	 */
+	public static List<LocalTime> getDateTimeIntervals(LocalDate date) {
+
+		//	If the date has the usual opening hours then return the shared table
+		int open = getOpenMask(date);
+		if (open == FULL_DAY_MASK) return INTERVALS;
+
+		//	Else return the starting time of each open interval
+		ArrayList<LocalTime> outputList = new ArrayList<>(Integer.bitCount(open));
+		for (int mask = open; mask != 0; mask &= mask - 1) outputList.add(intervalTimes[Integer.numberOfTrailingZeros(mask)]);
+		return Collections.unmodifiableList(outputList);
+
+	}
+
+	/** 
+	 * Returns the index of the given time in the list of time intervals of a day
+	 * 
+	 * @param time							- the time to get the index of
+	 * 
+	 * @return int							- the index of the interval, or -1 if the time does not start an interval
 	 */
-	public static ArrayList<LocalTime> getDateTimeIntervals(LocalDate date) {
+	public static int getTimeIndex(LocalTime time) {
 
-		//	Create a new list of time intervals to be returned
-		ArrayList<LocalTime> outputList = new ArrayList<LocalTime>();
+		//	Get the number of seconds between the opening time and the given time
+		if (time == null) return -1;
+		int seconds = time.toSecondOfDay() - Slot.MIN_TIME.toSecondOfDay();
 
-		//	Loop through each time interval in the day
-		long numMinutes = Duration.between(Slot.MIN_TIME, Slot.MAX_TIME).toMinutes();
-		for (int i = 0; i <= numMinutes; i += 30) {
-			
-			//	Add the current time interval to the output list
-			outputList.add(Slot.MIN_TIME.plusMinutes(i));
+		//	If the time is before opening or not on an interval boundary then it has no index
+		if (seconds < 0 || seconds % INTERVAL_SECONDS != 0 || time.getNano() != 0) return -1;
 
-		}
+		//	If the time is after the last interval then it has no index
+		int index = seconds / INTERVAL_SECONDS;
+		return index < Slot.MAX_SLOTS_PER_DAY ? index : -1;
 
-		//	Return the list of time intervals
-		return outputList;
+	}
+
+	/** 
+	 * Returns the starting time of the time interval with the given index, taken from the shared table
+	 * 
+	 * @param index							- the index of the time interval
+	 * 
+	 * @return LocalTime					- the starting time of the interval
+	 */
+	public static LocalTime getIndexTime(int index) {
+		if (index >= 0 && index < intervalTimes.length) return intervalTimes[index];
+		return Slot.MIN_TIME.plusMinutes((long)index * Slot.SLOT_DURATION);
+	}
+
+	/** 
+	 * Returns a bitmask with a bit set for every time interval that is open at the given date
+	 * 
+	 * @param date							- the date to check
+	 * 
+	 * @return int							- the bitmask of open time intervals
+	 */
+	public static int getOpenMask(LocalDate date) {
+		Integer mask = openingMasks.get(date);
+		return mask == null ? FULL_DAY_MASK : mask;
+	}
+
+	/** 
+	 * Checks if the time interval with the given index is open at the given date
+	 * 
+	 * @param date							- the date to check
+	 * @param index							- the index of the time interval
+	 * 
+	 * @return boolean						- is the interval open?
+	 */
+	public static boolean isOpen(LocalDate date, int index) {
+		return index >= 0 && index < Slot.MAX_SLOTS_PER_DAY && (getOpenMask(date) & 1 << index) != 0;
+	}
 
+	/** 
+	 * Sets special opening hours for the given date, so that only the intervals starting from the first time up to the last time can be booked.
+	 * Slots that are already booked outside of them are kept
+	 * 
+	 * @param date							- the date to set the opening hours of
+	 * @param firstTime						- the starting time of the first open interval
+	 * @param lastTime						- the starting time of the last open interval
+	 * 
+	 * @throws IllegalArgumentException		if either time does not start an interval, or the last time is before the first
+	 */
+	public static void setOpeningHours(LocalDate date, LocalTime firstTime, LocalTime lastTime) {
+		int first = getTimeIndex(firstTime);
+		int last = getTimeIndex(lastTime);
+		if (first < 0 || last < 0 || last < first) throw new IllegalArgumentException("The opening hours must start and end on a time interval!");
+		setOpenMask(date, (int)((1L << last + 1) - (1L << first)));
+	}
+
+	/** 
+	 * Sets which time intervals are open at the given date, where bit {@code i} is set if the interval at index {@code i} is open.
+	 * A mask of 0 closes the whole date
+	 * 
+	 * @param date							- the date to set the open intervals of
+	 * @param mask							- the bitmask of open time intervals
+	 */
+	public static void setOpenMask(LocalDate date, int mask) {
+		if ((mask & FULL_DAY_MASK) == FULL_DAY_MASK) openingMasks.remove(date);
+		else openingMasks.put(date, mask & FULL_DAY_MASK);
+	}
+
+	/** 
+	 * Removes the special opening hours of the given date, so that every interval is open again
+	 * 
+	 * @param date							- the date to reset
+	 */
+	public static void clearOpeningHours(LocalDate date) {
+		openingMasks.remove(date);
+	}
+
+	/** 
+	 * Returns a bitmask with a bit set for every time interval of the given date that is already in the past
+	 * 
+	 * @param date							- the date to check
+	 * 
+	 * @return int							- the bitmask of past time intervals
+	 */
+	public static int getPastIntervalsMask(LocalDate date) {
+
+		//	If the date is in the past then every interval is, and if it is in the future then none are
+		LocalDateTime now = LocalDateTime.now();
+		int comparison = date.compareTo(now.toLocalDate());
+		if (comparison < 0) return FULL_DAY_MASK;
+		if (comparison > 0) return 0;
+
+		//	Else mark each interval of today that starts before the current time, which are the first few intervals
+		long nanos = now.toLocalTime().toNanoOfDay() - Slot.MIN_TIME.toNanoOfDay();
+		if (nanos <= 0) return 0;
+		long intervalNanos = INTERVAL_SECONDS * 1_000_000_000L;
+		long past = Math.min(Slot.MAX_SLOTS_PER_DAY, (nanos + intervalNanos - 1) / intervalNanos);
+		return (int)((1L << past) - 1);
+
+	}
+
+	/** 
+	 * Returns a bitmask with a bit set for every time interval of the given date that cannot be booked,
+	 * since it is either in the past or outside the date's opening hours
+	 * 
+	 * @param date							- the date to check
+	 * 
+	 * @return int							- the bitmask of closed time intervals
+	 */
+	public static int getClosedIntervalsMask(LocalDate date) {
+		return getPastIntervalsMask(date) | FULL_DAY_MASK & ~getOpenMask(date);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/** 
+	 * Creates the table of starting times of every time interval of a day
+	 * 
+	 * @return LocalTime[]					- the starting time of each interval, by index
+	 */
+	private static LocalTime[] createIntervalTimes() {
+		LocalTime[] times = new LocalTime[Slot.MAX_SLOTS_PER_DAY];
+		for (int i = 0; i < times.length; i++) times[i] = Slot.MIN_TIME.plusSeconds((long)i * INTERVAL_SECONDS);
+		return times;
 	}
 
 //endregion
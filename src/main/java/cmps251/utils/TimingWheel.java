@@ -0,0 +1,228 @@
+package cmps251.utils;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class expires items after a given delay, using a hierarchical timing wheel instead of a timer per item
+ *
+ * <p> The wheel has {@code LEVELS} levels of {@code WHEEL_SIZE} buckets each. A bucket of the lowest level holds the items due
+ * within one tick, and a bucket of each higher level spans a whole turn of the level below it.
+ * An item is put in the lowest level whose turn still reaches its deadline, and is moved down a level each time the level below
+ * comes round to its bucket, until it expires. Scheduling an item and expiring it are both constant time however many items
+ * are waiting, so thousands of items cost one list entry each and a single background thread.
+ *
+ * <p> Items are never taken off the wheel before they expire. An item that is no longer needed should instead ignore its expiry,
+ * which the given expiry action is called with on the background thread, in the order the items expire.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class TimingWheel<T> {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final int WHEEL_BITS = 6;
+	public static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	public static final int LEVELS = 4;
+
+	private static final long MAX_SPAN = 1L << WHEEL_BITS * LEVELS;
+
+	private final String name;
+	private final long tickMillis;
+	private final Consumer<T> expiry;
+	private final ArrayList<ArrayList<Entry<T>>> buckets = new ArrayList<>(WHEEL_SIZE * LEVELS);
+
+	private long currentTick;
+	private int size;
+	private ScheduledExecutorService ticker;
+
+//endregion
+
+
+
+/* ------------------------------ Constructors ------------------------------ */
+//region
+
+	/**
+	 * This constructor takes in the name of the background thread, the length of a tick, and what to do with each expired item
+	 *
+	 * @param name							- the name of the background thread
+	 * @param tickMillis					- the length of a tick in milliseconds, which is how late an item may expire
+	 * @param expiry						- the action called with each item once it expires
+	 */
+	public TimingWheel(String name, long tickMillis, Consumer<T> expiry) {
+		this.name = name;
+		this.tickMillis = Math.max(1, tickMillis);
+		this.expiry = expiry;
+		for (int i = 0; i < WHEEL_SIZE * LEVELS; i++) buckets.add(new ArrayList<>());
+		this.currentTick = getTime() / this.tickMillis;
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Returns the number of items waiting on the wheel, including those that will ignore their expiry and those still being expired
+	 *
+	 * @return int							- the number of waiting items
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Puts the given item on the wheel, to expire once the given delay has passed.
+	 * The background thread is started on the first item
+	 *
+	 * @param item							- the item to expire
+	 * @param delayMillis					- the delay in milliseconds
+	 */
+	public synchronized void schedule(T item, long delayMillis) {
+
+		//	Place the item in the bucket of its deadline, expiring it on the next tick if the deadline has already passed
+		long tick = (getTime() + Math.max(0, delayMillis) + tickMillis - 1) / tickMillis;
+		place(new Entry<>(item, Math.max(tick, currentTick + 1)));
+		size++;
+
+		//	Make sure the background thread is turning the wheel
+		if (ticker == null) {
+			ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+			ticker.scheduleAtFixedRate(() -> {
+				try {
+					advance(getTime());
+				}
+				catch (RuntimeException e) {
+					System.err.printf("We were unable to expire the items of %s! %n", name);
+					System.err.printf("The following error occurred: %s! %n", e.getMessage());
+				}
+			}, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+		}
+
+	}
+
+	/**
+	 * Turns the wheel up to the given time, calling the expiry action with every item whose deadline has passed.
+	 * The background thread calls this every tick, so it only needs to be called directly to expire items straight away
+	 *
+	 * @param now							- the current time, as returned by {@code getTime}
+	 *
+	 * @return int							- the number of items that expired
+	 */
+	public int advance(long now) {
+
+		//	Take the expired items off the wheel, so that the expiry action is not called while holding the wheel
+		ArrayList<T> expired = new ArrayList<>();
+		synchronized (this) {
+
+			//	If nothing is waiting on the wheel then jump straight to the given time
+			long target = now / tickMillis;
+			if (size == 0 && target > currentTick) currentTick = target;
+
+			//	Else go through each tick, moving the items of each higher level down once the level below comes round to them
+			while (currentTick < target) {
+				currentTick++;
+				for (int level = LEVELS - 1; level > 0; level--) {
+					if ((currentTick & (1L << WHEEL_BITS * level) - 1) == 0) cascade(level);
+				}
+				ArrayList<Entry<T>> bucket = buckets.get((int)(currentTick & WHEEL_SIZE - 1));
+				for (Entry<T> entry : bucket) expired.add(entry.item);
+				bucket.clear();
+			}
+
+		}
+
+		//	Then expire them in order, only counting them as gone once they have expired
+		try {
+			for (T item : expired) expiry.accept(item);
+		}
+		finally {
+			synchronized (this) {
+				size -= expired.size();
+			}
+		}
+		return expired.size();
+
+	}
+
+	/**
+	 * Returns the current time in milliseconds, as used by the wheel.
+	 * This is not the time of day, but it is never turned back
+	 *
+	 * @return long							- the current time
+	 */
+	public static long getTime() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * An item waiting on the wheel, along with the tick it expires at
+	 */
+	private static final class Entry<T> {
+
+		private final T item;
+		private final long tick;
+
+		private Entry(T item, long tick) {
+			this.item = item;
+			this.tick = tick;
+		}
+
+	}
+
+	/**
+	 * Puts the given entry in the bucket of the lowest level whose turn reaches its tick.
+	 * An entry past the turn of the highest level is put in its furthest bucket, and placed again once it is reached
+	 *
+	 * @param entry							- the entry to place
+	 */
+	private void place(Entry<T> entry) {
+		long tick = Math.min(entry.tick, currentTick + MAX_SPAN - 1);
+		long delta = tick - currentTick;
+		int level = 0;
+		while (delta >= 1L << WHEEL_BITS * (level + 1)) level++;
+		buckets.get(level * WHEEL_SIZE + (int)(tick >> WHEEL_BITS * level & WHEEL_SIZE - 1)).add(entry);
+	}
+
+	/**
+	 * Places every entry of the current bucket of the given level again, which moves it to a lower level
+	 *
+	 * @param level							- the level to move entries down from
+	 */
+	private void cascade(int level) {
+		ArrayList<Entry<T>> bucket = buckets.get(level * WHEEL_SIZE + (int)(currentTick >> WHEEL_BITS * level & WHEEL_SIZE - 1));
+		if (bucket.isEmpty()) return;
+		ArrayList<Entry<T>> entries = new ArrayList<>(bucket);
+		bucket.clear();
+		for (Entry<T> entry : entries) place(entry);
+	}
+
+//endregion
+
+
+
+}
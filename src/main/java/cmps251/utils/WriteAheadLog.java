@@ -0,0 +1,681 @@
+package cmps251.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import cmps251.models.Patient;
+import cmps251.models.Service;
+import cmps251.models.Slot;
+import cmps251.models.Patient.ResidencyType;
+import cmps251.utils.RepoUtils.DataType;
+
+/**
+ * This class keeps an append-only log of every change made to the repositories
+ *
+ * <p> Each change is written as a small binary record, so saving a change costs the same no matter how much data is stored.
+ * Records are first collected in memory and then written and synced to disk together by a background thread every
+ * {@code FLUSH_INTERVAL} milliseconds, or straight away once {@code GROUP_COMMIT_BYTES} are waiting.
+ * On startup the log is replayed on top of the last saved data, and once the data is saved again the log is cleared.
+ * Every change also marks its type of data as dirty in {@code AutoSaver}, even while the log is closed.
+ *
+ * <p> Every record is stored as {@code <length><type><payload><checksum>}.
+ * A record cut short by a crash fails its checksum, so the log is only replayed up to the last complete record.
+ *
+ * <p> <i>Created on 17/10/2026 by Muhammad Putra</i>
+ *
+ * @author		Muhammad Putra
+ * @version		1.23
+ * @since		1.23
+ */
+public final class WriteAheadLog {
+
+
+
+/* --------------------------- Constant Attributes -------------------------- */
+//region
+
+	public static final String FILE_NAME = RepoUtils.DATA_DIRECTORY + "mutations.log";
+	public static final long FLUSH_INTERVAL = 50;
+	public static final int GROUP_COMMIT_BYTES = 64 * 1024;
+
+	private static final Object lock = new Object();
+	private static final Object flushLock = new Object();
+
+	private static FileChannel channel;
+	private static long committedSize;
+	private static ScheduledExecutorService flusher;
+	private static ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+//endregion
+
+
+
+/* ---------------------------------- Enums --------------------------------- */
+//region
+
+	public enum RecordType {
+		PATIENT_PUT, PATIENT_REMOVE, PATIENT_ID_CHANGE,
+		SERVICE_PUT, SERVICE_REMOVE, SERVICE_ID_CHANGE,
+		SLOT_PUT, SLOT_REMOVE, SLOT_MOVE, SLOT_BATCH,
+		PATIENT_BATCH
+	}
+
+//endregion
+
+
+
+/* ------------------------------- Interfaces ------------------------------- */
+//region
+
+	/**
+	 * Applies the records read from the log while it is being replayed
+	 */
+	public interface Handler {
+		void patientPut(String key, String id, String name, ResidencyType residency);
+		void patientRemove(String id);
+		void patientIdChange(String oldId, String newId);
+		void servicePut(String key, long id, String title, int maxSlots, double pricePerSlot);
+		void serviceRemove(String id);
+		void serviceIdChange(String oldId, String newId);
+		void slotPut(long id, String service, String patient, LocalDate date, LocalTime time);
+		void slotRemove(long id);
+		void slotMove(long oldId, long id, String service, String patient, LocalDate date, LocalTime time);
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Utility Methods ---------------------------- */
+//region
+
+	/**
+	 * Checks if the log is currently open and recording changes
+	 *
+	 * @return boolean					- is the log open?
+	 */
+	public static boolean isOpen() {
+		synchronized (lock) {
+			return channel != null;
+		}
+	}
+
+	/**
+	 * Opens the log so that changes are recorded, and starts the background thread that syncs it to disk
+	 *
+	 * <p> <b>NOTE</b>: the log should be replayed before it is opened, otherwise the replayed changes would be recorded again
+	 *
+	 * @throws IOException				if the log file could not be opened
+	 */
+	public static void open() throws IOException {
+		synchronized (lock) {
+
+			//	If the log is already open then there is nothing to do
+			if (channel != null) return;
+
+			//	Open the log file for appending
+			Path path = Paths.get(FILE_NAME);
+			Files.createDirectories(path.getParent());
+			channel = openForAppend(path);
+			committedSize = channel.size();
+
+			//	Start the background thread that commits pending records in groups
+			flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "write-ahead-log");
+				thread.setDaemon(true);
+				return thread;
+			});
+			flusher.scheduleWithFixedDelay(WriteAheadLog::flushQuietly, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+
+		}
+	}
+
+	/**
+	 * Syncs any pending records to disk and closes the log
+	 */
+	public static void close() {
+
+		//	Stop the background thread and write out anything still pending
+		ScheduledExecutorService oldFlusher;
+		synchronized (lock) {
+			oldFlusher = flusher;
+			flusher = null;
+		}
+		if (oldFlusher != null) oldFlusher.shutdown();
+		flushQuietly();
+
+		//	Close the log file
+		synchronized (lock) {
+			try {
+				if (channel != null) channel.close();
+			}
+			catch (IOException e) {
+				System.err.printf("We were unable to close the file %s! %n", FILE_NAME);
+			}
+			channel = null;
+		}
+
+	}
+
+	/**
+	 * Writes every pending record to the log file and waits until it is synced to disk
+	 *
+	 * <p> If the records could not be written, they are put back in front of the pending records so that the next sync retries them,
+	 * and anything written of them is cut off the file, since a partly written record would stop the log from being replayed past it.
+	 * If the file cannot be cut then, it is cut by the next sync before it writes anything
+	 *
+	 * @throws IOException				if the records could not be written
+	 */
+	public static void sync() throws IOException {
+		synchronized (flushLock) {
+
+			//	Swap out the pending records so that new changes can keep being recorded
+			byte[] records;
+			FileChannel target;
+			long start;
+			synchronized (lock) {
+				if (channel == null || pending.size() == 0) return;
+				records = pending.toByteArray();
+				pending = new ByteArrayOutputStream();
+				target = channel;
+				start = committedSize;
+			}
+
+			//	Write the whole group after the last complete record and sync it once
+			try {
+				if (target.size() > start) target.truncate(start);
+				target.position(start);
+				ByteBuffer buffer = ByteBuffer.wrap(records);
+				while (buffer.hasRemaining()) target.write(buffer);
+				target.force(false);
+			}
+			catch (IOException e) {
+
+				//	Put the records back in front of any recorded since, and cut off whatever was written of them
+				synchronized (lock) {
+					ByteArrayOutputStream restored = new ByteArrayOutputStream(records.length + pending.size());
+					restored.write(records, 0, records.length);
+					pending.writeTo(restored);
+					pending = restored;
+				}
+				try {
+					target.truncate(start);
+				}
+				catch (IOException truncateError) {
+
+					//	The next sync cuts it off before writing
+
+				}
+				throw e;
+
+			}
+
+			//	The records are now complete on disk
+			synchronized (lock) {
+				if (channel == target) committedSize = start + records.length;
+			}
+
+		}
+	}
+
+	/**
+	 * Clears the log, should only be called right after all the data has been saved
+	 *
+	 * @throws IOException				if the log file could not be cleared
+	 */
+	public static void truncate() throws IOException {
+		synchronized (flushLock) {
+			synchronized (lock) {
+				pending = new ByteArrayOutputStream();
+				committedSize = 0;
+				if (channel != null) channel.truncate(0);
+				else Files.deleteIfExists(Paths.get(FILE_NAME));
+			}
+		}
+	}
+
+	/**
+	 * Returns the position in the log right after the last recorded change.
+	 * Changes recorded from now on are stored after this position
+	 *
+	 * @return long						- the current end of the log, including records that are still pending
+	 *
+	 * @throws IOException				if the size of the log file could not be read
+	 */
+	public static long checkpoint() throws IOException {
+		synchronized (flushLock) {
+			synchronized (lock) {
+				return channel == null ? 0 : committedSize + pending.size();
+			}
+		}
+	}
+
+	/**
+	 * Removes every record before the given position from the log, keeping the ones recorded after it.
+	 * Should only be called once all the data has been saved as it was at that position
+	 *
+	 * <p> The remaining records are copied to a new file which then replaces the log, so a crash never loses them
+	 *
+	 * @param position					- the position returned by {@code checkpoint} before the data was saved
+	 *
+	 * @throws IOException				if the log file could not be rewritten
+	 */
+	public static void truncate(long position) throws IOException {
+		synchronized (flushLock) {
+
+			//	Write out any pending records so that the whole tail is in the file
+			sync();
+
+			synchronized (lock) {
+
+				//	If the log is closed or nothing was recorded since the position then clear the whole file
+				if (channel == null) return;
+				long size = committedSize;
+				if (position >= size) {
+					channel.truncate(0);
+					committedSize = 0;
+					return;
+				}
+
+				//	Else copy the records after the position to a new file
+				Path path = Paths.get(FILE_NAME);
+				Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+				try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					long copied = 0;
+					while (copied < size - position) copied += channel.transferTo(position + copied, size - position - copied, output);
+					output.force(false);
+				}
+
+				//	Replace the log with the new file and keep appending to it
+				channel.close();
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				channel = openForAppend(path);
+				committedSize = channel.size();
+
+			}
+
+		}
+	}
+
+	/**
+	 * Reads every complete record in the log file and passes it to the given handler.
+	 * If the last record was cut short, the log file is trimmed to the end of the last complete record
+	 *
+	 * @param handler					- the handler that applies each record
+	 *
+	 * @return int						- the number of records replayed
+	 *
+	 * @throws IOException				if the log file could not be read
+	 */
+	public static int replay(Handler handler) throws IOException {
+
+		//	If there is no log then there is nothing to replay
+		Path path = Paths.get(FILE_NAME);
+		if (!Files.exists(path)) return 0;
+
+		//	Read and apply each record until the end of the file or an incomplete record is found
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		int count = 0;
+		int validLength = 0;
+		while (buffer.remaining() >= Integer.BYTES) {
+
+			//	Read the record and check that it is complete, before allocating anything for a length that may be corrupted
+			int length = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining() - Long.BYTES) break;
+			byte[] record = new byte[length];
+			buffer.get(record);
+			CRC32 checksum = new CRC32();
+			checksum.update(record);
+			if (buffer.getLong() != checksum.getValue()) break;
+
+			//	Apply the record
+			applyRecord(record, handler);
+			validLength = buffer.position();
+			count++;
+
+		}
+
+		//	Trim any incomplete record from the end of the file
+		if (validLength < buffer.capacity()) {
+			try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				file.truncate(validLength);
+			}
+		}
+
+		//	Return the number of records replayed
+		return count;
+
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Logging Methods ---------------------------- */
+//region
+
+	/**
+	 * Records that the given patient was stored under the given key
+	 *
+	 * @param key						- the key the patient is stored under
+	 * @param patient					- the stored patient
+	 */
+	public static void logPatientPut(String key, Patient patient) {
+		AutoSaver.markDirty(DataType.PATIENT);
+		if (!isOpen()) return;
+		append(RecordType.PATIENT_PUT, output -> {
+			output.writeUTF(key);
+			output.writeUTF(patient.getId());
+			output.writeUTF(patient.getName());
+			output.writeByte(patient.getResidency().ordinal());
+		});
+	}
+
+	/**
+	 * Records that the given patients were stored under their IDs together, as a single record so that they are replayed all or not at all
+	 *
+	 * @param patients					- the stored patients
+	 */
+	public static void logPatientPuts(Collection<Patient> patients) {
+		AutoSaver.markDirty(DataType.PATIENT);
+		if (!isOpen()) return;
+		append(RecordType.PATIENT_BATCH, output -> {
+			output.writeInt(patients.size());
+			for (Patient patient : patients) {
+				output.writeUTF(patient.getId());
+				output.writeUTF(patient.getName());
+				output.writeByte(patient.getResidency().ordinal());
+			}
+		});
+	}
+
+	/**
+	 * Records that the patient with the given ID was removed
+	 *
+	 * @param id						- the ID of the removed patient
+	 */
+	public static void logPatientRemove(String id) {
+		AutoSaver.markDirty(DataType.PATIENT);
+		if (!isOpen()) return;
+		append(RecordType.PATIENT_REMOVE, output -> output.writeUTF(id));
+	}
+
+	/**
+	 * Records that the ID of a patient was changed
+	 *
+	 * @param oldId						- the patient's previous ID
+	 * @param newId						- the patient's new ID
+	 */
+	public static void logPatientIdChange(String oldId, String newId) {
+		AutoSaver.markDirty(EnumSet.of(DataType.PATIENT, DataType.SLOT));
+		if (!isOpen()) return;
+		append(RecordType.PATIENT_ID_CHANGE, output -> {
+			output.writeUTF(oldId);
+			output.writeUTF(newId);
+		});
+	}
+
+	/**
+	 * Records that the given service was stored under the given key
+	 *
+	 * @param key						- the key the service is stored under
+	 * @param service					- the stored service
+	 */
+	public static void logServicePut(String key, Service service) {
+		AutoSaver.markDirty(DataType.SERVICE);
+		if (!isOpen()) return;
+		append(RecordType.SERVICE_PUT, output -> {
+			output.writeUTF(key);
+			output.writeLong(service.getKey());
+			output.writeUTF(service.getTitle());
+			output.writeByte(service.getMaxSlots());
+			output.writeDouble(service.getPricePerSlot());
+		});
+	}
+
+	/**
+	 * Records that the service with the given ID was removed
+	 *
+	 * @param id						- the ID of the removed service
+	 */
+	public static void logServiceRemove(String id) {
+		AutoSaver.markDirty(DataType.SERVICE);
+		if (!isOpen()) return;
+		append(RecordType.SERVICE_REMOVE, output -> output.writeUTF(id));
+	}
+
+	/**
+	 * Records that the ID of a service was changed
+	 *
+	 * @param oldId						- the service's previous ID
+	 * @param newId						- the service's new ID
+	 */
+	public static void logServiceIdChange(String oldId, String newId) {
+		AutoSaver.markDirty(EnumSet.of(DataType.SERVICE, DataType.SLOT));
+		if (!isOpen()) return;
+		append(RecordType.SERVICE_ID_CHANGE, output -> {
+			output.writeUTF(oldId);
+			output.writeUTF(newId);
+		});
+	}
+
+	/**
+	 * Records that the given slot was booked
+	 *
+	 * @param slot						- the booked slot
+	 */
+	public static void logSlotPut(Slot slot) {
+		AutoSaver.markDirty(DataType.SLOT);
+		if (!isOpen()) return;
+		append(RecordType.SLOT_PUT, output -> {
+			output.writeLong(slot.getKey());
+			output.writeUTF(slot.getAllocatedService().getId());
+			output.writeUTF(slot.getAllocatedPatient().getId());
+			output.writeInt((int)slot.getDate().toEpochDay());
+			output.writeByte(TimeUtils.getTimeIndex(slot.getTime()));
+		});
+	}
+
+	/**
+	 * Records that the given slots were booked together, as a single record so that they are replayed all or not at all
+	 *
+	 * @param slots						- the booked slots
+	 */
+	public static void logSlotPuts(Collection<Slot> slots) {
+		AutoSaver.markDirty(DataType.SLOT);
+		if (!isOpen()) return;
+		append(RecordType.SLOT_BATCH, output -> {
+			output.writeInt(slots.size());
+			for (Slot slot : slots) {
+				output.writeLong(slot.getKey());
+				output.writeUTF(slot.getAllocatedService().getId());
+				output.writeUTF(slot.getAllocatedPatient().getId());
+				output.writeInt((int)slot.getDate().toEpochDay());
+				output.writeByte(TimeUtils.getTimeIndex(slot.getTime()));
+			}
+		});
+	}
+
+	/**
+	 * Records that the slot with the given ID was cancelled
+	 *
+	 * @param id						- the ID of the cancelled slot
+	 */
+	public static void logSlotRemove(long id) {
+		AutoSaver.markDirty(DataType.SLOT);
+		if (!isOpen()) return;
+		append(RecordType.SLOT_REMOVE, output -> output.writeLong(id));
+	}
+
+	/**
+	 * Records that the slot with the given ID was replaced by the given slot, as a single record
+	 *
+	 * @param oldId						- the ID of the replaced slot
+	 * @param slot						- the slot that replaced it
+	 */
+	public static void logSlotMove(long oldId, Slot slot) {
+		AutoSaver.markDirty(DataType.SLOT);
+		if (!isOpen()) return;
+		append(RecordType.SLOT_MOVE, output -> {
+			output.writeLong(oldId);
+			output.writeLong(slot.getKey());
+			output.writeUTF(slot.getAllocatedService().getId());
+			output.writeUTF(slot.getAllocatedPatient().getId());
+			output.writeInt((int)slot.getDate().toEpochDay());
+			output.writeByte(TimeUtils.getTimeIndex(slot.getTime()));
+		});
+	}
+
+//endregion
+
+
+
+/* ----------------------------- Private Methods ---------------------------- */
+//region
+
+	/**
+	 * Writes the payload of a record
+	 */
+	private interface PayloadWriter {
+		void write(DataOutputStream output) throws IOException;
+	}
+
+	/**
+	 * Encodes a record of the given type and adds it to the pending records
+	 *
+	 * @param type						- the type of the record
+	 * @param payload					- writes the record's payload
+	 */
+	private static void append(RecordType type, PayloadWriter payload) {
+
+		//	Encode the record type and payload
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeByte(type.ordinal());
+			payload.write(output);
+		}
+		catch (IOException e) {
+			System.err.printf("We were unable to record a change of the type %s! %n", type.toString());
+			return;
+		}
+		byte[] record = bytes.toByteArray();
+
+		//	Frame the record with its length and checksum
+		CRC32 checksum = new CRC32();
+		checksum.update(record);
+		ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + record.length + Long.BYTES);
+		frame.putInt(record.length).put(record).putLong(checksum.getValue());
+
+		//	Add it to the pending records, committing the group early if it has grown large
+		boolean full;
+		synchronized (lock) {
+			pending.write(frame.array(), 0, frame.capacity());
+			full = pending.size() >= GROUP_COMMIT_BYTES;
+		}
+		if (full) flushQuietly();
+
+	}
+
+	/**
+	 * Opens the log file for reading and for writing at its end
+	 *
+	 * @param path						- the log file
+	 *
+	 * @return FileChannel				- the opened file, positioned at its end
+	 *
+	 * @throws IOException				if the file could not be opened
+	 */
+	private static FileChannel openForAppend(Path path) throws IOException {
+		FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		file.position(file.size());
+		return file;
+	}
+
+	/**
+	 * Syncs the pending records to disk, printing any errors instead of throwing them
+	 */
+	private static void flushQuietly() {
+		try {
+			sync();
+		}
+		catch (IOException e) {
+			System.err.printf("We were unable to write to the file %s! %n", FILE_NAME);
+			System.err.printf("The following error occurred: %s! %n", e.getMessage());
+		}
+	}
+
+	/**
+	 * Decodes the given record and passes it to the handler
+	 *
+	 * @param record					- the record's type and payload
+	 * @param handler					- the handler that applies the record
+	 *
+	 * @throws IOException				if the record could not be decoded
+	 */
+	private static void applyRecord(byte[] record, Handler handler) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+		switch (RecordType.values()[input.readUnsignedByte()]) {
+			case PATIENT_PUT:
+				handler.patientPut(input.readUTF(), input.readUTF(), input.readUTF(), ResidencyType.values()[input.readUnsignedByte()]);
+				break;
+			case PATIENT_REMOVE:
+				handler.patientRemove(input.readUTF());
+				break;
+			case PATIENT_ID_CHANGE:
+				handler.patientIdChange(input.readUTF(), input.readUTF());
+				break;
+			case SERVICE_PUT:
+				handler.servicePut(input.readUTF(), input.readLong(), input.readUTF(), input.readUnsignedByte(), input.readDouble());
+				break;
+			case SERVICE_REMOVE:
+				handler.serviceRemove(input.readUTF());
+				break;
+			case SERVICE_ID_CHANGE:
+				handler.serviceIdChange(input.readUTF(), input.readUTF());
+				break;
+			case SLOT_PUT:
+				handler.slotPut(input.readLong(), input.readUTF(), input.readUTF(), LocalDate.ofEpochDay(input.readInt()), TimeUtils.getIndexTime(input.readUnsignedByte()));
+				break;
+			case SLOT_REMOVE:
+				handler.slotRemove(input.readLong());
+				break;
+			case SLOT_MOVE:
+				handler.slotMove(input.readLong(), input.readLong(), input.readUTF(), input.readUTF(), LocalDate.ofEpochDay(input.readInt()), TimeUtils.getIndexTime(input.readUnsignedByte()));
+				break;
+			case SLOT_BATCH:
+				for (int i = input.readInt(); i > 0; i--) {
+					handler.slotPut(input.readLong(), input.readUTF(), input.readUTF(), LocalDate.ofEpochDay(input.readInt()), TimeUtils.getIndexTime(input.readUnsignedByte()));
+				}
+				break;
+			case PATIENT_BATCH:
+				for (int i = input.readInt(); i > 0; i--) {
+					String id = input.readUTF();
+					handler.patientPut(id, id, input.readUTF(), ResidencyType.values()[input.readUnsignedByte()]);
+				}
+				break;
+		}
+	}
+
+//endregion
+
+
+
+}